@@ -275,6 +275,7 @@ public class ClientConnection implements Closeable {
         case CLIENT_COMMAND_SUCCEEDED:
         case CLIENT_COMMAND_FAILED:
         case QUERY_RESULT:
+        case QUERY_RESULT_BATCH:
           response = new byte[1][];
           break;
         default:
@@ -297,6 +298,22 @@ public class ClientConnection implements Closeable {
     return response;
   }
 
+  /**
+   * Allows the master to send additional result batches of the current query.
+   * 
+   * @param numberOfBatches
+   */
+  public void sendResultCredit(int numberOfBatches) {
+    synchronized (outSocketSemaphore) {
+      if (outSocket == null) {
+        System.out.println("Connection to master is already closed.");
+        return;
+      }
+      outSocket.send(MessageUtils.createStringMessage(MessageType.QUERY_RESULT_CREDIT,
+              clientAddress + "|" + numberOfBatches, null));
+    }
+  }
+
   public void sendCommandAbortion(String command) {
     synchronized (outSocketSemaphore) {
       if (outSocket == null) {
@@ -35,6 +35,7 @@ import de.uni_koblenz.west.koral.common.ftp.FTPClient;
 import de.uni_koblenz.west.koral.common.logger.JeromqStreamHandler;
 import de.uni_koblenz.west.koral.common.messages.MessageType;
 import de.uni_koblenz.west.koral.common.messages.MessageUtils;
+import de.uni_koblenz.west.koral.common.messages.QueryResultBatch;
 import de.uni_koblenz.west.koral.common.query.execution.QueryOperatorTask;
 import de.uni_koblenz.west.koral.common.query.parser.QueryExecutionTreeType;
 import de.uni_koblenz.west.koral.common.query.parser.SparqlParser;
@@ -74,7 +75,16 @@ public class KoralClient {
 
   private String[] master;
 
+  /**
+   * number of result batches the master may send before the client has
+   * processed them
+   */
+  private static final int RESULT_BATCH_WINDOW = 16;
+
+  private QueryResultFormat resultFormat;
+
   public KoralClient() {
+    resultFormat = QueryResultFormat.TSV;
     ARQ.init();
     connection = new ClientConnection();
   }
@@ -179,6 +189,10 @@ public class KoralClient {
     }
   }
 
+  public void setQueryResultFormat(QueryResultFormat resultFormat) {
+    this.resultFormat = resultFormat;
+  }
+
   public File processQueryFromFile(String queryFile, String outputFile,
           QueryExecutionTreeType treeType, boolean useBaseOperators)
           throws UnsupportedEncodingException, FileNotFoundException, IOException {
@@ -242,39 +256,41 @@ public class KoralClient {
 
     try {
       // send query
-      byte[][] args = new byte[4][];
+      byte[][] args = new byte[6][];
       args[0] = NumberConversion.int2bytes(args.length - 1);
       args[1] = NumberConversion.int2bytes(treeType.ordinal());
       args[2] = new byte[] { useBaseOperators ? (byte) 1 : (byte) 0 };
       args[3] = queryString.getBytes("UTF-8");
+      // request result batches
+      args[4] = new byte[] { 1 };
+      args[5] = NumberConversion.int2bytes(RESULT_BATCH_WINDOW);
       connection.sendCommand("query", args);
 
       // receive response
       try {
+        QueryResultWriter resultWriter = new QueryResultWriter(outputWriter, resultFormat, vars);
+        resultWriter.writeHeader();
+        int numberOfProcessedBatches = 0;
         byte[][] response = connection.getResponse();
-        long numberOfReceivedMappings = 0;
-        boolean isFirstResult = true;
         while (response != null) {
           MessageType mtype = MessageType.valueOf(response[0][0]);
           if (mtype == MessageType.MASTER_WORK_IN_PROGRESS) {
             if (response[0].length > 1) {
               System.out.println(MessageUtils.extractMessageString(response[0], null));
             }
-          } else if (mtype == MessageType.QUERY_RESULT) {
-            if (isFirstResult) {
-              outputHeaders(vars, outputWriter);
-              isFirstResult = false;
-            }
-            String string = MessageUtils.convertToString(response[0], null);
-            outputWriter.write(string);
+          } else if (mtype == MessageType.QUERY_RESULT_BATCH) {
+            resultWriter.writeRows(QueryResultBatch.deserialize(response[0]));
             outputWriter.flush();
-            numberOfReceivedMappings += countNumberOfMappings(string);
+            numberOfProcessedBatches++;
+            if (numberOfProcessedBatches == (RESULT_BATCH_WINDOW / 2)) {
+              connection.sendResultCredit(numberOfProcessedBatches);
+              numberOfProcessedBatches = 0;
+            }
           } else {
-            outputWriter.write("\n");
-            outputWriter.flush();
-            System.out.println("Received " + numberOfReceivedMappings
-                    + " result mappings (counted by number of lines) in "
-                    + (System.currentTimeMillis() - startTime) + " msec.");
+            resultWriter.writeFooter();
+            System.out.println("Received " + resultWriter.getNumberOfRows()
+                    + " result mappings in " + (System.currentTimeMillis() - startTime)
+                    + " msec.");
             processCommandResponse("querying database", response);
             break;
           }
@@ -289,26 +305,6 @@ public class KoralClient {
     }
   }
 
-  private long countNumberOfMappings(String string) {
-    long result = 0;
-    char separatorChar = Configuration.QUERY_RESULT_ROW_SEPARATOR_CHAR.charAt(0);
-    for (char c : string.toCharArray()) {
-      if (c == separatorChar) {
-        result++;
-      }
-    }
-    return result;
-  }
-
-  private void outputHeaders(String[] vars, Writer outputWriter) throws IOException {
-    String delim = "";
-    for (String var : vars) {
-      outputWriter.write(delim);
-      outputWriter.write(var);
-      delim = Configuration.QUERY_RESULT_COLUMN_SEPARATOR_CHAR;
-    }
-  }
-
   private String readQueryFromFile(File queryFile) throws FileNotFoundException, IOException {
     try (BufferedReader br = new BufferedReader(new FileReader(queryFile));) {
       StringBuilder sb = new StringBuilder();
@@ -505,13 +501,18 @@ public class KoralClient {
     CommandLineParser parser = new DefaultParser();
     CommandLine commandLine = parser.parse(options, args);
 
-    QueryExecutionTreeType treeType = QueryExecutionTreeType.LEFT_LINEAR;
+    QueryExecutionTreeType treeType = QueryExecutionTreeType.COST_BASED;
     if (commandLine.hasOption("t")) {
       treeType = QueryExecutionTreeType.valueOf(commandLine.getOptionValue("t"));
     }
 
     boolean useBaselineOperators = commandLine.hasOption("b");
 
+    if (commandLine.hasOption("f")) {
+      client.setQueryResultFormat(
+              QueryResultFormat.valueOf(commandLine.getOptionValue("f").toUpperCase()));
+    }
+
     try {
       if (commandLine.hasOption("q")) {
         if (commandLine.hasOption("o")) {
@@ -602,14 +603,26 @@ public class KoralClient {
     Option treeType = Option.builder("t").longOpt("treeType").hasArg().argName("treeType").desc(
             "The ordering in which the triple patterns of a BGP are joined. Valid options are "
                     + sb.toString() + ". The default value is "
-                    + QueryExecutionTreeType.LEFT_LINEAR.name() + ".")
+                    + QueryExecutionTreeType.COST_BASED.name() + ".")
             .required(false).build();
 
     Option useBaseOperators = Option.builder("b").longOpt("base").hasArg(false)
             .desc("If set, the baseline query operators are used.").required(false).build();
 
     Option output = Option.builder("o").longOpt("output").hasArg().argName("outputFile").desc(
-            "The CSV file where the output is stored. If no file is given, the output is written to command line.")
+            "The file where the output is stored. If no file is given, the output is written to command line.")
+            .required(false).build();
+
+    StringBuilder formats = new StringBuilder();
+    delim = "";
+    for (QueryResultFormat format : QueryResultFormat.values()) {
+      formats.append(delim).append(format.name());
+      delim = ", ";
+    }
+
+    Option resultFormat = Option.builder("f").longOpt("format").hasArg().argName("resultFormat")
+            .desc("The format of the query results. Valid options are " + formats.toString()
+                    + ". The default value is " + QueryResultFormat.TSV.name() + ".")
             .required(false).build();
 
     Option queryFile = Option.builder("q").longOpt("querFile").hasArg().argName("SPARQLQueryFile")
@@ -621,6 +634,7 @@ public class KoralClient {
     options.addOption(useBaseOperators);
     options.addOption(output);
     options.addOption(queryFile);
+    options.addOption(resultFormat);
     return options;
   }
 
@@ -0,0 +1,45 @@
+/*
+ * This file is part of Koral.
+ *
+ * Koral is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Koral is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Leser General Public License
+ * along with Koral.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2016 Daniel Janke
+ */
+package de.uni_koblenz.west.koral.client;
+
+/**
+ * The formats in which {@link KoralClient} writes query results.
+ * 
+ * @author Daniel Janke &lt;danijankATuni-koblenz.de&gt;
+ *
+ */
+public enum QueryResultFormat {
+
+  /**
+   * the resources are written in their N-Triples serialization separated by
+   * tabs as in previous versions of Koral
+   */
+  TSV,
+
+  /**
+   * SPARQL 1.1 Query Results CSV Format
+   */
+  CSV,
+
+  /**
+   * SPARQL 1.1 Query Results JSON Format
+   */
+  JSON;
+
+}
@@ -0,0 +1,229 @@
+/*
+ * This file is part of Koral.
+ *
+ * Koral is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Koral is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Leser General Public License
+ * along with Koral.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2016 Daniel Janke
+ */
+package de.uni_koblenz.west.koral.client;
+
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.Node;
+
+import de.uni_koblenz.west.koral.common.config.impl.Configuration;
+import de.uni_koblenz.west.koral.master.utils.DeSerializer;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes the result rows received in
+ * {@link de.uni_koblenz.west.koral.common.messages.QueryResultBatch}es in a
+ * {@link QueryResultFormat}. The resources are received in their serialized
+ * form. For the formats that require their components, each distinct resource
+ * of a batch is deserialized only once.
+ * 
+ * @author Daniel Janke &lt;danijankATuni-koblenz.de&gt;
+ *
+ */
+public class QueryResultWriter {
+
+  private final Writer output;
+
+  private final QueryResultFormat format;
+
+  private final String[] vars;
+
+  private long numberOfRows;
+
+  public QueryResultWriter(Writer output, QueryResultFormat format, String[] vars) {
+    this.output = output;
+    this.format = format;
+    this.vars = vars;
+  }
+
+  public long getNumberOfRows() {
+    return numberOfRows;
+  }
+
+  public void writeHeader() throws IOException {
+    String delim = "";
+    switch (format) {
+      case TSV:
+        for (String var : vars) {
+          output.write(delim);
+          output.write(var);
+          delim = Configuration.QUERY_RESULT_COLUMN_SEPARATOR_CHAR;
+        }
+        break;
+      case CSV:
+        for (String var : vars) {
+          output.write(delim);
+          output.write(escapeCSV(getVariableName(var)));
+          delim = ",";
+        }
+        output.write("\r\n");
+        break;
+      case JSON:
+        output.write("{\"head\":{\"vars\":[");
+        for (String var : vars) {
+          output.write(delim);
+          writeJSONString(getVariableName(var));
+          delim = ",";
+        }
+        output.write("]},\"results\":{\"bindings\":[");
+        break;
+    }
+  }
+
+  private String getVariableName(String var) {
+    return var.startsWith("?") || var.startsWith("$") ? var.substring(1) : var;
+  }
+
+  /**
+   * @param resources
+   *          the serialized resources of all rows in row-major order
+   * @throws IOException
+   */
+  public void writeRows(String[] resources) throws IOException {
+    int numberOfRows = vars.length == 0 ? 0 : resources.length / vars.length;
+    Map<String, Node> nodes = format == QueryResultFormat.TSV ? null : new HashMap<>();
+    for (int row = 0; row < numberOfRows; row++) {
+      String delim = "";
+      switch (format) {
+        case TSV:
+          output.write(Configuration.QUERY_RESULT_ROW_SEPARATOR_CHAR);
+          for (int column = 0; column < vars.length; column++) {
+            output.write(delim);
+            output.write(resources[(row * vars.length) + column]);
+            delim = Configuration.QUERY_RESULT_COLUMN_SEPARATOR_CHAR;
+          }
+          break;
+        case CSV:
+          for (int column = 0; column < vars.length; column++) {
+            output.write(delim);
+            writeCSVTerm(getNode(nodes, resources[(row * vars.length) + column]));
+            delim = ",";
+          }
+          output.write("\r\n");
+          break;
+        case JSON:
+          output.write(this.numberOfRows + row == 0 ? "{" : ",{");
+          for (int column = 0; column < vars.length; column++) {
+            output.write(delim);
+            writeJSONString(getVariableName(vars[column]));
+            output.write(":");
+            writeJSONTerm(getNode(nodes, resources[(row * vars.length) + column]));
+            delim = ",";
+          }
+          output.write("}");
+          break;
+      }
+    }
+    this.numberOfRows += numberOfRows;
+  }
+
+  private Node getNode(Map<String, Node> nodes, String resource) {
+    return nodes.computeIfAbsent(resource, DeSerializer::deserializeNode);
+  }
+
+  private void writeCSVTerm(Node node) throws IOException {
+    if (node.isURI()) {
+      output.write(escapeCSV(node.getURI()));
+    } else if (node.isBlank()) {
+      output.write("_:" + node.getBlankNodeLabel());
+    } else {
+      output.write(escapeCSV(node.getLiteralLexicalForm()));
+    }
+  }
+
+  private String escapeCSV(String value) {
+    if ((value.indexOf('"') < 0) && (value.indexOf(',') < 0) && (value.indexOf('\n') < 0)
+            && (value.indexOf('\r') < 0)) {
+      return value;
+    }
+    return "\"" + value.replace("\"", "\"\"") + "\"";
+  }
+
+  private void writeJSONTerm(Node node) throws IOException {
+    if (node.isURI()) {
+      output.write("{\"type\":\"uri\",\"value\":");
+      writeJSONString(node.getURI());
+    } else if (node.isBlank()) {
+      output.write("{\"type\":\"bnode\",\"value\":");
+      writeJSONString(node.getBlankNodeLabel());
+    } else {
+      output.write("{\"type\":\"literal\",\"value\":");
+      writeJSONString(node.getLiteralLexicalForm());
+      String language = node.getLiteralLanguage();
+      if ((language != null) && !language.isEmpty()) {
+        output.write(",\"xml:lang\":");
+        writeJSONString(language);
+      } else if ((node.getLiteralDatatypeURI() != null)
+              && !node.getLiteralDatatypeURI().equals(XSDDatatype.XSDstring.getURI())) {
+        output.write(",\"datatype\":");
+        writeJSONString(node.getLiteralDatatypeURI());
+      }
+    }
+    output.write("}");
+  }
+
+  private void writeJSONString(String value) throws IOException {
+    output.write('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '"':
+          output.write("\\\"");
+          break;
+        case '\\':
+          output.write("\\\\");
+          break;
+        case '\n':
+          output.write("\\n");
+          break;
+        case '\r':
+          output.write("\\r");
+          break;
+        case '\t':
+          output.write("\\t");
+          break;
+        default:
+          if (c < 0x20) {
+            output.write(String.format("\\u%04x", (int) c));
+          } else {
+            output.write(c);
+          }
+      }
+    }
+    output.write('"');
+  }
+
+  public void writeFooter() throws IOException {
+    switch (format) {
+      case TSV:
+        output.write("\n");
+        break;
+      case CSV:
+        break;
+      case JSON:
+        output.write("]}}\n");
+        break;
+    }
+    output.flush();
+  }
+
+}
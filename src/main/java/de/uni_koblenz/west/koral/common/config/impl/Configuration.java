@@ -24,7 +24,9 @@ import java.net.ServerSocket;
 import java.net.SocketException;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 import java.util.logging.Level;
 
 import de.uni_koblenz.west.koral.common.config.Configurable;
@@ -35,6 +37,7 @@ import de.uni_koblenz.west.koral.common.mapDB.MapDBCacheOptions;
 import de.uni_koblenz.west.koral.common.mapDB.MapDBStorageOptions;
 import de.uni_koblenz.west.koral.common.system.ConfigurationException;
 import de.uni_koblenz.west.koral.master.dictionary.impl.RocksDBDictionary;
+import de.uni_koblenz.west.koral.slave.triple_store.impl.IndexType;
 
 /**
  * Contains all configuration options for Koral. Options that are serialized in the configuration
@@ -346,6 +349,102 @@ public class Configuration implements Configurable {
     this.maxDictionaryWriteBatchSize = maxDictionaryWriteBatchSize;
   }
 
+  @Property(name = "numberOfDictionaryEncodingThreads",
+      description = "The number of threads that encode the graph files during the initial encoding. The graph files are parsed concurrently and the parsed triples are encoded in blocks by these threads. If it is set to 0, one thread is started for each available core.")
+  private int numberOfDictionaryEncodingThreads = 0;
+
+  public int getNumberOfDictionaryEncodingThreads() {
+    return numberOfDictionaryEncodingThreads;
+  }
+
+  public void setNumberOfDictionaryEncodingThreads(int numberOfDictionaryEncodingThreads) {
+    this.numberOfDictionaryEncodingThreads = numberOfDictionaryEncodingThreads;
+  }
+
+  @Property(name = "dictionaryCacheSize",
+      description = "The maximal number of recently encoded resources whose ids are cached in memory in front of the dictionary during the initial encoding. If it is set to 0, no cache is used.")
+  private int dictionaryCacheSize = 1000000;
+
+  public int getDictionaryCacheSize() {
+    return dictionaryCacheSize;
+  }
+
+  public void setDictionaryCacheSize(int dictionaryCacheSize) {
+    this.dictionaryCacheSize = dictionaryCacheSize;
+  }
+
+  @Property(name = "resultDecodingCacheSize",
+      description = "The maximal number of recently decoded resources of query results that are cached in memory in front of the dictionary. If it is set to 0, no cache is used.")
+  private int resultDecodingCacheSize = 100000;
+
+  public int getResultDecodingCacheSize() {
+    return resultDecodingCacheSize;
+  }
+
+  public void setResultDecodingCacheSize(int resultDecodingCacheSize) {
+    this.resultDecodingCacheSize = resultDecodingCacheSize;
+  }
+
+  @Property(name = "numberOfStatisticsShards",
+      description = "The statistics database is partitioned by resource id into this number of independent shards. The shards can be updated and read concurrently. If it is set to 0, one shard is created for each available core. An existing statistics database keeps the number of shards it was created with.")
+  private int numberOfStatisticsShards = 0;
+
+  public int getNumberOfStatisticsShards() {
+    return numberOfStatisticsShards;
+  }
+
+  public void setNumberOfStatisticsShards(int numberOfStatisticsShards) {
+    this.numberOfStatisticsShards = numberOfStatisticsShards;
+  }
+
+  @Property(name = "statisticsAggregationSize",
+      description = "The maximal number of (resource, role, chunk) counters that are aggregated in memory while the statistics are collected. If the limit is reached, the counters are written to a sorted file. Finally, the files are merged and the statistics are written in the order of the resource ids. If it is set to 0, the occurrences of each triple are incremented directly in the statistics database.")
+  private int statisticsAggregationSize = 4_000_000;
+
+  public int getStatisticsAggregationSize() {
+    return statisticsAggregationSize;
+  }
+
+  public void setStatisticsAggregationSize(int statisticsAggregationSize) {
+    this.statisticsAggregationSize = statisticsAggregationSize;
+  }
+
+  @Property(name = "numberOfCoverCreationThreads",
+      description = "The number of threads that assign the triples to graph chunks concurrently while a hash, hierarchical or vertical cover is created or that partition the vertices while a minimal edge-cut cover is created. If it is set to 0, one thread is used per available core.")
+  private int numberOfCoverCreationThreads = 0;
+
+  public int getNumberOfCoverCreationThreads() {
+    return numberOfCoverCreationThreads;
+  }
+
+  public void setNumberOfCoverCreationThreads(int numberOfCoverCreationThreads) {
+    this.numberOfCoverCreationThreads = numberOfCoverCreationThreads;
+  }
+
+  @Property(name = "useMD5ForHashCover",
+      description = "If set to true, triples are assigned to graph chunks by the MD5 hash as in previous versions of Koral. This is required to extend graphs loaded by these versions consistently. Otherwise the faster xxHash64 is used.")
+  private boolean useMD5ForHashCover = false;
+
+  public boolean useMD5ForHashCover() {
+    return useMD5ForHashCover;
+  }
+
+  public void setUseMD5ForHashCover(boolean useMD5ForHashCover) {
+    this.useMD5ForHashCover = useMD5ForHashCover;
+  }
+
+  @Property(name = "useMetisForMinimalEdgeCutCover",
+      description = "If set to true, the minimal edge-cut covers are created by the external program gpmetis of METIS, which has to be installed. Otherwise the vertices are partitioned within Koral by the streaming partitioner Fennel.")
+  private boolean useMetisForMinimalEdgeCutCover = false;
+
+  public boolean useMetisForMinimalEdgeCutCover() {
+    return useMetisForMinimalEdgeCutCover;
+  }
+
+  public void setUseMetisForMinimalEdgeCutCover(boolean useMetisForMinimalEdgeCutCover) {
+    this.useMetisForMinimalEdgeCutCover = useMetisForMinimalEdgeCutCover;
+  }
+
   private String statisticsDir = "statistics";
 
   public String getStatisticsDir(boolean flagIsMaster) {
@@ -416,6 +515,32 @@ public class Configuration implements Configurable {
     this.tripleStoreCacheType = tripleStoreCacheType;
   }
 
+  @Property(name = "additionalTripleStoreIndices",
+      description = "Comma separated list of the optional indices SOP and OPS that each slave stores in addition to the SPO, OSP, POS and PSO index."
+          + " Additional indices allow to return the matches of more triple patterns in the order required by a merge join but they increase the disk usage and loading time of the triple store. If an index is added after the graph has been loaded, the graph has to be dropped and loaded again.")
+  private Set<IndexType> additionalTripleStoreIndices = EnumSet.noneOf(IndexType.class);
+
+  public Set<IndexType> getAdditionalTripleStoreIndices() {
+    return additionalTripleStoreIndices;
+  }
+
+  public void setAdditionalTripleStoreIndices(Set<IndexType> additionalTripleStoreIndices) {
+    this.additionalTripleStoreIndices = additionalTripleStoreIndices;
+  }
+
+  @Property(name = "bulkLoadingRunSize",
+      description = "If the triple store is not stored in memory and this value is greater than 0, each slave sorts the triples of its graph chunk in runs of this many triples and writes the indices as SST files that are moved into the triple store."
+          + " This avoids the write path and the compaction of RocksDB. Each slave keeps up to two runs in memory. If set to 0, the triples are inserted one by one.")
+  private int bulkLoadingRunSize = 1000000;
+
+  public int getBulkLoadingRunSize() {
+    return bulkLoadingRunSize;
+  }
+
+  public void setBulkLoadingRunSize(int bulkLoadingRunSize) {
+    this.bulkLoadingRunSize = bulkLoadingRunSize;
+  }
+
   @Property(name = "sizeOfMappingRecycleCache",
       description = "In order to prevent a frequent garbage collection, Mapping objects are recycled."
           + " This option defines how many Mapping objects should be cached for reuse.")
@@ -430,7 +555,7 @@ public class Configuration implements Configurable {
   }
 
   @Property(name = "unbalanceThresholdForWorkerThreads",
-      description = "This property defines how much the current workloads of the different WorkerThreads may differ, before the work is rebalanced.")
+      description = "Deprecated: This property is ignored, since idle WorkerThreads steal runnable tasks from busy WorkerThreads instead of periodically rebalancing the work.")
   private double unbalanceThresholdForWorkerThreads = 0.1;
 
   public double getUnbalanceThresholdForWorkerThreads() {
@@ -441,9 +566,45 @@ public class Configuration implements Configurable {
     this.unbalanceThresholdForWorkerThreads = unbalanceThresholdForWorkerThreads;
   }
 
+  @Property(name = "numberOfWorkerThreads",
+      description = "The number of WorkerThreads that execute the query operations on each computer. If it is set to 0, one WorkerThread is started for each available core that is not reserved.")
+  private int numberOfWorkerThreads = 0;
+
+  public int getNumberOfWorkerThreads() {
+    return numberOfWorkerThreads;
+  }
+
+  public void setNumberOfWorkerThreads(int numberOfWorkerThreads) {
+    this.numberOfWorkerThreads = numberOfWorkerThreads;
+  }
+
+  @Property(name = "numberOfReservedCores",
+      description = "The number of cores that are kept free for network communication and the compactions of the databases. It is only used, if numberOfWorkerThreads is set to 0. At least one WorkerThread is always started.")
+  private int numberOfReservedCores = 1;
+
+  public int getNumberOfReservedCores() {
+    return numberOfReservedCores;
+  }
+
+  public void setNumberOfReservedCores(int numberOfReservedCores) {
+    this.numberOfReservedCores = numberOfReservedCores;
+  }
+
+  @Property(name = "numberOfWorkerThreadsPerQuery",
+      description = "The WorkerThreads are partitioned into groups of this size. All query operations of one query are executed by the WorkerThreads of the least loaded group and runnable tasks are only stolen within a group. This reduces the cache traffic between the cores. If it is set to 0, all WorkerThreads form one group.")
+  private int numberOfWorkerThreadsPerQuery = 0;
+
+  public int getNumberOfWorkerThreadsPerQuery() {
+    return numberOfWorkerThreadsPerQuery;
+  }
+
+  public void setNumberOfWorkerThreadsPerQuery(int numberOfWorkerThreadsPerQuery) {
+    this.numberOfWorkerThreadsPerQuery = numberOfWorkerThreadsPerQuery;
+  }
+
   @Property(name = "mappingBundleSize",
-      description = "Before mappings are sent to another computer, they are bundled into one message. This number defines how many mappings are bundeled.")
-  private int mappingBundleSize = 100;
+      description = "Before mappings are sent to another computer, they are bundled into one message. This number defines the maximal number of mappings that are bundeled. It is chosen large enough that the size of a bundle is limited by mappingBundleSizeInBytes, since a bundle of 65536 bytes holds more than 2000 mappings with one variable.")
+  private int mappingBundleSize = 10000;
 
   public int getMappingBundleSize() {
     return mappingBundleSize;
@@ -453,6 +614,30 @@ public class Configuration implements Configurable {
     this.mappingBundleSize = mappingBundleSize;
   }
 
+  @Property(name = "mappingBundleSizeInBytes",
+      description = "Defines the maximal size of a mapping bundle in bytes. The size of the bundles sent to each computer adapts between 4096 bytes and this size: it grows whenever a bundle is filled and shrinks whenever a bundle is sent because the linger time has elapsed.")
+  private int mappingBundleSizeInBytes = 65536;
+
+  public int getMappingBundleSizeInBytes() {
+    return mappingBundleSizeInBytes;
+  }
+
+  public void setMappingBundleSizeInBytes(int mappingBundleSizeInBytes) {
+    this.mappingBundleSizeInBytes = mappingBundleSizeInBytes;
+  }
+
+  @Property(name = "mappingBundleLingerTime",
+      description = "Defines the maximal time in milliseconds a mapping waits in a bundle before the bundle is sent, even if it is not filled.")
+  private long mappingBundleLingerTime = 10;
+
+  public long getMappingBundleLingerTime() {
+    return mappingBundleLingerTime;
+  }
+
+  public void setMappingBundleLingerTime(long mappingBundleLingerTime) {
+    this.mappingBundleLingerTime = mappingBundleLingerTime;
+  }
+
   @Property(name = "receiverQueueSize",
       description = "Defines how many mappings should be stored in memory for each mapping receiver queue of each query operator")
   private int receiverQueueSize = 1000;
@@ -478,10 +663,10 @@ public class Configuration implements Configurable {
   }
 
   @Property(name = "joinCacheStorageType", description = "Defines how the join cache is persisted:"
-      + "\nMEMORY = triples are only stored in memory"
+      + "\nMEMORY (default) = triples are stored in memory until joinCacheMemoryBudget is exceeded. Thereafter, partitions are spilled to tmpDir."
       + "\nMEMORY_MAPPED_FILE = triples are stored as a file located in dictionaryDir which is mapped to memory. In Linux no additional caching is required."
       + "\nRANDOM_ACCESS_FILE = triples are is stored as a file located in dictionaryDir. Each dictionary lookup will result in a file access.")
-  private MapDBStorageOptions joinCacheStorageType = MapDBStorageOptions.MEMORY_MAPPED_FILE;
+  private MapDBStorageOptions joinCacheStorageType = MapDBStorageOptions.MEMORY;
 
   public MapDBStorageOptions getJoinCacheStorageType() {
     return joinCacheStorageType;
@@ -534,6 +719,18 @@ public class Configuration implements Configurable {
     this.joinCacheType = joinCacheType;
   }
 
+  @Property(name = "joinCacheMemoryBudget",
+      description = "Defines how many megabytes the join caches of one query may occupy in memory on each slave. It applies to the default joinCacheStorageType MEMORY. If this budget is exceeded, partitions of the join caches are spilled to files in tmpDir. If set to 0, the budget is unlimited.")
+  private int joinCacheMemoryBudget = 1024;
+
+  public int getJoinCacheMemoryBudget() {
+    return joinCacheMemoryBudget;
+  }
+
+  public void setJoinCacheMemoryBudget(int joinCacheMemoryBudget) {
+    this.joinCacheMemoryBudget = joinCacheMemoryBudget;
+  }
+
   /*
    * StatisticsDB related parameters
    */
@@ -16,10 +16,14 @@
  */
 package de.uni_koblenz.west.koral.common.config.impl;
 
+import java.util.EnumSet;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.regex.Pattern;
 
 import de.uni_koblenz.west.koral.common.config.ConfigurableDeserializer;
+import de.uni_koblenz.west.koral.slave.triple_store.impl.IndexType;
+import de.uni_koblenz.west.koral.slave.triple_store.impl.TripleStore;
 
 /**
  * Provides methods to convert the property values in the configuration file to the field values of
@@ -98,6 +102,62 @@ public class ConfigurationDeserializer implements ConfigurableDeserializer {
     }
   }
 
+  public void deserializeNumberOfDictionaryEncodingThreads(Configuration conf,
+      String numberOfDictionaryEncodingThreads) {
+    if ((numberOfDictionaryEncodingThreads != null)
+        && !numberOfDictionaryEncodingThreads.isEmpty()) {
+      conf.setNumberOfDictionaryEncodingThreads(
+          Integer.parseInt(numberOfDictionaryEncodingThreads));
+    }
+  }
+
+  public void deserializeDictionaryCacheSize(Configuration conf, String dictionaryCacheSize) {
+    if ((dictionaryCacheSize != null) && !dictionaryCacheSize.isEmpty()) {
+      conf.setDictionaryCacheSize(Integer.parseInt(dictionaryCacheSize));
+    }
+  }
+
+  public void deserializeResultDecodingCacheSize(Configuration conf,
+      String resultDecodingCacheSize) {
+    if ((resultDecodingCacheSize != null) && !resultDecodingCacheSize.isEmpty()) {
+      conf.setResultDecodingCacheSize(Integer.parseInt(resultDecodingCacheSize));
+    }
+  }
+
+  public void deserializeNumberOfStatisticsShards(Configuration conf,
+      String numberOfStatisticsShards) {
+    if ((numberOfStatisticsShards != null) && !numberOfStatisticsShards.isEmpty()) {
+      conf.setNumberOfStatisticsShards(Integer.parseInt(numberOfStatisticsShards));
+    }
+  }
+
+  public void deserializeStatisticsAggregationSize(Configuration conf,
+      String statisticsAggregationSize) {
+    if ((statisticsAggregationSize != null) && !statisticsAggregationSize.isEmpty()) {
+      conf.setStatisticsAggregationSize(Integer.parseInt(statisticsAggregationSize));
+    }
+  }
+
+  public void deserializeNumberOfCoverCreationThreads(Configuration conf,
+      String numberOfCoverCreationThreads) {
+    if ((numberOfCoverCreationThreads != null) && !numberOfCoverCreationThreads.isEmpty()) {
+      conf.setNumberOfCoverCreationThreads(Integer.parseInt(numberOfCoverCreationThreads));
+    }
+  }
+
+  public void deserializeUseMD5ForHashCover(Configuration conf, String useMD5ForHashCover) {
+    if ((useMD5ForHashCover != null) && !useMD5ForHashCover.isEmpty()) {
+      conf.setUseMD5ForHashCover(Boolean.parseBoolean(useMD5ForHashCover));
+    }
+  }
+
+  public void deserializeUseMetisForMinimalEdgeCutCover(Configuration conf,
+      String useMetisForMinimalEdgeCutCover) {
+    if ((useMetisForMinimalEdgeCutCover != null) && !useMetisForMinimalEdgeCutCover.isEmpty()) {
+      conf.setUseMetisForMinimalEdgeCutCover(Boolean.parseBoolean(useMetisForMinimalEdgeCutCover));
+    }
+  }
+
   public void deserializeEnableTransactionsForTripleStore(Configuration conf,
       String enableTransactions) {
     if ((enableTransactions != null) && !enableTransactions.isEmpty()) {
@@ -113,10 +173,34 @@ public class ConfigurationDeserializer implements ConfigurableDeserializer {
     conf.setUnbalanceThresholdForWorkerThreads(Double.parseDouble(threshold));
   }
 
+  public void deserializeNumberOfWorkerThreads(Configuration conf, String numberOfThreads) {
+    conf.setNumberOfWorkerThreads(Integer.parseInt(numberOfThreads));
+  }
+
+  public void deserializeNumberOfReservedCores(Configuration conf, String numberOfCores) {
+    conf.setNumberOfReservedCores(Integer.parseInt(numberOfCores));
+  }
+
+  public void deserializeNumberOfWorkerThreadsPerQuery(Configuration conf, String numberOfThreads) {
+    conf.setNumberOfWorkerThreadsPerQuery(Integer.parseInt(numberOfThreads));
+  }
+
   public void deserializeMappingBundleSize(Configuration conf, String size) {
     conf.setMappingBundleSize(Integer.parseInt(size));
   }
 
+  public void deserializeMappingBundleSizeInBytes(Configuration conf, String size) {
+    if ((size != null) && !size.isEmpty()) {
+      conf.setMappingBundleSizeInBytes(Integer.parseInt(size));
+    }
+  }
+
+  public void deserializeMappingBundleLingerTime(Configuration conf, String lingerTime) {
+    if ((lingerTime != null) && !lingerTime.isEmpty()) {
+      conf.setMappingBundleLingerTime(Long.parseLong(lingerTime));
+    }
+  }
+
   public void deserializeReceiverQueueSize(Configuration conf, String size) {
     conf.setReceiverQueueSize(Integer.parseInt(size));
   }
@@ -132,6 +216,32 @@ public class ConfigurationDeserializer implements ConfigurableDeserializer {
     }
   }
   
+  public void deserializeJoinCacheMemoryBudget(Configuration conf, String budget) {
+    conf.setJoinCacheMemoryBudget(Integer.parseInt(budget));
+  }
+
+  public void deserializeAdditionalTripleStoreIndices(Configuration conf, String indices) {
+    Set<IndexType> additionalIndices = EnumSet.noneOf(IndexType.class);
+    for (String index : indices.split(Pattern.quote(","))) {
+      if (!index.trim().isEmpty()) {
+        IndexType indexType = IndexType.valueOf(index.trim().toUpperCase());
+        if (TripleStore.DEFAULT_INDICES.contains(indexType)) {
+          throw new IllegalArgumentException("The index " + indexType
+                  + " always exists and must not be configured as additional triple store index.");
+        }
+        if (!additionalIndices.add(indexType)) {
+          throw new IllegalArgumentException(
+                  "The additional triple store index " + indexType + " is configured twice.");
+        }
+      }
+    }
+    conf.setAdditionalTripleStoreIndices(additionalIndices);
+  }
+
+  public void deserializeBulkLoadingRunSize(Configuration conf, String runSize) {
+    conf.setBulkLoadingRunSize(Integer.parseInt(runSize));
+  }
+
   public void deserializeRowDataLength(Configuration conf, String rowDataLength) {
 	  conf.setRowDataLength(Integer.parseInt(rowDataLength));
   }
@@ -17,6 +17,7 @@
 package de.uni_koblenz.west.koral.common.config.impl;
 
 import de.uni_koblenz.west.koral.common.config.ConfigurableSerializer;
+import de.uni_koblenz.west.koral.slave.triple_store.impl.IndexType;
 
 /**
  * Provides methods to convert the field values of {@link Configuration} to the
@@ -86,6 +87,38 @@ public class ConfigurationSerializer implements ConfigurableSerializer {
     return Integer.valueOf(conf.getMaxDictionaryWriteBatchSize()).toString();
   }
 
+  public String serializeNumberOfDictionaryEncodingThreads(Configuration conf) {
+    return Integer.valueOf(conf.getNumberOfDictionaryEncodingThreads()).toString();
+  }
+
+  public String serializeDictionaryCacheSize(Configuration conf) {
+    return Integer.valueOf(conf.getDictionaryCacheSize()).toString();
+  }
+
+  public String serializeResultDecodingCacheSize(Configuration conf) {
+    return Integer.valueOf(conf.getResultDecodingCacheSize()).toString();
+  }
+
+  public String serializeNumberOfStatisticsShards(Configuration conf) {
+    return Integer.valueOf(conf.getNumberOfStatisticsShards()).toString();
+  }
+
+  public String serializeStatisticsAggregationSize(Configuration conf) {
+    return Integer.valueOf(conf.getStatisticsAggregationSize()).toString();
+  }
+
+  public String serializeNumberOfCoverCreationThreads(Configuration conf) {
+    return Integer.valueOf(conf.getNumberOfCoverCreationThreads()).toString();
+  }
+
+  public String serializeUseMD5ForHashCover(Configuration conf) {
+    return Boolean.valueOf(conf.useMD5ForHashCover()).toString();
+  }
+
+  public String serializeUseMetisForMinimalEdgeCutCover(Configuration conf) {
+    return Boolean.valueOf(conf.useMetisForMinimalEdgeCutCover()).toString();
+  }
+
   public String serializeEnableTransactionsForTripleStore(Configuration conf) {
     return Boolean.valueOf(conf.useTransactionsForTripleStore()).toString();
   }
@@ -98,10 +131,30 @@ public class ConfigurationSerializer implements ConfigurableSerializer {
     return Double.valueOf(conf.getUnbalanceThresholdForWorkerThreads()).toString();
   }
 
+  public String serializeNumberOfWorkerThreads(Configuration conf) {
+    return Integer.valueOf(conf.getNumberOfWorkerThreads()).toString();
+  }
+
+  public String serializeNumberOfReservedCores(Configuration conf) {
+    return Integer.valueOf(conf.getNumberOfReservedCores()).toString();
+  }
+
+  public String serializeNumberOfWorkerThreadsPerQuery(Configuration conf) {
+    return Integer.valueOf(conf.getNumberOfWorkerThreadsPerQuery()).toString();
+  }
+
   public String serializeMappingBundleSize(Configuration conf) {
     return Integer.valueOf(conf.getMappingBundleSize()).toString();
   }
 
+  public String serializeMappingBundleSizeInBytes(Configuration conf) {
+    return Integer.valueOf(conf.getMappingBundleSizeInBytes()).toString();
+  }
+
+  public String serializeMappingBundleLingerTime(Configuration conf) {
+    return Long.valueOf(conf.getMappingBundleLingerTime()).toString();
+  }
+
   public String serializeReceiverQueueSize(Configuration conf) {
     return Integer.valueOf(conf.getReceiverQueueSize()).toString();
   }
@@ -114,6 +167,24 @@ public class ConfigurationSerializer implements ConfigurableSerializer {
     return Boolean.valueOf(conf.useTransactionsForJoinCache()).toString();
   }
 
+  public String serializeJoinCacheMemoryBudget(Configuration conf) {
+    return Integer.valueOf(conf.getJoinCacheMemoryBudget()).toString();
+  }
+
+  public String serializeAdditionalTripleStoreIndices(Configuration conf) {
+    StringBuilder sb = new StringBuilder();
+    String delim = "";
+    for (IndexType index : conf.getAdditionalTripleStoreIndices()) {
+      sb.append(delim).append(index.name());
+      delim = ",";
+    }
+    return sb.toString();
+  }
+
+  public String serializeBulkLoadingRunSize(Configuration conf) {
+    return Integer.valueOf(conf.getBulkLoadingRunSize()).toString();
+  }
+
   public String serializeRowDataLength(Configuration conf) {
     return Integer.valueOf(conf.getRowDataLength()).toString();
   }
@@ -34,6 +34,7 @@ import de.uni_koblenz.west.koral.common.measurement.MeasurementCollector;
 import de.uni_koblenz.west.koral.common.measurement.MeasurementType;
 import de.uni_koblenz.west.koral.common.messages.MessageNotifier;
 import de.uni_koblenz.west.koral.common.query.execution.QueryExecutionTreeDeserializer;
+import de.uni_koblenz.west.koral.common.query.execution.QueryOperatorBase;
 import de.uni_koblenz.west.koral.common.query.execution.QueryOperatorTask;
 import de.uni_koblenz.west.koral.common.utils.NumberConversion;
 import de.uni_koblenz.west.koral.slave.triple_store.TripleStoreAccessor;
@@ -42,7 +43,7 @@ import de.uni_koblenz.west.koral.slave.triple_store.TripleStoreAccessor;
  * This class manages the different {@link WorkerThread}s, i.e., starting and stopping the threads
  * as well as starting and stopping the {@link WorkerTask} of a query. When a new query is started
  * it is also responsible for the initial scheduling of the corresponding {@link WorkerTask}s among
- * all {@link WorkerThread}s.
+ * the {@link WorkerThread}s of the least loaded group of {@link WorkerThread}s.
  * 
  * @author Daniel Janke &lt;danijankATuni-koblenz.de&gt;
  *
@@ -59,6 +60,8 @@ public class WorkerManager implements Closeable, AutoCloseable {
 
   private final MessageReceiverListener messageReceiver;
 
+  private final WorkerTaskScheduler scheduler;
+
   private final WorkerThread[] workers;
 
   private final int numberOfSlaves;
@@ -77,6 +80,8 @@ public class WorkerManager implements Closeable, AutoCloseable {
 
   private final MapDBCacheOptions cacheType;
 
+  private final long joinMemoryBudget;
+
   public WorkerManager(Configuration conf, MessageNotifier notifier, MessageSender messageSender,
       boolean flagIsMaster, Logger logger, MeasurementCollector measurementCollector) {
     this(conf, null, notifier, messageSender, flagIsMaster, logger, measurementCollector);
@@ -90,7 +95,9 @@ public class WorkerManager implements Closeable, AutoCloseable {
     messageNotifier = notifier;
     messageReceiver = new MessageReceiverListener(logger);
     this.messageSender = new MessageSenderBuffer(conf.getNumberOfSlaves(),
-        conf.getMappingBundleSize(), messageSender, messageReceiver, logger, measurementCollector);
+        conf.getMappingBundleSize(), conf.getMappingBundleSizeInBytes(),
+        conf.getMappingBundleLingerTime(), messageSender, messageReceiver, logger,
+        measurementCollector);
     messageNotifier.registerMessageListener(messageReceiver.getClass(), messageReceiver);
     numberOfSlaves = conf.getNumberOfSlaves();
     this.tripleStore = tripleStore;
@@ -100,25 +107,29 @@ public class WorkerManager implements Closeable, AutoCloseable {
     storageType = conf.getJoinCacheStorageType();
     useTransactions = conf.useTransactionsForJoinCache();
     writeAsynchronously = conf.isJoinCacheAsynchronouslyWritten();
+    joinMemoryBudget = conf.getJoinCacheMemoryBudget() * 1024L * 1024L;
 
-    int availableCPUs = Runtime.getRuntime().availableProcessors() - 1;
+    int availableCPUs = conf.getNumberOfWorkerThreads();
+    if (availableCPUs <= 0) {
+      availableCPUs = Runtime.getRuntime().availableProcessors() - conf.getNumberOfReservedCores();
+    }
     if (availableCPUs < 1) {
       availableCPUs = 1;
     }
+    scheduler = new WorkerTaskScheduler(availableCPUs, conf.getNumberOfWorkerThreadsPerQuery());
+    messageReceiver.setScheduler(scheduler);
     workers = new WorkerThread[availableCPUs];
     for (int i = 0; i < workers.length; i++) {
-      workers[i] = new WorkerThread(i, conf.getSizeOfMappingRecycleCache(),
-          conf.getUnbalanceThresholdForWorkerThreads(), messageReceiver, this.messageSender,
-          numberOfSlaves, logger, measurementCollector);
-      if (i > 0) {
-        workers[i - 1].setNext(workers[i]);
-        workers[i].setPrevious(workers[i - 1]);
-      }
+      workers[i] = new WorkerThread(i, conf.getSizeOfMappingRecycleCache(), scheduler,
+          messageReceiver, this.messageSender, numberOfSlaves, logger, measurementCollector);
+    }
+    // all workers are started immediately so that idle workers can steal tasks
+    for (WorkerThread worker : workers) {
+      worker.start();
     }
-    workers[workers.length - 1].setNext(workers[0]);
-    workers[0].setPrevious(workers[workers.length - 1]);
     if (this.logger != null) {
-      this.logger.info(availableCPUs + " executor threads started");
+      this.logger.info(availableCPUs + " executor threads started in "
+          + scheduler.getNumberOfGroups() + " groups");
     }
   }
 
@@ -143,7 +154,7 @@ public class WorkerManager implements Closeable, AutoCloseable {
     }
     QueryExecutionTreeDeserializer deserializer =
         new QueryExecutionTreeDeserializer(tripleStore, numberOfSlaves, cacheSize, cacheDirectory,
-            storageType, useTransactions, writeAsynchronously, cacheType);
+            storageType, useTransactions, writeAsynchronously, cacheType, joinMemoryBudget);
     try (DataInputStream input = new DataInputStream(
         new ByteArrayInputStream(receivedQUERY_CREATEMessage, Byte.BYTES + Integer.BYTES,
             receivedQUERY_CREATEMessage.length - Byte.BYTES - Integer.BYTES));) {
@@ -176,12 +187,29 @@ public class WorkerManager implements Closeable, AutoCloseable {
     for (int i = 0; i < workers.length; i++) {
       workLoad[i] = workers[i].getCurrentLoad();
     }
+    // all tasks of the query are assigned to the least loaded group
+    int group = 0;
+    long minimalGroupLoad = Long.MAX_VALUE;
+    for (int g = 0; g < scheduler.getNumberOfGroups(); g++) {
+      long groupLoad = 0;
+      for (int i = scheduler.getFirstWorkerOfGroup(g); i < scheduler.getEndOfGroup(g); i++) {
+        groupLoad += workLoad[i];
+      }
+      // compare the average load since the last group might be smaller
+      groupLoad /= scheduler.getEndOfGroup(g) - scheduler.getFirstWorkerOfGroup(g);
+      if (groupLoad < minimalGroupLoad) {
+        group = g;
+        minimalGroupLoad = groupLoad;
+      }
+    }
     NavigableSet<WorkerTask> workingSet = new TreeSet<>(new WorkerTaskComparator(true));
     workingSet.add(rootTask);
-    assignTasks(workLoad, workingSet);
+    assignTasks(workLoad, scheduler.getFirstWorkerOfGroup(group), scheduler.getEndOfGroup(group),
+        workingSet);
   }
 
-  private void assignTasks(long[] estimatedWorkLoad, NavigableSet<WorkerTask> workingSet) {
+  private void assignTasks(long[] estimatedWorkLoad, int firstWorker, int endWorker,
+      NavigableSet<WorkerTask> workingSet) {
     if (workingSet.isEmpty()) {
       return;
     }
@@ -191,10 +219,10 @@ public class WorkerManager implements Closeable, AutoCloseable {
     for (WorkerTask task : workingSet) {
       newWorkingSet.addAll(task.getPrecedingTasks());
     }
-    assignTasks(estimatedWorkLoad, newWorkingSet);
+    assignTasks(estimatedWorkLoad, firstWorker, endWorker, newWorkingSet);
     // now assign current tasks to WorkerThreads
     for (WorkerTask task : workingSet.descendingSet()) {
-      int workerWithMinimalWorkload = findMinimal(estimatedWorkLoad);
+      int workerWithMinimalWorkload = findMinimal(estimatedWorkLoad, firstWorker, endWorker);
       try {
         workers[workerWithMinimalWorkload].addWorkerTask(task);
       } catch (IllegalThreadStateException e) {
@@ -209,10 +237,10 @@ public class WorkerManager implements Closeable, AutoCloseable {
     }
   }
 
-  private int findMinimal(long[] estimatedWorkLoad) {
+  private int findMinimal(long[] estimatedWorkLoad, int firstWorker, int endWorker) {
     long minimalValue = Long.MAX_VALUE;
     int currentMin = -1;
-    for (int i = 0; i < estimatedWorkLoad.length; i++) {
+    for (int i = firstWorker; i < endWorker; i++) {
       if (estimatedWorkLoad[i] < minimalValue) {
         currentMin = i;
         minimalValue = estimatedWorkLoad[i];
@@ -251,6 +279,28 @@ public class WorkerManager implements Closeable, AutoCloseable {
     }
   }
 
+  /**
+   * Stops all operators of a query whose results are not required any more
+   * since the limit of the query is reached. The operators discard their
+   * pending mappings and finish without an error, in contrast to
+   * {@link #abortQuery(byte[])}.
+   * 
+   * @param receivedMessage
+   */
+  public void stopQuery(byte[] receivedMessage) {
+    for (WorkerTask task : messageReceiver.getAllTasksOfQuery(receivedMessage, 1)) {
+      if (task instanceof QueryOperatorBase) {
+        ((QueryOperatorBase) task).stop();
+        // the operator finishes during its next execution
+        scheduler.schedule(task);
+      }
+    }
+    if (logger != null) {
+      logger.finer("Query " + NumberConversion.bytes2int(receivedMessage, 1)
+          + " stopped since its limit is reached.");
+    }
+  }
+
   public void clear() {
     for (WorkerThread executor : workers) {
       if (executor != null) {
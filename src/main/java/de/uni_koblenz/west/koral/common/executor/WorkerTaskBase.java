@@ -119,6 +119,10 @@ public abstract class WorkerTaskBase implements WorkerTask {
     return false;
   }
 
+  protected int getNumberOfInputQueues() {
+    return inputQueues == null ? 0 : inputQueues.length;
+  }
+
   protected long getSizeOfInputQueue(int inputQueueIndex) {
     return inputQueues[inputQueueIndex].size();
   }
@@ -0,0 +1,425 @@
+/*
+ * This file is part of Koral.
+ *
+ * Koral is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Koral is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Leser General Public License
+ * along with Koral.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2016 Daniel Janke
+ */
+package de.uni_koblenz.west.koral.common.executor;
+
+import de.uni_koblenz.west.koral.common.executor.messagePassing.MessageReceiverListener;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <p>
+ * Event-driven scheduler of the {@link WorkerTask}s of all
+ * {@link WorkerThread}s of one computer. A {@link WorkerTask} becomes runnable
+ * if
+ * <ul>
+ * <li>it is added,</li>
+ * <li>it is started,</li>
+ * <li>the {@link MessageReceiverListener} delivers a message to it,</li>
+ * <li>one of its preceding tasks has finished or</li>
+ * <li>it still has input after its execution.</li>
+ * </ul>
+ * </p>
+ *
+ * <p>
+ * Each {@link WorkerThread} has a deque of runnable tasks. A runnable task is
+ * appended to the deque of the {@link WorkerThread} it is assigned to. A
+ * {@link WorkerThread} executes the tasks from the head of its own deque. If
+ * its deque is empty, it steals a task from the tail of the deque of another
+ * {@link WorkerThread}. If no task can be stolen, the {@link WorkerThread}
+ * parks until a task becomes runnable.
+ * </p>
+ *
+ * <p>
+ * The {@link WorkerThread}s are partitioned into groups of equal size. Tasks
+ * are only stolen by {@link WorkerThread}s of the same group. Thus, the tasks
+ * of a query that is assigned to one group stay on the cores of this group.
+ * </p>
+ *
+ * <p>
+ * It is guaranteed that a task is executed by at most one {@link WorkerThread}
+ * at a time and that it is contained at most once in all deques.
+ * </p>
+ *
+ * <p>
+ * A {@link WorkerThread} may only access the state of a task, e.g., call
+ * {@link WorkerTask#hasInput()}, or close it, while it holds the claim of the
+ * task. A claim is obtained by {@link #getNextRunnableTask(int)} or
+ * {@link #claim(WorkerTask)} and is given back by
+ * {@link #finishExecution(WorkerTask, int, boolean)} or
+ * {@link #claimCloseAfterExecution(WorkerTask)}. Since the claim is an atomic state
+ * transition, all changes of the previous holder are visible to the next
+ * holder. A closed task is never executed again.
+ * </p>
+ *
+ * <p>
+ * Aborting a query only marks its tasks by {@link #requestClose(WorkerTask)}.
+ * They are closed by the {@link WorkerThread} they are assigned to as soon as
+ * it can claim them.
+ * </p>
+ *
+ * @author Daniel Janke &lt;danijankATuni-koblenz.de&gt;
+ *
+ */
+public class WorkerTaskScheduler {
+
+  private static final int IDLE = 0;
+
+  private static final int QUEUED = 1;
+
+  private static final int RUNNING = 2;
+
+  /**
+   * The task became runnable again while it was executed.
+   */
+  private static final int RUNNING_AND_NOTIFIED = 3;
+
+  /**
+   * The task has been closed by the worker that has won the claim.
+   */
+  private static final int CLOSED = 4;
+
+  private final WorkerThread[] workers;
+
+  private final int workersPerGroup;
+
+  private final ConcurrentLinkedDeque<WorkerTask>[] runnableTasks;
+
+  /**
+   * 1, if the {@link WorkerThread} is parked
+   */
+  private final AtomicIntegerArray parkedWorkers;
+
+  private final ConcurrentHashMap<WorkerTask, TaskState> taskStates;
+
+  public WorkerTaskScheduler(int numberOfWorkers) {
+    this(numberOfWorkers, numberOfWorkers);
+  }
+
+  /**
+   * @param numberOfWorkers
+   * @param workersPerGroup
+   *          if &lt;=0 or &gt;numberOfWorkers, all workers form one group
+   */
+  @SuppressWarnings("unchecked")
+  public WorkerTaskScheduler(int numberOfWorkers, int workersPerGroup) {
+    workers = new WorkerThread[numberOfWorkers];
+    this.workersPerGroup = (workersPerGroup <= 0) || (workersPerGroup > numberOfWorkers)
+            ? numberOfWorkers : workersPerGroup;
+    runnableTasks = new ConcurrentLinkedDeque[numberOfWorkers];
+    for (int i = 0; i < numberOfWorkers; i++) {
+      runnableTasks[i] = new ConcurrentLinkedDeque<>();
+    }
+    parkedWorkers = new AtomicIntegerArray(numberOfWorkers);
+    taskStates = new ConcurrentHashMap<>();
+  }
+
+  public int getNumberOfGroups() {
+    return ((workers.length + workersPerGroup) - 1) / workersPerGroup;
+  }
+
+  /**
+   * @param group
+   * @return the id of the first worker of the group
+   */
+  public int getFirstWorkerOfGroup(int group) {
+    return group * workersPerGroup;
+  }
+
+  /**
+   * @param group
+   * @return the id after the last worker of the group
+   */
+  public int getEndOfGroup(int group) {
+    return Math.min(getFirstWorkerOfGroup(group + 1), workers.length);
+  }
+
+  private int getGroup(int workerId) {
+    return workerId / workersPerGroup;
+  }
+
+  void setWorker(int workerId, WorkerThread worker) {
+    workers[workerId] = worker;
+  }
+
+  /**
+   * Assigns the task to the worker and marks it as runnable.
+   *
+   * @param task
+   * @param workerId
+   */
+  void register(WorkerTask task, int workerId) {
+    taskStates.put(task, new TaskState(workerId));
+    schedule(task);
+  }
+
+  void unregister(WorkerTask task) {
+    taskStates.remove(task);
+  }
+
+  WorkerThread getAssignedWorker(WorkerTask task) {
+    TaskState taskState = taskStates.get(task);
+    return taskState == null ? null : workers[taskState.workerId];
+  }
+
+  /**
+   * Marks the task to be closed by the worker it is assigned to. The worker is
+   * woken up.
+   *
+   * @param task
+   */
+  void requestClose(WorkerTask task) {
+    TaskState taskState = taskStates.get(task);
+    if (taskState == null) {
+      return;
+    }
+    taskState.isCloseRequested = true;
+    unpark(taskState.workerId);
+  }
+
+  boolean isCloseRequested(WorkerTask task) {
+    TaskState taskState = taskStates.get(task);
+    return (taskState != null) && taskState.isCloseRequested;
+  }
+
+  /**
+   * @param task
+   * @return the load of the task when it was claimed the last time
+   */
+  long getCurrentLoad(WorkerTask task) {
+    TaskState taskState = taskStates.get(task);
+    return taskState == null ? 0 : taskState.currentLoad;
+  }
+
+  /**
+   * May only be called while holding the claim of the task.
+   *
+   * @param task
+   * @param currentLoad
+   */
+  void setCurrentLoad(WorkerTask task, long currentLoad) {
+    TaskState taskState = taskStates.get(task);
+    if (taskState != null) {
+      taskState.currentLoad = currentLoad;
+    }
+  }
+
+  /**
+   * Claims an idle task without executing it, e.g., in order to check its
+   * state. The claim must be given back by
+   * {@link #finishExecution(WorkerTask, int, boolean)} or
+   * {@link #claimCloseAfterExecution(WorkerTask)}.
+   *
+   * @param task
+   * @return <code>true</code>, if the claim was obtained. <code>false</code>,
+   *         if the task is queued, executed or closed.
+   */
+  boolean claim(WorkerTask task) {
+    TaskState taskState = taskStates.get(task);
+    return (taskState != null) && taskState.state.compareAndSet(IDLE, RUNNING);
+  }
+
+  /**
+   * Obtains the exclusive right to close a task that is neither executed nor
+   * closed. Afterwards, the task is never executed again.
+   *
+   * @param task
+   * @return <code>true</code>, if the calling worker has to close the task.
+   *         <code>false</code>, if the task is executed or already closed.
+   */
+  boolean claimClose(WorkerTask task) {
+    TaskState taskState = taskStates.get(task);
+    if (taskState == null) {
+      return false;
+    }
+    while (true) {
+      int state = taskState.state.get();
+      if ((state != IDLE) && (state != QUEUED)) {
+        return false;
+      }
+      if (taskState.state.compareAndSet(state, CLOSED)) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Turns the claim of the calling worker into the exclusive right to close
+   * the task. Afterwards, the task is never executed again and
+   * {@link #finishExecution(WorkerTask, int, boolean)} must not be called.
+   *
+   * @param task
+   * @return <code>true</code>, if the calling worker has to close the task
+   */
+  boolean claimCloseAfterExecution(WorkerTask task) {
+    TaskState taskState = taskStates.get(task);
+    if (taskState == null) {
+      return false;
+    }
+    return taskState.state.compareAndSet(RUNNING, CLOSED)
+            || taskState.state.compareAndSet(RUNNING_AND_NOTIFIED, CLOSED);
+  }
+
+  /**
+   * Marks the task as runnable. If the task is currently executed, it is
+   * executed again afterwards.
+   *
+   * @param task
+   */
+  public void schedule(WorkerTask task) {
+    TaskState taskState = task == null ? null : taskStates.get(task);
+    if (taskState == null) {
+      return;
+    }
+    while (true) {
+      int state = taskState.state.get();
+      switch (state) {
+        case IDLE:
+          if (taskState.state.compareAndSet(IDLE, QUEUED)) {
+            enqueue(task, taskState.workerId);
+            return;
+          }
+          break;
+        case RUNNING:
+          if (taskState.state.compareAndSet(RUNNING, RUNNING_AND_NOTIFIED)) {
+            return;
+          }
+          break;
+        default:
+          // task is already queued or will be queued after its execution
+          return;
+      }
+    }
+  }
+
+  private void enqueue(WorkerTask task, int workerId) {
+    runnableTasks[workerId].offerLast(task);
+    if (!unpark(workerId)) {
+      // the owner is busy, wake up another worker that can steal the task
+      int group = getGroup(workerId);
+      for (int i = getFirstWorkerOfGroup(group); i < getEndOfGroup(group); i++) {
+        if (unpark(i)) {
+          return;
+        }
+      }
+    }
+  }
+
+  private boolean unpark(int workerId) {
+    if (parkedWorkers.compareAndSet(workerId, 1, 0)) {
+      LockSupport.unpark(workers[workerId]);
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * @param workerId
+   * @return the next runnable task of the worker or a task stolen from another
+   *         worker. <code>null</code>, if no task is runnable. The returned
+   *         task must be passed to
+   *         {@link #finishExecution(WorkerTask, int, boolean)} after its
+   *         execution.
+   */
+  WorkerTask getNextRunnableTask(int workerId) {
+    int group = getGroup(workerId);
+    int firstWorker = getFirstWorkerOfGroup(group);
+    int groupSize = getEndOfGroup(group) - firstWorker;
+    while (true) {
+      WorkerTask task = runnableTasks[workerId].pollFirst();
+      for (int i = 1; (task == null) && (i < groupSize); i++) {
+        task = runnableTasks[firstWorker + (((workerId - firstWorker) + i) % groupSize)]
+                .pollLast();
+      }
+      if (task == null) {
+        return null;
+      }
+      TaskState taskState = taskStates.get(task);
+      if ((taskState != null) && taskState.state.compareAndSet(QUEUED, RUNNING)) {
+        return task;
+      }
+      // the task has been closed in the meantime
+    }
+  }
+
+  /**
+   * @param task
+   * @param workerId
+   *          the worker that has executed the task
+   * @param hasInput
+   *          true, if the task has to be executed again
+   */
+  void finishExecution(WorkerTask task, int workerId, boolean hasInput) {
+    TaskState taskState = taskStates.get(task);
+    if (taskState == null) {
+      return;
+    }
+    if (hasInput || !taskState.state.compareAndSet(RUNNING, IDLE)) {
+      taskState.state.set(QUEUED);
+      // keep the task on the executing worker, idle workers may steal it
+      enqueue(task, workerId);
+    }
+    if (taskState.isCloseRequested && (taskState.workerId != workerId)) {
+      // the assigned worker could not claim the task while it was executed
+      unpark(taskState.workerId);
+    }
+  }
+
+  /**
+   * Parks the worker until a task becomes runnable or the timeout has elapsed.
+   *
+   * @param workerId
+   * @param timeoutInMillis
+   */
+  void park(int workerId, long timeoutInMillis) {
+    parkedWorkers.set(workerId, 1);
+    int group = getGroup(workerId);
+    for (int i = getFirstWorkerOfGroup(group); i < getEndOfGroup(group); i++) {
+      if (!runnableTasks[i].isEmpty()) {
+        // a task became runnable before this worker was marked as parked
+        parkedWorkers.set(workerId, 0);
+        return;
+      }
+    }
+    LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(timeoutInMillis));
+    parkedWorkers.set(workerId, 0);
+  }
+
+  private static class TaskState {
+
+    private final AtomicInteger state;
+
+    private final int workerId;
+
+    private volatile boolean isCloseRequested;
+
+    private volatile long currentLoad;
+
+    public TaskState(int workerId) {
+      state = new AtomicInteger(IDLE);
+      this.workerId = workerId;
+    }
+
+  }
+
+}
@@ -21,31 +21,49 @@ package de.uni_koblenz.west.koral.common.executor;
 import de.uni_koblenz.west.koral.common.executor.messagePassing.MessageReceiverListener;
 import de.uni_koblenz.west.koral.common.executor.messagePassing.MessageSenderBuffer;
 import de.uni_koblenz.west.koral.common.measurement.MeasurementCollector;
+import de.uni_koblenz.west.koral.common.measurement.MeasurementType;
 import de.uni_koblenz.west.koral.common.query.MappingRecycleCache;
 
 import java.io.Closeable;
-import java.util.Comparator;
-import java.util.HashSet;
 import java.util.Iterator;
-import java.util.NavigableSet;
 import java.util.Set;
-import java.util.TreeSet;
 import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.logging.Logger;
 
 /**
- * Executes all registered {@link WorkerTask}s in iterations. During one
- * iteration {@link WorkerTask#execute()} is called once for each
- * {@link WorkerTask}. At the end of each iteration it forces to send all
- * buffered mappings and tries to reschedule tasks with its neighbors in order
- * to achieve a balanced workload during runtime.
+ * Executes the {@link WorkerTask}s that the {@link WorkerTaskScheduler}
+ * considers runnable. The {@link WorkerTask}s added to this thread are
+ * executed by this thread unless they are stolen by an idle
+ * {@link WorkerThread}. If no task is runnable, the thread parks. Additionally,
+ * all added tasks are checked periodically in order to remove finished tasks,
+ * to update the current load and to execute time dependent steps. If a
+ * {@link MeasurementCollector} is given, the utilisation of this thread is
+ * measured periodically.
+ * 
+ * <p>
+ * A task is only accessed while holding its claim of the
+ * {@link WorkerTaskScheduler}. Finished tasks are closed by the thread that
+ * holds the claim when the task reaches its final state. Tasks of aborted
+ * queries are only marked and closed by the {@link WorkerThread} they were
+ * added to as soon as no other thread executes them.
+ * </p>
  * 
  * @author Daniel Janke &lt;danijankATuni-koblenz.de&gt;
  *
  */
 public class WorkerThread extends Thread implements Closeable, AutoCloseable {
 
+  /**
+   * Interval in milliseconds in which all tasks of this thread are checked.
+   */
+  private static final long CHECK_INTERVAL = 100;
+
+  /**
+   * Interval in milliseconds in which the utilisation of this thread is
+   * measured.
+   */
+  private static final long UTILISATION_MEASUREMENT_INTERVAL = 1000;
+
   private final Logger logger;
 
   private final MeasurementCollector measurementCollector;
@@ -58,19 +76,28 @@ public class WorkerThread extends Thread implements Closeable, AutoCloseable {
 
   private final MessageReceiverListener receiver;
 
-  private WorkerThread previous;
+  private final WorkerTaskScheduler scheduler;
 
-  private WorkerThread next;
+  private final ConcurrentLinkedQueue<WorkerTask> tasks;
 
-  private final double unbalanceThreshold;
+  private volatile long currentLoad;
 
-  private final ConcurrentLinkedQueue<WorkerTask> tasks;
+  /**
+   * Set if tasks have been marked to be closed.
+   */
+  private volatile boolean isCheckRequested;
+
+  /*
+   * utilisation counters since the last measurement
+   */
+
+  private long busyTimeInNanos;
 
-  private final ConcurrentSkipListSet<WorkerTask> removableTasks;
+  private long numberOfExecutions;
 
-  private long currentLoad;
+  private long numberOfStolenExecutions;
 
-  public WorkerThread(int id, int sizeOfMappingRecycleCache, double unbalanceThreshold,
+  public WorkerThread(int id, int sizeOfMappingRecycleCache, WorkerTaskScheduler scheduler,
           MessageReceiverListener receiver, MessageSenderBuffer messageSender, int numberOfSlaves,
           Logger logger, MeasurementCollector measurementCollector) {
     setDaemon(true);
@@ -81,25 +108,14 @@ public class WorkerThread extends Thread implements Closeable, AutoCloseable {
     tasks = new ConcurrentLinkedQueue<>();
     currentLoad = 0;
     mappingCache = new MappingRecycleCache(sizeOfMappingRecycleCache, numberOfSlaves);
-    this.unbalanceThreshold = unbalanceThreshold;
+    this.scheduler = scheduler;
+    scheduler.setWorker(id, this);
     this.receiver = receiver;
     this.messageSender = messageSender;
-    removableTasks = new ConcurrentSkipListSet<>(new Comparator<WorkerTask>() {
-
-      @Override
-      public int compare(WorkerTask o1, WorkerTask o2) {
-        if (o1 == null) {
-          return -1;
-        } else if (o2 == null) {
-          return 1;
-        } else {
-          return o1.hashCode() - o2.hashCode();
-        }
-      }
-    });
   }
 
   public WorkerThread(WorkerThread workerThread) {
+    setDaemon(true);
     logger = workerThread.logger;
     measurementCollector = workerThread.measurementCollector;
     id = workerThread.id;
@@ -107,41 +123,11 @@ public class WorkerThread extends Thread implements Closeable, AutoCloseable {
     mappingCache = workerThread.mappingCache;
     messageSender = workerThread.messageSender;
     receiver = workerThread.receiver;
-    previous = workerThread.previous;
-    if (previous != workerThread) {
-      previous.next = this;
-    } else {
-      previous = this;
-    }
-    next = workerThread.next;
-    if (next != workerThread) {
-      next.previous = this;
-    } else {
-      next = this;
-    }
-    unbalanceThreshold = workerThread.unbalanceThreshold;
+    scheduler = workerThread.scheduler;
+    scheduler.setWorker(id, this);
     tasks = workerThread.tasks;
     currentLoad = workerThread.currentLoad;
-    removableTasks = workerThread.removableTasks;
-    if (!tasks.isEmpty() && !isAlive()) {
-      start();
-    }
-  }
-
-  private WorkerThread getPrevious() {
-    return previous;
-  }
-
-  void setPrevious(WorkerThread previous) {
-    this.previous = previous;
-  }
-
-  private WorkerThread getNext() {
-    return next;
-  }
-
-  void setNext(WorkerThread next) {
-    this.next = next;
+    start();
   }
 
   public long getCurrentLoad() {
@@ -153,16 +139,13 @@ public class WorkerThread extends Thread implements Closeable, AutoCloseable {
   }
 
   public void addWorkerTask(WorkerTask task) {
-    task.setUp(messageSender, mappingCache, logger, measurementCollector);
-    receiver.register(task);
-    receiveTask(task);
-  }
-
-  private void receiveTask(WorkerTask task) {
-    tasks.offer(task);
     if (!isAlive()) {
       start();
     }
+    task.setUp(messageSender, mappingCache, logger, measurementCollector);
+    receiver.register(task);
+    tasks.offer(task);
+    scheduler.register(task, id);
   }
 
   /**
@@ -175,145 +158,189 @@ public class WorkerThread extends Thread implements Closeable, AutoCloseable {
   public void startQuery(byte[] receivedMessage) {
     for (WorkerTask task : receiver.getAllTasksOfQuery(receivedMessage, 1)) {
       task.start();
+      scheduler.schedule(task);
     }
   }
 
+  /**
+   * Marks all tasks of the query that were added to this thread to be closed.
+   * They are closed by this thread as soon as they are not executed any more.
+   * 
+   * @param receivedMessage
+   */
   public void abortQuery(byte[] receivedMessage) {
     messageSender.sendAllBufferedMessages(mappingCache);
     Set<WorkerTask> queryTasks = receiver.getAllTasksOfQuery(receivedMessage, 1);
-    Iterator<WorkerTask> iterator = tasks.iterator();
-    while (iterator.hasNext()) {
-      WorkerTask task = iterator.next();
+    for (WorkerTask task : tasks) {
       if (queryTasks.contains(task)) {
-        removeTask(task);
+        scheduler.requestClose(task);
+        isCheckRequested = true;
       }
     }
   }
 
   @Override
   public void run() {
+    long nextCheck = 0;
+    long lastUtilisationMeasurement = System.currentTimeMillis();
     while (!isInterrupted()) {
-      long currentLoad = 0;
-      Iterator<WorkerTask> iterator = tasks.iterator();
-      while (!isInterrupted() && iterator.hasNext()) {
-        WorkerTask task = iterator.next();
-        if (removableTasks.contains(task)) {
-          continue;
-        }
-        try {
-          long currentLoadOfThisTask = task.getCurrentTaskLoad();
-          if (task.hasInput() || task.hasToPerformFinalSteps()) {
-            task.execute();
-          }
-          if (task.isInFinalState()) {
-            removeTask(task);
-          } else {
-            currentLoad += currentLoadOfThisTask;
-          }
-        } catch (Exception | IllegalAccessError e) {
-          if (logger != null) {
-            logger.throwing(e.getStackTrace()[0].getClassName(),
-                    e.getStackTrace()[0].getMethodName(), e);
-          }
-          removeTask(task);
-          messageSender.sendQueryTaskFailed(0, task.getCoordinatorID(), "Execution of task " + task
-                  + "failed. Cause:\n" + e.getClass().getName() + ": " + e.getMessage());
-        }
+      WorkerTask task = scheduler.getNextRunnableTask(id);
+      if (task != null) {
+        execute(task);
+      } else {
+        // wake up in time to send bundles whose linger time elapses
+        scheduler.park(id, Math.max(1,
+                Math.min(nextCheck - System.currentTimeMillis(), messageSender.getLingerTime())));
       }
-      synchronized (removableTasks) {
-        for (WorkerTask task : removableTasks) {
-          tasks.remove(task);
-        }
-        removableTasks.clear();
+      messageSender.sendLingeringMessages(mappingCache);
+      if (isCheckRequested) {
+        isCheckRequested = false;
+        checkTasks();
       }
-      this.currentLoad = currentLoad;
-      if (isInterrupted()) {
-        messageSender.sendAllBufferedMessages(mappingCache);
-      }
-      rebalance();
-      if (tasks.isEmpty()) {
-        try {
-          Thread.sleep(100);
-        } catch (InterruptedException e) {
+      if (System.currentTimeMillis() >= nextCheck) {
+        checkTasks();
+        nextCheck = System.currentTimeMillis() + CHECK_INTERVAL;
+        if ((nextCheck - lastUtilisationMeasurement) > UTILISATION_MEASUREMENT_INTERVAL) {
+          measureUtilisation(nextCheck - CHECK_INTERVAL - lastUtilisationMeasurement);
+          lastUtilisationMeasurement = nextCheck - CHECK_INTERVAL;
         }
       }
     }
+    // close the tasks marked by a concurrent abortion or termination
+    checkTasks();
+    messageSender.sendAllBufferedMessages(mappingCache);
   }
 
-  private void removeTask(WorkerTask task) {
-    synchronized (removableTasks) {
-      boolean wasRemoved = removableTasks.add(task);
-      if (wasRemoved) {
-        receiver.unregister(task);
-        task.close();
+  /**
+   * @param task
+   *          task whose claim is held by this thread
+   */
+  private void execute(WorkerTask task) {
+    long start = System.nanoTime();
+    numberOfExecutions++;
+    WorkerThread assignedWorker = getAssignedWorker(task);
+    if (assignedWorker != this) {
+      numberOfStolenExecutions++;
+    }
+    boolean isClosed = false;
+    boolean hasInput = false;
+    try {
+      if (scheduler.isCloseRequested(task)) {
+        if (assignedWorker == this) {
+          isClosed = closeClaimedTask(task);
+        }
+        // otherwise, the assigned worker is woken up by finishExecution
+        return;
+      }
+      if (task.hasInput() || task.hasToPerformFinalSteps()) {
+        task.execute();
+      }
+      if (task.isInFinalState()) {
+        isClosed = closeClaimedTask(task);
+      } else {
+        scheduler.setCurrentLoad(task, task.getCurrentTaskLoad());
+        hasInput = task.hasInput();
+        if (!hasInput) {
+          // the parent may wait for this task to emit all its mappings
+          scheduler.schedule(task.getParentTask());
+        }
+      }
+    } catch (Exception | IllegalAccessError e) {
+      if (logger != null) {
+        logger.throwing(e.getStackTrace()[0].getClassName(), e.getStackTrace()[0].getMethodName(),
+                e);
+      }
+      isClosed = closeClaimedTask(task);
+      messageSender.sendQueryTaskFailed(0, task.getCoordinatorID(), "Execution of task " + task
+              + "failed. Cause:\n" + e.getClass().getName() + ": " + e.getMessage());
+    } finally {
+      if (!isClosed) {
+        scheduler.finishExecution(task, id, hasInput);
       }
+      busyTimeInNanos += System.nanoTime() - start;
     }
   }
 
-  private void rebalance() {
-    if (getPrevious().id < getNext().id) {
-      rebalance(getNext());
-      rebalance(getPrevious());
-    } else {
-      rebalance(getPrevious());
-      rebalance(getNext());
+  /**
+   * @param task
+   *          task whose claim is held by this thread
+   * @return <code>true</code>, if the task was closed
+   */
+  private boolean closeClaimedTask(WorkerTask task) {
+    if (!scheduler.claimCloseAfterExecution(task)) {
+      return false;
     }
+    getAssignedWorker(task).removeTask(task);
+    return true;
   }
 
-  private void rebalance(WorkerThread other) {
-    if (id == other.id) {
-      return;
-    }
-    // only if this worker has more load then the other, tasks are shifted
-    synchronized (id > other.id ? this : other) {
-      synchronized (id > other.id ? other : this) {
-        // dead locks are avoided
-        long loadDiff = getCurrentLoad() - other.getCurrentLoad();
-        if (loadDiff <= Math.ceil(unbalanceThreshold * getCurrentLoad())) {
-          // the worker threads are balanced or this worker has less
-          // work than the other
-          return;
-        }
-        Set<WorkerTask> tasksToShift = getTasksToShift(loadDiff / 2);
-        for (WorkerTask task : tasksToShift) {
-          tasks.remove(task);
-          currentLoad -= task.getCurrentTaskLoad();
-          other.receiveTask(task);
-        }
-      }
+  private void measureUtilisation(long elapsedTime) {
+    if (measurementCollector != null) {
+      measurementCollector.measureValue(MeasurementType.WORKER_THREAD_UTILISATION,
+              System.currentTimeMillis(), Integer.toString(id), Long.toString(elapsedTime),
+              Long.toString(busyTimeInNanos / 1_000_000), Long.toString(numberOfExecutions),
+              Long.toString(numberOfStolenExecutions), Integer.toString(tasks.size()));
     }
+    busyTimeInNanos = 0;
+    numberOfExecutions = 0;
+    numberOfStolenExecutions = 0;
   }
 
-  private Set<WorkerTask> getTasksToShift(long unbalancedLoad) {
-    if ((unbalancedLoad <= 0) || !tasks.isEmpty()) {
-      return new HashSet<>();
-    }
+  /**
+   * @param task
+   * @return the {@link WorkerThread} to which the possibly stolen task was
+   *         added
+   */
+  private WorkerThread getAssignedWorker(WorkerTask task) {
+    WorkerThread worker = scheduler.getAssignedWorker(task);
+    return worker == null ? this : worker;
+  }
 
-    // filter out useless tasks and sort tasks according to load
-    NavigableSet<WorkerTask> relevantTasks = new TreeSet<>(new WorkerTaskComparator(true));
+  /**
+   * Removes finished tasks, updates the current load and schedules all tasks
+   * that have to be executed independent of received messages.
+   */
+  private void checkTasks() {
+    long currentLoad = 0;
     for (WorkerTask task : tasks) {
-      long load = task.getCurrentTaskLoad();
-      if ((load == 0) || (load > unbalancedLoad)) {
+      if (scheduler.isCloseRequested(task)) {
+        if (scheduler.claimClose(task)) {
+          removeTask(task);
+        } else {
+          // the task is executed by another thread
+          isCheckRequested = true;
+        }
         continue;
       }
-      relevantTasks.add(task);
+      if (!scheduler.claim(task)) {
+        // the task is runnable or executed, thus it is checked afterwards
+        currentLoad += scheduler.getCurrentLoad(task);
+        continue;
+      }
+      if (task.isInFinalState()) {
+        if (closeClaimedTask(task)) {
+          continue;
+        }
+      }
+      long taskLoad = task.getCurrentTaskLoad();
+      scheduler.setCurrentLoad(task, taskLoad);
+      currentLoad += taskLoad;
+      scheduler.finishExecution(task, id, task.hasInput() || task.hasToPerformFinalSteps());
     }
+    this.currentLoad = currentLoad;
+  }
 
-    // perform greedy algorithm to find minimal amount of tasks to shift to
-    // the other
-    Set<WorkerTask> tasksToShift = new HashSet<>();
-    long remainingLoad = unbalancedLoad;
-    for (WorkerTask task : relevantTasks.descendingSet()) {
-      long taskLoad = task.getCurrentTaskLoad();
-      if (taskLoad <= remainingLoad) {
-        tasksToShift.add(task);
-        remainingLoad -= taskLoad;
-        if (remainingLoad == 0) {
-          return tasksToShift;
-        }
+  private void removeTask(WorkerTask task) {
+    synchronized (tasks) {
+      boolean wasRemoved = tasks.remove(task);
+      if (wasRemoved) {
+        scheduler.unregister(task);
+        receiver.unregister(task);
+        task.close();
+        // the parent may wait for this task to finish
+        scheduler.schedule(task.getParentTask());
       }
     }
-    return tasksToShift;
   }
 
   public void clear() {
@@ -331,14 +358,22 @@ public class WorkerThread extends Thread implements Closeable, AutoCloseable {
     receiver.close();
   }
 
+  /**
+   * Closes all tasks that are not executed. The remaining tasks are closed by
+   * this thread after their execution.
+   */
   private void terminateTasks() {
-    synchronized (this) {
+    synchronized (tasks) {
       Iterator<WorkerTask> iter = tasks.iterator();
       while (iter.hasNext()) {
         WorkerTask task = iter.next();
-        removeTask(task);
+        scheduler.requestClose(task);
+        if (scheduler.claimClose(task)) {
+          removeTask(task);
+        }
       }
     }
+    isCheckRequested = true;
   }
 
   @Override
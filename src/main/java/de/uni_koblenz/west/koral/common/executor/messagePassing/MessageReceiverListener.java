@@ -19,6 +19,7 @@
 package de.uni_koblenz.west.koral.common.executor.messagePassing;
 
 import de.uni_koblenz.west.koral.common.executor.WorkerTask;
+import de.uni_koblenz.west.koral.common.executor.WorkerTaskScheduler;
 import de.uni_koblenz.west.koral.common.messages.MessageListener;
 import de.uni_koblenz.west.koral.common.messages.MessageType;
 import de.uni_koblenz.west.koral.common.utils.NumberConversion;
@@ -34,7 +35,8 @@ import java.util.logging.Logger;
  * All messages related to query processing received by Koral master or a slave
  * are propagated to this class. According to the receiver task id of the
  * message, the message is put in the input message queue of the corresponding
- * {@link WorkerTask}.
+ * {@link WorkerTask}. Thereafter, the {@link WorkerTaskScheduler} is notified
+ * that the {@link WorkerTask} has become runnable.
  * </p>
  * 
  * <p>
@@ -77,10 +79,22 @@ public class MessageReceiverListener implements MessageListener {
 
   private WorkerTask[][][][][][] taskRegistry;
 
+  private volatile WorkerTaskScheduler scheduler;
+
   public MessageReceiverListener(Logger logger) {
     this.logger = logger;
   }
 
+  public void setScheduler(WorkerTaskScheduler scheduler) {
+    this.scheduler = scheduler;
+  }
+
+  private void schedule(WorkerTask task) {
+    if (scheduler != null) {
+      scheduler.schedule(task);
+    }
+  }
+
   @Override
   public int getSlaveID() {
     return Integer.MAX_VALUE;
@@ -126,6 +140,7 @@ public class MessageReceiverListener implements MessageListener {
               // }
             } else {
               task.enqueueMessage(sender, message, currentIndex, lengthOfMapping);
+              schedule(task);
             }
             currentIndex += lengthOfMapping;
           }
@@ -151,6 +166,11 @@ public class MessageReceiverListener implements MessageListener {
                     ((long) NumberConversion.bytes2short(message, Byte.BYTES)) << (Short.SIZE
                             + Integer.SIZE),
                     message, 0, message.length);
+            schedule(task);
+            if (messageType == MessageType.QUERY_TASK_FINISHED) {
+              // the parent task may wait for the finished instance of this task
+              schedule(task.getParentTask());
+            }
           }
           break;
         default:
@@ -184,6 +204,7 @@ public class MessageReceiverListener implements MessageListener {
       }
     } else {
       task.enqueueMessage(sender, message, startIndexInMessage, lengthOfMessage);
+      schedule(task);
     }
   }
 
@@ -32,6 +32,12 @@ import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.logging.Logger;
 
 /**
@@ -45,26 +51,61 @@ import java.util.logging.Logger;
  * 
  * <p>
  * Since there are many small mappings to be sent during the query processing,
- * they are bundled into one large message. These bundles are sent whenever
+ * they are bundled into one large message. The size of the message is updated
+ * whenever a mapping is buffered so that the message is serialized in a single
+ * pass. These bundles are sent whenever
  * <ul>
  * <li>{@link #close(MappingRecycleCache)} is called,</li>
  * <li>{@link #sendAllBufferedMessages(MappingRecycleCache)} is called,</li>
  * <li>{@link #sendQueryTaskFinished(long, boolean, long, MappingRecycleCache)}
- * is called or</li>
- * <li>the mapping buffer reaches its configured maximum limit.</li>
+ * is called,</li>
+ * <li>the mapping buffer reaches its configured maximum number of mappings or
+ * its current size limit in bytes or</li>
+ * <li>the first buffered mapping has waited for the linger time and
+ * {@link #sendLingeringMessages(MappingRecycleCache)} is called.</li>
  * </ul>
  * </p>
  * 
+ * <p>
+ * The size limit in bytes of the bundles sent to one computer adapts to the
+ * throughput of mappings to this computer. It is doubled whenever a bundle is
+ * filled and halved whenever a bundle is sent because its linger time has
+ * elapsed. Thus, selective queries do not wait for bundles that are never
+ * filled and queries with many results send large bundles.
+ * </p>
+ * 
+ * <p>
+ * This class is shared by all WorkerThreads of one computer. Each receiving
+ * computer has its own buffer that is guarded by its own lock. Thus, buffering
+ * a mapping for one computer does not wait until the buffered mappings for
+ * another computer have been sent.
+ * </p>
+ * 
  * @author Daniel Janke &lt;danijankATuni-koblenz.de&gt;
  *
  */
 public class MessageSenderBuffer {
 
+  /**
+   * The size in bytes to which the size limit of bundles can shrink at most.
+   */
+  private static final int MIN_BUNDLE_SIZE_IN_BYTES = 4096;
+
   private final Logger logger;
 
   private final MeasurementCollector measurementCollector;
 
-  private final long[] sentMessages;
+  /**
+   * The number of bundles sent to each computer. It is updated while holding
+   * the lock of the receiving computer but read and reset without it.
+   */
+  private final AtomicLongArray sentMessages;
+
+  /**
+   * The statistics of the sent bundles of each query. A bundle is counted for
+   * each query whose mappings it contains.
+   */
+  private final ConcurrentHashMap<Integer, BundleStatistics> bundleStatistics;
 
   private final MessageSender messageSender;
 
@@ -72,27 +113,101 @@ public class MessageSenderBuffer {
 
   private final Mapping[][] mappingBuffer;
 
+  /**
+   * The lock of the buffer of each receiving computer.
+   */
+  private final Object[] bufferLocks;
+
   private final int[] nextIndex;
 
+  /**
+   * The size of the message that contains all buffered mappings.
+   */
+  private final int[] messageSizes;
+
+  private final int maxBundleSizeInBytes;
+
+  /**
+   * The current size limit in bytes of the bundle of each receiving computer.
+   */
+  private final int[] bundleSizeLimits;
+
+  private final long lingerTime;
+
+  /**
+   * The time when the first mapping of the current bundle of each receiving
+   * computer was buffered.
+   */
+  private final long[] firstBufferingTimes;
+
   private final int numberOfSlaves;
 
+  /**
+   * Creates a buffer whose bundles are not sent because of an elapsed linger
+   * time.
+   */
   public MessageSenderBuffer(int numberOfSlaves, int bundleSize, MessageSender messageSender,
           MessageReceiverListener localMessageReceiver, Logger logger,
           MeasurementCollector measurementCollector) {
+    this(numberOfSlaves, bundleSize, Integer.MAX_VALUE, Long.MAX_VALUE, messageSender,
+            localMessageReceiver, logger, measurementCollector);
+  }
+
+  /**
+   * @param numberOfSlaves
+   * @param bundleSize
+   *          the maximal number of mappings in a bundle
+   * @param maxBundleSizeInBytes
+   *          the maximal size of a bundle in bytes
+   * @param lingerTime
+   *          the maximal time in milliseconds a mapping is buffered before its
+   *          bundle is sent by
+   *          {@link #sendLingeringMessages(MappingRecycleCache)}
+   * @param messageSender
+   * @param localMessageReceiver
+   * @param logger
+   * @param measurementCollector
+   */
+  public MessageSenderBuffer(int numberOfSlaves, int bundleSize, int maxBundleSizeInBytes,
+          long lingerTime, MessageSender messageSender,
+          MessageReceiverListener localMessageReceiver, Logger logger,
+          MeasurementCollector measurementCollector) {
     this.logger = logger;
     this.messageSender = messageSender;
     this.localMessageReceiver = localMessageReceiver;
     mappingBuffer = new Mapping[numberOfSlaves + 1][bundleSize];
+    bufferLocks = new Object[numberOfSlaves + 1];
+    for (int i = 0; i < bufferLocks.length; i++) {
+      bufferLocks[i] = new Object();
+    }
     nextIndex = new int[numberOfSlaves + 1];
+    messageSizes = new int[numberOfSlaves + 1];
+    this.maxBundleSizeInBytes = maxBundleSizeInBytes;
+    bundleSizeLimits = new int[numberOfSlaves + 1];
+    Arrays.fill(bundleSizeLimits, getMinBundleSizeInBytes());
+    this.lingerTime = lingerTime;
+    firstBufferingTimes = new long[numberOfSlaves + 1];
     this.numberOfSlaves = numberOfSlaves;
     this.measurementCollector = measurementCollector;
-    sentMessages = new long[numberOfSlaves + 1];
+    sentMessages = new AtomicLongArray(numberOfSlaves + 1);
+    bundleStatistics = new ConcurrentHashMap<>();
   }
 
   public int getNumberOfSlaves() {
     return numberOfSlaves;
   }
 
+  /**
+   * @return the maximal time in milliseconds a mapping is buffered
+   */
+  public long getLingerTime() {
+    return lingerTime;
+  }
+
+  private int getMinBundleSizeInBytes() {
+    return Math.min(MessageSenderBuffer.MIN_BUNDLE_SIZE_IN_BYTES, maxBundleSizeInBytes);
+  }
+
   public void sendQueryCreate(GraphStatistics statistics, int queryId, QueryOperatorBase queryTree,
           boolean useBaseImplementation) {
     for (int slave = 0; slave < numberOfSlaves; slave++) {
@@ -191,14 +306,31 @@ public class MessageSenderBuffer {
 
   public void measureSentMessages(int queryID) {
     if (measurementCollector != null) {
-      String[] values = new String[sentMessages.length];
+      String[] values = new String[sentMessages.length()];
       values[0] = Integer.toString(queryID);
-      for (int i = 1; i < sentMessages.length; i++) {
-        values[i] = Long.toString(sentMessages[i]);
-        sentMessages[i] = 0;
+      for (int i = 1; i < sentMessages.length(); i++) {
+        values[i] = Long.toString(sentMessages.getAndSet(i, 0));
       }
       measurementCollector.measureValue(MeasurementType.SLAVE_SENT_MAPPING_BATCHES_TO_SLAVE,
               values);
+
+      BundleStatistics statistics = bundleStatistics.remove(queryID);
+      if (statistics == null) {
+        statistics = new BundleStatistics();
+      }
+      values = new String[FlushReason.values().length + 2];
+      values[0] = Integer.toString(queryID);
+      long numberOfBundles = 0;
+      for (FlushReason reason : FlushReason.values()) {
+        long sentBundles = statistics.sentBundlesPerReason.get(reason.ordinal());
+        values[reason.ordinal() + 1] = Long.toString(sentBundles);
+        numberOfBundles += sentBundles;
+      }
+      long fillRatios = statistics.sumOfFillRatios.get();
+      values[values.length - 1] = Long.toString(
+              numberOfBundles == 0 ? 0 : fillRatios / (numberOfBundles * 10));
+      measurementCollector.measureValue(MeasurementType.SLAVE_SENT_MAPPING_BUNDLE_STATISTICS,
+              values);
     }
   }
 
@@ -208,63 +340,120 @@ public class MessageSenderBuffer {
 
   public void sendAllBufferedMessages(MappingRecycleCache mappingCache) {
     for (int i = 0; i < mappingBuffer.length; i++) {
-      sendBufferedMessages(i, mappingCache);
+      sendBufferedMessages(i, FlushReason.EXPLICIT, mappingCache);
     }
   }
 
-  private synchronized void sendBufferedMessages(int receivingComputer,
-          MappingRecycleCache mappingCache) {
-    ByteBuffer buffer = null;
-    if (nextIndex[receivingComputer] == 0) {
-      // the buffer is empty
-      return;
-    }
-    // determine size of message
-    int sizeOfMessage = Byte.BYTES + Short.BYTES;
-    for (int i = 0; i < nextIndex[receivingComputer]; i++) {
-      Mapping mapping = mappingBuffer[receivingComputer][i];
-      sizeOfMessage += mapping.getLengthOfMappingInByteArray();
-    }
-    // create message
-    buffer = ByteBuffer.allocate(sizeOfMessage);
-    buffer.put(MessageType.QUERY_MAPPING_BATCH.getValue())
-            .putShort((short) messageSender.getCurrentID());
-    for (int i = 0; i < nextIndex[receivingComputer]; i++) {
-      Mapping mapping = mappingBuffer[receivingComputer][i];
-      buffer.put(mapping.getByteArray(), mapping.getFirstIndexOfMappingInByteArray(),
-              mapping.getLengthOfMappingInByteArray());
-      mappingBuffer[receivingComputer][i] = null;
-      mappingCache.releaseMapping(mapping);
+  /**
+   * Sends the bundles whose first mapping has been buffered for at least the
+   * linger time.
+   * 
+   * @param mappingCache
+   */
+  public void sendLingeringMessages(MappingRecycleCache mappingCache) {
+    long currentTime = System.currentTimeMillis();
+    for (int i = 0; i < mappingBuffer.length; i++) {
+      if (nextIndex[i] == 0) {
+        // checking without the lock is sufficient to skip empty buffers
+        continue;
+      }
+      synchronized (bufferLocks[i]) {
+        if ((nextIndex[i] > 0) && ((currentTime - firstBufferingTimes[i]) >= lingerTime)) {
+          sendBufferedMessages(i, FlushReason.LINGER_TIME_ELAPSED, mappingCache);
+        }
+      }
     }
-    nextIndex[receivingComputer] = 0;
-    // send message
-    if (buffer != null) {
-      messageSender.send(receivingComputer, buffer.array());
+  }
+
+  private void sendBufferedMessages(int receivingComputer, FlushReason reason,
+          MappingRecycleCache mappingCache) {
+    synchronized (bufferLocks[receivingComputer]) {
+      if (nextIndex[receivingComputer] == 0) {
+        // the buffer is empty
+        return;
+      }
+      Mapping[] mappings = mappingBuffer[receivingComputer];
+      int numberOfMappings = nextIndex[receivingComputer];
+      // create message
+      // the array is not reused since the network layer sends it without
+      // copying it
+      byte[] message = new byte[Byte.BYTES + Short.BYTES + messageSizes[receivingComputer]];
+      ByteBuffer buffer = ByteBuffer.wrap(message);
+      buffer.put(MessageType.QUERY_MAPPING_BATCH.getValue())
+              .putShort((short) messageSender.getCurrentID());
+      Set<Integer> queryIDs = measurementCollector == null ? null : new HashSet<>();
+      for (int i = 0; i < numberOfMappings; i++) {
+        Mapping mapping = mappings[i];
+        if (queryIDs != null) {
+          long receiverTaskID = NumberConversion.bytes2long(mapping.getByteArray(),
+                  mapping.getFirstIndexOfMappingInByteArray() + Byte.BYTES);
+          queryIDs.add((int) (receiverTaskID >>> Short.SIZE));
+        }
+        buffer.put(mapping.getByteArray(), mapping.getFirstIndexOfMappingInByteArray(),
+                mapping.getLengthOfMappingInByteArray());
+        mappingCache.releaseMapping(mapping);
+        mappings[i] = null;
+      }
+      nextIndex[receivingComputer] = 0;
+      messageSizes[receivingComputer] = 0;
+      // send message
+      messageSender.send(receivingComputer, message);
       if (measurementCollector != null) {
-        sentMessages[receivingComputer] += 1;
+        sentMessages.incrementAndGet(receivingComputer);
+        long fillRatio = Math.min(1000, ((message.length - Byte.BYTES - Short.BYTES) * 1000L)
+                / bundleSizeLimits[receivingComputer]);
+        for (Integer queryID : queryIDs) {
+          BundleStatistics statistics = bundleStatistics.computeIfAbsent(queryID,
+                  id -> new BundleStatistics());
+          statistics.sentBundlesPerReason.incrementAndGet(reason.ordinal());
+          statistics.sumOfFillRatios.addAndGet(fillRatio);
+        }
+      }
+      // adapt size limit
+      switch (reason) {
+        case BUNDLE_FULL:
+          bundleSizeLimits[receivingComputer] = (int) Math
+                  .min(bundleSizeLimits[receivingComputer] * 2L, maxBundleSizeInBytes);
+          break;
+        case LINGER_TIME_ELAPSED:
+          bundleSizeLimits[receivingComputer] = Math
+                  .max(bundleSizeLimits[receivingComputer] / 2, getMinBundleSizeInBytes());
+          break;
+        default:
+          // explicitly sent bundles do not reflect the throughput
+          break;
       }
     }
   }
 
-  private synchronized void enqueue(int receivingComputer, Mapping mapping, long receiverTaskID,
+  private void enqueue(int receivingComputer, Mapping mapping, long receiverTaskID,
           MappingRecycleCache mappingCache) {
-    if (isBufferFull(receivingComputer)) {
-      sendBufferedMessages(receivingComputer, mappingCache);
-    }
-    mappingBuffer[receivingComputer][nextIndex[receivingComputer]++] = mapping;
-    if (isBufferFull(receivingComputer)) {
-      sendBufferedMessages(receivingComputer, mappingCache);
+    synchronized (bufferLocks[receivingComputer]) {
+      if (isBufferFull(receivingComputer)) {
+        sendBufferedMessages(receivingComputer, FlushReason.BUNDLE_FULL, mappingCache);
+      }
+      int index = nextIndex[receivingComputer]++;
+      if (index == 0) {
+        firstBufferingTimes[receivingComputer] = System.currentTimeMillis();
+      }
+      messageSizes[receivingComputer] += mapping.getLengthOfMappingInByteArray();
+      mappingBuffer[receivingComputer][index] = mapping;
+      if (isBufferFull(receivingComputer)) {
+        sendBufferedMessages(receivingComputer, FlushReason.BUNDLE_FULL, mappingCache);
+      }
     }
   }
 
   /**
-   * Only call it within a synchronized block!
+   * Only call it within a block synchronized on the lock of
+   * <code>receivingComputer</code>!
    * 
    * @param receivingComputer
    * @return
    */
   private boolean isBufferFull(int receivingComputer) {
-    return nextIndex[receivingComputer] == mappingBuffer[receivingComputer].length;
+    return (nextIndex[receivingComputer] == mappingBuffer[receivingComputer].length)
+            || (messageSizes[receivingComputer] >= bundleSizeLimits[receivingComputer]);
   }
 
   public void sendQueryTaskFailed(int receiver, long controllerID, String message) {
@@ -292,28 +481,77 @@ public class MessageSenderBuffer {
     messageSender.sendToAllSlaves(message.array());
   }
 
+  public void sendQuerySatisfied(int queryID) {
+    ByteBuffer message = ByteBuffer.allocate(Byte.BYTES + Integer.BYTES);
+    message.put(MessageType.QUERY_SATISFIED.getValue()).putInt(queryID);
+    messageSender.sendToAllSlaves(message.array());
+  }
+
   public void clear() {
     int bufferSize = mappingBuffer[0].length;
     for (int i = 0; i < mappingBuffer.length; i++) {
-      synchronized (mappingBuffer[i]) {
+      synchronized (bufferLocks[i]) {
         mappingBuffer[i] = new Mapping[bufferSize];
         nextIndex[i] = 0;
+        messageSizes[i] = 0;
+        bundleSizeLimits[i] = getMinBundleSizeInBytes();
       }
     }
     if (measurementCollector != null) {
-      for (int i = 0; i < sentMessages.length; i++) {
-        sentMessages[i] = 0;
+      for (int i = 0; i < sentMessages.length(); i++) {
+        sentMessages.set(i, 0);
       }
+      bundleStatistics.clear();
     }
   }
 
   public void close(MappingRecycleCache mappingCache) {
     sendAllBufferedMessages(mappingCache);
     if (measurementCollector != null) {
-      for (int i = 0; i < sentMessages.length; i++) {
-        sentMessages[i] = 0;
+      for (int i = 0; i < sentMessages.length(); i++) {
+        sentMessages.set(i, 0);
       }
     }
   }
 
+  /**
+   * The statistics of the bundles sent for one query.
+   */
+  private static class BundleStatistics {
+
+    /**
+     * The number of sent bundles for each {@link FlushReason}
+     */
+    private final AtomicLongArray sentBundlesPerReason = new AtomicLongArray(
+            FlushReason.values().length);
+
+    /**
+     * The sum of the fill ratios of all sent bundles in per mille
+     */
+    private final AtomicLong sumOfFillRatios = new AtomicLong();
+
+  }
+
+  /**
+   * The reason why a bundle is sent.
+   */
+  private static enum FlushReason {
+
+    /**
+     * The bundle has reached its maximal number of mappings or its size limit.
+     */
+    BUNDLE_FULL,
+
+    /**
+     * The first mapping of the bundle has waited for the linger time.
+     */
+    LINGER_TIME_ELAPSED,
+
+    /**
+     * All bundles are sent, e.g., because a query task has finished.
+     */
+    EXPLICIT;
+
+  }
+
 }
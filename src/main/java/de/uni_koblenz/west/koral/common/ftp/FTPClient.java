@@ -90,6 +90,30 @@ public class FTPClient {
 
   public void downloadFile(String remoteFile, File localFile, String ipAddress, String port,
           String username, String password) {
+    try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(localFile));) {
+      downloadFile(remoteFile, outputStream, ipAddress, port, username, password);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Writes the content of the remote file to the output stream while it is
+   * downloaded. The output stream is not closed.
+   * 
+   * @param remoteFile
+   * @param outputStream
+   * @param ipAddress
+   * @param port
+   */
+  public void downloadFile(String remoteFile, OutputStream outputStream, String ipAddress,
+          String port) {
+    downloadFile(remoteFile, outputStream, ipAddress, port, FTPServer.DEFAULT_USER_NAME,
+            FTPServer.DEFAULT_PASSWORD);
+  }
+
+  public void downloadFile(String remoteFile, OutputStream outputStream, String ipAddress,
+          String port, String username, String password) {
     org.apache.commons.net.ftp.FTPClient ftpClient = new org.apache.commons.net.ftp.FTPClient();
     try {
       ftpClient.connect(ipAddress, Integer.parseInt(port));
@@ -98,12 +122,10 @@ public class FTPClient {
 
       ftpClient.setFileType(FTP.BINARY_FILE_TYPE);
 
-      try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(localFile));) {
-        boolean done = ftpClient.retrieveFile(remoteFile, outputStream);
-        logServerReply(ftpClient);
-        if (!done) {
-          throw new RuntimeException("The file " + remoteFile + " could not be downloaded.");
-        }
+      boolean done = ftpClient.retrieveFile(remoteFile, outputStream);
+      logServerReply(ftpClient);
+      if (!done) {
+        throw new RuntimeException("The file " + remoteFile + " could not be downloaded.");
       }
 
     } catch (IOException e) {
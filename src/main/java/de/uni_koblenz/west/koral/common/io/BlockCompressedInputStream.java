@@ -0,0 +1,357 @@
+/*
+ * This file is part of Koral.
+ *
+ * Koral is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Koral is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Leser General Public License
+ * along with Koral.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2016 Daniel Janke
+ */
+package de.uni_koblenz.west.koral.common.io;
+
+import org.xerial.snappy.Snappy;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * <p>
+ * Reads the records of a file written by {@link BlockCompressedOutputStream}.
+ * If the blocks are read from a file, the next block is read and decompressed
+ * in the background while the current block is consumed.
+ * </p>
+ * 
+ * <p>
+ * A file can be split into ranges of blocks with
+ * {@link #BlockCompressedInputStream(File, int, int)} so that several threads
+ * can read one file concurrently. The number of blocks is returned by
+ * {@link #getNumberOfBlocks(File)}.
+ * </p>
+ * 
+ * @author Daniel Janke &lt;danijankATuni-koblenz.de&gt;
+ *
+ */
+public class BlockCompressedInputStream implements Closeable {
+
+  private static final int FOOTER_TRAILER_SIZE = Integer.BYTES + Long.BYTES + Integer.BYTES;
+
+  private final DataInputStream in;
+
+  private final boolean readInBackground;
+
+  private boolean isAtMemberStart;
+
+  private int remainingBlocks;
+
+  private byte[] block;
+
+  private int position;
+
+  private Future<byte[]> nextBlock;
+
+  public BlockCompressedInputStream(File inputFile) throws FileNotFoundException, IOException {
+    this(inputFile, 0, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Reads the blocks from <code>firstBlock</code> (inclusive) to
+   * <code>endBlock</code> (exclusive).
+   * 
+   * @param inputFile
+   * @param firstBlock
+   * @param endBlock
+   * @throws FileNotFoundException
+   * @throws IOException
+   */
+  public BlockCompressedInputStream(File inputFile, int firstBlock, int endBlock)
+          throws FileNotFoundException, IOException {
+    FileInputStream fileInput = new FileInputStream(inputFile);
+    if (firstBlock > 0) {
+      long[] blockOffsets = BlockCompressedInputStream.getBlockOffsets(inputFile);
+      if (firstBlock < blockOffsets.length) {
+        fileInput.getChannel().position(blockOffsets[firstBlock]);
+        isAtMemberStart = false;
+      } else {
+        endBlock = firstBlock;
+      }
+    } else {
+      isAtMemberStart = true;
+    }
+    in = new DataInputStream(new BufferedInputStream(fileInput, 64 * 1024));
+    remainingBlocks = Math.max(0, endBlock - firstBlock);
+    readInBackground = true;
+    block = new byte[0];
+    prefetchNextBlock();
+  }
+
+  /**
+   * Reads all blocks sequentially from the stream, e.g., while it is
+   * downloaded. Since the stream might block, the blocks are read in the
+   * calling thread.
+   * 
+   * @param input
+   */
+  public BlockCompressedInputStream(InputStream input) {
+    in = new DataInputStream(new BufferedInputStream(input, 64 * 1024));
+    isAtMemberStart = true;
+    remainingBlocks = Integer.MAX_VALUE;
+    readInBackground = false;
+    block = new byte[0];
+    prefetchNextBlock();
+  }
+
+  /**
+   * @param input
+   *          must support {@link InputStream#mark(int)}
+   * @return true, if the next bytes of input are the
+   *         {@link BlockCompressedOutputStream#MAGIC_NUMBER}. The position of
+   *         input is not changed.
+   * @throws IOException
+   */
+  public static boolean isBlockCompressed(InputStream input) throws IOException {
+    input.mark(Integer.BYTES);
+    try {
+      int magicNumber = 0;
+      for (int i = 0; i < Integer.BYTES; i++) {
+        int nextByte = input.read();
+        if (nextByte == -1) {
+          return false;
+        }
+        magicNumber = (magicNumber << Byte.SIZE) | nextByte;
+      }
+      return magicNumber == BlockCompressedOutputStream.MAGIC_NUMBER;
+    } finally {
+      input.reset();
+    }
+  }
+
+  public static int getNumberOfBlocks(File inputFile) throws IOException {
+    return BlockCompressedInputStream.getBlockOffsets(inputFile).length;
+  }
+
+  /**
+   * @param inputFile
+   * @return the offsets of all blocks in the file read from the footers of its
+   *         members
+   * @throws IOException
+   */
+  static long[] getBlockOffsets(File inputFile) throws IOException {
+    Deque<long[]> members = new ArrayDeque<>();
+    int numberOfBlocks = 0;
+    try (RandomAccessFile file = new RandomAccessFile(inputFile, "r");) {
+      long endOfMember = file.length();
+      while (endOfMember > 0) {
+        file.seek(endOfMember - BlockCompressedInputStream.FOOTER_TRAILER_SIZE);
+        int numberOfMemberBlocks = file.readInt();
+        long memberOffset = file.readLong();
+        if (file.readInt() != BlockCompressedOutputStream.MAGIC_NUMBER) {
+          throw new IOException(inputFile + " is not block compressed.");
+        }
+        long[] blockOffsets = new long[numberOfMemberBlocks];
+        file.seek(endOfMember - BlockCompressedInputStream.FOOTER_TRAILER_SIZE
+                - (numberOfMemberBlocks * Long.BYTES));
+        for (int i = 0; i < blockOffsets.length; i++) {
+          blockOffsets[i] = file.readLong();
+        }
+        members.addFirst(blockOffsets);
+        numberOfBlocks += numberOfMemberBlocks;
+        endOfMember = memberOffset;
+      }
+    }
+    long[] blockOffsets = new long[numberOfBlocks];
+    int nextIndex = 0;
+    for (long[] memberBlockOffsets : members) {
+      System.arraycopy(memberBlockOffsets, 0, blockOffsets, nextIndex, memberBlockOffsets.length);
+      nextIndex += memberBlockOffsets.length;
+    }
+    return blockOffsets;
+  }
+
+  /**
+   * @param inputFile
+   * @return the end offsets of the members of the file in increasing order
+   * @throws IOException
+   */
+  static long[] getMemberEnds(File inputFile) throws IOException {
+    Deque<Long> memberEnds = new ArrayDeque<>();
+    try (RandomAccessFile file = new RandomAccessFile(inputFile, "r");) {
+      long endOfMember = file.length();
+      while (endOfMember > 0) {
+        memberEnds.addFirst(endOfMember);
+        file.seek((endOfMember - BlockCompressedInputStream.FOOTER_TRAILER_SIZE) + Integer.BYTES);
+        long memberOffset = file.readLong();
+        if (file.readInt() != BlockCompressedOutputStream.MAGIC_NUMBER) {
+          throw new IOException(inputFile + " is not block compressed.");
+        }
+        endOfMember = memberOffset;
+      }
+    }
+    long[] result = new long[memberEnds.size()];
+    int nextIndex = 0;
+    for (long memberEnd : memberEnds) {
+      result[nextIndex++] = memberEnd;
+    }
+    return result;
+  }
+
+  private void prefetchNextBlock() {
+    Callable<byte[]> readTask = this::readBlock;
+    if (readInBackground) {
+      nextBlock = BlockCompressedOutputStream.BLOCK_EXECUTOR.submit(readTask);
+    } else {
+      // the block is read when it is requested
+      nextBlock = new FutureTask<>(readTask);
+    }
+  }
+
+  /**
+   * @return the next decompressed block or <code>null</code>, if all blocks
+   *         are read
+   * @throws IOException
+   */
+  private byte[] readBlock() throws IOException {
+    while (remainingBlocks > 0) {
+      if (isAtMemberStart) {
+        int magicNumber;
+        try {
+          magicNumber = in.readInt();
+        } catch (EOFException e) {
+          return null;
+        }
+        if (magicNumber != BlockCompressedOutputStream.MAGIC_NUMBER) {
+          throw new IOException("The input is not block compressed.");
+        }
+        isAtMemberStart = false;
+      }
+      int uncompressedLength = in.readInt();
+      int compressedLength = in.readInt();
+      if (uncompressedLength == 0) {
+        // skip footer
+        in.readFully(new byte[compressedLength]);
+        isAtMemberStart = true;
+        continue;
+      }
+      byte[] compressed = new byte[compressedLength];
+      in.readFully(compressed);
+      byte[] uncompressed = new byte[uncompressedLength];
+      Snappy.uncompress(compressed, 0, compressedLength, uncompressed, 0);
+      remainingBlocks--;
+      return uncompressed;
+    }
+    return null;
+  }
+
+  /**
+   * Moves to the next block, if the current block is read completely.
+   * 
+   * @return false, if all records are read
+   * @throws IOException
+   */
+  public boolean hasNextRecord() throws IOException {
+    if (position < block.length) {
+      return true;
+    }
+    if (nextBlock == null) {
+      return false;
+    }
+    byte[] next;
+    try {
+      if (nextBlock instanceof FutureTask) {
+        ((FutureTask<byte[]>) nextBlock).run();
+      }
+      next = nextBlock.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    } catch (ExecutionException e) {
+      nextBlock = null;
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException(e.getCause());
+    }
+    if (next == null) {
+      nextBlock = null;
+      return false;
+    }
+    block = next;
+    position = 0;
+    prefetchNextBlock();
+    return true;
+  }
+
+  /**
+   * @return true, if the next record is the first record of a block
+   */
+  public boolean isAtBlockStart() {
+    return position == 0;
+  }
+
+  public int readVarInt() throws EOFException {
+    return (int) readVarLong();
+  }
+
+  /**
+   * @return the next unsigned value in little endian base 128 encoding
+   * @throws EOFException
+   */
+  public long readVarLong() throws EOFException {
+    long value = 0;
+    int shift = 0;
+    byte nextByte;
+    do {
+      if (position >= block.length) {
+        throw new EOFException();
+      }
+      nextByte = block[position++];
+      value |= (nextByte & 0x7fL) << shift;
+      shift += 7;
+    } while (nextByte < 0);
+    return value;
+  }
+
+  public void readFully(byte[] bytes) throws EOFException {
+    if ((position + bytes.length) > block.length) {
+      throw new EOFException();
+    }
+    System.arraycopy(block, position, bytes, 0, bytes.length);
+    position += bytes.length;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if ((nextBlock != null) && readInBackground) {
+      try {
+        nextBlock.get();
+      } catch (InterruptedException | ExecutionException e) {
+        // the stream is closed anyway
+      }
+    }
+    nextBlock = null;
+    in.close();
+  }
+
+}
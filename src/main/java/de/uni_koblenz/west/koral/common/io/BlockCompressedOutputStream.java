@@ -0,0 +1,290 @@
+/*
+ * This file is part of Koral.
+ *
+ * Koral is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Koral is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Leser General Public License
+ * along with Koral.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2016 Daniel Janke
+ */
+package de.uni_koblenz.west.koral.common.io;
+
+import org.xerial.snappy.Snappy;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * <p>
+ * Writes records into a file that consists of independently Snappy compressed
+ * blocks. A record never spans two blocks. Thus, each block can be decoded on
+ * its own and a file can be split at block borders by
+ * {@link BlockCompressedInputStream}. While the next block is filled, the
+ * previous block is compressed and written in the background.
+ * </p>
+ * 
+ * <p>
+ * The file has the following format:
+ * 
+ * <pre>
+ * file   := member+
+ * member := MAGIC_NUMBER block* 0 footerLength footer
+ * block  := uncompressedLength compressedLength snappyCompressedBytes
+ * footer := blockOffset* numberOfBlocks memberOffset MAGIC_NUMBER
+ * </pre>
+ * 
+ * The lengths and numbers are ints and the offsets are longs. The offsets in
+ * the footer are the offsets of the blocks in the file. Opening a file in
+ * append mode adds a new member. The memberOffset is the offset of the member
+ * in the file, i.e., the end of the previous member.
+ * </p>
+ * 
+ * <p>
+ * Within a block, the records are written with {@link #writeVarLong(long)},
+ * {@link #writeVarInt(int)} and {@link #write(byte[])}. The record is closed
+ * with {@link #endRecord()}.
+ * </p>
+ * 
+ * @author Daniel Janke &lt;danijankATuni-koblenz.de&gt;
+ *
+ */
+public class BlockCompressedOutputStream implements Closeable {
+
+  public static final int MAGIC_NUMBER = 0x4b_52_4c_42;
+
+  public static final int DEFAULT_BLOCK_SIZE = 256 * 1024;
+
+  /**
+   * The size of a file without any record.
+   */
+  public static final int EMPTY_FILE_SIZE =
+          Integer.BYTES + Integer.BYTES + Integer.BYTES + Integer.BYTES + Long.BYTES + Integer.BYTES;
+
+  /**
+   * Compresses, decompresses, writes and reads the blocks of all
+   * {@link BlockCompressedOutputStream}s and {@link BlockCompressedInputStream}s
+   * in the background. Each stream has at most one pending block.
+   */
+  static final ExecutorService BLOCK_EXECUTOR =
+          Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+            Thread thread = new Thread(runnable, "BlockCompressionThread");
+            thread.setDaemon(true);
+            return thread;
+          });
+
+  private final DataOutputStream out;
+
+  private final int blockSize;
+
+  private final long memberOffset;
+
+  private long fileSize;
+
+  private long[] blockOffsets;
+
+  private int numberOfBlocks;
+
+  private byte[] buffer;
+
+  private int bufferSize;
+
+  private byte[] compressedBuffer;
+
+  private Future<?> pendingBlock;
+
+  public BlockCompressedOutputStream(File outputFile) throws FileNotFoundException, IOException {
+    this(outputFile, false, BlockCompressedOutputStream.DEFAULT_BLOCK_SIZE);
+  }
+
+  public BlockCompressedOutputStream(File outputFile, boolean append, int blockSize)
+          throws FileNotFoundException, IOException {
+    this.blockSize = blockSize;
+    memberOffset = append && outputFile.exists() ? outputFile.length() : 0;
+    fileSize = memberOffset;
+    out = new DataOutputStream(
+            new BufferedOutputStream(new FileOutputStream(outputFile, append), 64 * 1024));
+    blockOffsets = new long[16];
+    buffer = new byte[blockSize + 64];
+    writeInt(BlockCompressedOutputStream.MAGIC_NUMBER);
+  }
+
+  /**
+   * @return true, if the next record is the first record of a block
+   */
+  public boolean isAtBlockStart() {
+    return bufferSize == 0;
+  }
+
+  public void writeVarInt(int value) {
+    writeVarLong(value & 0xff_ff_ff_ffL);
+  }
+
+  /**
+   * Writes the unsigned value in little endian base 128 encoding.
+   * 
+   * @param value
+   */
+  public void writeVarLong(long value) {
+    ensureCapacity(10);
+    while ((value & ~0x7fL) != 0) {
+      buffer[bufferSize++] = (byte) ((value & 0x7f) | 0x80);
+      value >>>= 7;
+    }
+    buffer[bufferSize++] = (byte) value;
+  }
+
+  public void write(byte[] bytes) {
+    ensureCapacity(bytes.length);
+    System.arraycopy(bytes, 0, buffer, bufferSize, bytes.length);
+    bufferSize += bytes.length;
+  }
+
+  private void ensureCapacity(int additionalBytes) {
+    if ((bufferSize + additionalBytes) > buffer.length) {
+      buffer = Arrays.copyOf(buffer, Math.max(2 * buffer.length, bufferSize + additionalBytes));
+    }
+  }
+
+  /**
+   * Finishes the current record. If the block is full, it is compressed and
+   * written in the background.
+   * 
+   * @throws IOException
+   */
+  public void endRecord() throws IOException {
+    if (bufferSize >= blockSize) {
+      waitForPendingBlock();
+      byte[] block = buffer;
+      int size = bufferSize;
+      buffer = compressedBuffer != null ? compressedBuffer : new byte[blockSize + 64];
+      bufferSize = 0;
+      compressedBuffer = null;
+      pendingBlock = BlockCompressedOutputStream.BLOCK_EXECUTOR.submit(() -> {
+        writeBlock(block, size);
+        // the block array can be reused for the block after the next one
+        compressedBuffer = block;
+        return null;
+      });
+    }
+  }
+
+  private void waitForPendingBlock() throws IOException {
+    if (pendingBlock == null) {
+      return;
+    }
+    try {
+      pendingBlock.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException(e.getCause());
+    } finally {
+      pendingBlock = null;
+    }
+  }
+
+  private void writeBlock(byte[] block, int size) throws IOException {
+    byte[] compressed = new byte[Snappy.maxCompressedLength(size)];
+    int compressedSize = Snappy.compress(block, 0, size, compressed, 0);
+    if (numberOfBlocks == blockOffsets.length) {
+      blockOffsets = Arrays.copyOf(blockOffsets, 2 * blockOffsets.length);
+    }
+    blockOffsets[numberOfBlocks++] = fileSize;
+    writeInt(size);
+    writeInt(compressedSize);
+    out.write(compressed, 0, compressedSize);
+    fileSize += compressedSize;
+  }
+
+  private void writeInt(int value) throws IOException {
+    out.writeInt(value);
+    fileSize += Integer.BYTES;
+  }
+
+  /**
+   * Appends the members of <code>source</code> to <code>target</code> without
+   * decompressing them. Only the block and member offsets in the footers are
+   * adjusted to the new position of the members.
+   * 
+   * @param target
+   * @param source
+   * @throws IOException
+   */
+  public static void append(File target, File source) throws IOException {
+    long[] memberEnds = BlockCompressedInputStream.getMemberEnds(source);
+    long shift = target.exists() ? target.length() : 0;
+    try (RandomAccessFile in = new RandomAccessFile(source, "r");
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(target, true), 64 * 1024));) {
+      byte[] buffer = new byte[64 * 1024];
+      long memberStart = 0;
+      for (long memberEnd : memberEnds) {
+        in.seek(memberEnd - Integer.BYTES - Long.BYTES - Integer.BYTES);
+        int numberOfBlocks = in.readInt();
+        long footerStart = memberEnd - Integer.BYTES - Long.BYTES - Integer.BYTES
+                - (numberOfBlocks * Long.BYTES);
+        // copy the magic number, the blocks and the footer length
+        in.seek(memberStart);
+        for (long remaining = footerStart - memberStart; remaining > 0;) {
+          int length = (int) Math.min(buffer.length, remaining);
+          in.readFully(buffer, 0, length);
+          out.write(buffer, 0, length);
+          remaining -= length;
+        }
+        for (int i = 0; i < numberOfBlocks; i++) {
+          out.writeLong(in.readLong() + shift);
+        }
+        out.writeInt(in.readInt());
+        out.writeLong(in.readLong() + shift);
+        out.writeInt(in.readInt());
+        memberStart = memberEnd;
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      waitForPendingBlock();
+      if (bufferSize > 0) {
+        writeBlock(buffer, bufferSize);
+        bufferSize = 0;
+      }
+      writeInt(0);
+      writeInt((numberOfBlocks * Long.BYTES) + Integer.BYTES + Long.BYTES + Integer.BYTES);
+      for (int i = 0; i < numberOfBlocks; i++) {
+        out.writeLong(blockOffsets[i]);
+      }
+      out.writeInt(numberOfBlocks);
+      out.writeLong(memberOffset);
+      out.writeInt(BlockCompressedOutputStream.MAGIC_NUMBER);
+    } finally {
+      out.close();
+    }
+  }
+
+}
@@ -27,12 +27,25 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Iterator;
 import java.util.zip.GZIPInputStream;
 
 /**
+ * <p>
  * Reads data from a file respecting the {@link EncodingFileFormat}. The v-byte
  * encoded long values in the input file are decoded.
+ * </p>
+ * 
+ * <p>
+ * Files written by {@link EncodedFileOutputStream} are read with a
+ * {@link BlockCompressedInputStream}. Such a file can be split into ranges of
+ * blocks that are read by different threads, see
+ * {@link #getNumberOfBlocks(File)} and
+ * {@link #EncodedFileInputStream(EncodingFileFormat, File, int, int)}. Files in
+ * the former gzip compressed format are still readable, but they consist of a
+ * single block.
+ * </p>
  * 
  * @author Daniel Janke &lt;danijankATuni-koblenz.de&gt;
  *
@@ -41,10 +54,21 @@ public class EncodedFileInputStream implements AutoCloseable, Iterable<Statement
 
   private final EncodingFileFormat inputFormat;
 
+  /**
+   * input of the former gzip compressed format
+   */
   private final DataInputStream input;
 
+  private final BlockCompressedInputStream blockInput;
+
+  private final long[] previousValues;
+
   private final File inputFile;
 
+  private final int firstBlock;
+
+  private final int endBlock;
+
   /**
    * The input must be closed!
    * 
@@ -54,16 +78,137 @@ public class EncodedFileInputStream implements AutoCloseable, Iterable<Statement
    */
   public EncodedFileInputStream(EncodedFileInputStream input)
           throws FileNotFoundException, IOException {
-    this(input.inputFormat, input.inputFile);
+    this(input.inputFormat, input.inputFile, input.firstBlock, input.endBlock);
   }
 
   public EncodedFileInputStream(EncodingFileFormat inputFormat, File inputFile)
           throws FileNotFoundException, IOException {
+    this(inputFormat, inputFile, 0, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Reads the statements of the blocks from <code>firstBlock</code>
+   * (inclusive) to <code>endBlock</code> (exclusive).
+   * 
+   * @param inputFormat
+   * @param inputFile
+   * @param firstBlock
+   * @param endBlock
+   * @throws FileNotFoundException
+   * @throws IOException
+   */
+  public EncodedFileInputStream(EncodingFileFormat inputFormat, File inputFile, int firstBlock,
+          int endBlock) throws FileNotFoundException, IOException {
     super();
     this.inputFile = inputFile;
     this.inputFormat = inputFormat;
-    input = new DataInputStream(
-            new BufferedInputStream(new GZIPInputStream(new FileInputStream(inputFile))));
+    this.firstBlock = firstBlock;
+    this.endBlock = endBlock;
+    previousValues = new long[3];
+    if (EncodedFileInputStream.isBlockCompressed(inputFile)) {
+      input = null;
+      blockInput = new BlockCompressedInputStream(inputFile, firstBlock, endBlock);
+    } else if ((firstBlock > 0) || (endBlock <= 0)) {
+      // the only block is not contained in the range
+      blockInput = null;
+      input = null;
+    } else {
+      blockInput = null;
+      input = new DataInputStream(
+              new BufferedInputStream(new GZIPInputStream(new FileInputStream(inputFile))));
+    }
+  }
+
+  /**
+   * Reads the content, e.g., while it is downloaded. Such a stream cannot be
+   * copied by {@link #EncodedFileInputStream(EncodedFileInputStream)}.
+   * 
+   * @param inputFormat
+   * @param inputStream
+   * @throws IOException
+   */
+  public EncodedFileInputStream(EncodingFileFormat inputFormat, InputStream inputStream)
+          throws IOException {
+    super();
+    inputFile = null;
+    firstBlock = 0;
+    endBlock = Integer.MAX_VALUE;
+    this.inputFormat = inputFormat;
+    previousValues = new long[3];
+    BufferedInputStream bufferedInput = new BufferedInputStream(inputStream);
+    if (BlockCompressedInputStream.isBlockCompressed(bufferedInput)) {
+      input = null;
+      blockInput = new BlockCompressedInputStream(bufferedInput);
+    } else {
+      blockInput = null;
+      input = new DataInputStream(new BufferedInputStream(new GZIPInputStream(bufferedInput)));
+    }
+  }
+
+  private static boolean isBlockCompressed(File inputFile) throws IOException {
+    try (BufferedInputStream in =
+            new BufferedInputStream(new FileInputStream(inputFile), Integer.BYTES);) {
+      return BlockCompressedInputStream.isBlockCompressed(in);
+    }
+  }
+
+  /**
+   * @param inputFile
+   * @return the number of blocks that can be read independently
+   * @throws IOException
+   */
+  public static int getNumberOfBlocks(File inputFile) throws IOException {
+    if (!EncodedFileInputStream.isBlockCompressed(inputFile)) {
+      return 1;
+    }
+    return BlockCompressedInputStream.getNumberOfBlocks(inputFile);
+  }
+
+  /**
+   * @return the number of blocks of this stream that can be read
+   *         independently
+   * @throws IOException
+   */
+  public int getNumberOfBlocks() throws IOException {
+    if (inputFile == null) {
+      return 1;
+    }
+    int numberOfBlocks = EncodedFileInputStream.getNumberOfBlocks(inputFile);
+    return Math.max(0, Math.min(endBlock, numberOfBlocks) - firstBlock);
+  }
+
+  /**
+   * Splits the blocks of this stream into at most <code>numberOfParts</code>
+   * ranges of consecutive blocks that can be read concurrently. This stream is
+   * not changed.
+   * 
+   * @param numberOfParts
+   * @return the streams of the ranges. They have to be closed by the caller.
+   * @throws IOException
+   */
+  public EncodedFileInputStream[] split(int numberOfParts) throws IOException {
+    if (inputFile == null) {
+      throw new UnsupportedOperationException(
+              "A stream that is not read from a file cannot be split.");
+    }
+    int numberOfBlocks = getNumberOfBlocks();
+    numberOfParts = Math.max(1, Math.min(numberOfParts, numberOfBlocks));
+    EncodedFileInputStream[] parts = new EncodedFileInputStream[numberOfParts];
+    try {
+      for (int i = 0; i < numberOfParts; i++) {
+        int partStart = firstBlock + (int) ((((long) numberOfBlocks) * i) / numberOfParts);
+        int partEnd = firstBlock + (int) ((((long) numberOfBlocks) * (i + 1)) / numberOfParts);
+        parts[i] = new EncodedFileInputStream(inputFormat, inputFile, partStart, partEnd);
+      }
+    } catch (IOException | RuntimeException e) {
+      for (EncodedFileInputStream part : parts) {
+        if (part != null) {
+          part.close();
+        }
+      }
+      throw e;
+    }
+    return parts;
   }
 
   /**
@@ -74,6 +219,12 @@ public class EncodedFileInputStream implements AutoCloseable, Iterable<Statement
    * @throws IOException
    */
   public Statement read() throws EOFException, IOException {
+    if (blockInput != null) {
+      return readFromBlock();
+    }
+    if (input == null) {
+      throw new EOFException();
+    }
     byte[] subject = inputFormat.isSubjectEncoded() ? readEncodedLong() : readString();
     byte[] property = inputFormat.isPropertyEncoded() ? readEncodedLong() : readString();
     byte[] object = inputFormat.isObjectEncoded() ? readEncodedLong() : readString();
@@ -84,6 +235,36 @@ public class EncodedFileInputStream implements AutoCloseable, Iterable<Statement
     return Statement.getStatement(inputFormat, subject, property, object, containment);
   }
 
+  private Statement readFromBlock() throws IOException {
+    if (!blockInput.hasNextRecord()) {
+      throw new EOFException();
+    }
+    if (blockInput.isAtBlockStart()) {
+      previousValues[0] = 0;
+      previousValues[1] = 0;
+      previousValues[2] = 0;
+    }
+    byte[] subject = readFromBlock(0, inputFormat.isSubjectEncoded());
+    byte[] property = readFromBlock(1, inputFormat.isPropertyEncoded());
+    byte[] object = readFromBlock(2, inputFormat.isObjectEncoded());
+
+    byte[] containment = new byte[blockInput.readVarInt()];
+    blockInput.readFully(containment);
+    return Statement.getStatement(inputFormat, subject, property, object, containment);
+  }
+
+  private byte[] readFromBlock(int position, boolean isEncoded) throws EOFException {
+    if (isEncoded) {
+      long zigzagDifference = blockInput.readVarLong();
+      previousValues[position] += (zigzagDifference >>> 1) ^ -(zigzagDifference & 1);
+      return NumberConversion.long2bytes(previousValues[position]);
+    } else {
+      byte[] stringContent = new byte[blockInput.readVarInt()];
+      blockInput.readFully(stringContent);
+      return stringContent;
+    }
+  }
+
   private byte[] readString() throws IOException {
     int length = input.readInt();
     byte[] stringContent = new byte[length];
@@ -113,6 +294,9 @@ public class EncodedFileInputStream implements AutoCloseable, Iterable<Statement
     if (input != null) {
       input.close();
     }
+    if (blockInput != null) {
+      blockInput.close();
+    }
   }
 
 }
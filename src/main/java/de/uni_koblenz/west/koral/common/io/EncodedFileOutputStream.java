@@ -18,24 +18,30 @@
  */
 package de.uni_koblenz.west.koral.common.io;
 
-import java.io.BufferedOutputStream;
-import java.io.DataOutputStream;
+import de.uni_koblenz.west.koral.common.utils.NumberConversion;
+
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.zip.GZIPOutputStream;
 
 /**
- * Writes data into a file respecting the {@link EncodingFileFormat}. Long
- * values are v-byte encoded.
+ * Writes data into a file respecting the {@link EncodingFileFormat}. The
+ * statements are written into a {@link BlockCompressedOutputStream}. Encoded
+ * resources are stored as zigzag encoded difference to the resource at the
+ * same position of the previous statement of the same block. Long values are
+ * v-byte encoded.
  * 
  * @author Daniel Janke &lt;danijankATuni-koblenz.de&gt;
  *
  */
 public class EncodedFileOutputStream implements AutoCloseable {
 
-  private final DataOutputStream out;
+  private final BlockCompressedOutputStream out;
+
+  /**
+   * the previous values of subject, property and object
+   */
+  private final long[] previousValues;
 
   public EncodedFileOutputStream(File outputFile) throws FileNotFoundException, IOException {
     this(outputFile, false);
@@ -43,147 +49,38 @@ public class EncodedFileOutputStream implements AutoCloseable {
 
   public EncodedFileOutputStream(File outputFile, boolean append)
           throws FileNotFoundException, IOException {
-    out = new DataOutputStream(new BufferedOutputStream(
-            new GZIPOutputStream(new FileOutputStream(outputFile, append))));
+    out = new BlockCompressedOutputStream(outputFile, append,
+            BlockCompressedOutputStream.DEFAULT_BLOCK_SIZE);
+    previousValues = new long[3];
   }
 
   public void writeStatement(Statement statement) throws IOException {
-    write(statement.isSubjectEncoded(), statement.getSubject());
-    write(statement.isPropertyEncoded(), statement.getProperty());
-    write(statement.isObjectEncoded(), statement.getObject());
-    out.writeShort(statement.getContainment().length);
+    if (out.isAtBlockStart()) {
+      // each block is decoded independently
+      previousValues[0] = 0;
+      previousValues[1] = 0;
+      previousValues[2] = 0;
+    }
+    write(0, statement.isSubjectEncoded(), statement.getSubject());
+    write(1, statement.isPropertyEncoded(), statement.getProperty());
+    write(2, statement.isObjectEncoded(), statement.getObject());
+    out.writeVarInt(statement.getContainment().length);
     out.write(statement.getContainment());
+    out.endRecord();
   }
 
-  private void write(boolean isPrimitiveDataType, byte[] element) throws IOException {
+  private void write(int position, boolean isPrimitiveDataType, byte[] element) {
     if (isPrimitiveDataType) {
-      // v-byte encoding
-      int numberOfBits = element.length * Byte.SIZE;
-      int numberOfBlocks = (numberOfBits / 7) + ((numberOfBits % 7) == 0 ? 0 : 1);
-      boolean isFirstBlockWritten = false;
-      for (int blockNumber = 0; blockNumber < numberOfBlocks; blockNumber++) {
-        int nextBlock = get7BitBlock(element, blockNumber);
-        if (isFirstBlockWritten
-                || (nextBlock != 0) /* the last block is always <0 */) {
-          out.writeByte(nextBlock);
-          isFirstBlockWritten = true;
-        }
-      }
+      long value = NumberConversion.bytes2long(element);
+      long difference = value - previousValues[position];
+      previousValues[position] = value;
+      out.writeVarLong((difference << 1) ^ (difference >> 63));
     } else {
-      out.writeInt(element.length);
+      out.writeVarInt(element.length);
       out.write(element);
     }
   }
 
-  private int get7BitBlock(byte[] element, int blockIndexNumber) {
-    int numberOfBits = element.length * Byte.SIZE;
-    int numberOfBlocks = (numberOfBits / 7) + ((numberOfBits % 7) == 0 ? 0 : 1);
-    int firstBlockSize = numberOfBits % 7;
-    if (firstBlockSize == 0) {
-      firstBlockSize = 7;
-    }
-    int result = 0;
-    if (blockIndexNumber == 0) {
-      // this is the first block
-      // since all 7 bit blocks are filled from right to left, the first block
-      // only contains the remaining bits
-      result = element[0] & 0xff_ff;
-      switch (firstBlockSize) {
-        case 1:
-          result = (result & 0b1000_0000) >>> 7;
-          break;
-        case 2:
-          result = (result & 0b1100_0000) >>> 6;
-          break;
-        case 3:
-          result = (result & 0b1110_0000) >>> 5;
-          break;
-        case 4:
-          result = (result & 0b1111_0000) >>> 4;
-          break;
-        case 5:
-          result = (result & 0b1111_1000) >>> 3;
-          break;
-        case 6:
-          result = (result & 0b1111_1100) >>> 2;
-          break;
-        case 7:
-          result = (result & 0b1111_1110) >>> 1;
-          break;
-        default:
-          // this is not possible
-      }
-    } else {
-      int firstBitIndex = firstBlockSize + ((blockIndexNumber - 1) * 7);
-      int firstByteIndex = firstBitIndex / Byte.SIZE;
-      int firstBitIndexInByte = firstBitIndex % Byte.SIZE;
-      result = element[firstByteIndex];
-      switch (firstBitIndexInByte) {
-        case 0:
-          result = (result & 0b1111_1110) >>> 1;
-          break;
-        case 1:
-          result = result & 0b0111_1111;
-          break;
-        case 2:
-          result = (result & 0b0011_1111) << 1;
-          break;
-        case 3:
-          result = (result & 0b0001_1111) << 2;
-          break;
-        case 4:
-          result = (result & 0b0000_1111) << 3;
-          break;
-        case 5:
-          result = (result & 0b0000_0111) << 4;
-          break;
-        case 6:
-          result = (result & 0b0000_0011) << 5;
-          break;
-        case 7:
-          result = (result & 0b0000_0001) << 6;
-          break;
-        default:
-          // this is not possible
-      }
-      if (firstBitIndexInByte > 1) {
-        // the 7 bit block is incomplete
-        // read rest from next byte
-        assert (firstByteIndex
-                + 1) < numberOfBlocks : "The last byte should be contained completely in the last block.";
-        int rest = element[firstByteIndex + 1];
-        switch (firstBitIndexInByte) {
-          case 2:
-            rest = (rest & 0b1000_0000) >>> 7;
-            break;
-          case 3:
-            rest = (rest & 0b1100_0000) >>> 6;
-            break;
-          case 4:
-            rest = (rest & 0b1110_0000) >>> 5;
-            break;
-          case 5:
-            rest = (rest & 0b1111_0000) >>> 4;
-            break;
-          case 6:
-            rest = (rest & 0b1111_1000) >>> 3;
-            break;
-          case 7:
-            rest = (rest & 0b1111_1100) >>> 2;
-            break;
-          default:
-            // this is not possible
-        }
-        result |= rest;
-      }
-    }
-    if (blockIndexNumber == (numberOfBlocks - 1)) {
-      // this is the last bit
-      result = result | 0b1000_0000;
-    }
-    return result;
-  }
-
   @Override
   public void close() throws IOException {
     if (out != null) {
@@ -31,15 +31,22 @@ import java.util.zip.GZIPInputStream;
 
 /**
  * Reads long values from a file. The v-byte encoded long values in the input
- * file are decoded.
+ * file are decoded. Besides the {@link BlockCompressedInputStream}s written by
+ * {@link EncodedLongFileOutputStream}, the former gzip compressed files are
+ * readable.
  * 
  * @author Daniel Janke &lt;danijankATuni-koblenz.de&gt;
  *
  */
 public class EncodedLongFileInputStream implements AutoCloseable {
 
+  /**
+   * input of the former gzip compressed format
+   */
   private final DataInputStream input;
 
+  private final BlockCompressedInputStream blockInput;
+
   private final File inputFile;
 
   /**
@@ -57,15 +64,33 @@ public class EncodedLongFileInputStream implements AutoCloseable {
   public EncodedLongFileInputStream(File inputFile) throws FileNotFoundException, IOException {
     super();
     this.inputFile = inputFile;
-    if (inputFile.length() > 0) {
+    if (inputFile.length() == 0) {
+      input = null;
+      blockInput = null;
+    } else if (EncodedLongFileInputStream.isBlockCompressed(inputFile)) {
+      input = null;
+      blockInput = new BlockCompressedInputStream(inputFile);
+    } else {
       input = new DataInputStream(
               new BufferedInputStream(new GZIPInputStream(new FileInputStream(inputFile))));
-    } else {
-      input = null;
+      blockInput = null;
+    }
+  }
+
+  private static boolean isBlockCompressed(File inputFile) throws IOException {
+    try (BufferedInputStream in =
+            new BufferedInputStream(new FileInputStream(inputFile), Integer.BYTES);) {
+      return BlockCompressedInputStream.isBlockCompressed(in);
     }
   }
 
   public long readLong() throws EOFException, IOException {
+    if (blockInput != null) {
+      if (!blockInput.hasNextRecord()) {
+        throw new EOFException();
+      }
+      return blockInput.readVarLong();
+    }
     if (input == null) {
       throw new EOFException();
     }
@@ -89,6 +114,9 @@ public class EncodedLongFileInputStream implements AutoCloseable {
     if (input != null) {
       input.close();
     }
+    if (blockInput != null) {
+      blockInput.close();
+    }
   }
 
 }
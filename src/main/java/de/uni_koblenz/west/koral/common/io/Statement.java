@@ -25,14 +25,16 @@ import java.util.Arrays;
 
 /**
  * A singleton class that provides method to get triple elements as String or
- * long
+ * long. Each thread has its own instance, so that several files can be read
+ * concurrently.
  * 
  * @author Daniel Janke &lt;danijankATuni-koblenz.de&gt;
  *
  */
 public class Statement {
 
-  private static Statement singleton;
+  private static final ThreadLocal<Statement> singleton =
+          ThreadLocal.withInitial(Statement::new);
 
   private EncodingFileFormat format;
 
@@ -139,14 +141,12 @@ public class Statement {
 
   public static Statement getStatement(EncodingFileFormat format, byte[] subject, byte[] property,
           byte[] object, byte[] containment) {
-    if (Statement.singleton == null) {
-      Statement.singleton = new Statement();
-    }
-    Statement.singleton.format = format;
-    Statement.singleton.subject = subject;
-    Statement.singleton.property = property;
-    Statement.singleton.object = object;
-    Statement.singleton.containment = containment;
-    return Statement.singleton;
+    Statement statement = Statement.singleton.get();
+    statement.format = format;
+    statement.subject = subject;
+    statement.property = property;
+    statement.object = object;
+    statement.containment = containment;
+    return statement;
   }
 }
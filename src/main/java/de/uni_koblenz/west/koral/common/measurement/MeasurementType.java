@@ -502,6 +502,14 @@ public enum MeasurementType {
    */
   SLAVE_SENT_MAPPING_BATCHES_TO_SLAVE,
 
+  /**
+   * measured on master<br>
+   * queryId;numberOfFullBundles;numberOfBundlesWithElapsedLingerTime;
+   * numberOfExplicitlySentBundles;averageFillRatioInPercent<br>
+   * A bundle is counted for each query whose mappings it contains.
+   */
+  SLAVE_SENT_MAPPING_BUNDLE_STATISTICS,
+
   /**
    * measured on master<br>
    * queryId;taskId;numberOfFinishNotifications
@@ -538,6 +546,13 @@ public enum MeasurementType {
    * measured on master<br>
    * timestamp;queryId
    */
-  QUERY_COORDINATOR_END;
+  QUERY_COORDINATOR_END,
+
+  /**
+   * measured on master and slaves<br>
+   * timestamp;workerThreadId;elapsedTimeInMs;busyTimeInMs;numberOfExecutedTasks;
+   * numberOfExecutedStolenTasks;numberOfAssignedTasks
+   */
+  WORKER_THREAD_UTILISATION;
 
 }
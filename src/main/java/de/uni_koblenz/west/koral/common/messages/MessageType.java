@@ -235,7 +235,31 @@ public enum MessageType {
   /**
    * master to slave
    */
-  CLEAR;
+  CLEAR,
+
+  /**
+   * master to all slaves<br>
+   * int query id<br>
+   * The coordinator has received all results required by the limit of the
+   * query. Thus, the query execution can be stopped.
+   */
+  QUERY_SATISFIED,
+
+  /**
+   * master to client<br>
+   * byte[] result rows with a string table<br>
+   * see {@link QueryResultBatch}
+   */
+  QUERY_RESULT_BATCH,
+
+  /**
+   * client to master<br>
+   * String ip:port<br>
+   * String "|" <br>
+   * String number of additional {@link #QUERY_RESULT_BATCH} messages the
+   * client accepts
+   */
+  QUERY_RESULT_CREDIT;
 
   public byte getValue() {
     return (byte) ordinal();
@@ -0,0 +1,117 @@
+/*
+ * This file is part of Koral.
+ *
+ * Koral is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Koral is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Leser General Public License
+ * along with Koral.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2016 Daniel Janke
+ */
+package de.uni_koblenz.west.koral.common.messages;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>
+ * Converts the result rows that are sent from the query coordinator to the
+ * client in one {@link MessageType#QUERY_RESULT_BATCH} message into their
+ * binary representation and back again. Each distinct resource of a batch is
+ * stored only once in a string table. The rows refer to the resources by their
+ * index in the string table. The batch consists of:
+ * <ol>
+ * <li>1 byte message type</li>
+ * <li>4 byte number of columns</li>
+ * <li>4 byte number of rows</li>
+ * <li>4 byte number of strings</li>
+ * <li>for each string 4 byte length and the UTF-8 encoded string</li>
+ * <li>4*#columns*#rows bytes of string indices in row-major order</li>
+ * </ol>
+ * </p>
+ *
+ * @author Daniel Janke &lt;danijankATuni-koblenz.de&gt;
+ *
+ */
+public class QueryResultBatch {
+
+  private static final int HEADER_SIZE = Byte.BYTES + Integer.BYTES + Integer.BYTES
+          + Integer.BYTES;
+
+  /**
+   * @param resources
+   *          the serialized resources of all rows in row-major order
+   * @param numberOfColumns
+   * @param numberOfRows
+   * @return the {@link MessageType#QUERY_RESULT_BATCH} message
+   */
+  public static byte[] serialize(String[] resources, int numberOfColumns, int numberOfRows) {
+    Map<String, Integer> stringIndices = new HashMap<>();
+    byte[][] strings = new byte[resources.length][];
+    int[] indices = new int[resources.length];
+    int numberOfStrings = 0;
+    int size = HEADER_SIZE + (Integer.BYTES * resources.length);
+    for (int i = 0; i < resources.length; i++) {
+      Integer index = stringIndices.get(resources[i]);
+      if (index == null) {
+        index = numberOfStrings++;
+        stringIndices.put(resources[i], index);
+        strings[index] = resources[i].getBytes(StandardCharsets.UTF_8);
+        size += Integer.BYTES + strings[index].length;
+      }
+      indices[i] = index;
+    }
+    ByteBuffer batch = ByteBuffer.allocate(size);
+    batch.put(MessageType.QUERY_RESULT_BATCH.getValue()).putInt(numberOfColumns)
+            .putInt(numberOfRows).putInt(numberOfStrings);
+    for (int i = 0; i < numberOfStrings; i++) {
+      batch.putInt(strings[i].length).put(strings[i]);
+    }
+    for (int index : indices) {
+      batch.putInt(index);
+    }
+    return batch.array();
+  }
+
+  public static int getNumberOfColumns(byte[] batch) {
+    return ByteBuffer.wrap(batch).getInt(Byte.BYTES);
+  }
+
+  public static int getNumberOfRows(byte[] batch) {
+    return ByteBuffer.wrap(batch).getInt(Byte.BYTES + Integer.BYTES);
+  }
+
+  /**
+   * @param batch
+   * @return the serialized resources of all rows in row-major order. Equal
+   *         resources are represented by the same {@link String} instance.
+   */
+  public static String[] deserialize(byte[] batch) {
+    ByteBuffer buffer = ByteBuffer.wrap(batch);
+    buffer.position(Byte.BYTES);
+    int numberOfColumns = buffer.getInt();
+    int numberOfRows = buffer.getInt();
+    String[] strings = new String[buffer.getInt()];
+    for (int i = 0; i < strings.length; i++) {
+      int length = buffer.getInt();
+      strings[i] = new String(batch, buffer.position(), length, StandardCharsets.UTF_8);
+      buffer.position(buffer.position() + length);
+    }
+    String[] resources = new String[numberOfColumns * numberOfRows];
+    for (int i = 0; i < resources.length; i++) {
+      resources[i] = strings[buffer.getInt()];
+    }
+    return resources;
+  }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * This file is part of Koral.
+ *
+ * Koral is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Koral is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Leser General Public License
+ * along with Koral.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2016 Daniel Janke
+ */
+package de.uni_koblenz.west.koral.common.networManager;
+
+import org.zeromq.ZContext;
+import org.zeromq.ZMQ.Poller;
+import org.zeromq.ZMQ.Socket;
+
+import java.io.Closeable;
+
+/**
+ * Waits until a message has arrived at one of several receiving sockets, e.g.,
+ * the socket for messages from the slaves and the socket for messages from the
+ * clients. Thus, the main loop of a Koral component only blocks while there is
+ * nothing to do instead of sleeping for a fixed amount of time.
+ * 
+ * The sockets are only polled. Receiving the messages is left to the owner of
+ * the sockets.
+ * 
+ * @author Daniel Janke &lt;danijankATuni-koblenz.de&gt;
+ *
+ */
+public class MessagePoller implements Closeable {
+
+  private final ZContext context;
+
+  private final Poller poller;
+
+  public MessagePoller() {
+    context = NetworkContextFactory.getNetworkContext();
+    poller = context.createPoller(2);
+  }
+
+  /**
+   * @param socket
+   * @return the index of the socket within this poller
+   */
+  public int register(Socket socket) {
+    synchronized (poller) {
+      return poller.register(socket, Poller.POLLIN);
+    }
+  }
+
+  /**
+   * Blocks until at least one of the registered sockets has a message to
+   * receive or the timeout has elapsed.
+   * 
+   * @param timeoutInMillis
+   * @return <code>true</code>, iff a message can be received
+   */
+  public boolean poll(long timeoutInMillis) {
+    synchronized (poller) {
+      if (poller.getSize() == 0) {
+        return false;
+      }
+      return poller.poll(timeoutInMillis) > 0;
+    }
+  }
+
+  /**
+   * @param index
+   *          as returned by {@link #register(Socket)}
+   * @return <code>true</code>, if the socket had a message to receive during
+   *         the latest call of {@link #poll(long)}
+   */
+  public boolean hasMessage(int index) {
+    synchronized (poller) {
+      return poller.pollin(index);
+    }
+  }
+
+  @Override
+  public void close() {
+    NetworkContextFactory.destroyNetworkContext(context);
+  }
+
+}
@@ -39,6 +39,11 @@ import java.util.Arrays;
  */
 public class NetworkManager implements Closeable, MessageSender {
 
+  /**
+   * The send timeout is set once when the sockets are created so that sending
+   * a message does not have to reconfigure the socket. Broadcasts retry
+   * sending until the message could be sent.
+   */
   private final static int SEND_TIMEOUT = 100;
 
   private final ZContext context;
@@ -64,6 +69,7 @@ public class NetworkManager implements Closeable, MessageSender {
 
       String[] master = conf.getMaster();
       senders[0] = context.createSocket(ZMQ.PUSH);
+      senders[0].setSendTimeOut(NetworkManager.SEND_TIMEOUT);
       senders[0].connect("tcp://" + master[0] + ":" + master[1]);
       if (Arrays.equals(currentServer, master)) {
         currentID = 0;
@@ -71,6 +77,7 @@ public class NetworkManager implements Closeable, MessageSender {
       for (int i = 1; i < senders.length; i++) {
         String[] slave = conf.getSlave(i - 1);
         senders[i] = context.createSocket(ZMQ.PUSH);
+        senders[i].setSendTimeOut(NetworkManager.SEND_TIMEOUT);
         senders[i].connect("tcp://" + slave[0] + ":" + slave[1]);
         if (Arrays.equals(currentServer, slave)) {
           currentID = i;
@@ -96,10 +103,7 @@ public class NetworkManager implements Closeable, MessageSender {
     boolean wasSent = false;
     if (out != null) {
       synchronized (out) {
-        int sendTimeOut = out.getSendTimeOut();
-        out.setSendTimeOut(NetworkManager.SEND_TIMEOUT);
         wasSent = out.sendMore(message);
-        out.setSendTimeOut(sendTimeOut);
       }
     }
     return wasSent;
@@ -118,10 +122,7 @@ public class NetworkManager implements Closeable, MessageSender {
     boolean wasSent = false;
     if (out != null) {
       synchronized (out) {
-        int sendTimeOut = out.getSendTimeOut();
-        out.setSendTimeOut(NetworkManager.SEND_TIMEOUT);
         wasSent = out.send(message);
-        out.setSendTimeOut(sendTimeOut);
       }
     }
     return wasSent;
@@ -154,13 +155,29 @@ public class NetworkManager implements Closeable, MessageSender {
       Socket out = senders[i];
       if (out != null) {
         synchronized (out) {
-          wasSent &= out.send(message);
+          boolean isSent = out.send(message);
+          while (!isSent && !Thread.currentThread().isInterrupted()) {
+            // the send timeout has elapsed
+            isSent = out.send(message);
+          }
+          wasSent &= isSent;
         }
       }
     }
     return wasSent;
   }
 
+  /**
+   * Registers the receiving socket at the poller so that the arrival of
+   * messages can be awaited together with other sockets.
+   * 
+   * @param poller
+   * @return the index of the receiving socket within the poller
+   */
+  public int registerReceiver(MessagePoller poller) {
+    return poller.register(receiver);
+  }
+
   public byte[] receive() {
     return receive(false);
   }
@@ -233,7 +233,7 @@ public class Mapping {
     }
     // intersect containment
     for (int i = 0; i < getNumberOfContainmentBytes(); i++) {
-      byteArray[byteArray.length - 1
+      byteArray[((firstIndex + length) - 1)
               - i] = (byte) (mapping1
                       .getByteArray()[(mapping1.getFirstIndexOfMappingInByteArray()
                               + mapping1.getLengthOfMappingInByteArray()) - 1 - i]
@@ -298,8 +298,9 @@ public class Mapping {
   }
 
   public short getIdOfFirstComputerKnowingThisMapping() {
-    for (int i = length - getNumberOfContainmentBytes(); i < length; i++) {
-      int numberOfAlreadyReadBytes = i - (length - getNumberOfContainmentBytes());
+    int firstContainmentIndex = (firstIndex + length) - getNumberOfContainmentBytes();
+    for (int i = firstContainmentIndex; i < (firstIndex + length); i++) {
+      int numberOfAlreadyReadBytes = i - firstContainmentIndex;
       if (byteArray[i] != 0) {
         int value = (byteArray[i] & 0x00_00_00_ff) << (Integer.SIZE - Byte.SIZE);
         for (int numberOfReadBits = 0; numberOfReadBits < Byte.SIZE; numberOfReadBits++) {
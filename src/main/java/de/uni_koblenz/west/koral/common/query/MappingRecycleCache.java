@@ -105,6 +105,21 @@ public class MappingRecycleCache {
     return result;
   }
 
+  /**
+   * Lets an existing {@link Mapping} instance point to another mapping. This
+   * is used by flyweight iterators that return the same instance for each
+   * element.
+   *
+   * @param mapping
+   * @param byteArrayWithMapping
+   * @param firstIndexOfMappingInArray
+   * @param lengthOfMapping
+   */
+  public synchronized void updateMapping(Mapping mapping, byte[] byteArrayWithMapping,
+          int firstIndexOfMappingInArray, int lengthOfMapping) {
+    mapping.set(byteArrayWithMapping, firstIndexOfMappingInArray, lengthOfMapping);
+  }
+
   private Mapping getMapping() {
     Mapping result;
     if (isEmpty()) {
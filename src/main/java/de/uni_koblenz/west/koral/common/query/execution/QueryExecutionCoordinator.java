@@ -18,9 +18,6 @@
  */
 package de.uni_koblenz.west.koral.common.query.execution;
 
-import org.apache.jena.graph.Node;
-import org.apache.jena.graph.NodeFactory;
-
 import de.uni_koblenz.west.koral.common.config.impl.Configuration;
 import de.uni_koblenz.west.koral.common.executor.WorkerTask;
 import de.uni_koblenz.west.koral.common.mapDB.MapDBCacheOptions;
@@ -29,6 +26,7 @@ import de.uni_koblenz.west.koral.common.measurement.MeasurementCollector;
 import de.uni_koblenz.west.koral.common.measurement.MeasurementType;
 import de.uni_koblenz.west.koral.common.messages.MessageType;
 import de.uni_koblenz.west.koral.common.messages.MessageUtils;
+import de.uni_koblenz.west.koral.common.messages.QueryResultBatch;
 import de.uni_koblenz.west.koral.common.query.Mapping;
 import de.uni_koblenz.west.koral.common.query.execution.operators.SliceOperator;
 import de.uni_koblenz.west.koral.common.query.parser.QueryExecutionTreeType;
@@ -38,9 +36,11 @@ import de.uni_koblenz.west.koral.common.utils.NumberConversion;
 import de.uni_koblenz.west.koral.master.client_manager.ClientConnectionManager;
 import de.uni_koblenz.west.koral.master.dictionary.DictionaryEncoder;
 import de.uni_koblenz.west.koral.master.statisticsDB.GraphStatistics;
-import de.uni_koblenz.west.koral.master.utils.DeSerializer;
+import de.uni_koblenz.west.koral.slave.triple_store.impl.IndexType;
 
 import java.io.File;
+import java.util.Arrays;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 
@@ -76,6 +76,22 @@ public class QueryExecutionCoordinator extends QueryTaskBase {
 
   private long[] resultVariables;
 
+  /**
+   * the values of the result variables of the mappings emitted in one round
+   */
+  private long[] resultValues;
+
+  /**
+   * if true, the results are sent as {@link QueryResultBatch}es instead of
+   * strings
+   */
+  private boolean sendsResultBatches;
+
+  /**
+   * number of {@link QueryResultBatch}es the client currently accepts
+   */
+  private final AtomicInteger resultCredits;
+
   private int numberOfMissingFinishNotificationsFromSlaves;
 
   private final AtomicInteger numberOfUnprocessedFinishMessagesFromSlaves;
@@ -104,7 +120,8 @@ public class QueryExecutionCoordinator extends QueryTaskBase {
 
   public QueryExecutionCoordinator(short computerID, int queryID, int numberOfSlaves, int cacheSize,
           File cacheDir, int clientID, ClientConnectionManager clientConnections,
-          DictionaryEncoder dictionary, GraphStatistics statistics, int emittedMappingsPerRound,
+          DictionaryEncoder dictionary, GraphStatistics statistics,
+          Set<IndexType> additionalTripleStoreIndices, int emittedMappingsPerRound,
           MapDBStorageOptions storageType, boolean useTransactions, boolean writeAsynchronously,
           MapDBCacheOptions cacheType, Logger logger, MeasurementCollector measurementCollector) {
     super(computerID, queryID, (short) 0, numberOfSlaves, cacheSize, cacheDir);
@@ -121,10 +138,13 @@ public class QueryExecutionCoordinator extends QueryTaskBase {
     numberOfMissingFinishedMessages += 1;
     lastContactWithClient = System.currentTimeMillis();
     varDictionary = new VariableDictionary();
+    resultValues = new long[0];
+    resultCredits = new AtomicInteger(0);
     this.emittedMappingsPerRound = emittedMappingsPerRound;
     parser = new SparqlParser(dictionary, statistics, null, computerID, getQueryId(), getID(),
             numberOfSlaves, cacheSize, cacheDir, emittedMappingsPerRound, storageType,
             useTransactions, writeAsynchronously, cacheType, false);
+    parser.setAdditionalTripleStoreIndices(additionalTripleStoreIndices);
     numberOfUnprocessedFinishMessagesFromSlaves = new AtomicInteger(0);
   }
 
@@ -141,11 +161,30 @@ public class QueryExecutionCoordinator extends QueryTaskBase {
       parser.setUseBaseImplementation(useBaseOperators);
     }
     queryString = MessageUtils.convertToString(arguments[2], logger);
+    if (arguments.length > 4) {
+      // the client requests the binary result protocol
+      sendsResultBatches = arguments[3][0] == 1;
+      resultCredits.set(NumberConversion.bytes2int(arguments[4]));
+    }
     if (logger != null) {
       logger.fine("Started query coordinator for query " + queryString.replace('\n', ' '));
     }
   }
 
+  /**
+   * Called when the client has processed received {@link QueryResultBatch}es.
+   * 
+   * @param numberOfBatches
+   *          number of additional batches the client accepts
+   */
+  public void addResultCredits(int numberOfBatches) {
+    resultCredits.addAndGet(numberOfBatches);
+  }
+
+  private boolean canSendResults() {
+    return !sendsResultBatches || (resultCredits.get() > 0);
+  }
+
   public int getQueryId() {
     return (int) ((getID() & 0x00_00_ff_ff_ff_ff_00_00l) >>> Short.SIZE);
   }
@@ -168,7 +207,12 @@ public class QueryExecutionCoordinator extends QueryTaskBase {
 
   @Override
   public boolean hasInput() {
-    return true;
+    // without credits, the received mappings wait until the client has
+    // processed previous batches
+    return (super.hasInput() && canSendResults()) || (parser != null)
+            || (numberOfUnprocessedFinishMessagesFromSlaves.get() > 0)
+            || ((System.currentTimeMillis()
+                    - lastContactWithClient) >= Configuration.CLIENT_KEEP_ALIVE_INTERVAL);
   }
 
   @Override
@@ -278,8 +322,13 @@ public class QueryExecutionCoordinator extends QueryTaskBase {
       numberOfMissingFinishNotificationsFromSlaves -= messages;
       numberOfUnprocessedFinishMessagesFromSlaves.addAndGet(-messages);
     }
+    if (!canSendResults()) {
+      sendKeepAliveMessageToClient();
+      return;
+    }
     long firstSentResultMappingNumber = lastSentResultMappingNumber + 1;
-    StringBuilder result = new StringBuilder();
+    // the values of the emitted mappings are decoded at once
+    int numberOfRows = 0;
     int numberOfAlreadyEmittedMessages = 0;
     for (numberOfAlreadyEmittedMessages = 0; numberOfAlreadyEmittedMessages < emittedMappingsPerRound; numberOfAlreadyEmittedMessages++) {
       Mapping mapping = consumeMapping(0);
@@ -291,31 +340,21 @@ public class QueryExecutionCoordinator extends QueryTaskBase {
         continue;
       } else if ((offset <= 0) && ((length > 0) || (length < 0))) {
         lastSentResultMappingNumber++;
-        // the result has always to start with a new row, since the
-        // client already writes the header without row separator
-        result.append(Configuration.QUERY_RESULT_ROW_SEPARATOR_CHAR);
-        String delim = "";
-        for (long var : resultVariables) {
+        int firstIndex = numberOfRows * resultVariables.length;
+        if ((firstIndex + resultVariables.length) > resultValues.length) {
+          resultValues = Arrays.copyOf(resultValues,
+                  Math.max(2 * resultValues.length, firstIndex + resultVariables.length));
+        }
+        for (int i = 0; i < resultVariables.length; i++) {
+          long var = resultVariables[i];
           long varResult = mapping.getValue(var, resultVariables);
           if (varResult == -1) {
             throw new RuntimeException("The mapping " + mapping.toString(resultVariables)
                     + " does not contain a mapping for variable " + var + ".");
           }
-          Node resultNode = dictionary.decode(varResult);
-          if (resultNode == null) {
-            throw new RuntimeException("The value " + varResult + " of variable " + var
-                    + " could not be found in the dictionary.");
-          }
-          if (resultNode.isURI()
-                  && resultNode.getURI().startsWith(Configuration.BLANK_NODE_URI_PREFIX)) {
-            // this is a replacement of a blank node
-            resultNode = NodeFactory.createBlankNode(
-                    resultNode.getURI().substring(Configuration.BLANK_NODE_URI_PREFIX.length()));
-          }
-          String resultResourceString = DeSerializer.serializeNode(resultNode);
-          result.append(delim).append(resultResourceString);
-          delim = Configuration.QUERY_RESULT_COLUMN_SEPARATOR_CHAR;
+          resultValues[firstIndex + i] = varResult;
         }
+        numberOfRows++;
         if (length > 0) {
           length--;
         }
@@ -323,7 +362,36 @@ public class QueryExecutionCoordinator extends QueryTaskBase {
         break;
       }
     }
-    if (result.length() > 0) {
+    if (numberOfRows > 0) {
+      String[] resultResources = dictionary
+              .decodeResults(Arrays.copyOf(resultValues, numberOfRows * resultVariables.length));
+      for (int i = 0; i < resultResources.length; i++) {
+        if (resultResources[i] == null) {
+          throw new RuntimeException("The value " + resultValues[i] + " of variable "
+                  + resultVariables[i % resultVariables.length]
+                  + " could not be found in the dictionary.");
+        }
+      }
+      byte[] message;
+      if (sendsResultBatches) {
+        message = QueryResultBatch.serialize(resultResources, resultVariables.length,
+                numberOfRows);
+        resultCredits.decrementAndGet();
+      } else {
+        StringBuilder result = new StringBuilder();
+        for (int row = 0; row < numberOfRows; row++) {
+          // the result has always to start with a new row, since the
+          // client already writes the header without row separator
+          result.append(Configuration.QUERY_RESULT_ROW_SEPARATOR_CHAR);
+          String delim = "";
+          for (int i = 0; i < resultVariables.length; i++) {
+            result.append(delim).append(resultResources[(row * resultVariables.length) + i]);
+            delim = Configuration.QUERY_RESULT_COLUMN_SEPARATOR_CHAR;
+          }
+        }
+        message = MessageUtils.createStringMessage(MessageType.QUERY_RESULT, result.toString(),
+                logger);
+      }
       if (measurementCollector != null) {
         measurementCollector.measureValue(
                 MeasurementType.QUERY_COORDINATOR_SEND_QUERY_RESULTS_TO_CLIENT,
@@ -331,15 +399,18 @@ public class QueryExecutionCoordinator extends QueryTaskBase {
                 Long.toString(firstSentResultMappingNumber),
                 Long.toString(lastSentResultMappingNumber));
       }
-      clientConnections.send(clientId, MessageUtils.createStringMessage(MessageType.QUERY_RESULT,
-              result.toString(), logger));
+      clientConnections.send(clientId, message);
       lastContactWithClient = System.currentTimeMillis();
     } else {
       sendKeepAliveMessageToClient();
     }
     if (length == 0) {
       tidyUp();
-      closeInternal();
+      if (!isInFinalState()) {
+        // the slaves do not have to produce further results
+        messageSender.sendQuerySatisfied(getQueryId());
+      }
+      super.close();
     }
   }
 
@@ -23,8 +23,12 @@ import de.uni_koblenz.west.koral.common.mapDB.MapDBStorageOptions;
 import de.uni_koblenz.west.koral.common.query.TriplePattern;
 import de.uni_koblenz.west.koral.common.query.TriplePatternType;
 import de.uni_koblenz.west.koral.common.query.execution.operators.DefaultQueryOperatorTaskFactory;
+import de.uni_koblenz.west.koral.common.query.execution.operators.TriplePatternJoinOperator;
+import de.uni_koblenz.west.koral.common.query.execution.operators.TriplePatternMatchOperator;
 import de.uni_koblenz.west.koral.common.query.execution.operators.base_impl.QueryBaseOperatorTaskFactory;
+import de.uni_koblenz.west.koral.common.utils.JoinMemoryBudget;
 import de.uni_koblenz.west.koral.slave.triple_store.TripleStoreAccessor;
+import de.uni_koblenz.west.koral.slave.triple_store.impl.IndexType;
 
 import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
@@ -57,9 +61,37 @@ public class QueryExecutionTreeDeserializer {
 
   private final MapDBCacheOptions cacheType;
 
+  private final long joinMemoryBudgetInBytes;
+
+  /**
+   * Shared by all join operations of the currently deserialized query.
+   */
+  private JoinMemoryBudget joinMemoryBudget;
+
   public QueryExecutionTreeDeserializer(TripleStoreAccessor tripleStore, int numberOfSlaves,
           int cacheSize, File cacheDirectory, MapDBStorageOptions storageType,
           boolean useTransactions, boolean writeAsynchronously, MapDBCacheOptions cacheType) {
+    this(tripleStore, numberOfSlaves, cacheSize, cacheDirectory, storageType, useTransactions,
+            writeAsynchronously, cacheType, 0);
+  }
+
+  /**
+   * @param tripleStore
+   * @param numberOfSlaves
+   * @param cacheSize
+   * @param cacheDirectory
+   * @param storageType
+   * @param useTransactions
+   * @param writeAsynchronously
+   * @param cacheType
+   * @param joinMemoryBudgetInBytes
+   *          the number of bytes the join caches of one query may occupy in
+   *          memory. If it is 0, the join caches are not limited.
+   */
+  public QueryExecutionTreeDeserializer(TripleStoreAccessor tripleStore, int numberOfSlaves,
+          int cacheSize, File cacheDirectory, MapDBStorageOptions storageType,
+          boolean useTransactions, boolean writeAsynchronously, MapDBCacheOptions cacheType,
+          long joinMemoryBudgetInBytes) {
     this.tripleStore = tripleStore;
     this.numberOfSlaves = numberOfSlaves;
     this.cacheSize = cacheSize;
@@ -68,6 +100,7 @@ public class QueryExecutionTreeDeserializer {
     this.storageType = storageType;
     this.useTransactions = useTransactions;
     this.writeAsynchronously = writeAsynchronously;
+    this.joinMemoryBudgetInBytes = joinMemoryBudgetInBytes;
   }
 
   public QueryOperatorTask deserialize(byte[] serializedQET) {
@@ -86,6 +119,8 @@ public class QueryExecutionTreeDeserializer {
                     cacheDirectory)
             : new DefaultQueryOperatorTaskFactory(coordinatorId, numberOfSlaves, cacheSize,
                     cacheDirectory);
+    joinMemoryBudget = joinMemoryBudgetInBytes > 0 ? new JoinMemoryBudget(joinMemoryBudgetInBytes)
+            : null;
     return deserializeQueryOperator(input);
   }
 
@@ -97,6 +132,10 @@ public class QueryExecutionTreeDeserializer {
         return deserializeTriplePatternJoin(input);
       case TRIPLE_PATTERN_MATCH:
         return deserializeTriplePatternMatch(input);
+      case TRIPLE_PATTERN_MERGE_JOIN:
+        return deserializeTriplePatternMergeJoin(input);
+      case SLICE:
+        return deserializeSlice(input);
       default:
         throw new RuntimeException("Unkonw query operator.");
     }
@@ -120,6 +159,21 @@ public class QueryExecutionTreeDeserializer {
     return result;
   }
 
+  private QueryOperatorTask deserializeSlice(DataInputStream input) throws IOException {
+    QueryOperatorTask child = deserializeQueryOperator(input);
+    long taskId = input.readLong();
+    int emittedMappingsPerRound = input.readInt();
+    long estimatedTaskLoad = input.readLong();
+    long offset = input.readLong();
+    long length = input.readLong();
+
+    QueryOperatorBase result = (QueryOperatorBase) taskFactory.createSlice(taskId,
+            emittedMappingsPerRound, child, offset, length);
+    result.setEstimatedWorkLoad(estimatedTaskLoad);
+    ((QueryOperatorBase) child).setParentTask(result);
+    return result;
+  }
+
   private QueryOperatorTask deserializeTriplePatternJoin(DataInputStream input) throws IOException {
     QueryOperatorTask leftChild = deserializeQueryOperator(input);
     QueryOperatorTask rightChild = deserializeQueryOperator(input);
@@ -130,6 +184,31 @@ public class QueryExecutionTreeDeserializer {
     QueryOperatorBase result = (QueryOperatorBase) taskFactory.createTriplePatternJoin(taskId,
             emittedMappingsPerRound, leftChild, rightChild, storageType, useTransactions,
             writeAsynchronously, cacheType);
+    if (result instanceof TriplePatternJoinOperator) {
+      ((TriplePatternJoinOperator) result).setJoinMemoryBudget(joinMemoryBudget);
+    }
+    result.setEstimatedWorkLoad(estimatedTaskLoad);
+    ((QueryOperatorBase) leftChild).setParentTask(result);
+    ((QueryOperatorBase) rightChild).setParentTask(result);
+    return result;
+  }
+
+  private QueryOperatorTask deserializeTriplePatternMergeJoin(DataInputStream input)
+          throws IOException {
+    QueryOperatorTask leftChild = deserializeQueryOperator(input);
+    QueryOperatorTask rightChild = deserializeQueryOperator(input);
+    long taskId = input.readLong();
+    int emittedMappingsPerRound = input.readInt();
+    long estimatedTaskLoad = input.readLong();
+    long mergeVar = input.readLong();
+
+    QueryOperatorBase result = (QueryOperatorBase) taskFactory.createTriplePatternMergeJoin(taskId,
+            emittedMappingsPerRound, leftChild, rightChild, mergeVar, storageType, useTransactions,
+            writeAsynchronously, cacheType);
+    if (result instanceof TriplePatternJoinOperator) {
+      // the base implementation creates a hash join instead of the merge join
+      ((TriplePatternJoinOperator) result).setJoinMemoryBudget(joinMemoryBudget);
+    }
     result.setEstimatedWorkLoad(estimatedTaskLoad);
     ((QueryOperatorBase) leftChild).setParentTask(result);
     ((QueryOperatorBase) rightChild).setParentTask(result);
@@ -148,10 +227,14 @@ public class QueryExecutionTreeDeserializer {
     long object = input.readLong();
     TriplePattern pattern = new TriplePattern(TriplePatternType.valueOf(patternType), subject,
             property, object);
+    int index = input.readInt();
 
     QueryOperatorBase result = (QueryOperatorBase) taskFactory.createTriplePatternMatch(taskId,
             emittedMappingsPerRound, pattern, tripleStore);
     result.setEstimatedWorkLoad(estimatedTaskLoad);
+    if (index != -1) {
+      ((TriplePatternMatchOperator) result).setIndex(IndexType.values()[index]);
+    }
     return result;
   }
 
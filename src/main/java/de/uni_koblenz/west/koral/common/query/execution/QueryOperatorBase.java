@@ -25,12 +25,14 @@ import de.uni_koblenz.west.koral.common.measurement.MeasurementType;
 import de.uni_koblenz.west.koral.common.query.Mapping;
 import de.uni_koblenz.west.koral.common.query.MappingRecycleCache;
 import de.uni_koblenz.west.koral.common.query.execution.operators.ProjectionOperator;
+import de.uni_koblenz.west.koral.common.query.execution.operators.SliceOperator;
 import de.uni_koblenz.west.koral.master.statisticsDB.GraphStatistics;
 
 import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 import java.util.logging.Logger;
 
 /**
@@ -48,6 +50,17 @@ public abstract class QueryOperatorBase extends QueryTaskBase implements QueryOp
 
   private final int emittedMappingsPerRound;
 
+  /**
+   * 1, if the instance of this task on the computer with the index has sent
+   * its finish notification
+   */
+  private final AtomicIntegerArray finishedInstances;
+
+  /**
+   * true, if the query does not require any further results of this operator
+   */
+  private volatile boolean isStopped;
+
   /*
    * Performance measurements
    */
@@ -72,6 +85,7 @@ public abstract class QueryOperatorBase extends QueryTaskBase implements QueryOp
             | (taskId & 0x00_00_00_00_00_00_ff_ffl), numberOfSlaves, cacheSize, cacheDirectory);
     this.coordinatorId = coordinatorId;
     this.emittedMappingsPerRound = emittedMappingsPerRound;
+    finishedInstances = new AtomicIntegerArray(numberOfSlaves + 1);
   }
 
   public QueryOperatorBase(long id, long coordinatorId, int numberOfSlaves, int cacheSize,
@@ -79,6 +93,7 @@ public abstract class QueryOperatorBase extends QueryTaskBase implements QueryOp
     super(id, numberOfSlaves, cacheSize, cacheDirectory);
     this.coordinatorId = coordinatorId;
     this.emittedMappingsPerRound = emittedMappingsPerRound;
+    finishedInstances = new AtomicIntegerArray(numberOfSlaves + 1);
   }
 
   @Override
@@ -141,9 +156,78 @@ public abstract class QueryOperatorBase extends QueryTaskBase implements QueryOp
     }
   }
 
+  /**
+   * Stops this operator since the query does not require any further results,
+   * e.g., because its limit is reached. Thereafter, all received mappings are
+   * discarded and no further mappings are emitted. The operator finishes as
+   * soon as its children have finished.
+   */
+  public void stop() {
+    isStopped = true;
+  }
+
+  protected boolean isStopped() {
+    return isStopped;
+  }
+
+  @Override
+  public void execute() {
+    if (isStopped) {
+      discardReceivedMappings();
+    }
+    super.execute();
+  }
+
+  /**
+   * Called before each execution step of a stopped operator. Releases all
+   * received mappings. Subclasses that buffer mappings have to release them,
+   * too.
+   */
+  protected void discardReceivedMappings() {
+    for (int i = 0; i < getNumberOfInputQueues(); i++) {
+      while (!isInputQueueEmpty(i)) {
+        Mapping mapping = consumeMapping(i);
+        if (mapping == null) {
+          break;
+        }
+        recycleCache.releaseMapping(mapping);
+      }
+    }
+  }
+
   @Override
   protected void handleFinishNotification(long sender, Object object, int firstIndex,
           int messageLength) {
+    int computerId = (int) (sender >>> (Short.SIZE + Integer.SIZE));
+    if (computerId < finishedInstances.length()) {
+      finishedInstances.set(computerId, 1);
+    }
+    if (parent != null) {
+      parent.handleChildFinished();
+    }
+  }
+
+  /**
+   * Called when an instance of a child operator has emitted all its mappings.
+   */
+  protected void handleChildFinished() {
+  }
+
+  /**
+   * Since mappings and finish notifications sent from one computer to another
+   * are received in the order in which they were sent, all mappings the
+   * instance on computer <code>computerId</code> has sent to the parent task on
+   * this computer have been received, if this method returns true.
+   * 
+   * @param computerId
+   * @return true, if the instance of this task on computer
+   *         <code>computerId</code> has emitted all its mappings
+   */
+  public boolean hasFinishedOnComputer(int computerId) {
+    if (computerId == (int) (getID() >>> (Short.SIZE + Integer.SIZE))) {
+      return hasSentFinishNotification();
+    }
+    return isInFinalState() || (finishedInstances.get(computerId) == 1);
   }
 
   @Override
@@ -156,7 +240,8 @@ public abstract class QueryOperatorBase extends QueryTaskBase implements QueryOp
   @Override
   public boolean hasInput() {
     if (getChildTask(0) == null) {
-      return !isFinishedLocally();
+      // leaves do not receive any input before they are started
+      return isStarted() && !isFinishedLocally();
     } else {
       return super.hasInput();
     }
@@ -186,6 +271,9 @@ public abstract class QueryOperatorBase extends QueryTaskBase implements QueryOp
   protected void executeFinalStep() {
     messageSender.sendQueryTaskFinished(getID(), getParentTask() == null, getCoordinatorID(),
             recycleCache);
+    if (parent != null) {
+      parent.handleChildFinished();
+    }
     if (measurementCollector != null) {
       measurementCollector.measureValue(MeasurementType.QUERY_OPERATION_LOCAL_FINISH,
               System.currentTimeMillis(), Integer.toString((int) (getID() >>> Short.SIZE)),
@@ -220,11 +308,15 @@ public abstract class QueryOperatorBase extends QueryTaskBase implements QueryOp
    * @param mapping
    */
   protected void emitMapping(Mapping mapping) {
-    if (getParentTask() == null) {
+    if (isStopped) {
+      recycleCache.releaseMapping(mapping);
+    } else if (getParentTask() == null) {
       messageSender.sendQueryMapping(mapping, getID(), getCoordinatorID(), recycleCache);
       numberOfEmittedMappings[0]++;
-    } else if (getParentTask() instanceof ProjectionOperator) {
-      // projection operator filters all mappings on the same computer
+    } else if ((getParentTask() instanceof ProjectionOperator)
+            || (getParentTask() instanceof SliceOperator)) {
+      // projection and slice operators process all mappings on the same
+      // computer
       messageSender.sendQueryMapping(mapping, getID(), getParentTask().getID(), recycleCache);
       numberOfEmittedMappings[(int) (getParentTask().getID() >>> (Integer.SIZE + Short.SIZE))]++;
     } else {
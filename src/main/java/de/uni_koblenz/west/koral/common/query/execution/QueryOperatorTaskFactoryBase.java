@@ -93,6 +93,36 @@ public abstract class QueryOperatorTaskFactoryBase {
           MapDBStorageOptions storageType, boolean useTransactions, boolean writeAsynchronously,
           MapDBCacheOptions cacheType);
 
+  public QueryOperatorTask createTriplePatternMergeJoin(short slaveId, int queryId,
+          int emittedMappingsPerRound, QueryOperatorTask leftChild, QueryOperatorTask rightChild,
+          long mergeVar, MapDBStorageOptions storageType, boolean useTransactions,
+          boolean writeAsynchronously, MapDBCacheOptions cacheType) {
+    return createTriplePatternMergeJoin(getNewTaskId(slaveId, queryId), emittedMappingsPerRound,
+            leftChild, rightChild, mergeVar, storageType, useTransactions, writeAsynchronously,
+            cacheType);
+  }
+
+  /**
+   * The storage options are only required, if the implementation does not
+   * provide a merge join and falls back to a hash join.
+   * 
+   * @param taskId
+   * @param emittedMappingsPerRound
+   * @param leftChild
+   * @param rightChild
+   * @param mergeVar
+   *          the variable by which both children emit their mappings sorted
+   * @param storageType
+   * @param useTransactions
+   * @param writeAsynchronously
+   * @param cacheType
+   * @return
+   */
+  public abstract QueryOperatorTask createTriplePatternMergeJoin(long taskId,
+          int emittedMappingsPerRound, QueryOperatorTask leftChild, QueryOperatorTask rightChild,
+          long mergeVar, MapDBStorageOptions storageType, boolean useTransactions,
+          boolean writeAsynchronously, MapDBCacheOptions cacheType);
+
   public QueryOperatorTask createProjection(short slaveId, int queryId, int emittedMappingsPerRound,
           long[] resultVars, QueryOperatorTask subOperation) {
     return createProjection(getNewTaskId(slaveId, queryId), emittedMappingsPerRound, resultVars,
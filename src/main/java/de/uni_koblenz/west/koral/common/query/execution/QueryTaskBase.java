@@ -43,7 +43,7 @@ public abstract class QueryTaskBase extends WorkerTaskBase {
 
   private long estimatedWorkLoad;
 
-  private QueryTaskState state;
+  private volatile QueryTaskState state;
 
   protected volatile int numberOfMissingFinishedMessages;
 
@@ -89,6 +89,19 @@ public abstract class QueryTaskBase extends WorkerTaskBase {
     state = QueryTaskState.STARTED;
   }
 
+  protected boolean isStarted() {
+    return state != QueryTaskState.CREATED;
+  }
+
+  /**
+   * @return true, if this task has emitted all its mappings and has sent its
+   *         finish notification
+   */
+  protected boolean hasSentFinishNotification() {
+    return (state == QueryTaskState.WAITING_FOR_OTHERS_TO_FINISH)
+            || (state == QueryTaskState.FINISHED);
+  }
+
   @Override
   public void enqueueMessage(long sender, byte[] message, int firstIndex, int messageLength) {
     MessageType mType = MessageType.valueOf(message[firstIndex]);
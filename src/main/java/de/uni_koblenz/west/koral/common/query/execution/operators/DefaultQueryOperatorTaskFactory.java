@@ -61,6 +61,15 @@ public class DefaultQueryOperatorTaskFactory extends QueryOperatorTaskFactoryBas
             useTransactions, writeAsynchronously, cacheType);
   }
 
+  @Override
+  public QueryOperatorTask createTriplePatternMergeJoin(long taskId, int emittedMappingsPerRound,
+          QueryOperatorTask leftChild, QueryOperatorTask rightChild, long mergeVar,
+          MapDBStorageOptions storageType, boolean useTransactions, boolean writeAsynchronously,
+          MapDBCacheOptions cacheType) {
+    return new TriplePatternMergeJoinOperator(taskId, coordinatorId, numberOfSlaves, cacheSize,
+            cacheDirectory, emittedMappingsPerRound, leftChild, rightChild, mergeVar);
+  }
+
   @Override
   public QueryOperatorTask createProjection(long taskId, int emittedMappingsPerRound,
           long[] resultVars, QueryOperatorTask subOperation) {
@@ -18,9 +18,12 @@
  */
 package de.uni_koblenz.west.koral.common.query.execution.operators;
 
+import de.uni_koblenz.west.koral.common.executor.WorkerTask;
+import de.uni_koblenz.west.koral.common.query.Mapping;
 import de.uni_koblenz.west.koral.common.query.execution.QueryExecutionCoordinator;
 import de.uni_koblenz.west.koral.common.query.execution.QueryOperatorBase;
 import de.uni_koblenz.west.koral.common.query.execution.QueryOperatorTask;
+import de.uni_koblenz.west.koral.common.query.execution.QueryOperatorType;
 import de.uni_koblenz.west.koral.master.statisticsDB.GraphStatistics;
 
 import java.io.DataOutputStream;
@@ -28,11 +31,21 @@ import java.io.File;
 import java.io.IOException;
 
 /**
- * This class represents the result modifier offset and limit. This class is
- * only used for parsing purposes. During the execution this is done by
+ * <p>
+ * This class represents the result modifier offset and limit. The offset and
+ * the limit of the results are applied by the
  * {@link QueryExecutionCoordinator}. Offset is quite useless, since the
  * ordering of results cannot be guaranteed to be the same for different
  * executions.
+ * </p>
+ * 
+ * <p>
+ * Since Koral does not support ordering, any offset+limit results are
+ * sufficient to answer the query. Thus, each slave forwards at most
+ * offset+limit results to the coordinator. As soon as this local limit is
+ * reached, the coordinator is guaranteed to receive enough results and all
+ * {@link TriplePatternMatchOperator}s of this slave stop their lookups.
+ * </p>
  * 
  * @author Daniel Janke &lt;danijankATuni-koblenz.de&gt;
  *
@@ -43,6 +56,8 @@ public class SliceOperator extends QueryOperatorBase {
 
   private final long length;
 
+  private long numberOfForwardedMappings;
+
   public SliceOperator(short slaveId, int queryId, short taskId, long coordinatorId,
           int numberOfSlaves, int cacheSize, File cacheDirectory, int emittedMappingsPerRound,
           QueryOperatorTask subOperation, long offset, long length) {
@@ -70,6 +85,22 @@ public class SliceOperator extends QueryOperatorBase {
     return length;
   }
 
+  /**
+   * @return the maximal number of mappings forwarded by this slave or -1, if
+   *         the number is unlimited
+   */
+  public long getLocalLimit() {
+    if ((length < 0) || ((Long.MAX_VALUE - Math.max(0, offset)) < length)) {
+      return -1;
+    }
+    return Math.max(0, offset) + length;
+  }
+
+  private boolean hasReachedLocalLimit() {
+    long localLimit = getLocalLimit();
+    return (localLimit >= 0) && (numberOfForwardedMappings >= localLimit);
+  }
+
   @Override
   public long[] getResultVariables() {
     return ((QueryOperatorTask) getChildTask(0)).getResultVariables();
@@ -93,9 +124,13 @@ public class SliceOperator extends QueryOperatorBase {
       output.writeBoolean(useBaseImplementation);
       output.writeLong(getCoordinatorID());
     }
-    // this class is only used during the parsing process
-    QueryOperatorBase subOp = (QueryOperatorBase) getChildTask(0);
-    subOp.serialize(output, useBaseImplementation, slaveId);
+    output.writeInt(QueryOperatorType.SLICE.ordinal());
+    ((QueryOperatorTask) getChildTask(0)).serialize(output, useBaseImplementation, slaveId);
+    output.writeLong(getIdOnSlave(slaveId));
+    output.writeInt(getEmittedMappingsPerRound());
+    output.writeLong(getEstimatedTaskLoad());
+    output.writeLong(offset);
+    output.writeLong(length);
   }
 
   @Override
@@ -143,8 +178,32 @@ public class SliceOperator extends QueryOperatorBase {
 
   @Override
   protected void executeOperationStep() {
-    throw new UnsupportedOperationException(
-            "The slice operation is performed by the query execution coordinator.");
+    startWorkTime();
+    for (int i = 0; (i < getEmittedMappingsPerRound()) && !isInputQueueEmpty(0); i++) {
+      Mapping mapping = consumeMapping(0);
+      if (mapping != null) {
+        if (hasReachedLocalLimit()) {
+          // the mappings that are not required any more are discarded
+          recycleCache.releaseMapping(mapping);
+        } else {
+          emitMapping(mapping);
+          numberOfForwardedMappings++;
+          if (hasReachedLocalLimit()) {
+            SliceOperator.stopProducing((QueryOperatorBase) getChildTask(0));
+          }
+        }
+      }
+    }
+    startIdleTime();
+  }
+
+  private static void stopProducing(QueryOperatorBase task) {
+    if (task instanceof TriplePatternMatchOperator) {
+      ((TriplePatternMatchOperator) task).stopProducing();
+    }
+    for (WorkerTask child : task.getChildren()) {
+      SliceOperator.stopProducing((QueryOperatorBase) child);
+    }
   }
 
   @Override
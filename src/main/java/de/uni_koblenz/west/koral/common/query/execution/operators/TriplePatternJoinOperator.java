@@ -28,9 +28,11 @@ import de.uni_koblenz.west.koral.common.query.MappingRecycleCache;
 import de.uni_koblenz.west.koral.common.query.execution.QueryOperatorBase;
 import de.uni_koblenz.west.koral.common.query.execution.QueryOperatorTask;
 import de.uni_koblenz.west.koral.common.query.execution.QueryOperatorType;
-import de.uni_koblenz.west.koral.common.utils.InMemoryJoinMappingCache;
+import de.uni_koblenz.west.koral.common.utils.HybridHashJoinMappingCache;
 import de.uni_koblenz.west.koral.common.utils.JoinMappingCache;
+import de.uni_koblenz.west.koral.common.utils.JoinMemoryBudget;
 import de.uni_koblenz.west.koral.common.utils.MapDBJoinMappingCache;
+import de.uni_koblenz.west.koral.common.utils.OpenAddressingJoinMappingCache;
 import de.uni_koblenz.west.koral.master.statisticsDB.GraphStatistics;
 
 import java.io.DataOutputStream;
@@ -61,6 +63,8 @@ public class TriplePatternJoinOperator extends QueryOperatorBase {
 
   private final MapDBCacheOptions cacheType;
 
+  private JoinMemoryBudget joinMemoryBudget;
+
   private JoinMappingCache leftMappingCache;
 
   private JoinMappingCache rightMappingCache;
@@ -129,17 +133,39 @@ public class TriplePatternJoinOperator extends QueryOperatorBase {
     this.writeAsynchronously = writeAsynchronously;
   }
 
+  /**
+   * If set and the join cache is stored in memory, the join caches spill
+   * partitions to disk as soon as the budget is exceeded.
+   * 
+   * @param joinMemoryBudget
+   */
+  public void setJoinMemoryBudget(JoinMemoryBudget joinMemoryBudget) {
+    this.joinMemoryBudget = joinMemoryBudget;
+  }
+
   @Override
   public void setUp(MessageSenderBuffer messageSender, MappingRecycleCache recycleCache,
           Logger logger, MeasurementCollector measurementCollector) {
     super.setUp(messageSender, recycleCache, logger, measurementCollector);
     long[] leftVars = ((QueryOperatorTask) getChildTask(0)).getResultVariables();
     long[] rightVars = ((QueryOperatorTask) getChildTask(1)).getResultVariables();
-    if (storageType == MapDBStorageOptions.MEMORY) {
-      leftMappingCache = new InMemoryJoinMappingCache(leftVars, createComparisonOrder(leftVars),
-              joinVars.length);
-      rightMappingCache = new InMemoryJoinMappingCache(rightVars, createComparisonOrder(rightVars),
-              joinVars.length);
+    if ((storageType == MapDBStorageOptions.MEMORY) && (joinMemoryBudget != null)) {
+      HybridHashJoinMappingCache leftCache = new HybridHashJoinMappingCache(joinMemoryBudget,
+              getCacheDirectory(), recycleCache,
+              getClass().getSimpleName() + getID() + "_leftChild_", leftVars,
+              createComparisonOrder(leftVars), joinVars.length, logger);
+      HybridHashJoinMappingCache rightCache = new HybridHashJoinMappingCache(joinMemoryBudget,
+              getCacheDirectory(), recycleCache,
+              getClass().getSimpleName() + getID() + "_rightChild_", rightVars,
+              createComparisonOrder(rightVars), joinVars.length, logger);
+      leftCache.setJoinPartner(rightCache);
+      leftMappingCache = leftCache;
+      rightMappingCache = rightCache;
+    } else if (storageType == MapDBStorageOptions.MEMORY) {
+      leftMappingCache = new OpenAddressingJoinMappingCache(recycleCache, leftVars,
+              createComparisonOrder(leftVars), joinVars.length);
+      rightMappingCache = new OpenAddressingJoinMappingCache(recycleCache, rightVars,
+              createComparisonOrder(rightVars), joinVars.length);
     } else {
       leftMappingCache = new MapDBJoinMappingCache(storageType, useTransactions,
               writeAsynchronously, cacheType, getCacheDirectory(), recycleCache,
@@ -292,7 +318,19 @@ public class TriplePatternJoinOperator extends QueryOperatorBase {
           numberOfComparisons += iterator.getNumberOfComparisons();
           iterator = null;
         }
-        if (shouldConsumefromLeftChild()) {
+        if (isInputQueueEmpty(0) && isInputQueueEmpty(1)) {
+          Mapping mapping = getNextSpilledMapping();
+          if (mapping == null) {
+            // there are no mappings to consume
+            break;
+          }
+          long[] leftVars = ((QueryOperatorBase) getChildTask(0)).getResultVariables();
+          long[] rightVars = ((QueryOperatorBase) getChildTask(1)).getResultVariables();
+          iterator = new JoinIterator(recycleCache, getResultVariables(), joinVars, mapping,
+                  leftVars, ((HybridHashJoinMappingCache) leftMappingCache)
+                          .getSpilledMatchCandidates(mapping, leftVars),
+                  rightVars);
+        } else if (shouldConsumefromLeftChild()) {
           if (isInputQueueEmpty(0)) {
             if (isInputQueueEmpty(1)) {
               // there are no mappings to consume
@@ -341,6 +379,25 @@ public class TriplePatternJoinOperator extends QueryOperatorBase {
     }
   }
 
+  /**
+   * @return the next mapping of the left child whose join has been deferred
+   *         because it was spilled to disk. <code>null</code> is returned if
+   *         there are no such mappings or if the children have not finished,
+   *         yet.
+   */
+  private Mapping getNextSpilledMapping() {
+    if (isStopped() || !areAllChildrenFinished()
+            || !(leftMappingCache instanceof HybridHashJoinMappingCache)) {
+      return null;
+    }
+    return ((HybridHashJoinMappingCache) leftMappingCache).getNextSpilledMapping();
+  }
+
+  private boolean hasUnjoinedSpilledMappings() {
+    return !isStopped() && (leftMappingCache instanceof HybridHashJoinMappingCache)
+            && ((HybridHashJoinMappingCache) leftMappingCache).hasUnjoinedSpilledMappings();
+  }
+
   private boolean shouldConsumefromLeftChild() {
     if (isInputQueueEmpty(1)) {
       return true;
@@ -423,9 +480,25 @@ public class TriplePatternJoinOperator extends QueryOperatorBase {
     }
   }
 
+  @Override
+  protected void discardReceivedMappings() {
+    super.discardReceivedMappings();
+    if (iterator != null) {
+      numberOfComparisons += iterator.getNumberOfComparisons();
+      iterator = null;
+    }
+  }
+
+  @Override
+  public boolean hasInput() {
+    return super.hasInput() || ((iterator != null) && iterator.hasNext())
+            || (areAllChildrenFinished() && hasUnjoinedSpilledMappings());
+  }
+
   @Override
   protected boolean isFinishedLocally() {
-    return super.isFinishedLocally() && ((iterator == null) || !iterator.hasNext());
+    return super.isFinishedLocally() && ((iterator == null) || !iterator.hasNext())
+            && !hasUnjoinedSpilledMappings();
   }
 
   @Override
@@ -24,7 +24,9 @@ import de.uni_koblenz.west.koral.common.query.execution.QueryOperatorBase;
 import de.uni_koblenz.west.koral.common.query.execution.QueryOperatorType;
 import de.uni_koblenz.west.koral.master.statisticsDB.GraphStatistics;
 import de.uni_koblenz.west.koral.slave.triple_store.TripleStoreAccessor;
+import de.uni_koblenz.west.koral.slave.triple_store.impl.IndexType;
 import de.uni_koblenz.west.koral.slave.triple_store.impl.MappingIteratorWrapper;
+import de.uni_koblenz.west.koral.slave.triple_store.impl.TripleStore;
 
 import java.io.DataOutputStream;
 import java.io.File;
@@ -43,8 +45,19 @@ public class TriplePatternMatchOperator extends QueryOperatorBase {
 
   private final TripleStoreAccessor tripleStore;
 
+  /**
+   * the index that should be used for the lookup or <code>null</code> if the
+   * default index of the triple pattern should be used
+   */
+  private IndexType index;
+
   private Iterator<Mapping> iterator;
 
+  /**
+   * <code>true</code>, if no further mappings are required
+   */
+  private volatile boolean isStopped;
+
   public TriplePatternMatchOperator(long id, long coordinatorId, int numberOfSlaves, int cacheSize,
           File cacheDirectory, TriplePattern pattern, int emittedMappingsPerRound,
           TripleStoreAccessor tripleStore) {
@@ -178,6 +191,39 @@ public class TriplePatternMatchOperator extends QueryOperatorBase {
     return min;
   }
 
+  /**
+   * Requests the order in which the triple store returns the matches. The
+   * requested index has to be able to answer the triple pattern and has to be
+   * stored on all slaves.
+   * 
+   * @param index
+   *          <code>null</code>, if the default index of the triple pattern
+   *          should be used
+   */
+  public void setIndex(IndexType index) {
+    this.index = index;
+  }
+
+  /**
+   * @return the index that is used for the lookup of the triple pattern
+   */
+  public IndexType getIndex() {
+    return index == null ? TripleStore.getDefaultIndex(pattern.getType()) : index;
+  }
+
+  /**
+   * @return the variable by which the matches of the triple pattern are sorted
+   *         when they are returned by the lookup of the triple store or -1 if
+   *         the triple pattern does not contain a variable
+   */
+  public long getSortVariable() {
+    return getIndex().getSortVariable(pattern);
+  }
+
+  public TriplePattern getTriplePattern() {
+    return pattern;
+  }
+
   @Override
   public long getCurrentTaskLoad() {
     if ((iterator == null) || (tripleStore == null) || (getEstimatedTaskLoad() == 0)
@@ -201,10 +247,13 @@ public class TriplePatternMatchOperator extends QueryOperatorBase {
     if ((getEstimatedTaskLoad() == 0) || (tripleStore == null)) {
       return;
     }
+    if (isStopped) {
+      return;
+    }
     if (iterator == null) {
-      iterator = tripleStore.lookup(recycleCache, pattern).iterator();
+      iterator = tripleStore.lookup(recycleCache, pattern, index).iterator();
     }
-    for (int i = 0; (i < getEmittedMappingsPerRound()) && iterator.hasNext(); i++) {
+    for (int i = 0; (i < getEmittedMappingsPerRound()) && !isStopped && iterator.hasNext(); i++) {
       Mapping mapping = iterator.next();
       emitMapping(mapping);
     }
@@ -213,10 +262,24 @@ public class TriplePatternMatchOperator extends QueryOperatorBase {
 
   @Override
   protected boolean isFinishedLocally() {
-    return (getEstimatedTaskLoad() == 0) || (tripleStore == null)
+    return isStopped || (getEstimatedTaskLoad() == 0) || (tripleStore == null)
             || ((iterator != null) && !iterator.hasNext());
   }
 
+  /**
+   * Stops the lookup of further matches. Afterwards, this operator finishes
+   * like an operator whose matches are exhausted.
+   */
+  public void stopProducing() {
+    isStopped = true;
+  }
+
+  @Override
+  public void stop() {
+    super.stop();
+    stopProducing();
+  }
+
   @Override
   public void serialize(DataOutputStream output, boolean useBaseImplementation, int slaveId)
           throws IOException {
@@ -232,6 +295,7 @@ public class TriplePatternMatchOperator extends QueryOperatorBase {
     output.writeLong(pattern.getSubject());
     output.writeLong(pattern.getProperty());
     output.writeLong(pattern.getObject());
+    output.writeInt(index == null ? -1 : index.ordinal());
   }
 
   @Override
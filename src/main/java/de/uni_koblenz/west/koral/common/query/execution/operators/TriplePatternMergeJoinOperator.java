@@ -0,0 +1,513 @@
+/*
+ * This file is part of Koral.
+ *
+ * Koral is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Koral is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Leser General Public License
+ * along with Koral.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2016 Daniel Janke
+ */
+package de.uni_koblenz.west.koral.common.query.execution.operators;
+
+import de.uni_koblenz.west.koral.common.measurement.MeasurementType;
+import de.uni_koblenz.west.koral.common.query.Mapping;
+import de.uni_koblenz.west.koral.common.query.execution.QueryOperatorBase;
+import de.uni_koblenz.west.koral.common.query.execution.QueryOperatorTask;
+import de.uni_koblenz.west.koral.common.query.execution.QueryOperatorType;
+import de.uni_koblenz.west.koral.master.statisticsDB.GraphStatistics;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>
+ * Performs the join operation of mappings as a sort-merge join. It requires
+ * that each instance of a child operation emits its mappings sorted by the
+ * merge variable, i.e., the children are {@link TriplePatternMatchOperator}s
+ * whose {@link TriplePatternMatchOperator#getSortVariable()} is the merge
+ * variable. The values of the merge variable are compared as unsigned longs
+ * which is the order of the triple store indices.
+ * </p>
+ * 
+ * <p>
+ * Triple patterns with a bound property are sorted by their object in the POS
+ * index and by their subject in the PSO index. Thus, object-object joins as
+ * well as subject stars, e.g., <code>?s p1 ?o1. ?s p2 ?o2</code>, of such
+ * patterns become merge joins.
+ * </p>
+ * 
+ * <p>
+ * Since the mappings of the different computers are received interleaved,
+ * there is one input queue per child and sending computer. The sorted streams
+ * of one child are merged. A stream is completed as soon as the finish
+ * notification of the sending child instance is received. Only the mappings of
+ * the right child that share the current value of the merge variable are kept
+ * in memory.
+ * </p>
+ * 
+ * @author Daniel Janke &lt;danijankATuni-koblenz.de&gt;
+ *
+ */
+public class TriplePatternMergeJoinOperator extends QueryOperatorBase {
+
+  /**
+   * Returned by {@link #peek(int)} if the next mapping cannot be determined
+   * until further mappings or finish notifications are received.
+   */
+  private static final int NOT_READY = -1;
+
+  /**
+   * Returned by {@link #peek(int)} if all mappings of the child have been
+   * consumed.
+   */
+  private static final int EXHAUSTED = 0;
+
+  private long[] resultVars;
+
+  private long[] joinVars;
+
+  private final long mergeVar;
+
+  /**
+   * child,computer
+   */
+  private final Mapping[][] heads;
+
+  private final List<Mapping> rightGroup;
+
+  private long groupKey;
+
+  private boolean hasGroup;
+
+  private boolean isGroupComplete;
+
+  private JoinIterator iterator;
+
+  /**
+   * true, if the last execution step had to wait for mappings or finish
+   * notifications of a child and neither a mapping nor a finish notification
+   * has been received since then
+   */
+  private volatile boolean isBlocked;
+
+  /*
+   * variables for measurement
+   */
+
+  private long numberOfComparisons;
+
+  public TriplePatternMergeJoinOperator(long id, long coordinatorId, int numberOfSlaves,
+          int cacheSize, File cacheDirectory, int emittedMappingsPerRound,
+          QueryOperatorTask leftChild, QueryOperatorTask rightChild, long mergeVar) {
+    super(id, coordinatorId, numberOfSlaves, cacheSize, cacheDirectory, emittedMappingsPerRound);
+    addChildTask(leftChild);
+    addChildTask(rightChild);
+    for (int i = 1; i < numberOfSlaves; i++) {
+      addInputQueue();
+      addInputQueue();
+    }
+    computeVars(leftChild.getResultVariables(), rightChild.getResultVariables());
+    this.mergeVar = mergeVar;
+    heads = new Mapping[2][numberOfSlaves + 1];
+    rightGroup = new ArrayList<>();
+  }
+
+  public TriplePatternMergeJoinOperator(short slaveId, int queryId, short taskId,
+          long coordinatorId, int numberOfSlaves, int cacheSize, File cacheDirectory,
+          int emittedMappingsPerRound, QueryOperatorTask leftChild, QueryOperatorTask rightChild,
+          long mergeVar) {
+    super(slaveId, queryId, taskId, coordinatorId, numberOfSlaves, cacheSize, cacheDirectory,
+            emittedMappingsPerRound);
+    addChildTask(leftChild);
+    addChildTask(rightChild);
+    for (int i = 1; i < numberOfSlaves; i++) {
+      addInputQueue();
+      addInputQueue();
+    }
+    computeVars(leftChild.getResultVariables(), rightChild.getResultVariables());
+    this.mergeVar = mergeVar;
+    heads = new Mapping[2][numberOfSlaves + 1];
+    rightGroup = new ArrayList<>();
+  }
+
+  private void computeVars(long[] leftVars, long[] rightVars) {
+    long[] allVars = new long[leftVars.length + rightVars.length];
+    System.arraycopy(leftVars, 0, allVars, 0, leftVars.length);
+    System.arraycopy(rightVars, 0, allVars, leftVars.length, rightVars.length);
+    Arrays.sort(allVars);
+    // count occurrences of different variable types
+    int numberOfJoinVars = 0;
+    int numberOfResultVars = 0;
+    for (int i = 0; i < allVars.length; i++) {
+      if ((i > 0) && (allVars[i - 1] == allVars[i])) {
+        // each variable occurs at most two times
+        numberOfJoinVars++;
+      } else {
+        numberOfResultVars++;
+      }
+    }
+    // assign variables to arrays
+    resultVars = new long[numberOfResultVars];
+    joinVars = new long[numberOfJoinVars];
+    int nextJoinVarIndex = 0;
+    for (int i = 0; i < allVars.length; i++) {
+      if ((i > 0) && (allVars[i - 1] == allVars[i])) {
+        joinVars[nextJoinVarIndex] = allVars[i];
+        nextJoinVarIndex++;
+      } else {
+        resultVars[i - nextJoinVarIndex] = allVars[i];
+      }
+    }
+  }
+
+  /**
+   * @param child
+   * @param computerId
+   *          the first slave has id 1
+   * @return the index of the input queue that contains the mappings the
+   *         instance of the child on computer <code>computerId</code> has sent
+   *         to this computer
+   */
+  private int getInputQueueIndex(int child, int computerId) {
+    return child + (2 * (computerId - 1));
+  }
+
+  @Override
+  protected void handleMappingReception(long sender, byte[] message, int firstIndex, int length) {
+    long taskId = (sender & 0x00_00_ff_ff_ff_ff_ff_ffl) | (getID() & 0xff_ff_00_00_00_00_00_00l);
+    int childIndex = getIndexOfChild(taskId);
+    int computerId = (int) (sender >>> (Short.SIZE + Integer.SIZE));
+    enqueuMessage(getInputQueueIndex(childIndex, computerId), message, firstIndex, length);
+    isBlocked = false;
+  }
+
+  @Override
+  protected void handleChildFinished() {
+    // the missing mappings of a blocked merge might not arrive at all
+    isBlocked = false;
+  }
+
+  @Override
+  public long computeEstimatedLoad(GraphStatistics statistics, int slave, boolean setLoads) {
+    long joinSize = computeTotalEstimatedLoad(statistics) / statistics.getNumberOfChunks();
+    if (setLoads) {
+      ((QueryOperatorBase) getChildTask(0)).computeEstimatedLoad(statistics, slave, setLoads);
+      ((QueryOperatorBase) getChildTask(1)).computeEstimatedLoad(statistics, slave, setLoads);
+      setEstimatedWorkLoad(joinSize);
+    }
+    return joinSize;
+  }
+
+  @Override
+  public long computeTotalEstimatedLoad(GraphStatistics statistics) {
+    QueryOperatorBase leftChild = (QueryOperatorBase) getChildTask(0);
+    long leftLoad = leftChild.computeTotalEstimatedLoad(statistics);
+    if (leftLoad == 0) {
+      return 0;
+    }
+    QueryOperatorBase rightChild = (QueryOperatorBase) getChildTask(1);
+    long rightLoad = rightChild.computeTotalEstimatedLoad(statistics);
+    if (rightLoad == 0) {
+      return 0;
+    }
+    return leftLoad * rightLoad;
+  }
+
+  @Override
+  public long[] getResultVariables() {
+    return resultVars;
+  }
+
+  @Override
+  public long getFirstJoinVar() {
+    return mergeVar;
+  }
+
+  public long getMergeVariable() {
+    return mergeVar;
+  }
+
+  @Override
+  public long getCurrentTaskLoad() {
+    long leftSize = 0;
+    long rightSize = rightGroup.size();
+    for (int computerId = 1; computerId < heads[0].length; computerId++) {
+      leftSize += getSizeOfInputQueue(getInputQueueIndex(0, computerId));
+      rightSize += getSizeOfInputQueue(getInputQueueIndex(1, computerId));
+    }
+    return leftSize + rightSize;
+  }
+
+  @Override
+  protected void executeOperationStep() {
+    startWorkTime();
+    isBlocked = false;
+    for (int i = 0; i < getEmittedMappingsPerRound();) {
+      if (iterator != null) {
+        if (iterator.hasNext()) {
+          emitMapping(iterator.next());
+          i++;
+          continue;
+        }
+        closeIterator();
+      }
+      if (!isGroupComplete) {
+        // collect all mappings of the right child with the next value of the
+        // merge variable
+        int computerId = peek(1);
+        if (computerId == NOT_READY) {
+          isBlocked = true;
+          break;
+        } else if (computerId == EXHAUSTED) {
+          if (!hasGroup) {
+            // no further mappings of the left child can be joined
+            discardInput(0);
+            break;
+          }
+          isGroupComplete = true;
+        } else {
+          long key = getMergeValue(1, heads[1][computerId]);
+          if (!hasGroup) {
+            hasGroup = true;
+            groupKey = key;
+          }
+          if (key == groupKey) {
+            rightGroup.add(heads[1][computerId]);
+            heads[1][computerId] = null;
+            continue;
+          }
+          isGroupComplete = true;
+        }
+      }
+      int computerId = peek(0);
+      if (computerId == NOT_READY) {
+        isBlocked = true;
+        break;
+      } else if (computerId == EXHAUSTED) {
+        // no further mappings of the right child can be joined
+        closeGroup();
+        discardInput(1);
+        break;
+      }
+      Mapping leftMapping = heads[0][computerId];
+      int comparison = Long.compareUnsigned(getMergeValue(0, leftMapping), groupKey);
+      if (comparison < 0) {
+        // there is no join partner
+        numberOfComparisons++;
+        heads[0][computerId] = null;
+        recycleCache.releaseMapping(leftMapping);
+      } else if (comparison == 0) {
+        heads[0][computerId] = null;
+        iterator = new JoinIterator(recycleCache, getResultVariables(), joinVars, leftMapping,
+                getChildVariables(0), rightGroup.iterator(), getChildVariables(1));
+      } else {
+        numberOfComparisons++;
+        closeGroup();
+      }
+    }
+    startIdleTime();
+  }
+
+  /**
+   * Ensures that the first unconsumed mapping of each instance of the child is
+   * known.
+   * 
+   * @param child
+   * @return the id of the computer whose first unconsumed mapping has the
+   *         smallest value of the merge variable, {@link #NOT_READY} or
+   *         {@link #EXHAUSTED}
+   */
+  private int peek(int child) {
+    QueryOperatorBase childTask = (QueryOperatorBase) getChildTask(child);
+    int minComputerId = EXHAUSTED;
+    long minValue = 0;
+    for (int computerId = 1; computerId < heads[child].length; computerId++) {
+      if (heads[child][computerId] == null) {
+        // the finish notification has to be checked first since it is received
+        // after all mappings of the sending child instance
+        boolean hasFinished = childTask.hasFinishedOnComputer(computerId);
+        int queueIndex = getInputQueueIndex(child, computerId);
+        if (!isInputQueueEmpty(queueIndex)) {
+          heads[child][computerId] = consumeMapping(queueIndex);
+        }
+        if (heads[child][computerId] == null) {
+          if (!hasFinished || !isInputQueueEmpty(queueIndex)) {
+            return NOT_READY;
+          }
+          continue;
+        }
+      }
+      long value = getMergeValue(child, heads[child][computerId]);
+      if ((minComputerId == EXHAUSTED) || (Long.compareUnsigned(value, minValue) < 0)) {
+        minComputerId = computerId;
+        minValue = value;
+      }
+    }
+    return minComputerId;
+  }
+
+  private long[] getChildVariables(int child) {
+    return ((QueryOperatorBase) getChildTask(child)).getResultVariables();
+  }
+
+  private long getMergeValue(int child, Mapping mapping) {
+    return mapping.getValue(mergeVar, getChildVariables(child));
+  }
+
+  private void closeIterator() {
+    numberOfComparisons += iterator.getNumberOfComparisons();
+    recycleCache.releaseMapping(iterator.getJoiningMapping());
+    iterator = null;
+  }
+
+  private void closeGroup() {
+    for (Mapping mapping : rightGroup) {
+      recycleCache.releaseMapping(mapping);
+    }
+    rightGroup.clear();
+    hasGroup = false;
+    isGroupComplete = false;
+  }
+
+  private void discardInput(int child) {
+    for (int computerId = 1; computerId < heads[child].length; computerId++) {
+      if (heads[child][computerId] != null) {
+        recycleCache.releaseMapping(heads[child][computerId]);
+        heads[child][computerId] = null;
+      }
+      int queueIndex = getInputQueueIndex(child, computerId);
+      while (!isInputQueueEmpty(queueIndex)) {
+        Mapping mapping = consumeMapping(queueIndex);
+        if (mapping == null) {
+          break;
+        }
+        recycleCache.releaseMapping(mapping);
+      }
+    }
+  }
+
+  private boolean hasHeads() {
+    for (Mapping[] childHeads : heads) {
+      for (Mapping head : childHeads) {
+        if (head != null) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  @Override
+  protected void discardReceivedMappings() {
+    super.discardReceivedMappings();
+    releaseBufferedMappings();
+  }
+
+  @Override
+  public boolean hasInput() {
+    return ((iterator != null) && iterator.hasNext())
+            || (!isBlocked && (super.hasInput() || hasGroup || hasHeads()));
+  }
+
+  @Override
+  protected boolean isFinishedLocally() {
+    return super.isFinishedLocally() && ((iterator == null) || !iterator.hasNext()) && !hasGroup
+            && !hasHeads();
+  }
+
+  @Override
+  protected void closeInternal() {
+    releaseBufferedMappings();
+  }
+
+  private void releaseBufferedMappings() {
+    if (iterator != null) {
+      closeIterator();
+    }
+    closeGroup();
+    for (int child = 0; child < heads.length; child++) {
+      for (int computerId = 1; computerId < heads[child].length; computerId++) {
+        if (heads[child][computerId] != null) {
+          recycleCache.releaseMapping(heads[child][computerId]);
+          heads[child][computerId] = null;
+        }
+      }
+    }
+  }
+
+  @Override
+  public void serialize(DataOutputStream output, boolean useBaseImplementation, int slaveId)
+          throws IOException {
+    if (getParentTask() == null) {
+      output.writeBoolean(useBaseImplementation);
+      output.writeLong(getCoordinatorID());
+    }
+    output.writeInt(QueryOperatorType.TRIPLE_PATTERN_MERGE_JOIN.ordinal());
+    ((QueryOperatorTask) getChildTask(0)).serialize(output, useBaseImplementation, slaveId);
+    ((QueryOperatorTask) getChildTask(1)).serialize(output, useBaseImplementation, slaveId);
+    output.writeLong(getIdOnSlave(slaveId));
+    output.writeInt(getEmittedMappingsPerRound());
+    output.writeLong(getEstimatedTaskLoad());
+    output.writeLong(mergeVar);
+  }
+
+  @Override
+  public void toString(StringBuilder sb, int indention) {
+    indent(sb, indention);
+    sb.append(getClass().getSimpleName());
+    sb.append(" mergeVar: ").append(mergeVar);
+    sb.append(" joinVars: [");
+    String delim = "";
+    for (long var : joinVars) {
+      sb.append(delim).append(var);
+      delim = ",";
+    }
+    sb.append("]");
+    sb.append(" resultVars: [");
+    delim = "";
+    for (long var : resultVars) {
+      sb.append(delim).append(var);
+      delim = ",";
+    }
+    sb.append("]");
+    sb.append(" estimatedWorkLoad: ").append(getEstimatedTaskLoad());
+    sb.append("\n");
+    ((QueryOperatorBase) getChildTask(0)).toString(sb, indention + 1);
+    ((QueryOperatorBase) getChildTask(1)).toString(sb, indention + 1);
+  }
+
+  @Override
+  public String toAlgebraicString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("mergeJoin(");
+    sb.append(getChildTask(0).getID() & 0xff_ffL);
+    sb.append(",").append(getChildTask(1).getID() & 0xff_ffL);
+    sb.append(",").append(mergeVar);
+    sb.append(")");
+    return sb.toString();
+  }
+
+  @Override
+  public void close() {
+    super.close();
+    if (measurementCollector != null) {
+      measurementCollector.measureValue(MeasurementType.QUERY_OPERATION_JOIN_NUMBER_OF_COMPARISONS,
+              Integer.toString((int) (getID() >>> Short.SIZE)), Long.toString(getID() & 0xff_ffL),
+              Long.toString(numberOfComparisons));
+    }
+  }
+
+}
@@ -56,6 +56,16 @@ public class QueryBaseOperatorTaskFactory extends QueryOperatorTaskFactoryBase {
             useTransactions, writeAsynchronously, cacheType);
   }
 
+  @Override
+  public QueryOperatorTask createTriplePatternMergeJoin(long taskId, int emittedMappingsPerRound,
+          QueryOperatorTask leftChild, QueryOperatorTask rightChild, long mergeVar,
+          MapDBStorageOptions storageType, boolean useTransactions, boolean writeAsynchronously,
+          MapDBCacheOptions cacheType) {
+    // the base implementation only provides the hash join
+    return createTriplePatternJoin(taskId, emittedMappingsPerRound, leftChild, rightChild,
+            storageType, useTransactions, writeAsynchronously, cacheType);
+  }
+
   @Override
   public QueryOperatorTask createProjection(long taskId, int emittedMappingsPerRound,
           long[] resultVars, QueryOperatorTask subOperation) {
@@ -0,0 +1,303 @@
+/*
+ * This file is part of Koral.
+ *
+ * Koral is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Koral is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Leser General Public License
+ * along with Koral.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2016 Daniel Janke
+ */
+package de.uni_koblenz.west.koral.common.query.parser;
+
+import de.uni_koblenz.west.koral.common.query.TriplePattern;
+import de.uni_koblenz.west.koral.common.query.execution.QueryOperatorBase;
+import de.uni_koblenz.west.koral.common.query.execution.QueryOperatorTask;
+import de.uni_koblenz.west.koral.common.query.execution.operators.TriplePatternMatchOperator;
+import de.uni_koblenz.west.koral.master.statisticsDB.GraphStatistics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * Determines the order in which the triple patterns of a BGP are joined. The
+ * cardinality of each triple pattern is estimated from the subject, property
+ * and object frequencies of {@link GraphStatistics}. The cardinality of a join
+ * is estimated as |L|*|R|/max(d_L(v),d_R(v)) for each join variable v, whereby
+ * d(v) is the estimated number of distinct values of v. If v is the only
+ * variable of a triple pattern, each match has another value of v. Otherwise,
+ * the matches are assumed to draw the values of v uniformly from the resources
+ * that occur at the position of v in the graph. The cost of a join
+ * tree is the sum of the cardinalities of all its operations. Join trees that
+ * require fewer cartesian products are always preferred.
+ * </p>
+ * 
+ * <p>
+ * For BGPs with up to {@link #MAX_NUMBER_OF_PATTERNS_FOR_DYNAMIC_PROGRAMMING}
+ * triple patterns, the cheapest bushy join tree is determined by dynamic
+ * programming over all subsets of triple patterns. For larger BGPs, the two
+ * operations whose join has the smallest estimated cardinality are joined
+ * greedily until only one operation is left.
+ * </p>
+ * 
+ * @author Daniel Janke &lt;danijankATuni-koblenz.de&gt;
+ *
+ */
+public class JoinOrderOptimizer {
+
+  public static final int MAX_NUMBER_OF_PATTERNS_FOR_DYNAMIC_PROGRAMMING = 12;
+
+  private final GraphStatistics statistics;
+
+  /**
+   * @param statistics
+   *          if <code>null</code>, all triple patterns are assumed to have the
+   *          same cardinality
+   */
+  public JoinOrderOptimizer(GraphStatistics statistics) {
+    this.statistics = statistics;
+  }
+
+  /**
+   * @param triplePatternMatches
+   * @return the cheapest join tree whose leaves refer to the indices of
+   *         <code>triplePatternMatches</code>
+   */
+  public JoinPlan optimize(List<QueryOperatorTask> triplePatternMatches) {
+    JoinPlan[] leaves = new JoinPlan[triplePatternMatches.size()];
+    for (int i = 0; i < leaves.length; i++) {
+      leaves[i] = createLeaf(i, triplePatternMatches.get(i));
+    }
+    if (leaves.length <= MAX_NUMBER_OF_PATTERNS_FOR_DYNAMIC_PROGRAMMING) {
+      return optimizeByDynamicProgramming(leaves);
+    } else {
+      return optimizeGreedily(leaves);
+    }
+  }
+
+  private JoinPlan createLeaf(int index, QueryOperatorTask triplePatternMatch) {
+    double cardinality = statistics == null ? 1
+            : ((QueryOperatorBase) triplePatternMatch).computeTotalEstimatedLoad(statistics);
+    TriplePattern pattern = triplePatternMatch instanceof TriplePatternMatchOperator
+            ? ((TriplePatternMatchOperator) triplePatternMatch).getTriplePattern() : null;
+    long[] vars = triplePatternMatch.getResultVariables();
+    Map<Long, Double> distinctValues = new HashMap<>();
+    for (long var : vars) {
+      distinctValues.put(var, estimateDistinctValues(var, vars.length, pattern, cardinality));
+    }
+    return new JoinPlan(index, cardinality, distinctValues);
+  }
+
+  private double estimateDistinctValues(long var, int numberOfVars, TriplePattern pattern,
+          double cardinality) {
+    if ((statistics == null) || (pattern == null) || (numberOfVars <= 1) || (cardinality <= 1)) {
+      return Math.max(1, cardinality);
+    }
+    long numberOfResources = Long.MAX_VALUE;
+    if (pattern.isSubjectVariable() && (pattern.getSubject() == var)) {
+      numberOfResources = min(numberOfResources, statistics.getNumberOfDistinctSubjects());
+    }
+    if (pattern.isPropertyVariable() && (pattern.getProperty() == var)) {
+      numberOfResources = min(numberOfResources, statistics.getNumberOfDistinctProperties());
+    }
+    if (pattern.isObjectVariable() && (pattern.getObject() == var)) {
+      numberOfResources = min(numberOfResources, statistics.getNumberOfDistinctObjects());
+    }
+    if (numberOfResources == Long.MAX_VALUE) {
+      return cardinality;
+    }
+    // expected number of distinct values if cardinality values are drawn
+    // uniformly from numberOfResources values
+    double distinctValues = -numberOfResources
+            * Math.expm1(cardinality * Math.log1p(-1.0 / numberOfResources));
+    return Math.max(1, Math.min(cardinality, distinctValues));
+  }
+
+  /**
+   * @param numberOfDistinctValues
+   *          -1, if unknown
+   */
+  private long min(long numberOfResources, long numberOfDistinctValues) {
+    return numberOfDistinctValues <= 0 ? numberOfResources
+            : Math.min(numberOfResources, numberOfDistinctValues);
+  }
+
+  private JoinPlan optimizeByDynamicProgramming(JoinPlan[] leaves) {
+    JoinPlan[] bestPlans = new JoinPlan[1 << leaves.length];
+    for (int i = 0; i < leaves.length; i++) {
+      bestPlans[1 << i] = leaves[i];
+    }
+    for (int set = 1; set < bestPlans.length; set++) {
+      if (Integer.bitCount(set) < 2) {
+        continue;
+      }
+      // all subsets are smaller than set and thus already planned
+      for (int left = (set - 1) & set; left > 0; left = (left - 1) & set) {
+        JoinPlan candidate = join(bestPlans[left], bestPlans[set ^ left]);
+        if ((bestPlans[set] == null) || candidate.isCheaperThan(bestPlans[set])) {
+          bestPlans[set] = candidate;
+        }
+      }
+    }
+    return bestPlans[bestPlans.length - 1];
+  }
+
+  private JoinPlan optimizeGreedily(JoinPlan[] leaves) {
+    List<JoinPlan> plans = new ArrayList<>(Arrays.asList(leaves));
+    while (plans.size() > 1) {
+      JoinPlan bestJoin = null;
+      int bestLeft = -1;
+      int bestRight = -1;
+      for (int left = 0; left < plans.size(); left++) {
+        for (int right = left + 1; right < plans.size(); right++) {
+          JoinPlan candidate = join(plans.get(left), plans.get(right));
+          if ((bestJoin == null) || candidate.isSmallerThan(bestJoin)) {
+            bestJoin = candidate;
+            bestLeft = left;
+            bestRight = right;
+          }
+        }
+      }
+      plans.remove(bestRight);
+      plans.set(bestLeft, bestJoin);
+    }
+    return plans.get(0);
+  }
+
+  private JoinPlan join(JoinPlan left, JoinPlan right) {
+    double cardinality = left.cardinality * right.cardinality;
+    Map<Long, Double> distinctValues = new HashMap<>(left.distinctValues);
+    boolean isCartesianProduct = true;
+    for (Map.Entry<Long, Double> entry : right.distinctValues.entrySet()) {
+      Double leftDistinctValues = distinctValues.get(entry.getKey());
+      if (leftDistinctValues == null) {
+        distinctValues.put(entry.getKey(), entry.getValue());
+      } else {
+        isCartesianProduct = false;
+        cardinality /= Math.max(leftDistinctValues, entry.getValue());
+        distinctValues.put(entry.getKey(), Math.min(leftDistinctValues, entry.getValue()));
+      }
+    }
+    for (Map.Entry<Long, Double> entry : distinctValues.entrySet()) {
+      if (entry.getValue() > cardinality) {
+        entry.setValue(Math.max(1, cardinality));
+      }
+    }
+    return new JoinPlan(left, right, cardinality, distinctValues, isCartesianProduct);
+  }
+
+  /**
+   * A node of a join tree.
+   * 
+   * @author Daniel Janke &lt;danijankATuni-koblenz.de&gt;
+   *
+   */
+  public static class JoinPlan {
+
+    private final int leafIndex;
+
+    private final JoinPlan leftChild;
+
+    private final JoinPlan rightChild;
+
+    private final double cardinality;
+
+    private final double cost;
+
+    private final int numberOfCartesianProducts;
+
+    /**
+     * variable -&gt; estimated number of distinct values
+     */
+    private final Map<Long, Double> distinctValues;
+
+    private JoinPlan(int leafIndex, double cardinality, Map<Long, Double> distinctValues) {
+      this.leafIndex = leafIndex;
+      leftChild = null;
+      rightChild = null;
+      this.cardinality = cardinality;
+      cost = cardinality;
+      numberOfCartesianProducts = 0;
+      this.distinctValues = distinctValues;
+    }
+
+    private JoinPlan(JoinPlan leftChild, JoinPlan rightChild, double cardinality,
+            Map<Long, Double> distinctValues, boolean isCartesianProduct) {
+      leafIndex = -1;
+      this.leftChild = leftChild;
+      this.rightChild = rightChild;
+      this.cardinality = cardinality;
+      cost = leftChild.cost + rightChild.cost + cardinality;
+      numberOfCartesianProducts = leftChild.numberOfCartesianProducts
+              + rightChild.numberOfCartesianProducts + (isCartesianProduct ? 1 : 0);
+      this.distinctValues = distinctValues;
+    }
+
+    public boolean isLeaf() {
+      return leftChild == null;
+    }
+
+    /**
+     * @return the index of the triple pattern if this is a leaf, otherwise -1
+     */
+    public int getLeafIndex() {
+      return leafIndex;
+    }
+
+    public JoinPlan getLeftChild() {
+      return leftChild;
+    }
+
+    public JoinPlan getRightChild() {
+      return rightChild;
+    }
+
+    public double getEstimatedCardinality() {
+      return cardinality;
+    }
+
+    public double getEstimatedCost() {
+      return cost;
+    }
+
+    private boolean isCheaperThan(JoinPlan other) {
+      if (numberOfCartesianProducts != other.numberOfCartesianProducts) {
+        return numberOfCartesianProducts < other.numberOfCartesianProducts;
+      }
+      return cost < other.cost;
+    }
+
+    private boolean isSmallerThan(JoinPlan other) {
+      if (numberOfCartesianProducts != other.numberOfCartesianProducts) {
+        return numberOfCartesianProducts < other.numberOfCartesianProducts;
+      }
+      if (cardinality != other.cardinality) {
+        return cardinality < other.cardinality;
+      }
+      return cost < other.cost;
+    }
+
+    @Override
+    public String toString() {
+      if (isLeaf()) {
+        return Integer.toString(leafIndex);
+      } else {
+        return "(" + leftChild + "," + rightChild + ")";
+      }
+    }
+
+  }
+
+}
@@ -20,12 +20,15 @@ package de.uni_koblenz.west.koral.common.query.parser;
 
 /**
  * Defines the order in which the triple patterns of a BGP should be joined.
+ * {@link #LEFT_LINEAR}, {@link #RIGHT_LINEAR} and {@link #BUSHY} join the
+ * triple patterns in their textual order. {@link #COST_BASED} chooses the join
+ * tree with the lowest estimated cost, see {@link JoinOrderOptimizer}.
  * 
  * @author Daniel Janke &lt;danijankATuni-koblenz.de&gt;
  *
  */
 public enum QueryExecutionTreeType {
 
-  LEFT_LINEAR, RIGHT_LINEAR, BUSHY;
+  LEFT_LINEAR, RIGHT_LINEAR, BUSHY, COST_BASED;
 
 }
@@ -69,18 +69,27 @@ import de.uni_koblenz.west.koral.common.query.execution.QueryOperatorBase;
 import de.uni_koblenz.west.koral.common.query.execution.QueryOperatorTask;
 import de.uni_koblenz.west.koral.common.query.execution.QueryOperatorTaskFactoryBase;
 import de.uni_koblenz.west.koral.common.query.execution.operators.DefaultQueryOperatorTaskFactory;
+import de.uni_koblenz.west.koral.common.query.execution.operators.TriplePatternMatchOperator;
 import de.uni_koblenz.west.koral.common.query.execution.operators.base_impl.QueryBaseOperatorTaskFactory;
+import de.uni_koblenz.west.koral.common.query.parser.JoinOrderOptimizer.JoinPlan;
 import de.uni_koblenz.west.koral.master.dictionary.DictionaryEncoder;
 import de.uni_koblenz.west.koral.master.statisticsDB.GraphStatistics;
 import de.uni_koblenz.west.koral.slave.triple_store.TripleStoreAccessor;
+import de.uni_koblenz.west.koral.slave.triple_store.impl.IndexType;
+import de.uni_koblenz.west.koral.slave.triple_store.impl.TripleStore;
 
 import java.io.File;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Deque;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
 
 /**
  * Checks whether the query only consists of the supported operations and
@@ -119,6 +128,8 @@ public class SparqlParser implements OpVisitor {
 
   private final GraphStatistics statistics;
 
+  private Set<IndexType> tripleStoreIndices;
+
   public SparqlParser(DictionaryEncoder dictionary, GraphStatistics statistics,
           TripleStoreAccessor tripleStore, short slaveId, int queryId, long coordinatorId,
           int numberOfSlaves, int cacheSize, File cacheDirectory, int emittedMappingsPerRound,
@@ -152,6 +163,16 @@ public class SparqlParser implements OpVisitor {
     this.storageType = storageType;
     this.useTransactions = useTransactions;
     this.writeAsynchronously = writeAsynchronously;
+    tripleStoreIndices = TripleStore.DEFAULT_INDICES;
+  }
+
+  /**
+   * @param additionalIndices
+   *          the optional indices that are stored on all slaves in addition to
+   *          the default indices
+   */
+  public void setAdditionalTripleStoreIndices(Set<IndexType> additionalIndices) {
+    tripleStoreIndices = TripleStore.getIndices(additionalIndices);
   }
 
   public void setUseBaseImplementation(boolean useBaseOperators) {
@@ -220,6 +241,11 @@ public class SparqlParser implements OpVisitor {
             createBushyTree(numberOfTriplePattern);
           }
           break;
+        case COST_BASED:
+          if (!tripleIter.hasNext()) {
+            createCostBasedTree(numberOfTriplePattern);
+          }
+          break;
       }
     }
   }
@@ -247,16 +273,94 @@ public class SparqlParser implements OpVisitor {
     stack.push(nextWorkingQueue.poll());
   }
 
+  private void createCostBasedTree(int numberOfTriplePattern) {
+    LinkedList<QueryOperatorTask> triplePatternMatches = new LinkedList<>();
+    for (int i = 0; i < numberOfTriplePattern; i++) {
+      triplePatternMatches.addFirst(stack.pop());
+    }
+    JoinPlan plan = new JoinOrderOptimizer(statistics).optimize(triplePatternMatches);
+    stack.push(createJoinTree(plan, new ArrayList<>(triplePatternMatches)));
+  }
+
+  private QueryOperatorTask createJoinTree(JoinPlan plan,
+          List<QueryOperatorTask> triplePatternMatches) {
+    if (plan.isLeaf()) {
+      return triplePatternMatches.get(plan.getLeafIndex());
+    }
+    QueryOperatorTask left = createJoinTree(plan.getLeftChild(), triplePatternMatches);
+    QueryOperatorTask right = createJoinTree(plan.getRightChild(), triplePatternMatches);
+    return createTriplePatternJoin(left, right);
+  }
+
   private QueryOperatorTask createTriplePatternJoin(QueryOperatorTask left,
           QueryOperatorTask right) {
-    QueryOperatorTask join = taskFactory.createTriplePatternJoin(slaveId, queryId,
-            emittedMappingsPerRound, left, right, storageType, useTransactions, writeAsynchronously,
-            cacheType);
+    QueryOperatorTask join = null;
+    long mergeVar = getMergeVariable(left, right);
+    if (mergeVar != -1) {
+      join = taskFactory.createTriplePatternMergeJoin(slaveId, queryId, emittedMappingsPerRound,
+              left, right, mergeVar, storageType, useTransactions, writeAsynchronously, cacheType);
+    } else {
+      join = taskFactory.createTriplePatternJoin(slaveId, queryId, emittedMappingsPerRound, left,
+              right, storageType, useTransactions, writeAsynchronously, cacheType);
+    }
     ((QueryOperatorBase) left).setParentTask(join);
     ((QueryOperatorBase) right).setParentTask(join);
     return join;
   }
 
+  /**
+   * If both children are triple pattern matches that can be returned sorted by
+   * a common variable, the indices that return this order are requested from
+   * the triple store. If the default indices already return the same order,
+   * they are kept.
+   * 
+   * @param left
+   * @param right
+   * @return the variable by which the mappings of both triple pattern matches
+   *         are sorted or -1 if the mappings cannot be joined by a merge join
+   */
+  private long getMergeVariable(QueryOperatorTask left, QueryOperatorTask right) {
+    if (isBaseImplementationUsed() || !(left instanceof TriplePatternMatchOperator)
+            || !(right instanceof TriplePatternMatchOperator)) {
+      return -1;
+    }
+    TriplePatternMatchOperator leftMatch = (TriplePatternMatchOperator) left;
+    TriplePatternMatchOperator rightMatch = (TriplePatternMatchOperator) right;
+    long sortVar = leftMatch.getSortVariable();
+    if ((sortVar != -1) && (sortVar == rightMatch.getSortVariable())) {
+      return sortVar;
+    }
+    Map<Long, IndexType> leftOrders = getPossibleOrders(leftMatch);
+    Map<Long, IndexType> rightOrders = getPossibleOrders(rightMatch);
+    for (Entry<Long, IndexType> leftOrder : leftOrders.entrySet()) {
+      IndexType rightIndex = rightOrders.get(leftOrder.getKey());
+      if (rightIndex != null) {
+        leftMatch.setIndex(leftOrder.getValue());
+        rightMatch.setIndex(rightIndex);
+        return leftOrder.getKey();
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @param match
+   * @return sort variable -&gt; index of the triple store that returns the
+   *         matches in this order
+   */
+  private Map<Long, IndexType> getPossibleOrders(TriplePatternMatchOperator match) {
+    Map<Long, IndexType> orders = new TreeMap<>();
+    for (IndexType index : tripleStoreIndices) {
+      if (index.canAnswer(match.getTriplePattern().getType())) {
+        long sortVar = index.getSortVariable(match.getTriplePattern());
+        if ((sortVar != -1) && !orders.containsKey(sortVar)) {
+          orders.put(sortVar, index);
+        }
+      }
+    }
+    return orders;
+  }
+
   public void visit(Triple triple) {
     TriplePatternType type = TriplePatternType.SPO;
     long subject = 0;
@@ -33,6 +33,7 @@ import de.uni_koblenz.west.koral.common.logger.LoggerFactory;
 import de.uni_koblenz.west.koral.common.measurement.MeasurementCollector;
 import de.uni_koblenz.west.koral.common.messages.MessageListener;
 import de.uni_koblenz.west.koral.common.messages.MessageNotifier;
+import de.uni_koblenz.west.koral.common.networManager.MessagePoller;
 import de.uni_koblenz.west.koral.common.networManager.NetworkManager;
 import de.uni_koblenz.west.koral.slave.triple_store.TripleStoreAccessor;
 
@@ -53,6 +54,12 @@ import java.util.logging.Logger;
  */
 public abstract class KoralSystem extends Thread implements MessageNotifier {
 
+  /**
+   * The maximal time in milliseconds the main loop waits for the next message.
+   * After it has elapsed, the main loop checks whether it should terminate.
+   */
+  private static final long MAX_WAITING_TIME = 100;
+
   protected Logger logger;
 
   protected MeasurementCollector measurementCollector;
@@ -61,6 +68,8 @@ public abstract class KoralSystem extends Thread implements MessageNotifier {
 
   private final NetworkManager networkManager;
 
+  private final MessagePoller messagePoller;
+
   private final WorkerManager workerManager;
 
   /**
@@ -118,6 +127,8 @@ public abstract class KoralSystem extends Thread implements MessageNotifier {
     }
 
     this.networkManager = networkManager;
+    messagePoller = new MessagePoller();
+    networkManager.registerReceiver(messagePoller);
 
     listeners = new HashMap<>();
 
@@ -133,6 +144,20 @@ public abstract class KoralSystem extends Thread implements MessageNotifier {
     return networkManager;
   }
 
+  protected MessagePoller getMessagePoller() {
+    return messagePoller;
+  }
+
+  /**
+   * Blocks until a message has arrived at one of the sockets registered at
+   * {@link #getMessagePoller()} or {@link #MAX_WAITING_TIME} has elapsed.
+   * 
+   * @return <code>true</code>, iff a message can be received
+   */
+  protected boolean waitForMessage() {
+    return messagePoller.poll(MAX_WAITING_TIME);
+  }
+
   protected WorkerManager getWorkerManager() {
     return workerManager;
   }
@@ -328,6 +353,7 @@ public abstract class KoralSystem extends Thread implements MessageNotifier {
 
   public void shutDown() {
     workerManager.close();
+    messagePoller.close();
     networkManager.close();
     if (measurementCollector != null) {
       measurementCollector.close();
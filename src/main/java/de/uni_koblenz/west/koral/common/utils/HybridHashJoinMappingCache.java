@@ -0,0 +1,777 @@
+/*
+ * This file is part of Koral.
+ *
+ * Koral is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Koral is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Leser General Public License
+ * along with Koral.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2016 Daniel Janke
+ */
+package de.uni_koblenz.west.koral.common.utils;
+
+import de.uni_koblenz.west.koral.common.query.Mapping;
+import de.uni_koblenz.west.koral.common.query.MappingRecycleCache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * <p>
+ * A {@link JoinMappingCache} that stores the mappings in memory as long as the
+ * {@link JoinMemoryBudget} of the query is not exceeded. The mappings are
+ * distributed over {@value #NUMBER_OF_PARTITIONS} partitions by the hash value
+ * of their join key. Each partition is an
+ * {@link OpenAddressingJoinMappingCache}.
+ * </p>
+ *
+ * <p>
+ * The two caches of a join operation are connected via
+ * {@link #setJoinPartner(HybridHashJoinMappingCache)}. If the budget is
+ * exceeded, the partition with the largest memory consumption is spilled to a
+ * file on both sides of the join. Thereby, all mappings that have been in
+ * memory before are marked as already joined. Mappings that are added to a
+ * spilled partition afterwards are appended to the spill file. Probing a
+ * spilled partition returns no candidates, i.e., all in-memory partitions
+ * keep producing results while the joins of spilled partitions are deferred.
+ * </p>
+ *
+ * <p>
+ * After both children have finished, {@link #getNextSpilledMapping()} and
+ * {@link #getSpilledMatchCandidates(Mapping, long[])} join the spilled
+ * partitions one after the other. For each partition, the spill file of the
+ * join partner is loaded into memory and the spill file of this cache is
+ * streamed. Pairs of mappings that both have been in memory before spilling
+ * are skipped since they have already been joined.
+ * </p>
+ *
+ * <p>
+ * If the spilled partition of the join partner does not fit into the
+ * remaining budget, the spilled partition is split on both sides of the join
+ * into {@value #NUMBER_OF_PARTITIONS} sub-partitions by a hash function with
+ * a different seed. This is repeated up to
+ * {@value #MAX_REPARTITIONING_DEPTH} times. If a sub-partition is still too
+ * large thereafter, e.g., because most mappings share the same join key, it
+ * is loaded anyway and a warning is logged.
+ * </p>
+ *
+ * <p>
+ * For Cartesian products, i.e., if there are no join variables, hash
+ * partitioning does not help since all mappings have the same join key.
+ * Therefore, all mappings are stored in a single partition. If it is spilled,
+ * the spill file of the join partner is loaded in blocks that fit into the
+ * budget and the spill file of this cache is streamed once per block.
+ * </p>
+ *
+ * <p>
+ * WARNING: This class is not thread safe in order to avoid synchronization
+ * overhead!
+ * </p>
+ *
+ * @author Daniel Janke &lt;danijankATuni-koblenz.de&gt;
+ *
+ */
+public class HybridHashJoinMappingCache implements JoinMappingCache {
+
+  private static final int NUMBER_OF_PARTITIONS = 32;
+
+  /**
+   * Estimated number of bytes that the hash table of an
+   * {@link OpenAddressingJoinMappingCache} requires per mapping in addition to
+   * the mapping itself.
+   */
+  private static final int ENTRY_OVERHEAD = 32;
+
+  /**
+   * Memory is reserved from the shared {@link JoinMemoryBudget} in chunks of
+   * this size in order to reduce contention.
+   */
+  private static final long RESERVATION_CHUNK_SIZE = 1 << 20;
+
+  /**
+   * The maximal number of times a spilled partition is split into
+   * sub-partitions.
+   */
+  private static final int MAX_REPARTITIONING_DEPTH = 3;
+
+  private final Logger logger;
+
+  private final JoinMemoryBudget budget;
+
+  private final File cacheDirectory;
+
+  private final String uniqueFileNamePrefix;
+
+  private final MappingRecycleCache recycleCache;
+
+  private final long[] variables;
+
+  private final int[] variableComparisonOrder;
+
+  private final int numberOfJoinVars;
+
+  private HybridHashJoinMappingCache partner;
+
+  /**
+   * <code>null</code>, if the partition is empty or spilled
+   */
+  private final OpenAddressingJoinMappingCache[] partitions;
+
+  private final long[] bytesOfPartition;
+
+  private final boolean[] isSpilled;
+
+  private final DataOutputStream[] spillOutputs;
+
+  private long usedBytes;
+
+  private long reservedBytes;
+
+  private long size;
+
+  /**
+   * The ids of all spill files of this cache that have not been deleted, yet.
+   */
+  private final Set<String> spillFileIds;
+
+  /*
+   * variables for joining the spilled partitions
+   */
+
+  /**
+   * The spilled (sub-)partitions that still have to be joined.
+   * <code>null</code> until the join of the spilled partitions starts.
+   */
+  private Deque<SpilledPartition> pendingSpilledPartitions;
+
+  private DataInputStream spillInput;
+
+  /**
+   * The number of bytes of the loaded partition of the join partner that are
+   * reserved from the budget.
+   */
+  private long bytesOfPartnerPartition;
+
+  private OpenAddressingJoinMappingCache joinedPartnerMappings;
+
+  private OpenAddressingJoinMappingCache unjoinedPartnerMappings;
+
+  private boolean isSpilledMappingJoined;
+
+  /**
+   * @param budget
+   * @param cacheDirectory
+   * @param recycleCache
+   * @param uniqueFileNamePrefix
+   * @param mappingVariables
+   * @param variableComparisonOrder
+   *          must contain all variables of the mapping. First variable has
+   *          index 0. The join variables must occur first!
+   * @param numberOfJoinVars
+   * @param logger
+   */
+  public HybridHashJoinMappingCache(JoinMemoryBudget budget, File cacheDirectory,
+          MappingRecycleCache recycleCache, String uniqueFileNamePrefix, long[] mappingVariables,
+          int[] variableComparisonOrder, int numberOfJoinVars, Logger logger) {
+    this.logger = logger;
+    this.budget = budget;
+    this.cacheDirectory = cacheDirectory;
+    this.uniqueFileNamePrefix = uniqueFileNamePrefix;
+    this.recycleCache = recycleCache;
+    variables = mappingVariables;
+    this.variableComparisonOrder = variableComparisonOrder;
+    this.numberOfJoinVars = numberOfJoinVars;
+    partitions = new OpenAddressingJoinMappingCache[NUMBER_OF_PARTITIONS];
+    bytesOfPartition = new long[NUMBER_OF_PARTITIONS];
+    isSpilled = new boolean[NUMBER_OF_PARTITIONS];
+    spillOutputs = new DataOutputStream[NUMBER_OF_PARTITIONS];
+    spillFileIds = new HashSet<>();
+  }
+
+  private OpenAddressingJoinMappingCache createPartition() {
+    return new OpenAddressingJoinMappingCache(recycleCache, variables, variableComparisonOrder,
+            numberOfJoinVars);
+  }
+
+  /**
+   * Connects the caches of both children of a join operation. Partitions are
+   * always spilled on both sides.
+   *
+   * @param partner
+   */
+  public void setJoinPartner(HybridHashJoinMappingCache partner) {
+    this.partner = partner;
+    partner.partner = this;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  @Override
+  public long size() {
+    return size;
+  }
+
+  public boolean hasSpilledPartitions() {
+    for (boolean spilled : isSpilled) {
+      if (spilled) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public void add(Mapping mapping) {
+    int partition = getPartition(mapping, variables);
+    if (!isSpilled[partition]) {
+      long bytes = mapping.getLengthOfMappingInByteArray() + ENTRY_OVERHEAD;
+      while (!reserve(bytes) && !isSpilled[partition]) {
+        spillLargestPartition(partition);
+      }
+      if (!isSpilled[partition]) {
+        if (partitions[partition] == null) {
+          partitions[partition] = createPartition();
+        }
+        partitions[partition].add(mapping);
+        bytesOfPartition[partition] += bytes;
+        usedBytes += bytes;
+      }
+    }
+    if (isSpilled[partition]) {
+      writeToSpillFile(partition, mapping, false);
+    }
+    size++;
+  }
+
+  private boolean reserve(long bytes) {
+    long missingBytes = (usedBytes + bytes) - reservedBytes;
+    if (missingBytes <= 0) {
+      return true;
+    }
+    if (budget.tryReserve(Math.max(missingBytes, RESERVATION_CHUNK_SIZE))) {
+      reservedBytes += Math.max(missingBytes, RESERVATION_CHUNK_SIZE);
+      return true;
+    } else if (budget.tryReserve(missingBytes)) {
+      reservedBytes += missingBytes;
+      return true;
+    } else {
+      return false;
+    }
+  }
+
+  private void releaseUnusedBytes() {
+    budget.release(reservedBytes - usedBytes);
+    reservedBytes = usedBytes;
+  }
+
+  /**
+   * Spills the in-memory partition that occupies the most memory on both
+   * sides of the join. If no partition occupies memory, the partition
+   * <code>defaultPartition</code> is spilled.
+   *
+   * @param defaultPartition
+   */
+  private void spillLargestPartition(int defaultPartition) {
+    int largestPartition = defaultPartition;
+    long largestSize = 0;
+    for (int i = 0; i < partitions.length; i++) {
+      if (isSpilled[i]) {
+        continue;
+      }
+      long partitionSize = bytesOfPartition[i]
+              + (partner == null ? 0 : partner.bytesOfPartition[i]);
+      if (partitionSize > largestSize) {
+        largestPartition = i;
+        largestSize = partitionSize;
+      }
+    }
+    spillPartition(largestPartition);
+    if (partner != null) {
+      partner.spillPartition(largestPartition);
+    }
+  }
+
+  private void spillPartition(int partition) {
+    if (isSpilled[partition]) {
+      return;
+    }
+    // the spill file is created even if the partition is empty
+    getSpillOutput(partition);
+    OpenAddressingJoinMappingCache inMemoryPartition = partitions[partition];
+    if (inMemoryPartition != null) {
+      for (Mapping mapping : inMemoryPartition) {
+        writeToSpillFile(partition, mapping, true);
+      }
+      inMemoryPartition.close();
+      partitions[partition] = null;
+    }
+    isSpilled[partition] = true;
+    usedBytes -= bytesOfPartition[partition];
+    bytesOfPartition[partition] = 0;
+    releaseUnusedBytes();
+  }
+
+  private void writeToSpillFile(int partition, Mapping mapping, boolean isAlreadyJoined) {
+    try {
+      DataOutputStream output = getSpillOutput(partition);
+      output.writeBoolean(isAlreadyJoined);
+      output.writeInt(mapping.getLengthOfMappingInByteArray());
+      output.write(mapping.getByteArray(), mapping.getFirstIndexOfMappingInByteArray(),
+              mapping.getLengthOfMappingInByteArray());
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private DataOutputStream getSpillOutput(int partition) {
+    if (spillOutputs[partition] == null) {
+      if (!cacheDirectory.exists()) {
+        cacheDirectory.mkdirs();
+      }
+      try {
+        spillOutputs[partition] = createSpillOutput(Integer.toString(partition));
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+    return spillOutputs[partition];
+  }
+
+  private void closeSpillOutput(int partition) {
+    if (spillOutputs[partition] != null) {
+      try {
+        spillOutputs[partition].close();
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+      spillOutputs[partition] = null;
+    }
+  }
+
+  private DataOutputStream createSpillOutput(String spillFileId) throws IOException {
+    spillFileIds.add(spillFileId);
+    return new DataOutputStream(
+            new BufferedOutputStream(new FileOutputStream(getSpillFile(spillFileId), true)));
+  }
+
+  private File getSpillFile(String spillFileId) {
+    return new File(cacheDirectory.getAbsolutePath() + File.separatorChar
+            + uniqueFileNamePrefix + "partition" + spillFileId);
+  }
+
+  private void deleteSpillFile(String spillFileId) {
+    getSpillFile(spillFileId).delete();
+    spillFileIds.remove(spillFileId);
+  }
+
+  private int getPartition(Mapping mapping, long[] mappingVars) {
+    return getPartition(mapping, mappingVars, 0);
+  }
+
+  /**
+   * @param mapping
+   * @param mappingVars
+   * @param depth
+   *          0 for the partitions, <code>i</code> for the sub-partitions that
+   *          are created by the i-th split of a spilled partition
+   * @return
+   */
+  private int getPartition(Mapping mapping, long[] mappingVars, int depth) {
+    if (isCartesianProduct()) {
+      return 0;
+    }
+    long hash = depth;
+    for (int i = 0; i < numberOfJoinVars; i++) {
+      hash = (hash * 31) + mapping.getValue(variables[variableComparisonOrder[i]], mappingVars);
+    }
+    // finalization step of MurmurHash3
+    hash ^= hash >>> 33;
+    hash *= 0xff51_afd7_ed55_8ccdL;
+    hash ^= hash >>> 33;
+    if (depth > 0) {
+      hash *= 0xc4ce_b9fe_1a85_ec53L;
+      hash ^= hash >>> 33;
+    }
+    return (int) ((hash & Long.MAX_VALUE) % NUMBER_OF_PARTITIONS);
+  }
+
+  private boolean isCartesianProduct() {
+    return numberOfJoinVars == 0;
+  }
+
+  @Override
+  public Iterator<Mapping> getMatchCandidates(Mapping mapping, long[] mappingVars) {
+    int partition = getPartition(mapping, mappingVars);
+    if (isSpilled[partition]) {
+      // the join is deferred until the spilled partitions are joined
+      return Collections.emptyIterator();
+    } else if (partitions[partition] == null) {
+      return Collections.emptyIterator();
+    }
+    return partitions[partition].getMatchCandidates(mapping, mappingVars);
+  }
+
+  @Override
+  public Iterator<Mapping> iterator() {
+    return new ConcatenatingIterator(partitions);
+  }
+
+  /**
+   * @return true, if mappings of spilled partitions have not been returned by
+   *         {@link #getNextSpilledMapping()}, yet
+   */
+  public boolean hasUnjoinedSpilledMappings() {
+    if (spillInput != null) {
+      return true;
+    }
+    if (pendingSpilledPartitions == null) {
+      return hasSpilledPartitions();
+    }
+    return !pendingSpilledPartitions.isEmpty();
+  }
+
+  /**
+   * May only be called after all mappings of both sides of the join have been
+   * added.
+   *
+   * @return the next mapping of a spilled partition of this cache or
+   *         <code>null</code> if all spilled partitions have been processed.
+   */
+  public Mapping getNextSpilledMapping() {
+    try {
+      if (pendingSpilledPartitions == null) {
+        pendingSpilledPartitions = new ArrayDeque<>();
+        for (int i = 0; i < isSpilled.length; i++) {
+          if (isSpilled[i]) {
+            closeSpillOutput(i);
+            partner.closeSpillOutput(i);
+            pendingSpilledPartitions.add(new SpilledPartition(Integer.toString(i), 0));
+          }
+        }
+      }
+      while (true) {
+        if (spillInput == null) {
+          SpilledPartition partition = pendingSpilledPartitions.poll();
+          if (partition == null) {
+            return null;
+          }
+          if (!loadPartnerPartition(partition)) {
+            splitSpilledPartition(partition);
+            continue;
+          }
+          spillInput = new DataInputStream(new BufferedInputStream(
+                  new FileInputStream(getSpillFile(partition.id))));
+        }
+        try {
+          isSpilledMappingJoined = spillInput.readBoolean();
+          byte[] mapping = new byte[spillInput.readInt()];
+          spillInput.readFully(mapping);
+          return recycleCache.createMapping(mapping, 0, mapping.length);
+        } catch (EOFException e) {
+          // the complete partition has been processed
+          closeSpilledPartitionJoin();
+        }
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Loads the spilled partition of the join partner into memory. The loaded
+   * mappings are reserved from the budget. For Cartesian products, only the
+   * next block of mappings that fits into the budget is loaded. The remaining
+   * mappings of the partner are scheduled to be joined next.
+   *
+   * @param partition
+   * @return <code>false</code>, if the partition does not fit into the budget
+   *         and should be split. In this case, nothing is loaded.
+   * @throws IOException
+   */
+  private boolean loadPartnerPartition(SpilledPartition partition) throws IOException {
+    joinedPartnerMappings = partner.createPartition();
+    unjoinedPartnerMappings = partner.createPartition();
+    File partnerFile = partner.getSpillFile(partition.id);
+    if (!partnerFile.exists()) {
+      return true;
+    }
+    boolean isBudgetExceeded = false;
+    long offset = partition.partnerOffset;
+    try (FileInputStream fileInput = new FileInputStream(partnerFile);
+            DataInputStream input = new DataInputStream(new BufferedInputStream(fileInput));) {
+      fileInput.getChannel().position(offset);
+      byte[] buffer = new byte[0];
+      while (true) {
+        boolean isJoined;
+        try {
+          isJoined = input.readBoolean();
+        } catch (EOFException e) {
+          break;
+        }
+        int length = input.readInt();
+        if (buffer.length != length) {
+          buffer = new byte[length];
+        }
+        input.readFully(buffer);
+        long bytes = length + ENTRY_OVERHEAD;
+        if (reserve(bytes)) {
+          usedBytes += bytes;
+          bytesOfPartnerPartition += bytes;
+        } else if (isCartesianProduct() && (offset > partition.partnerOffset)) {
+          // the current mapping is loaded with the next block
+          pendingSpilledPartitions.addFirst(new SpilledPartition(partition.id, 0, offset));
+          break;
+        } else if (!isCartesianProduct() && (partition.depth < MAX_REPARTITIONING_DEPTH)) {
+          releasePartnerPartition();
+          return false;
+        } else if (!isBudgetExceeded) {
+          isBudgetExceeded = true;
+          if (logger != null) {
+            logger.warning("The spilled partition " + partition.id + " of "
+                    + uniqueFileNamePrefix + " cannot be split any further and exceeds the join"
+                    + " memory budget. It is joined in memory anyway.");
+          }
+        }
+        Mapping mapping = recycleCache.createMapping(buffer, 0, length);
+        if (isJoined) {
+          joinedPartnerMappings.add(mapping);
+        } else {
+          unjoinedPartnerMappings.add(mapping);
+        }
+        recycleCache.releaseMapping(mapping);
+        offset += 1 + Integer.BYTES + length;
+      }
+    }
+    return true;
+  }
+
+  private void releasePartnerPartition() {
+    if (joinedPartnerMappings != null) {
+      joinedPartnerMappings.close();
+      joinedPartnerMappings = null;
+    }
+    if (unjoinedPartnerMappings != null) {
+      unjoinedPartnerMappings.close();
+      unjoinedPartnerMappings = null;
+    }
+    usedBytes -= bytesOfPartnerPartition;
+    bytesOfPartnerPartition = 0;
+    releaseUnusedBytes();
+  }
+
+  /**
+   * Splits the spill files of <code>partition</code> on both sides of the
+   * join into sub-partitions and schedules them to be joined next.
+   *
+   * @param partition
+   * @throws IOException
+   */
+  private void splitSpilledPartition(SpilledPartition partition) throws IOException {
+    int depth = partition.depth + 1;
+    splitSpillFile(partition.id, depth);
+    partner.splitSpillFile(partition.id, depth);
+    for (int i = NUMBER_OF_PARTITIONS - 1; i >= 0; i--) {
+      String subPartitionId = partition.id + "_" + i;
+      if (getSpillFile(subPartitionId).exists()) {
+        pendingSpilledPartitions.addFirst(new SpilledPartition(subPartitionId, depth));
+      } else if (partner.getSpillFile(subPartitionId).exists()) {
+        // there are no mappings of this cache to join with
+        partner.deleteSpillFile(subPartitionId);
+      }
+    }
+  }
+
+  private void splitSpillFile(String spillFileId, int depth) throws IOException {
+    File spillFile = getSpillFile(spillFileId);
+    if (!spillFile.exists()) {
+      return;
+    }
+    DataOutputStream[] outputs = new DataOutputStream[NUMBER_OF_PARTITIONS];
+    try (DataInputStream input = new DataInputStream(
+            new BufferedInputStream(new FileInputStream(spillFile)));) {
+      byte[] buffer = new byte[0];
+      while (true) {
+        boolean isJoined;
+        try {
+          isJoined = input.readBoolean();
+        } catch (EOFException e) {
+          break;
+        }
+        int length = input.readInt();
+        if (buffer.length != length) {
+          buffer = new byte[length];
+        }
+        input.readFully(buffer);
+        Mapping mapping = recycleCache.createMapping(buffer, 0, length);
+        int subPartition = getPartition(mapping, variables, depth);
+        recycleCache.releaseMapping(mapping);
+        if (outputs[subPartition] == null) {
+          outputs[subPartition] = createSpillOutput(spillFileId + "_" + subPartition);
+        }
+        outputs[subPartition].writeBoolean(isJoined);
+        outputs[subPartition].writeInt(length);
+        outputs[subPartition].write(buffer, 0, length);
+      }
+    } finally {
+      for (DataOutputStream output : outputs) {
+        if (output != null) {
+          output.close();
+        }
+      }
+    }
+    deleteSpillFile(spillFileId);
+  }
+
+  /**
+   * @param mapping
+   *          the mapping that was returned by the most recent call of
+   *          {@link #getNextSpilledMapping()}
+   * @param mappingVars
+   * @return all mappings of the join partner in the same partition that have
+   *         not been joined with <code>mapping</code>, yet
+   */
+  public Iterator<Mapping> getSpilledMatchCandidates(Mapping mapping, long[] mappingVars) {
+    if (isSpilledMappingJoined) {
+      return unjoinedPartnerMappings.getMatchCandidates(mapping, mappingVars);
+    } else {
+      return new ConcatenatingIterator(
+              joinedPartnerMappings.getMatchCandidates(mapping, mappingVars),
+              unjoinedPartnerMappings.getMatchCandidates(mapping, mappingVars));
+    }
+  }
+
+  private void closeSpilledPartitionJoin() throws IOException {
+    if (spillInput != null) {
+      spillInput.close();
+      spillInput = null;
+    }
+    releasePartnerPartition();
+  }
+
+  @Override
+  public void close() {
+    try {
+      closeSpilledPartitionJoin();
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    } finally {
+      for (int i = 0; i < partitions.length; i++) {
+        if (partitions[i] != null) {
+          partitions[i].close();
+          partitions[i] = null;
+        }
+        closeSpillOutput(i);
+      }
+      for (String spillFileId : spillFileIds) {
+        getSpillFile(spillFileId).delete();
+      }
+      spillFileIds.clear();
+      usedBytes = 0;
+      releaseUnusedBytes();
+      size = 0;
+    }
+  }
+
+  /**
+   * A spilled partition or a sub-partition of a split spilled partition.
+   */
+  private static class SpilledPartition {
+
+    /**
+     * The id of the spill files of this partition on both sides of the join.
+     */
+    private final String id;
+
+    /**
+     * The number of splits that created this partition.
+     */
+    private final int depth;
+
+    /**
+     * The position in the spill file of the join partner from which the
+     * mappings are loaded.
+     */
+    private final long partnerOffset;
+
+    public SpilledPartition(String id, int depth) {
+      this(id, depth, 0);
+    }
+
+    public SpilledPartition(String id, int depth, long partnerOffset) {
+      this.id = id;
+      this.depth = depth;
+      this.partnerOffset = partnerOffset;
+    }
+
+  }
+
+  /**
+   * Iterates over several iterators one after the other.
+   */
+  private static class ConcatenatingIterator implements Iterator<Mapping> {
+
+    private final Iterator<Mapping>[] iterators;
+
+    private int currentIterator;
+
+    @SafeVarargs
+    public ConcatenatingIterator(Iterator<Mapping>... iterators) {
+      this.iterators = iterators;
+      currentIterator = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public ConcatenatingIterator(OpenAddressingJoinMappingCache[] partitions) {
+      iterators = new Iterator[partitions.length];
+      for (int i = 0; i < partitions.length; i++) {
+        iterators[i] = partitions[i] == null ? Collections.<Mapping> emptyIterator()
+                : partitions[i].iterator();
+      }
+      currentIterator = 0;
+    }
+
+    @Override
+    public boolean hasNext() {
+      while ((currentIterator < iterators.length) && !iterators[currentIterator].hasNext()) {
+        currentIterator++;
+      }
+      return currentIterator < iterators.length;
+    }
+
+    @Override
+    public Mapping next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      return iterators[currentIterator].next();
+    }
+
+  }
+
+}
@@ -0,0 +1,70 @@
+/*
+ * This file is part of Koral.
+ *
+ * Koral is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Koral is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Leser General Public License
+ * along with Koral.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2016 Daniel Janke
+ */
+package de.uni_koblenz.west.koral.common.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The number of bytes that all {@link HybridHashJoinMappingCache}s of one
+ * query may occupy in memory on one computer. Since the join operations of a
+ * query are executed by different WorkerThreads, this class is thread safe.
+ *
+ * @author Daniel Janke &lt;danijankATuni-koblenz.de&gt;
+ *
+ */
+public class JoinMemoryBudget {
+
+  private final long maxBytes;
+
+  private final AtomicLong usedBytes;
+
+  public JoinMemoryBudget(long maxBytes) {
+    this.maxBytes = maxBytes;
+    usedBytes = new AtomicLong(0);
+  }
+
+  /**
+   * @param bytes
+   * @return true, if <code>bytes</code> could be reserved without exceeding
+   *         the budget
+   */
+  public boolean tryReserve(long bytes) {
+    long used;
+    do {
+      used = usedBytes.get();
+      if ((used + bytes) > maxBytes) {
+        return false;
+      }
+    } while (!usedBytes.compareAndSet(used, used + bytes));
+    return true;
+  }
+
+  public void release(long bytes) {
+    usedBytes.addAndGet(-bytes);
+  }
+
+  public long getUsedBytes() {
+    return usedBytes.get();
+  }
+
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+
+}
@@ -0,0 +1,331 @@
+/*
+ * This file is part of Koral.
+ *
+ * Koral is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Koral is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Leser General Public License
+ * along with Koral.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2016 Daniel Janke
+ */
+package de.uni_koblenz.west.koral.common.utils;
+
+import de.uni_koblenz.west.koral.common.query.Mapping;
+import de.uni_koblenz.west.koral.common.query.MappingRecycleCache;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * <p>
+ * An in-memory {@link JoinMappingCache} that is specialised for join keys
+ * consisting of one or more 64 bit ids. The distinct join keys are stored in
+ * an open-addressing hash table with linear probing that consists of flat
+ * <code>long</code> and <code>int</code> arrays. The serialized mappings are
+ * copied into large byte array pages (arenas). All mappings with the same join
+ * key are chained via an <code>int</code> array. Thus, neither inserting nor
+ * probing allocates key objects or collections.
+ * </p>
+ *
+ * <p>
+ * The iterators return a single flyweight {@link Mapping} that is moved over
+ * the arena pages. Thus, a returned {@link Mapping} is only valid until the
+ * next call of {@link Iterator#hasNext()} or {@link Iterator#next()} and must
+ * not be released. When the iterator is exhausted, the flyweight is released
+ * to the {@link MappingRecycleCache} of the join operation so that probing
+ * does not allocate.
+ * </p>
+ *
+ * <p>
+ * WARNING: This class is not thread safe in order to avoid synchronization
+ * overhead!
+ * </p>
+ *
+ * @author Daniel Janke &lt;danijankATuni-koblenz.de&gt;
+ *
+ */
+public class OpenAddressingJoinMappingCache implements JoinMappingCache {
+
+  private static final int PAGE_SIZE = 1 << 20;
+
+  private static final int INITIAL_CAPACITY = 1 << 10;
+
+  private static final int NO_ENTRY = -1;
+
+  private final MappingRecycleCache recycleCache;
+
+  private final long[] variables;
+
+  private final int[] joinVarIndices;
+
+  /**
+   * The join key of slot i is stored at
+   * <code>[i*joinVarIndices.length,(i+1)*joinVarIndices.length)</code>.
+   */
+  private long[] slotKeys;
+
+  /**
+   * Index of the most recently added mapping with the join key of this slot or
+   * {@link #NO_ENTRY} if the slot is empty.
+   */
+  private int[] slotHeads;
+
+  private int numberOfUsedSlots;
+
+  /**
+   * Index of the next mapping with the same join key.
+   */
+  private int[] nextEntry;
+
+  private byte[][] pages;
+
+  private int mappingLength;
+
+  private int mappingsPerPage;
+
+  private int size;
+
+  /**
+   * Reused for probing in order to avoid an allocation per lookup.
+   */
+  private final long[] probeKey;
+
+  /**
+   * @param recycleCache
+   * @param mappingVariables
+   * @param variableComparisonOrder
+   *          must contain all variables of the mapping. First variable has
+   *          index 0. The join variables must occur first!
+   * @param numberOfJoinVars
+   */
+  public OpenAddressingJoinMappingCache(MappingRecycleCache recycleCache, long[] mappingVariables,
+          int[] variableComparisonOrder, int numberOfJoinVars) {
+    this.recycleCache = recycleCache;
+    variables = mappingVariables;
+    joinVarIndices = new int[numberOfJoinVars];
+    for (int i = 0; i < numberOfJoinVars; i++) {
+      joinVarIndices[i] = variableComparisonOrder[i];
+    }
+    probeKey = new long[numberOfJoinVars];
+    initialize();
+  }
+
+  private void initialize() {
+    slotKeys = new long[INITIAL_CAPACITY * joinVarIndices.length];
+    slotHeads = new int[INITIAL_CAPACITY];
+    Arrays.fill(slotHeads, NO_ENTRY);
+    numberOfUsedSlots = 0;
+    nextEntry = new int[INITIAL_CAPACITY];
+    pages = new byte[0][];
+    mappingLength = -1;
+    size = 0;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  @Override
+  public long size() {
+    return size;
+  }
+
+  @Override
+  public void add(Mapping mapping) {
+    if (slotHeads == null) {
+      throw new IllegalStateException("Adding a mapping not possible because the "
+              + getClass().getSimpleName() + " is already closed.");
+    }
+    int length = mapping.getLengthOfMappingInByteArray();
+    if (mappingLength == -1) {
+      mappingLength = length;
+      mappingsPerPage = Math.max(1, PAGE_SIZE / mappingLength);
+    } else if (length != mappingLength) {
+      throw new IllegalArgumentException("All mappings of a " + getClass().getSimpleName()
+              + " must have the same length of " + mappingLength + " bytes but the mapping has "
+              + length + " bytes.");
+    }
+    if (size == Integer.MAX_VALUE) {
+      throw new IllegalStateException(
+              "The " + getClass().getSimpleName() + " cannot store more than " + size + " mappings.");
+    }
+
+    // copy mapping into arena
+    int entry = size;
+    int page = entry / mappingsPerPage;
+    if (page == pages.length) {
+      pages = Arrays.copyOf(pages, pages.length + 1);
+      pages[page] = new byte[mappingsPerPage * mappingLength];
+    }
+    int offset = (entry % mappingsPerPage) * mappingLength;
+    System.arraycopy(mapping.getByteArray(), mapping.getFirstIndexOfMappingInByteArray(),
+            pages[page], offset, mappingLength);
+
+    // insert into hash table
+    for (int i = 0; i < joinVarIndices.length; i++) {
+      probeKey[i] = NumberConversion.bytes2long(pages[page],
+              offset + Mapping.getHeaderSize() + (joinVarIndices[i] * Long.BYTES));
+    }
+    int slot = findSlot(probeKey, slotKeys, slotHeads);
+    if (slotHeads[slot] == NO_ENTRY) {
+      System.arraycopy(probeKey, 0, slotKeys, slot * joinVarIndices.length,
+              joinVarIndices.length);
+      numberOfUsedSlots++;
+    }
+    if (entry == nextEntry.length) {
+      nextEntry = Arrays.copyOf(nextEntry, (int) Math.min(Integer.MAX_VALUE, 2L * entry));
+    }
+    nextEntry[entry] = slotHeads[slot];
+    slotHeads[slot] = entry;
+    size++;
+
+    if (numberOfUsedSlots > (slotHeads.length >>> 1)) {
+      rehash();
+    }
+  }
+
+  private int findSlot(long[] key, long[] keys, int[] heads) {
+    int mask = heads.length - 1;
+    int slot = hash(key) & mask;
+    while (heads[slot] != NO_ENTRY) {
+      if (isKeyEqual(key, keys, slot)) {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  private boolean isKeyEqual(long[] key, long[] keys, int slot) {
+    int start = slot * key.length;
+    for (int i = 0; i < key.length; i++) {
+      if (key[i] != keys[start + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private int hash(long[] key) {
+    long h = 0x9E37_79B9_7F4A_7C15L;
+    for (long value : key) {
+      h ^= value;
+      // finalization step of MurmurHash3
+      h ^= h >>> 33;
+      h *= 0xff51_afd7_ed55_8ccdL;
+      h ^= h >>> 33;
+      h *= 0xc4ce_b9fe_1a85_ec53L;
+      h ^= h >>> 33;
+    }
+    return (int) (h ^ (h >>> 32));
+  }
+
+  private void rehash() {
+    int newCapacity = slotHeads.length << 1;
+    long[] newKeys = new long[newCapacity * joinVarIndices.length];
+    int[] newHeads = new int[newCapacity];
+    Arrays.fill(newHeads, NO_ENTRY);
+    long[] key = new long[joinVarIndices.length];
+    for (int oldSlot = 0; oldSlot < slotHeads.length; oldSlot++) {
+      if (slotHeads[oldSlot] == NO_ENTRY) {
+        continue;
+      }
+      System.arraycopy(slotKeys, oldSlot * key.length, key, 0, key.length);
+      int newSlot = findSlot(key, newKeys, newHeads);
+      System.arraycopy(key, 0, newKeys, newSlot * key.length, key.length);
+      newHeads[newSlot] = slotHeads[oldSlot];
+    }
+    slotKeys = newKeys;
+    slotHeads = newHeads;
+  }
+
+  @Override
+  public Iterator<Mapping> getMatchCandidates(Mapping mapping, long[] mappingVars) {
+    if ((slotHeads == null) || (size == 0)) {
+      return new EntryIterator(NO_ENTRY, false);
+    }
+    for (int i = 0; i < joinVarIndices.length; i++) {
+      probeKey[i] = mapping.getValue(variables[joinVarIndices[i]], mappingVars);
+    }
+    int slot = findSlot(probeKey, slotKeys, slotHeads);
+    return new EntryIterator(slotHeads[slot], false);
+  }
+
+  @Override
+  public Iterator<Mapping> iterator() {
+    return new EntryIterator((slotHeads == null) || (size == 0) ? NO_ENTRY : 0, true);
+  }
+
+  private Mapping getMapping(int entry, Mapping flyweight) {
+    byte[] page = pages[entry / mappingsPerPage];
+    int offset = (entry % mappingsPerPage) * mappingLength;
+    if (flyweight == null) {
+      return recycleCache.createMapping(page, offset, mappingLength);
+    }
+    recycleCache.updateMapping(flyweight, page, offset, mappingLength);
+    return flyweight;
+  }
+
+  @Override
+  public void close() {
+    slotKeys = null;
+    slotHeads = null;
+    nextEntry = null;
+    pages = null;
+    size = 0;
+  }
+
+  /**
+   * Either follows the chain of mappings with the same join key or iterates
+   * over all mappings in insertion order.
+   */
+  private class EntryIterator implements Iterator<Mapping> {
+
+    private int next;
+
+    private final boolean isSequential;
+
+    private Mapping flyweight;
+
+    public EntryIterator(int firstEntry, boolean isSequential) {
+      next = firstEntry;
+      this.isSequential = isSequential;
+    }
+
+    @Override
+    public boolean hasNext() {
+      if ((next == NO_ENTRY) && (flyweight != null)) {
+        // the last returned mapping has been consumed
+        recycleCache.releaseMapping(flyweight);
+        flyweight = null;
+      }
+      return next != NO_ENTRY;
+    }
+
+    @Override
+    public Mapping next() {
+      if (next == NO_ENTRY) {
+        throw new NoSuchElementException();
+      }
+      flyweight = getMapping(next, flyweight);
+      if (isSequential) {
+        next = (next + 1) < size ? next + 1 : NO_ENTRY;
+      } else {
+        next = nextEntry[next];
+      }
+      return flyweight;
+    }
+
+  }
+
+}
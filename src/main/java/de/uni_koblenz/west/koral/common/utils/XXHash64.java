@@ -0,0 +1,124 @@
+/*
+ * This file is part of Koral.
+ *
+ * Koral is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Koral is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Leser General Public License
+ * along with Koral.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2016 Daniel Janke
+ */
+package de.uni_koblenz.west.koral.common.utils;
+
+/**
+ * The non-cryptographic 64 bit hash function xxHash64 with seed 0. It is used
+ * instead of MD5 where the hash only has to distribute the values evenly, e.g.,
+ * when the triples are assigned to graph chunks.
+ *
+ * @author Daniel Janke &lt;danijankATuni-koblenz.de&gt;
+ *
+ */
+public class XXHash64 {
+
+  private static final long PRIME64_1 = 0x9E3779B185EBCA87L;
+
+  private static final long PRIME64_2 = 0xC2B2AE3D27D4EB4FL;
+
+  private static final long PRIME64_3 = 0x165667B19E3779F9L;
+
+  private static final long PRIME64_4 = 0x85EBCA77C2B2AE63L;
+
+  private static final long PRIME64_5 = 0x27D4EB2F165667C5L;
+
+  public static long hash(byte[] bytes) {
+    return XXHash64.hash(bytes, 0, bytes.length);
+  }
+
+  public static long hash(byte[] bytes, int offset, int length) {
+    int end = offset + length;
+    int position = offset;
+    long hash;
+    if (length >= 32) {
+      long v1 = PRIME64_1 + PRIME64_2;
+      long v2 = PRIME64_2;
+      long v3 = 0;
+      long v4 = -PRIME64_1;
+      int limit = end - 32;
+      do {
+        v1 = XXHash64.round(v1, XXHash64.readLong(bytes, position));
+        v2 = XXHash64.round(v2, XXHash64.readLong(bytes, position + 8));
+        v3 = XXHash64.round(v3, XXHash64.readLong(bytes, position + 16));
+        v4 = XXHash64.round(v4, XXHash64.readLong(bytes, position + 24));
+        position += 32;
+      } while (position <= limit);
+      hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12)
+              + Long.rotateLeft(v4, 18);
+      hash = XXHash64.mergeRound(hash, v1);
+      hash = XXHash64.mergeRound(hash, v2);
+      hash = XXHash64.mergeRound(hash, v3);
+      hash = XXHash64.mergeRound(hash, v4);
+    } else {
+      hash = PRIME64_5;
+    }
+    hash += length;
+
+    while ((position + 8) <= end) {
+      hash ^= XXHash64.round(0, XXHash64.readLong(bytes, position));
+      hash = (Long.rotateLeft(hash, 27) * PRIME64_1) + PRIME64_4;
+      position += 8;
+    }
+    if ((position + 4) <= end) {
+      hash ^= (XXHash64.readInt(bytes, position) & 0xff_ff_ff_ffL) * PRIME64_1;
+      hash = (Long.rotateLeft(hash, 23) * PRIME64_2) + PRIME64_3;
+      position += 4;
+    }
+    while (position < end) {
+      hash ^= (bytes[position] & 0xff) * PRIME64_5;
+      hash = Long.rotateLeft(hash, 11) * PRIME64_1;
+      position++;
+    }
+
+    // avalanche
+    hash ^= hash >>> 33;
+    hash *= PRIME64_2;
+    hash ^= hash >>> 29;
+    hash *= PRIME64_3;
+    hash ^= hash >>> 32;
+    return hash;
+  }
+
+  private static long round(long accumulator, long input) {
+    accumulator += input * PRIME64_2;
+    accumulator = Long.rotateLeft(accumulator, 31);
+    return accumulator * PRIME64_1;
+  }
+
+  private static long mergeRound(long accumulator, long value) {
+    accumulator ^= XXHash64.round(0, value);
+    return (accumulator * PRIME64_1) + PRIME64_4;
+  }
+
+  /**
+   * @return the little endian long starting at position
+   */
+  private static long readLong(byte[] bytes, int position) {
+    return (bytes[position] & 0xffL) | ((bytes[position + 1] & 0xffL) << 8)
+            | ((bytes[position + 2] & 0xffL) << 16) | ((bytes[position + 3] & 0xffL) << 24)
+            | ((bytes[position + 4] & 0xffL) << 32) | ((bytes[position + 5] & 0xffL) << 40)
+            | ((bytes[position + 6] & 0xffL) << 48) | ((bytes[position + 7] & 0xffL) << 56);
+  }
+
+  private static int readInt(byte[] bytes, int position) {
+    return (bytes[position] & 0xff) | ((bytes[position + 1] & 0xff) << 8)
+            | ((bytes[position + 2] & 0xff) << 16) | ((bytes[position + 3] & 0xff) << 24);
+  }
+
+}
@@ -60,6 +60,7 @@ public class KoralMaster extends KoralSystem {
         true);
     try {
       ClientConnectionManager clientConnections = new ClientConnectionManager(conf, logger);
+      clientConnections.registerReceiver(getMessagePoller());
       dictionary = new DictionaryEncoder(conf, logger, measurementCollector);
       statistics = new GraphStatistics(conf, (short) conf.getNumberOfSlaves(), logger);
       clientMessageProcessor = new ClientMessageProcessor(conf, clientConnections, this,
@@ -109,10 +110,7 @@ public class KoralMaster extends KoralSystem {
       }
     }
     if (!isInterrupted() && !messageReceived) {
-      try {
-        Thread.sleep(100);
-      } catch (InterruptedException e) {
-      }
+      waitForMessage();
     }
   }
 
@@ -24,6 +24,7 @@ import org.zeromq.ZMQ.Socket;
 
 import de.uni_koblenz.west.koral.common.config.impl.Configuration;
 import de.uni_koblenz.west.koral.common.messages.MessageType;
+import de.uni_koblenz.west.koral.common.networManager.MessagePoller;
 import de.uni_koblenz.west.koral.common.networManager.NetworkContextFactory;
 
 import java.io.Closeable;
@@ -84,6 +85,16 @@ public class ClientConnectionManager implements Closeable {
     listeners.add(clientMessageProcessor);
   }
 
+  /**
+   * Registers the socket on which client messages are received at the poller.
+   * 
+   * @param poller
+   * @return the index of the socket within the poller
+   */
+  public int registerReceiver(MessagePoller poller) {
+    return poller.register(inSocket);
+  }
+
   /**
    * If it waits for a response, <code>null</code> is returned if no response
    * has arrived before the timeout occurred.
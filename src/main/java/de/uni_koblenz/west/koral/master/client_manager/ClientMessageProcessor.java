@@ -28,12 +28,14 @@ import de.uni_koblenz.west.koral.common.utils.NumberConversion;
 import de.uni_koblenz.west.koral.master.KoralMaster;
 import de.uni_koblenz.west.koral.master.tasks.ClientConnectionKeepAliveTask;
 import de.uni_koblenz.west.koral.master.tasks.GraphLoaderTask;
+import de.uni_koblenz.west.koral.slave.triple_store.impl.IndexType;
 
 import java.io.Closeable;
 import java.io.File;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
 
@@ -83,8 +85,16 @@ public class ClientMessageProcessor implements Closeable, ClosedConnectionListen
 
   private final MapDBCacheOptions cacheType;
 
+  private final Set<IndexType> additionalTripleStoreIndices;
+
   private final boolean contactSlaves;
 
+  private final int numberOfCoverCreationThreads;
+
+  private final boolean useMD5ForHashCover;
+
+  private final boolean useMetisForMinimalEdgeCutCover;
+
   public ClientMessageProcessor(Configuration conf, ClientConnectionManager clientConnections,
           KoralMaster master, boolean contactSlaves, Logger logger,
           MeasurementCollector measurementCollector) {
@@ -113,6 +123,10 @@ public class ClientMessageProcessor implements Closeable, ClosedConnectionListen
     storageType = conf.getJoinCacheStorageType();
     useTransactions = conf.useTransactionsForJoinCache();
     writeAsynchronously = conf.isJoinCacheAsynchronouslyWritten();
+    additionalTripleStoreIndices = conf.getAdditionalTripleStoreIndices();
+    numberOfCoverCreationThreads = conf.getNumberOfCoverCreationThreads();
+    useMD5ForHashCover = conf.useMD5ForHashCover();
+    useMetisForMinimalEdgeCutCover = conf.useMetisForMinimalEdgeCutCover();
   }
 
   /**
@@ -140,6 +154,9 @@ public class ClientMessageProcessor implements Closeable, ClosedConnectionListen
           case CLIENT_COMMAND_ABORTED:
             processAbortCommand(message);
             break;
+          case QUERY_RESULT_CREDIT:
+            processResultCredit(message);
+            break;
           case CLIENT_CLOSES_CONNECTION:
             processCloseConnection(message);
             break;
@@ -269,7 +286,8 @@ public class ClientMessageProcessor implements Closeable, ClosedConnectionListen
           GraphLoaderTask loaderTask = new GraphLoaderTask(clientID.intValue(), clientConnections,
                   master.getNetworkManager(), ftpServer[0], internalFtpIpAddress, ftpServer[1],
                   master.getDictionary(), master.getStatistics(), tmpDir, master, logger,
-                  measurementCollector, contactSlaves);
+                  measurementCollector, contactSlaves, numberOfCoverCreationThreads,
+                  useMD5ForHashCover, useMetisForMinimalEdgeCutCover);
           clientAddress2GraphLoaderTask.put(address, loaderTask);
           loaderTask.loadGraph(arguments, numberOfChunks);
           break;
@@ -293,8 +311,8 @@ public class ClientMessageProcessor implements Closeable, ClosedConnectionListen
                   master.getComputerId(), /* queryIdGenerator.getNextId() */nextQueryId++,
                   master.getNumberOfSlaves(), mappingReceiverQueueSize, tmpDir, clientID.intValue(),
                   clientConnections, master.getDictionary(), master.getStatistics(),
-                  emittedMappingsPerRound, storageType, useTransactions, writeAsynchronously,
-                  cacheType, logger, measurementCollector);
+                  additionalTripleStoreIndices, emittedMappingsPerRound, storageType, useTransactions,
+                  writeAsynchronously, cacheType, logger, measurementCollector);
           coordinator.processQueryRequest(arguments);
           clientAddress2queryExecutionCoordinator.put(address, coordinator);
           master.executeTask(coordinator);
@@ -405,6 +423,17 @@ public class ClientMessageProcessor implements Closeable, ClosedConnectionListen
     }
   }
 
+  private void processResultCredit(byte[] message) {
+    String creditContext = MessageUtils.extractMessageString(message, logger);
+    String[] parts = creditContext.split(Pattern.quote("|"));
+    QueryExecutionCoordinator query = clientAddress2queryExecutionCoordinator.get(parts[0]);
+    if (query != null) {
+      query.addResultCredits(Integer.parseInt(parts[1]));
+    } else if (logger != null) {
+      logger.finest("ignoring result credit from client " + parts[0] + ". No query is running.");
+    }
+  }
+
   private void terminateTask(String address) {
     GraphLoaderTask task = clientAddress2GraphLoaderTask.get(address);
     if (task != null) {
@@ -42,12 +42,35 @@ public interface Dictionary extends Closeable {
    */
   public long encode(String value, boolean createNewEncodingForUnknownNodes);
 
+  /**
+   * Encodes all values at once. New ids are assigned in the order in which the
+   * unknown values occur in <code>values</code>.
+   * 
+   * @param values
+   * @param createNewEncodingForUnknownNodes
+   * @return the ids of the values in the same order as <code>values</code>
+   * @throws RuntimeException
+   *           if maximum number of strings (i.e., 2^48) have been encoded
+   * @see #encode(String, boolean)
+   */
+  public long[] encode(String[] values, boolean createNewEncodingForUnknownNodes);
+
   /**
    * @param id
    * @return <code>null</code> if no String has been encoded to this id, yet.
    */
   public String decode(long id);
 
+  /**
+   * Decodes all ids at once.
+   * 
+   * @param ids
+   * @return the Strings in the same order as <code>ids</code>. An entry is
+   *         <code>null</code> if no String has been encoded to its id, yet.
+   * @see #decode(long)
+   */
+  public String[] decode(long[] ids);
+
   public void flush();
 
   public boolean isEmpty();
@@ -0,0 +1,104 @@
+/*
+ * This file is part of Koral.
+ *
+ * Koral is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Koral is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Leser General Public License
+ * along with Koral.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2016 Daniel Janke
+ */
+package de.uni_koblenz.west.koral.master.dictionary;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>
+ * A bounded cache that is placed in front of the {@link Dictionary}. It is used
+ * concurrently by the threads of {@link DictionaryEncoder} during the initial
+ * encoding and the creation of the graph cover to cache the ids of recently
+ * encoded resources and by the query
+ * coordinators to cache the serializations of recently decoded ids.
+ * </p>
+ * 
+ * <p>
+ * The cache is split into segments with their own locks. Each segment evicts
+ * its least recently used entries.
+ * </p>
+ * 
+ * @author Daniel Janke &lt;danijankATuni-koblenz.de&gt;
+ *
+ */
+class DictionaryCache<K, V> {
+
+  private final Segment<K, V>[] segments;
+
+  @SuppressWarnings("unchecked")
+  public DictionaryCache(int maxSize, int numberOfSegments) {
+    segments = new Segment[numberOfSegments];
+    int maxSegmentSize = Math.max(1, maxSize / numberOfSegments);
+    for (int i = 0; i < segments.length; i++) {
+      segments[i] = new Segment<>(maxSegmentSize);
+    }
+  }
+
+  private Segment<K, V> getSegment(K key) {
+    int hash = key.hashCode();
+    hash ^= hash >>> 16;
+    return segments[(hash & 0x7f_ff_ff_ff) % segments.length];
+  }
+
+  /**
+   * @param key
+   * @return <code>null</code>, if the key is not cached
+   */
+  public V get(K key) {
+    Segment<K, V> segment = getSegment(key);
+    synchronized (segment) {
+      return segment.get(key);
+    }
+  }
+
+  public void put(K key, V value) {
+    Segment<K, V> segment = getSegment(key);
+    synchronized (segment) {
+      segment.put(key, value);
+    }
+  }
+
+  public void clear() {
+    for (Segment<K, V> segment : segments) {
+      synchronized (segment) {
+        segment.clear();
+      }
+    }
+  }
+
+  private static class Segment<K, V> extends LinkedHashMap<K, V> {
+
+    private static final long serialVersionUID = -3052164370183431342L;
+
+    private final int maxSize;
+
+    public Segment(int maxSize) {
+      super(16, 0.75f, true);
+      this.maxSize = maxSize;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+      return size() > maxSize;
+    }
+
+  }
+
+}
@@ -19,6 +19,22 @@ package de.uni_koblenz.west.koral.master.dictionary;
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Logger;
 
 import org.apache.jena.graph.Node;
@@ -58,23 +74,75 @@ import de.uni_koblenz.west.koral.master.utils.DeSerializer;
  */
 public class DictionaryEncoder implements Closeable {
 
+  /**
+   * The number of statements that are passed at once from the parsing threads
+   * to the encoding threads.
+   */
+  private static final int ENCODING_BLOCK_SIZE = 10000;
+
+  private static final String SERIALIZED_BLANK_NODE_PREFIX =
+      "<" + Configuration.BLANK_NODE_URI_PREFIX;
+
   private final Logger logger;
 
   private final MeasurementCollector measurementCollector;
 
   private final Dictionary dictionary;
 
+  private final int numberOfEncodingThreads;
+
+  /**
+   * caches the ids of recently encoded resources during the initial encoding
+   * and the creation of the graph cover
+   */
+  private final DictionaryCache<String, Long> encodingCache;
+
+  private final DictionaryCache<Long, String> resultCache;
+
   public DictionaryEncoder(Configuration conf, Logger logger, MeasurementCollector collector) {
     this.logger = logger;
     measurementCollector = collector;
     if (conf != null) {
       dictionary =
           new RocksDBDictionary(conf.getDictionaryDir(true), conf.getMaxDictionaryWriteBatchSize());
+      numberOfEncodingThreads = conf.getNumberOfDictionaryEncodingThreads() > 0
+          ? conf.getNumberOfDictionaryEncodingThreads()
+          : Runtime.getRuntime().availableProcessors();
+      encodingCache = conf.getDictionaryCacheSize() > 0
+          ? new DictionaryCache<>(conf.getDictionaryCacheSize(), 4 * numberOfEncodingThreads)
+          : null;
+      resultCache = conf.getResultDecodingCacheSize() > 0
+          ? new DictionaryCache<>(conf.getResultDecodingCacheSize(), 16) : null;
     } else {
       dictionary = null;
+      numberOfEncodingThreads = 1;
+      encodingCache = null;
+      resultCache = null;
     }
   }
 
+  /**
+   * <p>
+   * Encodes the resources of the graph files whose position is encoded in
+   * <code>outputFormat</code>. The graph files are parsed concurrently. The
+   * parsed statements are passed in blocks to the encoding threads. Each
+   * encoding thread deduplicates the resources of a block, looks them up in the
+   * {@link DictionaryCache} and encodes the remaining resources with one batch
+   * request to the {@link Dictionary}. Afterwards the block is appended to the
+   * semi encoded graph file.
+   * </p>
+   * 
+   * <p>
+   * The order of the statements in the semi encoded graph file depends on the
+   * order in which the blocks are encoded.
+   * </p>
+   * 
+   * @param plainGraphChunks
+   * @param workingDir
+   * @param outputFormat
+   * @param numberOfGraphChunks
+   * @return the semi encoded graph file
+   */
   public File encodeOriginalGraphFiles(File[] plainGraphChunks, File workingDir,
       EncodingFileFormat outputFormat, int numberOfGraphChunks) {
     clear();
@@ -83,54 +151,53 @@ public class DictionaryEncoder implements Closeable {
           System.currentTimeMillis());
     }
     File result = getSemiEncodedGraphFile(workingDir);
+    List<File> graphFiles = new ArrayList<>();
+    for (File graphFile : plainGraphChunks) {
+      if (graphFile != null) {
+        graphFiles.add(graphFile);
+      }
+    }
+    DictionaryCache<String, Long> cache = encodingCache;
+    BlockingQueue<Node[][]> blocks = new ArrayBlockingQueue<>(2 * numberOfEncodingThreads);
+    AtomicBoolean isParsingFinished = new AtomicBoolean(graphFiles.isEmpty());
+    ExecutorService parsers = Executors
+        .newFixedThreadPool(Math.max(1, Math.min(numberOfEncodingThreads, graphFiles.size())));
+    ExecutorService encoders = Executors.newFixedThreadPool(numberOfEncodingThreads);
     try (EncodedFileOutputStream out = new EncodedFileOutputStream(result);) {
-      for (int i = 0; i < plainGraphChunks.length; i++) {
-        if (plainGraphChunks[i] == null) {
-          continue;
-        }
-        try (RDFFileIterator iter = new RDFFileIterator(plainGraphChunks[i], false, logger);) {
-          for (Node[] quad : iter) {
-            transformBlankNodes(quad);
-            byte[] subject;
-            if (outputFormat.isSubjectEncoded()) {
-              subject = NumberConversion
-                  .long2bytes(dictionary.encode(DeSerializer.serializeNode(quad[0]), true));
-            } else {
-              subject = DeSerializer.serializeNode(quad[0]).getBytes("UTF-8");
-            }
-
-            byte[] property;
-            if (outputFormat.isPropertyEncoded()) {
-              property = NumberConversion
-                  .long2bytes(dictionary.encode(DeSerializer.serializeNode(quad[1]), true));
-            } else {
-              property = DeSerializer.serializeNode(quad[1]).getBytes("UTF-8");
-            }
-
-            byte[] object;
-            if (outputFormat.isObjectEncoded()) {
-              object = NumberConversion
-                  .long2bytes(dictionary.encode(DeSerializer.serializeNode(quad[2]), true));
-            } else {
-              object = DeSerializer.serializeNode(quad[2]).getBytes("UTF-8");
-            }
-
-            int bitsetSize = numberOfGraphChunks / Byte.SIZE;
-            if ((numberOfGraphChunks % Byte.SIZE) != 0) {
-              bitsetSize += 1;
-            }
-            byte[] containment = new byte[bitsetSize];
-
-            Statement statement =
-                Statement.getStatement(outputFormat, subject, property, object, containment);
-            out.writeStatement(statement);
+      // the result of a task is true, if it was a parser
+      BlockingQueue<Future<Boolean>> finishedTasks = new LinkedBlockingQueue<>();
+      CompletionService<Boolean> parserService =
+          new ExecutorCompletionService<>(parsers, finishedTasks);
+      for (File graphFile : graphFiles) {
+        parserService.submit(() -> {
+          parseGraphFile(graphFile, blocks);
+          return true;
+        });
+      }
+      CompletionService<Boolean> encoderService =
+          new ExecutorCompletionService<>(encoders, finishedTasks);
+      for (int i = 0; i < numberOfEncodingThreads; i++) {
+        encoderService.submit(() -> {
+          encodeBlocks(blocks, isParsingFinished, outputFormat, numberOfGraphChunks, cache, out);
+          return false;
+        });
+      }
+      int runningParsers = graphFiles.size();
+      for (int i = 0; i < (graphFiles.size() + numberOfEncodingThreads); i++) {
+        if (finishedTasks.take().get()) {
+          runningParsers--;
+          if (runningParsers == 0) {
+            isParsingFinished.set(true);
           }
-        } catch (IOException e) {
-          throw new RuntimeException(e);
         }
       }
-    } catch (IOException e) {
+    } catch (IOException | InterruptedException e) {
       throw new RuntimeException(e);
+    } catch (ExecutionException e) {
+      throw new RuntimeException(e.getCause());
+    } finally {
+      parsers.shutdownNow();
+      encoders.shutdownNow();
     }
     dictionary.flush();
     if (measurementCollector != null) {
@@ -140,6 +207,93 @@ public class DictionaryEncoder implements Closeable {
     return result;
   }
 
+  private void parseGraphFile(File graphFile, BlockingQueue<Node[][]> blocks)
+      throws InterruptedException {
+    Node[][] block = new Node[ENCODING_BLOCK_SIZE][];
+    int blockSize = 0;
+    try (RDFFileIterator iter = new RDFFileIterator(graphFile, false, logger);) {
+      for (Node[] quad : iter) {
+        transformBlankNodes(quad);
+        block[blockSize++] = quad;
+        if (blockSize == block.length) {
+          blocks.put(block);
+          block = new Node[ENCODING_BLOCK_SIZE][];
+          blockSize = 0;
+        }
+      }
+    }
+    if (blockSize > 0) {
+      blocks.put(Arrays.copyOf(block, blockSize));
+    }
+  }
+
+  private void encodeBlocks(BlockingQueue<Node[][]> blocks, AtomicBoolean isParsingFinished,
+      EncodingFileFormat outputFormat, int numberOfGraphChunks, DictionaryCache<String, Long> cache,
+      EncodedFileOutputStream out) throws InterruptedException, IOException {
+    boolean[] isEncoded = new boolean[] { outputFormat.isSubjectEncoded(),
+        outputFormat.isPropertyEncoded(), outputFormat.isObjectEncoded() };
+    int bitsetSize = numberOfGraphChunks / Byte.SIZE;
+    if ((numberOfGraphChunks % Byte.SIZE) != 0) {
+      bitsetSize += 1;
+    }
+    Map<String, Long> ids = new HashMap<>();
+    List<String> unknownResources = new ArrayList<>();
+    while (true) {
+      Node[][] block = blocks.poll(100, TimeUnit.MILLISECONDS);
+      if (block == null) {
+        if (isParsingFinished.get() && blocks.isEmpty()) {
+          return;
+        }
+        continue;
+      }
+
+      // deduplicate the resources of the block and look them up in the cache
+      String[][] resources = new String[block.length][3];
+      for (int i = 0; i < block.length; i++) {
+        for (int j = 0; j < 3; j++) {
+          String resource = DeSerializer.serializeNode(block[i][j]);
+          resources[i][j] = resource;
+          if (isEncoded[j] && !ids.containsKey(resource)) {
+            Long id = cache == null ? null : cache.get(resource);
+            ids.put(resource, id);
+            if (id == null) {
+              unknownResources.add(resource);
+            }
+          }
+        }
+      }
+      if (!unknownResources.isEmpty()) {
+        long[] newIds;
+        synchronized (dictionary) {
+          newIds = dictionary.encode(unknownResources.toArray(new String[unknownResources.size()]),
+              true);
+        }
+        for (int i = 0; i < newIds.length; i++) {
+          ids.put(unknownResources.get(i), newIds[i]);
+          if (cache != null) {
+            cache.put(unknownResources.get(i), newIds[i]);
+          }
+        }
+      }
+
+      byte[][][] statements = new byte[block.length][3][];
+      for (int i = 0; i < block.length; i++) {
+        for (int j = 0; j < 3; j++) {
+          statements[i][j] = isEncoded[j] ? NumberConversion.long2bytes(ids.get(resources[i][j]))
+              : resources[i][j].getBytes("UTF-8");
+        }
+      }
+      synchronized (out) {
+        for (byte[][] statement : statements) {
+          out.writeStatement(Statement.getStatement(outputFormat, statement[0], statement[1],
+              statement[2], new byte[bitsetSize]));
+        }
+      }
+      ids.clear();
+      unknownResources.clear();
+    }
+  }
+
   private void transformBlankNodes(Node[] statement) {
     for (int i = 0; i < statement.length; i++) {
       Node node = statement[i];
@@ -250,11 +404,117 @@ public class DictionaryEncoder implements Closeable {
     return DeSerializer.deserializeNode(plainText);
   }
 
+  /**
+   * Decodes the resources of query results with one batch request to the
+   * {@link Dictionary}. Recently decoded resources are cached. Since the
+   * resources are stored in their serialized form, they are only deserialized
+   * if they are replacements of blank nodes.
+   * 
+   * @param ids
+   *          ids with or without owner
+   * @return the resources in the form in which they are sent to the client,
+   *         i.e., as serialized by {@link DeSerializer} with replaced blank
+   *         nodes serialized as blank nodes again. An entry is
+   *         <code>null</code> if its id has not been encoded, yet.
+   */
+  public String[] decodeResults(long[] ids) {
+    String[] results = new String[ids.length];
+    long[] uncachedIds = new long[ids.length];
+    int numberOfUncachedIds = 0;
+    for (int i = 0; i < ids.length; i++) {
+      long id = ids[i] & 0x00_00_ff_ff_ff_ff_ff_ffL;
+      results[i] = resultCache == null ? null : resultCache.get(id);
+      if (results[i] == null) {
+        uncachedIds[numberOfUncachedIds++] = id;
+      }
+    }
+    if (numberOfUncachedIds == 0) {
+      return results;
+    }
+    String[] decodedResources =
+        dictionary.decode(Arrays.copyOf(uncachedIds, numberOfUncachedIds));
+    for (int i = 0, next = 0; i < ids.length; i++) {
+      if (results[i] != null) {
+        continue;
+      }
+      String resource = decodedResources[next++];
+      if (resource == null) {
+        continue;
+      }
+      if (resource.startsWith(SERIALIZED_BLANK_NODE_PREFIX)) {
+        // this is a replacement of a blank node
+        resource = DeSerializer.serializeNode(
+            NodeFactory.createBlankNode(DeSerializer.deserializeNode(resource).getURI()
+                .substring(Configuration.BLANK_NODE_URI_PREFIX.length())));
+      }
+      results[i] = resource;
+      if (resultCache != null) {
+        resultCache.put(ids[i] & 0x00_00_ff_ff_ff_ff_ff_ffL, resource);
+      }
+    }
+    return results;
+  }
+
   public long encodeWithoutOwnership(Node node, boolean createNewEncodingForUnknownNodes) {
     long id = dictionary.encode(DeSerializer.serializeNode(node), createNewEncodingForUnknownNodes);
     return id;
   }
 
+  /**
+   * @param serializedResource
+   *          a resource serialized by {@link DeSerializer}
+   * @param createNewEncodingForUnknownNodes
+   * @return the id of the resource without ownership
+   */
+  public long encodeWithoutOwnership(String serializedResource,
+      boolean createNewEncodingForUnknownNodes) {
+    return dictionary.encode(serializedResource, createNewEncodingForUnknownNodes);
+  }
+
+  /**
+   * Encodes several resources at once. The ids of cached resources are taken
+   * from the {@link DictionaryCache}. The remaining distinct resources are
+   * encoded with one batch request to the {@link Dictionary}. This method may be
+   * called by several threads concurrently.
+   * 
+   * @param serializedResources
+   *          resources serialized by {@link DeSerializer}
+   * @param createNewEncodingForUnknownNodes
+   * @return the ids of the resources without ownership
+   */
+  public long[] encodeWithoutOwnership(String[] serializedResources,
+      boolean createNewEncodingForUnknownNodes) {
+    Map<String, Long> ids = new HashMap<>();
+    List<String> unknownResources = new ArrayList<>();
+    for (String resource : serializedResources) {
+      if (!ids.containsKey(resource)) {
+        Long id = encodingCache == null ? null : encodingCache.get(resource);
+        ids.put(resource, id);
+        if (id == null) {
+          unknownResources.add(resource);
+        }
+      }
+    }
+    if (!unknownResources.isEmpty()) {
+      long[] newIds;
+      synchronized (dictionary) {
+        newIds = dictionary.encode(unknownResources.toArray(new String[unknownResources.size()]),
+            createNewEncodingForUnknownNodes);
+      }
+      for (int i = 0; i < newIds.length; i++) {
+        ids.put(unknownResources.get(i), newIds[i]);
+        if ((encodingCache != null) && (newIds[i] != 0)) {
+          encodingCache.put(unknownResources.get(i), newIds[i]);
+        }
+      }
+    }
+    long[] result = new long[serializedResources.length];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = ids.get(serializedResources[i]);
+    }
+    return result;
+  }
+
   public long encode(Node node, boolean createNewEncodingForUnknownNodes,
       GraphStatistics statistics) {
     long id = dictionary.encode(DeSerializer.serializeNode(node), createNewEncodingForUnknownNodes);
@@ -274,6 +534,12 @@ public class DictionaryEncoder implements Closeable {
 
   public void clear() {
     dictionary.clear();
+    if (encodingCache != null) {
+      encodingCache.clear();
+    }
+    if (resultCache != null) {
+      resultCache.clear();
+    }
   }
 
   @Override
@@ -136,6 +136,15 @@ public class MapDBDictionary implements Dictionary {
     return id.longValue();
   }
 
+  @Override
+  public long[] encode(String[] values, boolean createNewEncodingForUnknownNodes) {
+    long[] ids = new long[values.length];
+    for (int i = 0; i < values.length; i++) {
+      ids[i] = encode(values[i], createNewEncodingForUnknownNodes);
+    }
+    return ids;
+  }
+
   @Override
   public String decode(long id) {
     try {
@@ -146,6 +155,15 @@ public class MapDBDictionary implements Dictionary {
     }
   }
 
+  @Override
+  public String[] decode(long[] ids) {
+    String[] values = new String[ids.length];
+    for (int i = 0; i < ids.length; i++) {
+      values[i] = decode(ids[i]);
+    }
+    return values;
+  }
+
   @Override
   public boolean isEmpty() {
     return nextID == 1;
@@ -20,8 +20,10 @@ package de.uni_koblenz.west.koral.master.dictionary.impl;
 
 import java.io.File;
 import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 
@@ -112,6 +114,60 @@ public class RocksDBDictionary implements Dictionary, LongDictionary {
 		return internalEncode(valueBytes, createNewEncodingForUnknownNodes);
 	}
 
+	@Override
+	public long[] encode(String[] values, boolean createNewEncodingForUnknownNodes) {
+		long[] ids = new long[values.length];
+		byte[][] valueBytes = new byte[values.length][];
+		Map<byte[], byte[]> storedIds = null;
+		try {
+			// check cache, first
+			List<byte[]> uncachedValues = new ArrayList<>();
+			for (int i = 0; i < values.length; i++) {
+				valueBytes[i] = values[i].getBytes("UTF-8");
+				byte[] id = null;
+				if (entriesInBatch != null) {
+					id = entriesInBatch.get(new ArrayWrapper(valueBytes[i]));
+				}
+				if (id == null) {
+					uncachedValues.add(valueBytes[i]);
+				} else {
+					ids[i] = NumberConversion.bytes2long(id);
+				}
+			}
+			storedIds = uncachedValues.isEmpty() ? new HashMap<>() : encoder.multiGet(uncachedValues);
+		} catch (UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		} catch (RocksDBException e) {
+			close();
+			throw new RuntimeException(e);
+		}
+		// entriesInBatch is cleared by intermediate flushes
+		Map<ArrayWrapper, byte[]> newIds = new HashMap<>();
+		for (int i = 0; i < values.length; i++) {
+			if (ids[i] != 0) {
+				continue;
+			}
+			byte[] id = storedIds.get(valueBytes[i]);
+			if (id == null) {
+				id = newIds.get(new ArrayWrapper(valueBytes[i]));
+			}
+			if (id == null) {
+				if (nextID > maxID) {
+					throw new RuntimeException("The maximum number of Strings have been encoded.");
+				} else if (!createNewEncodingForUnknownNodes) {
+					continue;
+				} else {
+					id = NumberConversion.long2bytes(nextID);
+					newIds.put(new ArrayWrapper(valueBytes[i]), id);
+					put(valueBytes[i], id);
+					nextID++;
+				}
+			}
+			ids[i] = NumberConversion.bytes2long(id);
+		}
+		return ids;
+	}
+
 	@Override
 	public long encode(long value, boolean createNewEncodingForUnknownNodes) {
 		byte[] valueBytes = NumberConversion.long2bytes(value);
@@ -178,6 +234,32 @@ public class RocksDBDictionary implements Dictionary, LongDictionary {
 		}
 	}
 
+	@Override
+	public String[] decode(long[] ids) {
+		String[] values = new String[ids.length];
+		try {
+			// request each id only once
+			Map<Long, byte[]> uniqueKeys = new HashMap<>();
+			for (long id : ids) {
+				uniqueKeys.computeIfAbsent(id, NumberConversion::long2bytes);
+			}
+			Map<byte[], byte[]> storedValues = uniqueKeys.isEmpty() ? new HashMap<>()
+					: decoder.multiGet(new ArrayList<>(uniqueKeys.values()));
+			Map<Long, String> decodedValues = new HashMap<>();
+			for (int i = 0; i < ids.length; i++) {
+				if (!decodedValues.containsKey(ids[i])) {
+					byte[] valueBytes = storedValues.get(uniqueKeys.get(ids[i]));
+					decodedValues.put(ids[i], valueBytes == null ? null : new String(valueBytes, "UTF-8"));
+				}
+				values[i] = decodedValues.get(ids[i]);
+			}
+			return values;
+		} catch (RocksDBException | UnsupportedEncodingException e) {
+			close();
+			throw new RuntimeException(e);
+		}
+	}
+
 	@Override
 	public long decodeLong(long id) {
 		try {
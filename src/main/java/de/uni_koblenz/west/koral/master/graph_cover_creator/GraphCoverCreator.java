@@ -20,6 +20,7 @@ package de.uni_koblenz.west.koral.master.graph_cover_creator;
 
 import de.uni_koblenz.west.koral.common.io.EncodingFileFormat;
 import de.uni_koblenz.west.koral.master.dictionary.DictionaryEncoder;
+import de.uni_koblenz.west.koral.master.statisticsDB.GraphStatistics;
 
 import java.io.File;
 
@@ -46,6 +47,29 @@ public interface GraphCoverCreator {
   public File[] createGraphCover(DictionaryEncoder dictionary, File rdfFile, File workingDir,
           int numberOfGraphChunks);
 
+  /**
+   * Creates the graph cover like
+   * {@link #createGraphCover(DictionaryEncoder, File, File, int)}. Additionally,
+   * the unencoded resources of each statement are encoded when the statement
+   * is written to a graph chunk and the statement is counted in
+   * <code>statistics</code>. Thus, the graph chunks are completely encoded
+   * ({@link EncodingFileFormat#EEE}) and the statistics do not have to be
+   * collected in a separate pass.
+   * 
+   * @param dictionary
+   * @param statistics
+   *          if <code>null</code>, the statements are written in the
+   *          {@link #getRequiredInputEncoding()} and are not counted
+   * @param rdfFile
+   * @param workingDir
+   * @param numberOfGraphChunks
+   * @return <code>{@link File}[]</code> that contains the graph chunk file for
+   *         slave i at index i. If a graph chunk is empty, <code>null</code> is
+   *         stored in the array.
+   */
+  public File[] createGraphCover(DictionaryEncoder dictionary, GraphStatistics statistics,
+          File rdfFile, File workingDir, int numberOfGraphChunks);
+
   /**
    * @param workingDir
    * @param numberOfGraphChunks
@@ -20,17 +20,26 @@ package de.uni_koblenz.west.koral.master.graph_cover_creator.impl;
 
 import org.apache.jena.graph.Node;
 
+import de.uni_koblenz.west.koral.common.io.BlockCompressedOutputStream;
 import de.uni_koblenz.west.koral.common.io.EncodedFileInputStream;
 import de.uni_koblenz.west.koral.common.io.EncodedFileOutputStream;
+import de.uni_koblenz.west.koral.common.io.EncodingFileFormat;
 import de.uni_koblenz.west.koral.common.io.Statement;
 import de.uni_koblenz.west.koral.common.measurement.MeasurementCollector;
 import de.uni_koblenz.west.koral.common.measurement.MeasurementType;
+import de.uni_koblenz.west.koral.common.utils.NumberConversion;
 import de.uni_koblenz.west.koral.master.dictionary.DictionaryEncoder;
 import de.uni_koblenz.west.koral.master.graph_cover_creator.GraphCoverCreator;
+import de.uni_koblenz.west.koral.master.statisticsDB.GraphStatistics;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.logging.Logger;
 
 /**
@@ -41,11 +50,34 @@ import java.util.logging.Logger;
  */
 public abstract class GraphCoverCreatorBase implements GraphCoverCreator {
 
+  private static final int ENCODING_BLOCK_SIZE = 10000;
+
   protected final Logger logger;
 
   protected final MeasurementCollector measurementCollector;
 
-  protected long[] numberOfTriplesPerChunk;
+  protected AtomicLongArray numberOfTriplesPerChunk;
+
+  private DictionaryEncoder dictionary;
+
+  /**
+   * The chunk files written by additional threads, see
+   * {@link #createChunkPartOutputs(File, int)}
+   */
+  private List<File[]> chunkParts;
+
+  /**
+   * if not <code>null</code>, the written statements are encoded completely
+   * and counted
+   */
+  private GraphStatistics statistics;
+
+  /**
+   * The statements that still have to be encoded, counted and written to the
+   * outputs they are mapped to
+   */
+  private final Map<EncodedFileOutputStream[], StatementBlock> statementBlocks =
+          new ConcurrentHashMap<>();
 
   public GraphCoverCreatorBase(Logger logger, MeasurementCollector measurementCollector) {
     this.logger = logger;
@@ -55,17 +87,45 @@ public abstract class GraphCoverCreatorBase implements GraphCoverCreator {
   @Override
   public File[] createGraphCover(DictionaryEncoder dictionary, File rdfFile, File workingDir,
           int numberOfGraphChunks) {
+    return createGraphCover(dictionary, null, rdfFile, workingDir, numberOfGraphChunks);
+  }
+
+  /**
+   * @return the number of threads that write statements to the chunks
+   *         concurrently
+   */
+  protected int getNumberOfCountingThreads() {
+    return 1;
+  }
+
+  @Override
+  public File[] createGraphCover(DictionaryEncoder dictionary, GraphStatistics statistics,
+          File rdfFile, File workingDir, int numberOfGraphChunks) {
+    this.dictionary = dictionary;
+    this.statistics = statistics;
+    if (measurementCollector != null) {
+      numberOfTriplesPerChunk = new AtomicLongArray(numberOfGraphChunks);
+    }
+    chunkParts = new ArrayList<>();
     File[] chunkFiles = getGraphChunkFiles(workingDir, numberOfGraphChunks);
     EncodedFileOutputStream[] outputs = getOutputStreams(chunkFiles);
     boolean[] writtenFiles = new boolean[chunkFiles.length];
+    if (statistics != null) {
+      statistics.beginCounting(workingDir, getNumberOfCountingThreads());
+    }
     try {
       try (EncodedFileInputStream input = new EncodedFileInputStream(getRequiredInputEncoding(),
               rdfFile);) {
         createCover(dictionary, input, numberOfGraphChunks, outputs, writtenFiles, workingDir);
+        flushStatements(outputs);
+        if (statistics != null) {
+          statistics.finishCounting();
+        }
       } catch (IOException e) {
         throw new RuntimeException(e);
       }
     } finally {
+      statementBlocks.clear();
       for (EncodedFileOutputStream stream : outputs) {
         try {
           if (stream != null) {
@@ -74,6 +134,7 @@ public abstract class GraphCoverCreatorBase implements GraphCoverCreator {
         } catch (IOException e) {
         }
       }
+      appendChunkParts(chunkFiles);
       // delete empty chunks
       for (int i = 0; i < chunkFiles.length; i++) {
         if (!writtenFiles[i]) {
@@ -86,10 +147,10 @@ public abstract class GraphCoverCreatorBase implements GraphCoverCreator {
     }
     if (measurementCollector != null) {
       long totalNumberOfTriples = 0;
-      String[] numberOfChunkTriples = new String[numberOfTriplesPerChunk.length];
-      for (int i = 0; i < numberOfTriplesPerChunk.length; i++) {
-        totalNumberOfTriples += numberOfTriplesPerChunk[i];
-        numberOfChunkTriples[i] = Long.toString(numberOfTriplesPerChunk[i]);
+      String[] numberOfChunkTriples = new String[numberOfTriplesPerChunk.length()];
+      for (int i = 0; i < numberOfTriplesPerChunk.length(); i++) {
+        totalNumberOfTriples += numberOfTriplesPerChunk.get(i);
+        numberOfChunkTriples[i] = Long.toString(numberOfTriplesPerChunk.get(i));
       }
       measurementCollector.measureValue(MeasurementType.TOTAL_GRAPH_SIZE, totalNumberOfTriples);
       measurementCollector.measureValue(MeasurementType.INITIAL_CHUNK_SIZES, numberOfChunkTriples);
@@ -120,13 +181,80 @@ public abstract class GraphCoverCreatorBase implements GraphCoverCreator {
           int numberOfGraphChunks, EncodedFileOutputStream[] outputs, boolean[] writtenFiles,
           File workingDir);
 
+  /**
+   * Creates additional outputs so that several threads can write statements
+   * concurrently with {@link #writeStatementToChunk(int, int, Statement,
+   * EncodedFileOutputStream[], boolean[])}. The outputs have to be closed by
+   * the caller before {@link #createCover(DictionaryEncoder,
+   * EncodedFileInputStream, int, EncodedFileOutputStream[], boolean[], File)}
+   * returns. Afterwards, their content is appended to the graph chunks.
+   * 
+   * @param workingDir
+   * @param numberOfGraphChunks
+   * @return
+   */
+  protected synchronized EncodedFileOutputStream[] createChunkPartOutputs(File workingDir,
+          int numberOfGraphChunks) {
+    File[] partFiles = new File[numberOfGraphChunks];
+    for (int i = 0; i < partFiles.length; i++) {
+      partFiles[i] = new File(workingDir.getAbsolutePath() + File.separatorChar + "chunk" + i
+              + ".part" + chunkParts.size() + ".gz");
+    }
+    chunkParts.add(partFiles);
+    return getOutputStreams(partFiles);
+  }
+
+  private void appendChunkParts(File[] chunkFiles) {
+    try {
+      for (File[] partFiles : chunkParts) {
+        for (int i = 0; i < partFiles.length; i++) {
+          if (partFiles[i].exists() && (partFiles[i]
+                  .length() > BlockCompressedOutputStream.EMPTY_FILE_SIZE)) {
+            BlockCompressedOutputStream.append(chunkFiles[i], partFiles[i]);
+          }
+        }
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    } finally {
+      for (File[] partFiles : chunkParts) {
+        for (File partFile : partFiles) {
+          partFile.delete();
+        }
+      }
+      chunkParts.clear();
+    }
+  }
+
+  /**
+   * This method may be called by several threads concurrently, if each thread
+   * writes to its own outputs. If statistics are collected, the statements are
+   * encoded and written in blocks. Therefore, {@link
+   * #flushStatements(EncodedFileOutputStream[])} has to be called before
+   * additional outputs created by {@link #createChunkPartOutputs(File, int)}
+   * are closed.
+   * 
+   * @param targetChunk
+   * @param numberOfGraphChunks
+   * @param statement
+   * @param outputs
+   * @param writtenFiles
+   */
   protected void writeStatementToChunk(int targetChunk, int numberOfGraphChunks,
           Statement statement, EncodedFileOutputStream[] outputs, boolean[] writtenFiles) {
     if (measurementCollector != null) {
-      if (numberOfTriplesPerChunk == null) {
-        numberOfTriplesPerChunk = new long[numberOfGraphChunks];
+      numberOfTriplesPerChunk.incrementAndGet(targetChunk);
+    }
+    if (statistics != null) {
+      StatementBlock block = statementBlocks.computeIfAbsent(outputs,
+              k -> new StatementBlock());
+      block.add(targetChunk, statement,
+              setContainment(targetChunk, statement.getContainment()).clone());
+      writtenFiles[targetChunk] = true;
+      if (block.size == ENCODING_BLOCK_SIZE) {
+        writeStatementBlock(block, outputs);
       }
-      numberOfTriplesPerChunk[targetChunk]++;
+      return;
     }
     Statement outputStatement = Statement.getStatement(getRequiredInputEncoding(),
             statement.getSubject(), statement.getProperty(), statement.getObject(),
@@ -139,6 +267,67 @@ public abstract class GraphCoverCreatorBase implements GraphCoverCreator {
     writtenFiles[targetChunk] = true;
   }
 
+  /**
+   * Encodes, counts and writes the statements that are still buffered for
+   * <code>outputs</code>.
+   * 
+   * @param outputs
+   */
+  protected void flushStatements(EncodedFileOutputStream[] outputs) {
+    StatementBlock block = statementBlocks.remove(outputs);
+    if (block != null) {
+      writeStatementBlock(block, outputs);
+    }
+  }
+
+  /**
+   * Encodes all resources of the block that are not encoded yet with a single
+   * request to the dictionary. Afterwards, the statements are counted and
+   * written.
+   * 
+   * @param block
+   * @param outputs
+   */
+  private void writeStatementBlock(StatementBlock block, EncodedFileOutputStream[] outputs) {
+    int numberOfResources = 0;
+    for (int i = 0; i < (3 * block.size); i++) {
+      if (block.resources[i] != null) {
+        numberOfResources++;
+      }
+    }
+    if (numberOfResources > 0) {
+      String[] resources = new String[numberOfResources];
+      for (int i = 0, j = 0; i < (3 * block.size); i++) {
+        if (block.resources[i] != null) {
+          resources[j++] = block.resources[i];
+        }
+      }
+      long[] ids = dictionary.encodeWithoutOwnership(resources, true);
+      for (int i = 0, j = 0; i < (3 * block.size); i++) {
+        if (block.resources[i] != null) {
+          block.ids[i] = ids[j++];
+          block.resources[i] = null;
+        }
+      }
+    }
+    try {
+      for (int i = 0; i < block.size; i++) {
+        long subject = block.ids[3 * i];
+        long property = block.ids[(3 * i) + 1];
+        long object = block.ids[(3 * i) + 2];
+        statistics.count(subject, property, object, block.targetChunks[i]);
+        outputs[block.targetChunks[i]].writeStatement(Statement.getStatement(
+                EncodingFileFormat.EEE, NumberConversion.long2bytes(subject),
+                NumberConversion.long2bytes(property), NumberConversion.long2bytes(object),
+                block.containments[i]));
+        block.containments[i] = null;
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    block.size = 0;
+  }
+
   private byte[] setContainment(int targetChunk, byte[] containment) {
     int bitsetIndex = targetChunk / Byte.SIZE;
     byte bitsetMask = getBitMaskFor(targetChunk + 1);
@@ -203,4 +392,44 @@ public abstract class GraphCoverCreatorBase implements GraphCoverCreator {
   public void close() {
   }
 
+  /**
+   * Statements that are mapped to the same outputs. For each statement, the
+   * ids of already encoded resources or the serialized resources that still
+   * have to be encoded are stored.
+   */
+  private static class StatementBlock {
+
+    private final int[] targetChunks = new int[ENCODING_BLOCK_SIZE];
+
+    private final long[] ids = new long[3 * ENCODING_BLOCK_SIZE];
+
+    private final String[] resources = new String[3 * ENCODING_BLOCK_SIZE];
+
+    private final byte[][] containments = new byte[ENCODING_BLOCK_SIZE][];
+
+    private int size;
+
+    public void add(int targetChunk, Statement statement, byte[] containment) {
+      targetChunks[size] = targetChunk;
+      if (statement.isSubjectEncoded()) {
+        ids[3 * size] = statement.getSubjectAsLong();
+      } else {
+        resources[3 * size] = statement.getSubjectAsString();
+      }
+      if (statement.isPropertyEncoded()) {
+        ids[(3 * size) + 1] = statement.getPropertyAsLong();
+      } else {
+        resources[(3 * size) + 1] = statement.getPropertyAsString();
+      }
+      if (statement.isObjectEncoded()) {
+        ids[(3 * size) + 2] = statement.getObjectAsLong();
+      } else {
+        resources[(3 * size) + 2] = statement.getObjectAsString();
+      }
+      containments[size] = containment;
+      size++;
+    }
+
+  }
+
 }
@@ -1,5 +1,6 @@
 package de.uni_koblenz.west.koral.master.graph_cover_creator.impl;
 
+import de.uni_koblenz.west.koral.common.io.BlockCompressedOutputStream;
 import de.uni_koblenz.west.koral.common.io.EncodedFileInputStream;
 import de.uni_koblenz.west.koral.common.io.EncodedFileOutputStream;
 import de.uni_koblenz.west.koral.common.io.EncodedLongFileInputStream;
@@ -19,6 +20,7 @@ import de.uni_koblenz.west.koral.master.utils.EdgeIterator;
 import de.uni_koblenz.west.koral.master.utils.FixedSizeLongArrayComparator;
 import de.uni_koblenz.west.koral.master.utils.InitialChunkProducer;
 import de.uni_koblenz.west.koral.master.utils.LongIterator;
+import de.uni_koblenz.west.koral.master.utils.LongTupleSorter;
 import de.uni_koblenz.west.koral.master.utils.Merger;
 import de.uni_koblenz.west.koral.master.utils.NWayMergeSort;
 import de.uni_koblenz.west.koral.master.utils.VertexDegreeComparator;
@@ -172,10 +174,9 @@ public class GreedyEdgeColoringCoverCreator extends GraphCoverCreatorBase {
     File edgeAssignment = null;
     try (EncodedLongFileInputStream edges2ChunksInput = new EncodedLongFileInputStream(
             edges2chunks);) {
-      edgeAssignment = sortBinaryValues(edges2ChunksInput,
-              new FixedSizeLongArrayComparator(true, 0), internalWorkingDir,
+      edgeAssignment = sortBinaryValues(edges2ChunksInput, internalWorkingDir,
               GreedyEdgeColoringCoverCreator.NUMBER_OF_CACHED_VERTICES,
-              GreedyEdgeColoringCoverCreator.MAX_NUMBER_OF_OPEN_FILES, true);
+              GreedyEdgeColoringCoverCreator.MAX_NUMBER_OF_OPEN_FILES, true, true, 0);
       edges2chunks.delete();
     } catch (IOException e) {
       throw new RuntimeException(e);
@@ -238,9 +239,8 @@ public class GreedyEdgeColoringCoverCreator extends GraphCoverCreatorBase {
       long sortColorsStart = System.currentTimeMillis();
       // sort colors by size in descending order
       Iterator<long[]> iteratorOverColors = colorManager.getIteratorOverAllColors();
-      File colorsSortedBySizeDesc = sortBinaryValues(iteratorOverColors,
-              new FixedSizeLongArrayComparator(false, 1, 0), workingDir, numberOfCachedVertices,
-              maxNumberOfOpenFiles, false);
+      File colorsSortedBySizeDesc = sortBinaryValues(iteratorOverColors, workingDir,
+              numberOfCachedVertices, maxNumberOfOpenFiles, false, false, 1, 0);
       // TODO remove
       System.out.println(
               "\tsorting colors by size: " + (System.currentTimeMillis() - sortColorsStart));
@@ -280,9 +280,8 @@ public class GreedyEdgeColoringCoverCreator extends GraphCoverCreatorBase {
       // sort color2chunks by colorIds
       File color2chunksSortedByColorAsc = null;
       try (EncodedLongFileInputStream input = new EncodedLongFileInputStream(color2chunks);) {
-        color2chunksSortedByColorAsc = sortBinaryValues(input,
-                new FixedSizeLongArrayComparator(true, 0), workingDir, numberOfCachedVertices,
-                maxNumberOfOpenFiles, false);
+        color2chunksSortedByColorAsc = sortBinaryValues(input, workingDir,
+                numberOfCachedVertices, maxNumberOfOpenFiles, false, true, 0);
       }
       color2chunks.delete();
       // TODO remove
@@ -293,9 +292,8 @@ public class GreedyEdgeColoringCoverCreator extends GraphCoverCreatorBase {
       long sortEdge2colorStart = System.currentTimeMillis();
       // get assignment of edges to colors sorted by colors in ascending order
       Iterator<long[]> iteratorOverColoredEdges = colorManager.getIteratorOverColoredEdges();
-      File edges2ColorsSortedByColorAsc = sortBinaryValues(iteratorOverColoredEdges,
-              new FixedSizeLongArrayComparator(true, 1, 0), workingDir, numberOfCachedVertices,
-              maxNumberOfOpenFiles, false);
+      File edges2ColorsSortedByColorAsc = sortBinaryValues(iteratorOverColoredEdges, workingDir,
+              numberOfCachedVertices, maxNumberOfOpenFiles, false, true, 1, 0);
       // TODO remove
       System.out.println("\tsorting edge2color by colorId: "
               + (System.currentTimeMillis() - sortEdge2colorStart));
@@ -352,9 +350,9 @@ public class GreedyEdgeColoringCoverCreator extends GraphCoverCreatorBase {
     }
   }
 
-  private File sortBinaryValues(EncodedLongFileInputStream input, Comparator<long[]> comparator,
-          File workingDir, int numberOfCachedVertices, int maxNumberOfOpenFiles,
-          boolean outputOnlySecondValue) {
+  private File sortBinaryValues(EncodedLongFileInputStream input, File workingDir,
+          int numberOfCachedVertices, int maxNumberOfOpenFiles, boolean outputOnlySecondValue,
+          boolean ascendingOrder, int... comparisonOrder) {
     Iterator<long[]> iterator = new Iterator<long[]>() {
 
       private final LongIterator iter = input.iterator();
@@ -369,91 +367,27 @@ public class GreedyEdgeColoringCoverCreator extends GraphCoverCreatorBase {
         return new long[] { iter.next(), iter.next() };
       }
     };
-    return sortBinaryValues(iterator, comparator, workingDir, numberOfCachedVertices,
-            maxNumberOfOpenFiles, outputOnlySecondValue);
+    return sortBinaryValues(iterator, workingDir, numberOfCachedVertices, maxNumberOfOpenFiles,
+            outputOnlySecondValue, ascendingOrder, comparisonOrder);
   }
 
-  private File sortBinaryValues(Iterator<long[]> iterator, Comparator<long[]> comparator,
-          File workingDir, int numberOfCachedVertices, int maxNumberOfOpenFiles,
-          boolean outputOnlySecondValue) {
+  private File sortBinaryValues(Iterator<long[]> iterator, File workingDir,
+          int numberOfCachedVertices, int maxNumberOfOpenFiles, boolean outputOnlySecondValue,
+          boolean ascendingOrder, int... comparisonOrder) {
     try {
       File sortedValuesFile = File.createTempFile("sortedValues-", "", workingDir);
       try (EncodedLongFileOutputStream output = new EncodedLongFileOutputStream(sortedValuesFile);
-              InitialChunkProducer producer = new InitialChunkProducer() {
-
-                private long[][] values;
-
-                private int nextIndex;
-
-                @Override
-                public void loadNextChunk() throws IOException {
-                  if (values == null) {
-                    values = new long[numberOfCachedVertices][];
-                  }
-                  nextIndex = 0;
-                  while (iterator.hasNext() && (nextIndex < values.length)) {
-                    values[nextIndex] = iterator.next();
-                    nextIndex++;
-                  }
-                }
-
-                @Override
-                public boolean hasNextChunk() {
-                  return nextIndex > 0;
-                }
-
-                @Override
-                public void sort(Comparator<long[]> comparator) {
-                  Arrays.sort(values, 0, nextIndex, comparator);
-                }
-
-                @Override
-                public void writeChunk(LongOutputWriter output) throws IOException {
-                  for (int i = 0; i < nextIndex; i++) {
-                    long[] color = values[i];
-                    for (long value : color) {
-                      output.writeLong(value);
-                    }
-                  }
-                }
-
-                @Override
-                public void close() {
-                  values = null;
-                }
-              };) {
-        Merger merger = new Merger() {
-
-          @Override
-          public void startNextMergeLevel() {
-          }
-
-          @Override
-          public long[] readNextElement(LongIterator iterator) throws IOException {
-            return new long[] { iterator.next(), iterator.next() };
-          }
-
-          @Override
-          public void mergeAndWrite(BitSet indicesOfSmallestElement, long[][] elements,
-                  LongIterator[] iterators, LongOutputWriter out) throws IOException {
-            for (int index = indicesOfSmallestElement.nextSetBit(
-                    0); index >= 0; index = indicesOfSmallestElement.nextSetBit(index + 1)) {
-              if (outputOnlySecondValue && (out == output)) {
-                out.writeLong(elements[index][1]);
-              } else {
-                for (long value : elements[index]) {
-                  out.writeLong(value);
-                }
-              }
-            }
-          }
-
-          @Override
-          public void close() {
-          }
-        };
-        NWayMergeSort sort = new NWayMergeSort();
-        sort.sort(producer, merger, comparator, workingDir, maxNumberOfOpenFiles - 2, output);
+              LongTupleSorter sorter = new LongTupleSorter(2, workingDir,
+                      2L * Long.BYTES * numberOfCachedVertices, maxNumberOfOpenFiles - 2,
+                      ascendingOrder, comparisonOrder);) {
+        while (iterator.hasNext()) {
+          sorter.add(iterator.next());
+        }
+        if (outputOnlySecondValue) {
+          sorter.sort(tuple -> output.writeLong(tuple[1]));
+        } else {
+          sorter.sort(output);
+        }
       }
       return sortedValuesFile;
     } catch (IOException e) {
@@ -584,7 +518,7 @@ public class GreedyEdgeColoringCoverCreator extends GraphCoverCreatorBase {
 
       @Override
       public void sort(Comparator<long[]> comparator) {
-        Arrays.sort(cachedEdges, 0, nextIndex, comparator);
+        Arrays.parallelSort(cachedEdges, 0, nextIndex, comparator);
       }
 
       @Override
@@ -860,7 +794,8 @@ public class GreedyEdgeColoringCoverCreator extends GraphCoverCreatorBase {
     if (maxDegree == 1) {
       return vertexFile;
     } else {
-      if ((vertexFile.length() == 0) || (vertexFile.length() == 20)) {
+      if ((vertexFile.length() == 0)
+              || (vertexFile.length() == BlockCompressedOutputStream.EMPTY_FILE_SIZE)) {
         vertexFile.delete();
         return outputFile;
       }
@@ -957,7 +892,7 @@ public class GreedyEdgeColoringCoverCreator extends GraphCoverCreatorBase {
 
         @Override
         public void sort(Comparator<long[]> comparator) {
-          Arrays.sort(vertexHeaders, 0, nextIndex, comparator);
+          Arrays.parallelSort(vertexHeaders, 0, nextIndex, comparator);
         }
 
         @Override
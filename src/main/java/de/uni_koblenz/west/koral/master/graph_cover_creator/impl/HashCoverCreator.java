@@ -24,23 +24,42 @@ import de.uni_koblenz.west.koral.common.io.EncodingFileFormat;
 import de.uni_koblenz.west.koral.common.io.Statement;
 import de.uni_koblenz.west.koral.common.measurement.MeasurementCollector;
 import de.uni_koblenz.west.koral.common.utils.NumberConversion;
+import de.uni_koblenz.west.koral.common.utils.XXHash64;
 import de.uni_koblenz.west.koral.master.dictionary.DictionaryEncoder;
 
 import java.io.File;
-import java.io.UnsupportedEncodingException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 
 /**
  * Creates a hash cover based on the subject of the triples.
  * 
+ * By default, the chunk of a triple is determined by the xxHash64 value of
+ * the subject. Since MD5 was used by previous versions, it can be used to
+ * assign the triples to the same chunks as in existing stores (see
+ * {@link #setUseMD5(boolean)}). If the input consists of several compressed
+ * blocks, they are partitioned by several threads concurrently (see
+ * {@link #setNumberOfThreads(int)}).
+ * 
  * @author Daniel Janke &lt;danijankATuni-koblenz.de&gt;
  *
  */
 public class HashCoverCreator extends GraphCoverCreatorBase {
 
-  private final MessageDigest digest;
+  private final ThreadLocal<MessageDigest> digest;
+
+  private int numberOfThreads;
+
+  private boolean useMD5;
 
   @Override
   public EncodingFileFormat getRequiredInputEncoding() {
@@ -49,47 +68,184 @@ public class HashCoverCreator extends GraphCoverCreatorBase {
 
   public HashCoverCreator(Logger logger, MeasurementCollector measurementCollector) {
     super(logger, measurementCollector);
-    try {
-      digest = MessageDigest.getInstance("MD5");
-    } catch (NoSuchAlgorithmException e) {
-      if (logger != null) {
-        logger.throwing(e.getStackTrace()[0].getClassName(), e.getStackTrace()[0].getMethodName(),
-                e);
+    digest = ThreadLocal.withInitial(() -> {
+      try {
+        return MessageDigest.getInstance("MD5");
+      } catch (NoSuchAlgorithmException e) {
+        if (logger != null) {
+          logger.throwing(e.getStackTrace()[0].getClassName(),
+                  e.getStackTrace()[0].getMethodName(), e);
+        }
+        throw new RuntimeException(e);
       }
-      throw new RuntimeException(e);
-    }
+    });
+  }
+
+  /**
+   * @param numberOfThreads
+   *          the number of threads that partition the input concurrently. If
+   *          &lt;=0, the number of available processors is used.
+   */
+  public void setNumberOfThreads(int numberOfThreads) {
+    this.numberOfThreads = numberOfThreads;
+  }
+
+  private int getNumberOfThreads() {
+    return numberOfThreads > 0 ? numberOfThreads : Runtime.getRuntime().availableProcessors();
+  }
+
+  @Override
+  protected int getNumberOfCountingThreads() {
+    return getNumberOfThreads();
+  }
+
+  /**
+   * @param useMD5
+   *          if true, the triples are assigned to chunks by the MD5 hash of
+   *          their subject as in previous versions. Otherwise the faster
+   *          xxHash64 is used.
+   */
+  public void setUseMD5(boolean useMD5) {
+    this.useMD5 = useMD5;
   }
 
   @Override
   protected void createCover(DictionaryEncoder dictionary, EncodedFileInputStream input,
           int numberOfGraphChunks, EncodedFileOutputStream[] outputs, boolean[] writtenFiles,
           File workingDir) {
+    assignStatements(input, numberOfGraphChunks, outputs, writtenFiles, workingDir);
+  }
+
+  /**
+   * Writes each statement of the input to the chunk returned by
+   * {@link #getTargetChunk(Statement, int)}. If the input consists of several
+   * blocks, they are split among several threads. The first thread writes to
+   * <code>outputs</code>, all other threads write to their own chunk parts
+   * that are appended to the chunks afterwards.
+   * 
+   * @param input
+   * @param numberOfGraphChunks
+   * @param outputs
+   * @param writtenFiles
+   * @param workingDir
+   */
+  protected void assignStatements(EncodedFileInputStream input, int numberOfGraphChunks,
+          EncodedFileOutputStream[] outputs, boolean[] writtenFiles, File workingDir) {
+    int threads = getNumberOfThreads();
+    EncodedFileInputStream[] parts;
+    try {
+      parts = (threads > 1) && (input.getNumberOfBlocks() > 1) ? input.split(threads) : null;
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    if ((parts == null) || (parts.length <= 1)) {
+      closeParts(parts, null);
+      assignStatements(input, numberOfGraphChunks, outputs, writtenFiles);
+      return;
+    }
+    EncodedFileOutputStream[][] partOutputs = new EncodedFileOutputStream[parts.length][];
+    partOutputs[0] = outputs;
+    ExecutorService executor = Executors.newFixedThreadPool(parts.length - 1);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 1; i < parts.length; i++) {
+        partOutputs[i] = createChunkPartOutputs(workingDir, numberOfGraphChunks);
+        EncodedFileInputStream part = parts[i];
+        EncodedFileOutputStream[] out = partOutputs[i];
+        futures.add(executor.submit(
+                () -> assignStatements(part, numberOfGraphChunks, out, writtenFiles)));
+      }
+      assignStatements(parts[0], numberOfGraphChunks, outputs, writtenFiles);
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } catch (ExecutionException e) {
+      throw new RuntimeException(e.getCause());
+    } finally {
+      executor.shutdownNow();
+      closeParts(parts, partOutputs);
+    }
+  }
+
+  private void assignStatements(EncodedFileInputStream input, int numberOfGraphChunks,
+          EncodedFileOutputStream[] outputs, boolean[] writtenFiles) {
     for (Statement statement : input) {
-      processStatement(numberOfGraphChunks, outputs, writtenFiles, statement);
+      writeStatementToChunk(getTargetChunk(statement, numberOfGraphChunks), numberOfGraphChunks,
+              statement, outputs, writtenFiles);
+    }
+    flushStatements(outputs);
+  }
+
+  private void closeParts(EncodedFileInputStream[] parts,
+          EncodedFileOutputStream[][] partOutputs) {
+    if (partOutputs != null) {
+      // the first outputs are the chunks which are closed by the caller
+      for (int i = 1; i < partOutputs.length; i++) {
+        if (partOutputs[i] == null) {
+          continue;
+        }
+        for (EncodedFileOutputStream output : partOutputs[i]) {
+          try {
+            output.close();
+          } catch (IOException e) {
+            throw new RuntimeException(e);
+          }
+        }
+      }
     }
+    if (parts != null) {
+      for (EncodedFileInputStream part : parts) {
+        try {
+          part.close();
+        } catch (IOException e) {
+          throw new RuntimeException(e);
+        }
+      }
+    }
+  }
+
+  /**
+   * @param statement
+   * @param numberOfGraphChunks
+   * @return the chunk determined by the hash of the subject
+   */
+  protected int getTargetChunk(Statement statement, int numberOfGraphChunks) {
+    if (useMD5) {
+      return computeChunk(statement.getSubjectAsString(), numberOfGraphChunks);
+    }
+    return computeChunk(statement.getSubject(), numberOfGraphChunks);
   }
 
-  protected void processStatement(int numberOfGraphChunks, EncodedFileOutputStream[] outputs,
-          boolean[] writtenFiles, Statement statement) {
-    // assign to triple to chunk according to hash on subject
-    int targetChunk = computeHash(statement.getSubjectAsString()) % outputs.length;
+  protected int computeChunk(String string, int numberOfGraphChunks) {
+    return computeChunk(string.getBytes(StandardCharsets.UTF_8), numberOfGraphChunks);
+  }
+
+  /**
+   * This method is thread safe.
+   * 
+   * @param bytes
+   * @param numberOfGraphChunks
+   * @return
+   */
+  protected int computeChunk(byte[] bytes, int numberOfGraphChunks) {
+    if (!useMD5) {
+      return (int) Long.remainderUnsigned(XXHash64.hash(bytes), numberOfGraphChunks);
+    }
+    int targetChunk = computeMD5Hash(bytes) % numberOfGraphChunks;
     if (targetChunk < 0) {
       targetChunk *= -1;
     }
-
-    writeStatementToChunk(targetChunk, numberOfGraphChunks, statement, outputs, writtenFiles);
+    return targetChunk;
   }
 
-  protected int computeHash(String string) {
+  private int computeMD5Hash(byte[] bytes) {
+    MessageDigest digest = this.digest.get();
     byte[] hash = null;
     try {
-      hash = digest.digest(string.getBytes("UTF-8"));
-    } catch (UnsupportedEncodingException e) {
-      if (logger != null) {
-        logger.throwing(e.getStackTrace()[0].getClassName(), e.getStackTrace()[0].getMethodName(),
-                e);
-      }
-      throw new RuntimeException(e);
+      hash = digest.digest(bytes);
     } finally {
       digest.reset();
     }
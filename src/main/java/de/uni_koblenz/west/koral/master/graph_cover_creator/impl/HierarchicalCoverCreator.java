@@ -43,6 +43,11 @@ import java.util.regex.Pattern;
  */
 public class HierarchicalCoverCreator extends HashCoverCreator {
 
+  /**
+   * the hierarchy level of the IRI prefixes that are hashed
+   */
+  private int hierarchyLevel;
+
   public HierarchicalCoverCreator(Logger logger, MeasurementCollector measurementCollector) {
     super(logger, measurementCollector);
   }
@@ -56,7 +61,7 @@ public class HierarchicalCoverCreator extends HashCoverCreator {
   protected void createCover(DictionaryEncoder dictionary, EncodedFileInputStream input,
           int numberOfGraphChunks, EncodedFileOutputStream[] outputs, boolean[] writtenFiles,
           File workingDir) {
-    int hierarchyLevel = identifyHierarchyLevel(input, numberOfGraphChunks);
+    hierarchyLevel = identifyHierarchyLevel(input, numberOfGraphChunks);
     if (measurementCollector != null) {
       measurementCollector.measureValue(MeasurementType.LOAD_GRAPH_COVER_CREATION_FILE_WRITE_START,
               System.currentTimeMillis());
@@ -67,27 +72,23 @@ public class HierarchicalCoverCreator extends HashCoverCreator {
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
-    for (Statement statement : input) {
-      String subjectString = statement.getSubjectAsString();
-      if (!isUri(subjectString)) {
-        processStatement(numberOfGraphChunks, outputs, writtenFiles, statement);
-      } else {
-        String[] iriParts = getIRIHierarchy(subjectString);
-        String iriPrefix = getIriPrefix(iriParts, hierarchyLevel);
-        int targetChunk = computeHash(iriPrefix) % outputs.length;
-        if (targetChunk < 0) {
-          targetChunk *= -1;
-        }
-
-        writeStatementToChunk(targetChunk, numberOfGraphChunks, statement, outputs, writtenFiles);
-      }
-    }
+    assignStatements(input, numberOfGraphChunks, outputs, writtenFiles, workingDir);
     if (measurementCollector != null) {
       measurementCollector.measureValue(MeasurementType.LOAD_GRAPH_COVER_CREATION_FILE_WRITE_END,
               System.currentTimeMillis());
     }
   }
 
+  @Override
+  protected int getTargetChunk(Statement statement, int numberOfGraphChunks) {
+    String subjectString = statement.getSubjectAsString();
+    if (!isUri(subjectString)) {
+      return super.getTargetChunk(statement, numberOfGraphChunks);
+    }
+    String[] iriParts = getIRIHierarchy(subjectString);
+    return computeChunk(getIriPrefix(iriParts, hierarchyLevel), numberOfGraphChunks);
+  }
+
   private boolean isUri(String subjectString) {
     if (subjectString.startsWith("<")) {
       subjectString = subjectString.substring(1);
@@ -165,10 +166,7 @@ public class HierarchicalCoverCreator extends HashCoverCreator {
       String subjectString = statement.getSubjectAsString();
       if (!isUri(subjectString)) {
         // assign to triple to chunk according to hash on subject
-        int targetChunk = computeHash(subjectString) % numberOfGraphChunks;
-        if (targetChunk < 0) {
-          targetChunk *= -1;
-        }
+        int targetChunk = computeChunk(subjectString, numberOfGraphChunks);
         tripleOccurences[0][targetChunk][0]++;
       } else {
         String[] iriParts = getIRIHierarchy(subjectString);
@@ -177,10 +175,7 @@ public class HierarchicalCoverCreator extends HashCoverCreator {
         }
         for (int i = 0; i < iriParts.length; i++) {
           String prefix = getIriPrefix(iriParts, i);
-          int targetChunk = computeHash(prefix) % numberOfGraphChunks;
-          if (targetChunk < 0) {
-            targetChunk *= -1;
-          }
+          int targetChunk = computeChunk(prefix, numberOfGraphChunks);
           if (i == (iriParts.length - 1)) {
             // this is the last hierarchy level
             for (int futureLevel = i + 1; futureLevel < tripleOccurences.length; futureLevel++) {
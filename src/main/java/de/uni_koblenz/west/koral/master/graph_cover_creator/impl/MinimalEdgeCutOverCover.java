@@ -37,9 +37,11 @@ import de.uni_koblenz.west.koral.master.dictionary.LongDictionary;
 import de.uni_koblenz.west.koral.master.dictionary.impl.RocksDBDictionary;
 import de.uni_koblenz.west.koral.master.utils.AdjacencyMatrix;
 import de.uni_koblenz.west.koral.master.utils.DeSerializer;
+import de.uni_koblenz.west.koral.master.utils.FennelPartitioner;
 import de.uni_koblenz.west.koral.master.utils.FixedSizeLongArrayComparator;
 import de.uni_koblenz.west.koral.master.utils.InitialChunkProducer;
 import de.uni_koblenz.west.koral.master.utils.LongIterator;
+import de.uni_koblenz.west.koral.master.utils.LongTupleSorter;
 import de.uni_koblenz.west.koral.master.utils.Merger;
 import de.uni_koblenz.west.koral.master.utils.NWayMergeSort;
 import de.uni_koblenz.west.koral.master.utils.SingleFileAdjacencyMatrix;
@@ -64,8 +66,11 @@ import java.util.Scanner;
 import java.util.logging.Logger;
 
 /**
- * Creates a minimal edge-cut cover with the help of
- * <a href="http://glaros.dtc.umn.edu/gkhome/metis/metis/overview">METIS</a>
+ * Creates a minimal edge-cut cover. By default, the vertices are partitioned
+ * within the JVM by the {@link FennelPartitioner}. Optionally, the external
+ * program <code>gpmetis</code> of
+ * <a href="http://glaros.dtc.umn.edu/gkhome/metis/metis/overview">METIS</a> is
+ * used.
  * 
  * @author Daniel Janke &lt;danijankATuni-koblenz.de&gt;
  *
@@ -82,10 +87,32 @@ public class MinimalEdgeCutOverCover extends GraphCoverCreatorBase {
 
   private long numberOfVertices;
 
+  private boolean useMetis;
+
+  private int numberOfThreads;
+
   public MinimalEdgeCutOverCover(Logger logger, MeasurementCollector measurementCollector) {
     super(logger, measurementCollector);
   }
 
+  /**
+   * @param useMetis
+   *          if true, the vertices are partitioned by the external program
+   *          <code>gpmetis</code> instead of the {@link FennelPartitioner}
+   */
+  public void setUseMetis(boolean useMetis) {
+    this.useMetis = useMetis;
+  }
+
+  /**
+   * @param numberOfThreads
+   *          the number of threads used by the {@link FennelPartitioner}. If
+   *          &lt;=0, one thread per available processor is used.
+   */
+  public void setNumberOfThreads(int numberOfThreads) {
+    this.numberOfThreads = numberOfThreads;
+  }
+
   @Override
   public EncodingFileFormat getRequiredInputEncoding() {
     return EncodingFileFormat.EEE;
@@ -111,10 +138,8 @@ public class MinimalEdgeCutOverCover extends GraphCoverCreatorBase {
             workingDir.getAbsolutePath() + File.separator + "encodedRDFGraph.gz");
     File metisInputGraph = new File(workingDir.getAbsolutePath() + File.separator + "metisInput");
 
-    createMetisInputFile(dictionary, input, localDictionary, encodedRDFGraph, metisInputGraph,
-            ignoredTriples, workingDir);
-    metisOutputGraph = runMetis(metisInputGraph,
-            getNumberOfPartitions(187, numberOfEdges, numberOfVertices, numberOfGraphChunks));
+    metisOutputGraph = createPartitioning(dictionary, input, localDictionary, encodedRDFGraph,
+            metisInputGraph, ignoredTriples, numberOfGraphChunks, workingDir);
 
     if (measurementCollector != null) {
       measurementCollector.measureValue(MeasurementType.LOAD_GRAPH_COVER_CREATION_FILE_WRITE_START,
@@ -160,9 +185,13 @@ public class MinimalEdgeCutOverCover extends GraphCoverCreatorBase {
     deleteFolder(dictionaryFolder);
   }
 
-  private void createMetisInputFile(DictionaryEncoder dictionary, EncodedFileInputStream input,
+  /**
+   * @return file in the METIS output format that contains the partition of
+   *         each vertex
+   */
+  private File createPartitioning(DictionaryEncoder dictionary, EncodedFileInputStream input,
           LongDictionary localDictionary, File encodedRDFGraph, File metisInputGraph,
-          File ignoredTriples, File workingDir) {
+          File ignoredTriples, int numberOfGraphChunks, File workingDir) {
     if (measurementCollector != null) {
       measurementCollector.measureValue(
               MeasurementType.LOAD_GRAPH_COVER_CREATION_METIS_INPUT_FILE_CREATION_START,
@@ -183,6 +212,7 @@ public class MinimalEdgeCutOverCover extends GraphCoverCreatorBase {
     long numberOfUsedTriples = 0;
     long numberOfIgnoredTriples = 0;
 
+    File partitioning = null;
     AdjacencyMatrix adjacencyMatrix = new SingleFileAdjacencyMatrix(metisInputTempFolder);
     // create adjacency lists
     try {
@@ -234,25 +264,12 @@ public class MinimalEdgeCutOverCover extends GraphCoverCreatorBase {
                 Long.toString(numberOfEdges));
       }
 
-      // write adjacency lists to file
-      try (BufferedWriter metisInputGraphWriter = new BufferedWriter(
-              new OutputStreamWriter(new FileOutputStream(metisInputGraph), "UTF-8"));) {
-        metisInputGraphWriter.write(numberOfVertices + " " + numberOfEdges);
-        for (long vertex = 1; vertex <= numberOfVertices; vertex++) {
-          metisInputGraphWriter.write("\n");
-          String delim = "";
-          LongIterator iterator = adjacencyMatrix.getAdjacencyList(vertex);
-          while (iterator.hasNext()) {
-            long neighbour = iterator.next();
-            metisInputGraphWriter.write(delim + neighbour);
-            delim = " ";
-          }
-          iterator.close();
-        }
-      } catch (IOException e) {
-        throw new RuntimeException(e);
+      if (!useMetis) {
+        partitioning = runFennel(adjacencyMatrix, metisInputGraph, getNumberOfPartitions(187,
+                numberOfEdges, numberOfVertices, numberOfGraphChunks), metisInputTempFolder);
+      } else {
+        writeMetisInputFile(adjacencyMatrix, numberOfVertices, numberOfEdges, metisInputGraph);
       }
-
     } finally {
       localDictionary.flush();
       adjacencyMatrix.close();
@@ -265,6 +282,51 @@ public class MinimalEdgeCutOverCover extends GraphCoverCreatorBase {
     deleteFolder(metisInputTempFolder);
     this.numberOfVertices = numberOfVertices;
     this.numberOfEdges = numberOfEdges;
+    if (partitioning == null) {
+      partitioning = runMetis(metisInputGraph,
+              getNumberOfPartitions(187, numberOfEdges, numberOfVertices, numberOfGraphChunks));
+    }
+    return partitioning;
+  }
+
+  private void writeMetisInputFile(AdjacencyMatrix adjacencyMatrix, long numberOfVertices,
+          long numberOfEdges, File metisInputGraph) {
+    try (BufferedWriter metisInputGraphWriter = new BufferedWriter(
+            new OutputStreamWriter(new FileOutputStream(metisInputGraph), "UTF-8"));) {
+      metisInputGraphWriter.write(numberOfVertices + " " + numberOfEdges);
+      for (long vertex = 1; vertex <= numberOfVertices; vertex++) {
+        metisInputGraphWriter.write("\n");
+        String delim = "";
+        LongIterator iterator = adjacencyMatrix.getAdjacencyList(vertex);
+        while (iterator.hasNext()) {
+          long neighbour = iterator.next();
+          metisInputGraphWriter.write(delim + neighbour);
+          delim = " ";
+        }
+        iterator.close();
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private File runFennel(AdjacencyMatrix adjacencyMatrix, File metisInputGraph,
+          int numberOfPartitions, File workingDir) {
+    if (measurementCollector != null) {
+      measurementCollector.measureValue(MeasurementType.LOAD_GRAPH_COVER_CREATION_RUN_METIS_START,
+              System.currentTimeMillis());
+    }
+    File partitioning = new File(
+            metisInputGraph.getAbsolutePath() + ".part." + numberOfPartitions);
+    FennelPartitioner partitioner = new FennelPartitioner(workingDir,
+            Math.max(1, numberOfPartitions));
+    partitioner.setNumberOfThreads(numberOfThreads);
+    partitioner.partition(adjacencyMatrix, partitioning);
+    if (measurementCollector != null) {
+      measurementCollector.measureValue(MeasurementType.LOAD_GRAPH_COVER_CREATION_RUN_METIS_END,
+              System.currentTimeMillis());
+    }
+    return partitioning;
   }
 
   protected int getNumberOfPartitions(int lambda, long numberOfEdges, long numberOfVertices,
@@ -382,109 +444,21 @@ public class MinimalEdgeCutOverCover extends GraphCoverCreatorBase {
    */
   private File sortPartitionsByID(File partition2chunk, File workingDir, int maxNumberOfOpenFiles,
           long maxCashSize) {
-    InitialChunkProducer producer = null;
-    Merger merger = null;
-    try {
-      producer = new InitialChunkProducer() {
-
-        /**
-         * partitionID, #triples, (tripel)^{#triples}
-         */
-        private long[][] elements;
-
-        private int nextIndex;
-
-        private EncodedLongFileInputStream input;
-
-        private LongIterator iterator;
-
-        @Override
-        public void loadNextChunk() throws IOException {
-          if (elements == null) {
-            elements = new long[(int) (maxCashSize / Long.BYTES / 2)][2];
-            input = new EncodedLongFileInputStream(partition2chunk);
-            iterator = input.iterator();
-          }
-          for (nextIndex = 0; (nextIndex < elements.length) && iterator.hasNext(); nextIndex++) {
-            elements[nextIndex][0] = iterator.next();
-            elements[nextIndex][1] = iterator.next();
-          }
-        }
-
-        @Override
-        public void sort(Comparator<long[]> comparator) {
-          Arrays.sort(elements, 0, nextIndex, comparator);
-        }
-
-        @Override
-        public boolean hasNextChunk() {
-          return nextIndex > 0;
-        }
-
-        @Override
-        public void writeChunk(LongOutputWriter output) throws IOException {
-          for (int element = 0; element < nextIndex; element++) {
-            for (long value : elements[element]) {
-              output.writeLong(value);
-            }
-          }
-        }
-
-        @Override
-        public void close() {
-          if (iterator != null) {
-            iterator.close();
-          }
-          if (input != null) {
-            try {
-              input.close();
-            } catch (IOException e) {
-              throw new RuntimeException(e);
-            }
-          }
-        }
-      };
-      merger = new Merger() {
-
-        @Override
-        public void startNextMergeLevel() {
-        }
-
-        @Override
-        public long[] readNextElement(LongIterator iterator) throws IOException {
-          return new long[] { iterator.next(), iterator.next() };
-        }
-
-        @Override
-        public void mergeAndWrite(BitSet indicesOfSmallestElement, long[][] elements,
-                LongIterator[] iterators, LongOutputWriter out) throws IOException {
-          for (int i = indicesOfSmallestElement.nextSetBit(0); i >= 0; i = indicesOfSmallestElement
-                  .nextSetBit(i + 1)) {
-            for (long value : elements[i]) {
-              out.writeLong(value);
-            }
-          }
-        }
-
-        @Override
-        public void close() {
-        }
-      };
-      Comparator<long[]> comparator = new FixedSizeLongArrayComparator(true, 0);
+    try (EncodedLongFileInputStream input = new EncodedLongFileInputStream(partition2chunk);
+            LongIterator iterator = input.iterator();
+            LongTupleSorter sorter = new LongTupleSorter(2, workingDir, maxCashSize,
+                    maxNumberOfOpenFiles, true, 0);) {
+      while (iterator.hasNext()) {
+        sorter.add(iterator.next(), iterator.next());
+      }
       File partition2chunkSorted = File.createTempFile("partition2chunkSorted", "", workingDir);
-      NWayMergeSort sort = new NWayMergeSort();
-      sort.sort(producer, merger, comparator, workingDir, maxNumberOfOpenFiles,
-              partition2chunkSorted);
+      try (EncodedLongFileOutputStream output = new EncodedLongFileOutputStream(
+              partition2chunkSorted);) {
+        sorter.sort(output);
+      }
       return partition2chunkSorted;
     } catch (IOException e) {
       throw new RuntimeException(e);
-    } finally {
-      if (producer != null) {
-        producer.close();
-      }
-      if (merger != null) {
-        merger.close();
-      }
     }
   }
 
@@ -530,113 +504,27 @@ public class MinimalEdgeCutOverCover extends GraphCoverCreatorBase {
    */
   private File sortPartitionsBySizeDescending(File partitions, File workingDir,
           int maxNumberOfOpenFiles, long maxCashSize) {
-    InitialChunkProducer producer = null;
-    Merger merger = null;
-    try {
-      producer = new InitialChunkProducer() {
-
-        /**
-         * partitionID, #triples, (tripel)^{#triples}
-         */
-        private long[][] elements;
-
-        private int nextIndex;
-
-        private EncodedLongFileInputStream input;
-
-        private LongIterator iterator;
-
-        @Override
-        public void loadNextChunk() throws IOException {
-          if (elements == null) {
-            elements = new long[(int) (maxCashSize / Long.BYTES / 2)][2];
-            input = new EncodedLongFileInputStream(partitions);
-            iterator = input.iterator();
-          }
-          for (nextIndex = 0; (nextIndex < elements.length) && iterator.hasNext(); nextIndex++) {
-            elements[nextIndex][0] = iterator.next();
-            elements[nextIndex][1] = iterator.next();
-            for (int i = 0; i < elements[nextIndex][1]; i++) {
-              iterator.next();
-              iterator.next();
-              iterator.next();
-            }
-          }
-        }
-
-        @Override
-        public void sort(Comparator<long[]> comparator) {
-          Arrays.sort(elements, 0, nextIndex, comparator);
-        }
-
-        @Override
-        public boolean hasNextChunk() {
-          return nextIndex > 0;
-        }
-
-        @Override
-        public void writeChunk(LongOutputWriter output) throws IOException {
-          for (int element = 0; element < nextIndex; element++) {
-            for (long value : elements[element]) {
-              output.writeLong(value);
-            }
-          }
-        }
-
-        @Override
-        public void close() {
-          if (iterator != null) {
-            iterator.close();
-          }
-          if (input != null) {
-            try {
-              input.close();
-            } catch (IOException e) {
-              throw new RuntimeException(e);
-            }
-          }
-        }
-      };
-      merger = new Merger() {
-
-        @Override
-        public void startNextMergeLevel() {
-        }
-
-        @Override
-        public long[] readNextElement(LongIterator iterator) throws IOException {
-          return new long[] { iterator.next(), iterator.next() };
+    try (EncodedLongFileInputStream input = new EncodedLongFileInputStream(partitions);
+            LongIterator iterator = input.iterator();
+            LongTupleSorter sorter = new LongTupleSorter(2, workingDir, maxCashSize,
+                    maxNumberOfOpenFiles, false, 1, 0);) {
+      while (iterator.hasNext()) {
+        long partitionId = iterator.next();
+        long numberOfTriples = iterator.next();
+        sorter.add(partitionId, numberOfTriples);
+        // skip the triples
+        for (long i = 0; i < (3 * numberOfTriples); i++) {
+          iterator.next();
         }
-
-        @Override
-        public void mergeAndWrite(BitSet indicesOfSmallestElement, long[][] elements,
-                LongIterator[] iterators, LongOutputWriter out) throws IOException {
-          for (int i = indicesOfSmallestElement.nextSetBit(0); i >= 0; i = indicesOfSmallestElement
-                  .nextSetBit(i + 1)) {
-            for (long value : elements[i]) {
-              out.writeLong(value);
-            }
-          }
-        }
-
-        @Override
-        public void close() {
-        }
-      };
-      Comparator<long[]> comparator = new FixedSizeLongArrayComparator(false, 1, 0);
+      }
       File sortedPartitions = File.createTempFile("sortedPartitions", "", workingDir);
-      NWayMergeSort sort = new NWayMergeSort();
-      sort.sort(producer, merger, comparator, workingDir, maxNumberOfOpenFiles, sortedPartitions);
+      try (EncodedLongFileOutputStream output = new EncodedLongFileOutputStream(
+              sortedPartitions);) {
+        sorter.sort(output);
+      }
       return sortedPartitions;
     } catch (IOException e) {
       throw new RuntimeException(e);
-    } finally {
-      if (producer != null) {
-        producer.close();
-      }
-      if (merger != null) {
-        merger.close();
-      }
     }
   }
 
@@ -755,7 +643,7 @@ public class MinimalEdgeCutOverCover extends GraphCoverCreatorBase {
 
         @Override
         public void sort(Comparator<long[]> comparator) {
-          Arrays.sort(elements, 0, nextIndex, comparator);
+          Arrays.parallelSort(elements, 0, nextIndex, comparator);
         }
 
         @Override
@@ -380,7 +380,7 @@ public class MoleculeHashCoverCreator extends GraphCoverCreatorBase {
 
         @Override
         public void sort(Comparator<long[]> comparator) {
-          Arrays.sort(elements, 0, nextIndex, comparator);
+          Arrays.parallelSort(elements, 0, nextIndex, comparator);
         }
 
         @Override
@@ -18,7 +18,6 @@
  */
 package de.uni_koblenz.west.koral.master.graph_cover_creator.impl;
 
-import de.uni_koblenz.west.koral.common.io.EncodedFileOutputStream;
 import de.uni_koblenz.west.koral.common.io.EncodingFileFormat;
 import de.uni_koblenz.west.koral.common.io.Statement;
 import de.uni_koblenz.west.koral.common.measurement.MeasurementCollector;
@@ -45,15 +44,9 @@ public class VerticalCoverCreator extends HashCoverCreator {
   }
 
   @Override
-  protected void processStatement(int numberOfGraphChunks, EncodedFileOutputStream[] outputs,
-          boolean[] writtenFiles, Statement statement) {
-    // assign to triple to chunk according to hash on subject
-    int targetChunk = computeHash(statement.getPropertyAsString()) % outputs.length;
-    if (targetChunk < 0) {
-      targetChunk *= -1;
-    }
-
-    writeStatementToChunk(targetChunk, numberOfGraphChunks, statement, outputs, writtenFiles);
+  protected int getTargetChunk(Statement statement, int numberOfGraphChunks) {
+    // assign to triple to chunk according to hash on property
+    return computeChunk(statement.getPropertyAsString(), numberOfGraphChunks);
   }
 
 }
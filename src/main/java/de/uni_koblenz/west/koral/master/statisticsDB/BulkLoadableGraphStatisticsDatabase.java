@@ -0,0 +1,50 @@
+/*
+ * This file is part of Koral.
+ *
+ * Koral is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Koral is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Leser General Public License
+ * along with Koral.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2016 Daniel Janke
+ */
+package de.uni_koblenz.west.koral.master.statisticsDB;
+
+/**
+ * A {@link GraphStatisticsDatabase} that can store the already aggregated
+ * statistics of a resource at once. It is used by {@link GraphStatistics} to
+ * write the statistics in increasing order of the resource ids instead of
+ * incrementing the counts of each triple.
+ * 
+ * @author Daniel Janke &lt;danijankATuni-koblenz.de&gt;
+ *
+ */
+public interface BulkLoadableGraphStatisticsDatabase extends GraphStatisticsDatabase {
+
+  /**
+   * Stores the statistics of a resource that has not been counted, yet.
+   * 
+   * @param id
+   * @param statistics
+   *          the occurrences of the resource in the layout of
+   *          {@link #getStatisticsForResource(long)}. The array is not
+   *          retained, so it may be reused by the caller.
+   */
+  public void setStatisticsForResource(long id, long[] statistics);
+
+  public void setNumberOfTriplesPerChunk(long[] triplesPerChunk);
+
+  /**
+   * @return the largest resource id for which statistics may be stored
+   */
+  public long getMaxId();
+
+}
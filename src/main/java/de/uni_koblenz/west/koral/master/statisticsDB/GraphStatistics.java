@@ -19,7 +19,14 @@ package de.uni_koblenz.west.koral.master.statisticsDB;
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 
 import de.uni_koblenz.west.koral.common.config.impl.Configuration;
@@ -29,7 +36,7 @@ import de.uni_koblenz.west.koral.common.io.EncodingFileFormat;
 import de.uni_koblenz.west.koral.common.io.Statement;
 import de.uni_koblenz.west.koral.common.utils.NumberConversion;
 import de.uni_koblenz.west.koral.master.dictionary.DictionaryEncoder;
-import de.uni_koblenz.west.koral.master.statisticsDB.impl.multi_file.MultiFileGraphStatisticsDatabase;
+import de.uni_koblenz.west.koral.master.statisticsDB.impl.multi_file.ShardedGraphStatisticsDatabase;
 import de.uni_koblenz.west.koral.master.statisticsDB.impl.multi_file.SubbenchmarkManager;
 import de.uni_koblenz.west.koral.master.statisticsDB.impl.multi_file.log.StorageLogWriter;
 import playground.StatisticsDBTest;
@@ -50,25 +57,134 @@ public class GraphStatistics implements Closeable {
 
 	private final int numberOfChunks;
 
+	/**
+	 * true, if the database may be updated by several threads concurrently
+	 */
+	private final boolean isDatabaseThreadSafe;
+
+	/**
+	 * If &gt;0 and the database is a {@link BulkLoadableGraphStatisticsDatabase}, the occurrences are aggregated by
+	 * {@link StatisticsAggregator}s with at most this number of counters in memory instead of incrementing them in the
+	 * database.
+	 */
+	private final int aggregationSize;
+
+	/**
+	 * The aggregators used by {@link #count(long, long, long, int)} between {@link #beginCounting(File)} and
+	 * {@link #finishCounting()}. Each counting thread has its own aggregator.
+	 */
+	private List<StatisticsAggregator> aggregators;
+
+	private ThreadLocal<StatisticsAggregator> threadAggregator;
+
+	/**
+	 * The file of the snapshot created by {@link #createSnapshot()} or <code>null</code>, if no snapshots are created.
+	 */
+	private final File snapshotFile;
+
+	/**
+	 * If not <code>null</code>, the frequencies are read from this snapshot instead of the database.
+	 */
+	private volatile StatisticsSnapshot snapshot;
+
 	public GraphStatistics(Configuration conf, short numberOfChunks, Logger logger) {
 		this.logger = logger;
 		this.numberOfChunks = numberOfChunks;
 		// TODO enable
 		// database = new SQLiteGraphStatisticsDatabase(conf.getStatisticsDir(),
 		// numberOfChunks);
-		database = new MultiFileGraphStatisticsDatabase(conf.getStatisticsDir(true), numberOfChunks, logger);
+		database = new ShardedGraphStatisticsDatabase(conf.getStatisticsDir(true), conf.getNumberOfStatisticsShards(),
+				numberOfChunks, logger);
+		isDatabaseThreadSafe = true;
+		aggregationSize = conf.getStatisticsAggregationSize();
+		snapshotFile = new File(conf.getStatisticsDir(true) + ".snapshot");
+		if (snapshotFile.exists()) {
+			snapshot = new StatisticsSnapshot(snapshotFile);
+		}
 	}
 
 	public GraphStatistics(GraphStatisticsDatabase database, short numberOfChunks, Logger logger) {
+		this(database, numberOfChunks, 0, logger);
+	}
+
+	/**
+	 * @param database
+	 * @param numberOfChunks
+	 * @param aggregationSize
+	 *            if &gt;0 and database is a {@link BulkLoadableGraphStatisticsDatabase}, at most this number of
+	 *            counters are aggregated in memory before they are written as a sorted run. Otherwise, the
+	 *            occurrences are incremented directly in the database.
+	 * @param logger
+	 */
+	public GraphStatistics(GraphStatisticsDatabase database, short numberOfChunks, int aggregationSize,
+			Logger logger) {
 		this.logger = logger;
 		this.numberOfChunks = numberOfChunks;
 		this.database = database;
+		isDatabaseThreadSafe = database instanceof ShardedGraphStatisticsDatabase;
+		this.aggregationSize = aggregationSize;
+		snapshotFile = null;
+	}
+
+	private boolean isAggregating() {
+		return (aggregationSize > 0) && (database instanceof BulkLoadableGraphStatisticsDatabase);
 	}
 
+	/**
+	 * Counts the statements of the chunks. If the occurrences are aggregated or if the database is thread safe, the
+	 * chunks are counted in parallel. Each counting thread reuses a single {@link StatisticsAggregator} for all of its
+	 * chunks so that at most {@link #aggregationSize} counters are kept in memory.
+	 *
+	 * @param encodedChunks
+	 */
 	public void collectStatistics(File[] encodedChunks) {
 		clear();
-		for (int i = 0; i < encodedChunks.length; i++) {
-			collectStatistics(i, encodedChunks[i]);
+		File workingDir = null;
+		for (File chunk : encodedChunks) {
+			if (chunk != null) {
+				workingDir = chunk.getAbsoluteFile().getParentFile();
+				break;
+			}
+		}
+		if (workingDir == null) {
+			return;
+		}
+		int numberOfThreads = isAggregating() || isDatabaseThreadSafe
+				? Math.min(encodedChunks.length, Runtime.getRuntime().availableProcessors()) : 1;
+		beginCounting(workingDir, numberOfThreads);
+		try {
+			if (numberOfThreads <= 1) {
+				for (int i = 0; i < encodedChunks.length; i++) {
+					collectStatistics(i, encodedChunks[i]);
+				}
+			} else {
+				ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+				try {
+					List<Future<?>> tasks = new ArrayList<>();
+					for (int i = 0; i < encodedChunks.length; i++) {
+						int chunkIndex = i;
+						tasks.add(executor.submit(() -> collectStatistics(chunkIndex, encodedChunks[chunkIndex])));
+					}
+					for (Future<?> task : tasks) {
+						task.get();
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new RuntimeException(e);
+				} catch (ExecutionException e) {
+					throw new RuntimeException(e.getCause());
+				} finally {
+					executor.shutdownNow();
+				}
+			}
+			long start = System.nanoTime();
+			finishCounting();
+			if (isAggregating() && StatisticsDBTest.SUBBENCHMARKS) {
+				SubbenchmarkManager.getInstance().addTime(SubbenchmarkManager.SUBBENCHMARK_TASK.BULK_MERGE,
+						System.nanoTime() - start);
+			}
+		} finally {
+			closeAggregators();
 		}
 	}
 
@@ -77,13 +193,15 @@ public class GraphStatistics implements Closeable {
 			return;
 		}
 		try (EncodedFileInputStream in = new EncodedFileInputStream(EncodingFileFormat.EEE, chunk);) {
+			long inputReadTime = 0;
 			long start = System.nanoTime();
 			for (Statement statement : in) {
-				SubbenchmarkManager.getInstance().addInputReadTime(System.nanoTime() - start);
+				inputReadTime += System.nanoTime() - start;
 				count(statement.getSubjectAsLong(), statement.getPropertyAsLong(), statement.getObjectAsLong(),
 						chunkIndex);
 				start = System.nanoTime();
 			}
+			SubbenchmarkManager.getInstance().addInputReadTime(inputReadTime);
 		} catch (IOException e) {
 			throw new RuntimeException(e);
 		}
@@ -93,7 +211,82 @@ public class GraphStatistics implements Closeable {
 		}
 	}
 
+	/**
+	 * If the occurrences are aggregated, the triples counted by {@link #count(long, long, long, int)} are stored in the
+	 * database when {@link #finishCounting()} is called. The resources must not have been counted before.
+	 *
+	 * @param workingDir
+	 *            the directory where the sorted runs of the aggregated occurrences are stored
+	 * @param numberOfCountingThreads
+	 *            the number of threads that call {@link #count(long, long, long, int)} concurrently. The aggregation
+	 *            size is split among them.
+	 */
+	public void beginCounting(File workingDir, int numberOfCountingThreads) {
+		if (isAggregating()) {
+			List<StatisticsAggregator> aggregators = Collections.synchronizedList(new ArrayList<>());
+			int aggregatorSize = aggregationSize / Math.max(1, numberOfCountingThreads);
+			threadAggregator = ThreadLocal.withInitial(() -> {
+				StatisticsAggregator aggregator = new StatisticsAggregator(workingDir, numberOfChunks, aggregatorSize);
+				aggregators.add(aggregator);
+				return aggregator;
+			});
+			this.aggregators = aggregators;
+		}
+	}
+
+	/**
+	 * Stores the occurrences aggregated since {@link #beginCounting(File)} in the database. All threads that have
+	 * called {@link #count(long, long, long, int)} must have finished counting.
+	 */
+	public void finishCounting() {
+		if (aggregators == null) {
+			return;
+		}
+		try {
+			if (!aggregators.isEmpty()) {
+				StatisticsAggregator.merge(aggregators, numberOfChunks, database.getChunkSizes(),
+						(BulkLoadableGraphStatisticsDatabase) database);
+			}
+		} finally {
+			closeAggregators();
+		}
+	}
+
+	private void closeAggregators() {
+		if (aggregators != null) {
+			for (StatisticsAggregator aggregator : aggregators) {
+				aggregator.close();
+			}
+		}
+		if (threadAggregator != null) {
+			// the aggregators of other threads are released when these threads terminate
+			threadAggregator.remove();
+		}
+		aggregators = null;
+		threadAggregator = null;
+	}
+
+	/**
+	 * May be called by several threads concurrently.
+	 *
+	 * @param subject
+	 * @param property
+	 * @param object
+	 * @param chunk
+	 */
 	public void count(long subject, long property, long object, int chunk) {
+		if (threadAggregator != null) {
+			threadAggregator.get().count(subject, property, object, chunk);
+		} else if (isDatabaseThreadSafe) {
+			countInDatabase(subject, property, object, chunk);
+		} else {
+			synchronized (database) {
+				countInDatabase(subject, property, object, chunk);
+			}
+		}
+	}
+
+	private void countInDatabase(long subject, long property, long object, int chunk) {
 		// Remove ownership bits
 		database.incrementSubjectCount(subject & 0x00_00_FF_FF_FF_FF_FF_FFL, chunk);
 		database.incrementPropertyCount(property & 0x00_00_FF_FF_FF_FF_FF_FFL, chunk);
@@ -202,8 +395,38 @@ public class GraphStatistics implements Closeable {
 		}
 	}
 
+	/**
+	 * Creates the read-only snapshot of the statistics that answers the frequency requests until the statistics are
+	 * cleared. It has to be called after the graph has been loaded completely.
+	 */
+	public void createSnapshot() {
+		if (snapshotFile != null) {
+			createSnapshot(snapshotFile);
+		}
+	}
+
+	/**
+	 * @param snapshotFile
+	 * @see #createSnapshot()
+	 */
+	public void createSnapshot(File snapshotFile) {
+		if (!(database instanceof BulkLoadableGraphStatisticsDatabase)) {
+			return;
+		}
+		StatisticsSnapshot.create(snapshotFile, (BulkLoadableGraphStatisticsDatabase) database, numberOfChunks);
+		StatisticsSnapshot oldSnapshot = snapshot;
+		snapshot = new StatisticsSnapshot(snapshotFile);
+		if (oldSnapshot != null) {
+			oldSnapshot.close();
+		}
+	}
+
 	public long getSubjectFrequency(long subject, int slave) {
 		subject = subject & 0x00_00_ff_ff_ff_ff_ff_ffL;
+		StatisticsSnapshot snapshot = this.snapshot;
+		if (snapshot != null) {
+			return snapshot.getCount(subject, (0 * numberOfChunks) + slave);
+		}
 		long[] statisticsForResource = database.getStatisticsForResource(subject);
 		if (statisticsForResource == null) {
 			// this resource does not occur
@@ -214,6 +437,10 @@ public class GraphStatistics implements Closeable {
 
 	public long getPropertyFrequency(long property, int slave) {
 		property = property & 0x00_00_ff_ff_ff_ff_ff_ffL;
+		StatisticsSnapshot snapshot = this.snapshot;
+		if (snapshot != null) {
+			return snapshot.getCount(property, (1 * numberOfChunks) + slave);
+		}
 		long[] statisticsForResource = database.getStatisticsForResource(property);
 		if (statisticsForResource == null) {
 			// this resource does not occur
@@ -224,6 +451,10 @@ public class GraphStatistics implements Closeable {
 
 	public long getObjectFrequency(long object, int slave) {
 		object = object & 0x00_00_ff_ff_ff_ff_ff_ffL;
+		StatisticsSnapshot snapshot = this.snapshot;
+		if (snapshot != null) {
+			return snapshot.getCount(object, (2 * numberOfChunks) + slave);
+		}
 		long[] statisticsForResource = database.getStatisticsForResource(object);
 		if (statisticsForResource == null) {
 			// this resource does not occur
@@ -234,6 +465,10 @@ public class GraphStatistics implements Closeable {
 
 	public long getTotalSubjectFrequency(long subject) {
 		subject = subject & 0x00_00_ff_ff_ff_ff_ff_ffL;
+		StatisticsSnapshot snapshot = this.snapshot;
+		if (snapshot != null) {
+			return snapshot.getTotalCount(subject, 0 * numberOfChunks);
+		}
 		long totalFrequency = 0;
 		long[] statisticsForResource = database.getStatisticsForResource(subject);
 		if (statisticsForResource == null) {
@@ -248,6 +483,10 @@ public class GraphStatistics implements Closeable {
 
 	public long getTotalPropertyFrequency(long property) {
 		property = property & 0x00_00_ff_ff_ff_ff_ff_ffL;
+		StatisticsSnapshot snapshot = this.snapshot;
+		if (snapshot != null) {
+			return snapshot.getTotalCount(property, 1 * numberOfChunks);
+		}
 		long totalFrequency = 0;
 		long[] statisticsForResource = database.getStatisticsForResource(property);
 		if (statisticsForResource == null) {
@@ -262,6 +501,10 @@ public class GraphStatistics implements Closeable {
 
 	public long getTotalObjectFrequency(long object) {
 		object = object & 0x00_00_ff_ff_ff_ff_ff_ffL;
+		StatisticsSnapshot snapshot = this.snapshot;
+		if (snapshot != null) {
+			return snapshot.getTotalCount(object, 2 * numberOfChunks);
+		}
 		long totalFrequency = 0;
 		long[] statisticsForResource = database.getStatisticsForResource(object);
 		if (statisticsForResource == null) {
@@ -274,16 +517,55 @@ public class GraphStatistics implements Closeable {
 		return totalFrequency;
 	}
 
+	/**
+	 * @return the number of resources that occur as subject or -1, if it is unknown because no snapshot has been
+	 *         created
+	 */
+	public long getNumberOfDistinctSubjects() {
+		return getNumberOfDistinctValues(0);
+	}
+
+	/**
+	 * @return the number of resources that occur as property or -1, if it is unknown because no snapshot has been
+	 *         created
+	 */
+	public long getNumberOfDistinctProperties() {
+		return getNumberOfDistinctValues(1);
+	}
+
+	/**
+	 * @return the number of resources that occur as object or -1, if it is unknown because no snapshot has been
+	 *         created
+	 */
+	public long getNumberOfDistinctObjects() {
+		return getNumberOfDistinctValues(2);
+	}
+
+	private long getNumberOfDistinctValues(int position) {
+		StatisticsSnapshot snapshot = this.snapshot;
+		return snapshot == null ? -1 : snapshot.getNumberOfDistinctValues(position);
+	}
+
 	public int getNumberOfChunks() {
 		return numberOfChunks;
 	}
 
 	public void clear() {
+		closeAggregators();
+		StatisticsSnapshot oldSnapshot = snapshot;
+		snapshot = null;
+		if (oldSnapshot != null) {
+			oldSnapshot.delete();
+			oldSnapshot.close();
+		}
 		database.clear();
 	}
 
 	@Override
 	public void close() {
+		if (snapshot != null) {
+			snapshot.close();
+		}
 		database.close();
 	}
 
@@ -0,0 +1,340 @@
+/*
+ * This file is part of Koral.
+ *
+ * Koral is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Koral is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Leser General Public License
+ * along with Koral.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2016 Daniel Janke
+ */
+package de.uni_koblenz.west.koral.master.statisticsDB;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import de.uni_koblenz.west.koral.common.io.EncodedLongFileInputStream;
+import de.uni_koblenz.west.koral.common.io.EncodedLongFileOutputStream;
+import de.uni_koblenz.west.koral.master.statisticsDB.impl.multi_file.SubbenchmarkManager;
+import playground.StatisticsDBTest;
+
+/**
+ * Aggregates the occurrences of resources in a bounded in-memory hash table instead of incrementing them in the
+ * {@link GraphStatisticsDatabase} for each triple. A counter is identified by the resource id and the column of
+ * {@link GraphStatisticsDatabase#getStatisticsForResource(long)}, i.e., the role and the chunk. If the hash table is
+ * full, its counters are written as a run sorted by resource id. {@link #merge(List, int, long[],
+ * BulkLoadableGraphStatisticsDatabase)} merges the runs of several aggregators and writes the statistics to the
+ * database in increasing order of resource ids. Thus, the random accesses per triple are replaced by a few sequential
+ * passes.<br>
+ * Instances of this class are not thread safe.
+ *
+ * @author Daniel Janke &lt;danijankATuni-koblenz.de&gt;
+ *
+ */
+class StatisticsAggregator implements Closeable {
+
+	/**
+	 * A counter key consists of the resource id (without ownership) in the upper 48 bits and the column in the lower
+	 * 16 bits.
+	 */
+	private static final int COLUMN_BITS = 16;
+
+	private static final long COLUMN_MASK = (1L << COLUMN_BITS) - 1;
+
+	private static final int MAX_SIZE = 1 << 29;
+
+	private final File workingDir;
+
+	private final int maxSize;
+
+	/**
+	 * 0 marks an empty slot. Since resource ids start at 1, no key is 0.
+	 */
+	private final long[] keys;
+
+	private final long[] counts;
+
+	private final int mask;
+
+	private final int shift;
+
+	private int size;
+
+	private final long[] triplesPerChunk;
+
+	private final List<File> runs;
+
+	/**
+	 * @param workingDir
+	 *            the directory where the sorted runs are stored
+	 * @param numberOfChunks
+	 * @param maxSize
+	 *            the maximal number of counters kept in memory
+	 */
+	public StatisticsAggregator(File workingDir, int numberOfChunks, int maxSize) {
+		if ((3 * numberOfChunks) > (1 << COLUMN_BITS)) {
+			throw new IllegalArgumentException("At most " + ((1 << COLUMN_BITS) / 3) + " chunks are supported.");
+		}
+		this.workingDir = workingDir;
+		this.maxSize = Math.min(Math.max(1, maxSize), MAX_SIZE);
+		// keep the load factor below 0.75
+		int capacity = Integer.highestOneBit(((this.maxSize * 4) / 3) + 1) << 1;
+		keys = new long[capacity];
+		counts = new long[capacity];
+		mask = capacity - 1;
+		shift = Long.numberOfLeadingZeros(mask);
+		triplesPerChunk = new long[numberOfChunks];
+		runs = new ArrayList<>();
+	}
+
+	public void count(long subject, long property, long object, int chunk) {
+		int numberOfChunks = triplesPerChunk.length;
+		increment(subject, chunk);
+		increment(property, numberOfChunks + chunk);
+		increment(object, (2 * numberOfChunks) + chunk);
+		triplesPerChunk[chunk]++;
+	}
+
+	private void increment(long resource, int column) {
+		long key = ((resource & 0x00_00_ff_ff_ff_ff_ff_ffL) << COLUMN_BITS) | column;
+		int slot = findSlot(key);
+		if (keys[slot] == 0) {
+			if (size == maxSize) {
+				spill();
+				slot = findSlot(key);
+			}
+			keys[slot] = key;
+			size++;
+		}
+		counts[slot]++;
+	}
+
+	private int findSlot(long key) {
+		// Fibonacci hashing: the upper bits of the product depend on all bits of the key
+		int slot = (int) ((key * 0x9e_37_79_b9_7f_4a_7c_15L) >>> shift);
+		while ((keys[slot] != 0) && (keys[slot] != key)) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	/**
+	 * @return the keys of all counters in increasing order
+	 */
+	private long[] getSortedKeys() {
+		long[] sortedKeys = new long[size];
+		int next = 0;
+		for (long key : keys) {
+			if (key != 0) {
+				sortedKeys[next++] = key;
+			}
+		}
+		Arrays.sort(sortedKeys);
+		return sortedKeys;
+	}
+
+	/**
+	 * Writes the counters as a run sorted by resource id and column and empties the hash table. The keys are stored
+	 * as differences to their predecessors.
+	 */
+	private void spill() {
+		if (size == 0) {
+			return;
+		}
+		long start = System.nanoTime();
+		try {
+			File run = File.createTempFile("statisticsRun", ".gz", workingDir);
+			try (EncodedLongFileOutputStream out = new EncodedLongFileOutputStream(run);) {
+				long previousKey = 0;
+				for (long key : getSortedKeys()) {
+					out.writeLong(key - previousKey);
+					out.writeLong(counts[findSlot(key)]);
+					previousKey = key;
+				}
+			}
+			runs.add(run);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		Arrays.fill(keys, 0);
+		Arrays.fill(counts, 0);
+		size = 0;
+		if (StatisticsDBTest.SUBBENCHMARKS) {
+			SubbenchmarkManager.getInstance().addTime(SubbenchmarkManager.SUBBENCHMARK_TASK.BULK_SPILL,
+					System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * @return the runs of this aggregator. The counters that are still in memory are returned without writing them
+	 *         to a file.
+	 */
+	private List<Run> getRuns() {
+		List<Run> result = new ArrayList<>();
+		for (File run : runs) {
+			result.add(new FileRun(run));
+		}
+		if (size > 0) {
+			result.add(new InMemoryRun(getSortedKeys()));
+		}
+		return result;
+	}
+
+	/**
+	 * Merges the counters of all aggregators and stores them in the database. The database must not contain
+	 * statistics of the counted resources, yet.
+	 *
+	 * @param aggregators
+	 * @param numberOfChunks
+	 * @param triplesPerChunk
+	 *            the number of triples per chunk which were counted before, they are included in the stored chunk
+	 *            sizes
+	 * @param database
+	 */
+	public static void merge(List<StatisticsAggregator> aggregators, int numberOfChunks, long[] triplesPerChunk,
+			BulkLoadableGraphStatisticsDatabase database) {
+		long[] chunkSizes = triplesPerChunk.clone();
+		PriorityQueue<Run> queue = new PriorityQueue<>((r1, r2) -> Long.compare(r1.key, r2.key));
+		try {
+			for (StatisticsAggregator aggregator : aggregators) {
+				for (int i = 0; i < numberOfChunks; i++) {
+					chunkSizes[i] += aggregator.triplesPerChunk[i];
+				}
+				for (Run run : aggregator.getRuns()) {
+					if (run.next()) {
+						queue.add(run);
+					} else {
+						run.close();
+					}
+				}
+			}
+			long[] statistics = new long[3 * numberOfChunks];
+			long currentResource = 0;
+			while (!queue.isEmpty()) {
+				Run run = queue.poll();
+				long resource = run.key >>> COLUMN_BITS;
+				if ((resource != currentResource) && (currentResource != 0)) {
+					database.setStatisticsForResource(currentResource, statistics);
+					Arrays.fill(statistics, 0);
+				}
+				currentResource = resource;
+				statistics[(int) (run.key & COLUMN_MASK)] += run.count;
+				if (run.next()) {
+					queue.add(run);
+				} else {
+					run.close();
+				}
+			}
+			if (currentResource != 0) {
+				database.setStatisticsForResource(currentResource, statistics);
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		} finally {
+			for (Run run : queue) {
+				try {
+					run.close();
+				} catch (IOException e) {
+				}
+			}
+		}
+		database.setNumberOfTriplesPerChunk(chunkSizes);
+	}
+
+	/**
+	 * Deletes the runs.
+	 */
+	@Override
+	public void close() {
+		for (File run : runs) {
+			run.delete();
+		}
+		runs.clear();
+		size = 0;
+	}
+
+	private static abstract class Run implements Closeable {
+
+		protected long key;
+
+		protected long count;
+
+		/**
+		 * @return false, if the run is exhausted
+		 * @throws IOException
+		 */
+		public abstract boolean next() throws IOException;
+
+		@Override
+		public void close() throws IOException {
+		}
+
+	}
+
+	private class InMemoryRun extends Run {
+
+		private final long[] sortedKeys;
+
+		private int nextIndex;
+
+		public InMemoryRun(long[] sortedKeys) {
+			this.sortedKeys = sortedKeys;
+		}
+
+		@Override
+		public boolean next() {
+			if (nextIndex >= sortedKeys.length) {
+				return false;
+			}
+			key = sortedKeys[nextIndex++];
+			count = counts[findSlot(key)];
+			return true;
+		}
+
+	}
+
+	private static class FileRun extends Run {
+
+		private final EncodedLongFileInputStream in;
+
+		public FileRun(File run) {
+			try {
+				in = new EncodedLongFileInputStream(run);
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		@Override
+		public boolean next() throws IOException {
+			try {
+				key += in.readLong();
+			} catch (EOFException e) {
+				return false;
+			}
+			count = in.readLong();
+			return true;
+		}
+
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+
+	}
+
+}
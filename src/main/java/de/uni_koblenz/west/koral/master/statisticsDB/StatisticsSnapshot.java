@@ -0,0 +1,324 @@
+/*
+ * This file is part of Koral.
+ *
+ * Koral is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Koral is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Leser General Public License
+ * along with Koral.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2016 Daniel Janke
+ */
+package de.uni_koblenz.west.koral.master.statisticsDB;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * An immutable, memory mapped copy of the statistics of a {@link BulkLoadableGraphStatisticsDatabase} that is created
+ * after a graph has been loaded. In contrast to {@link GraphStatisticsDatabase#getStatisticsForResource(long)}, a
+ * lookup neither decodes a variable length row nor creates an array. Since the mapped buffers are only read with
+ * absolute positions, lookups may be performed by several threads without synchronization.<br>
+ * The snapshot file consists of
+ * <ol>
+ * <li>a header with the number of chunks, the number of bytes of each count, the number of stored resources, whether
+ * the ids are stored and the number of distinct subjects, properties and objects,</li>
+ * <li>the sorted ids of all resources that occur at least once. If these are exactly the ids 1 to the number of stored
+ * resources, the ids are omitted and the row of a resource is found by its id directly. Otherwise, the row is found by
+ * a binary search.</li>
+ * <li>the rows of the resources in the same order. Each row consists of 3*numberOfChunks counts in the layout of
+ * {@link GraphStatisticsDatabase#getStatisticsForResource(long)}. All counts have the same number of bytes that
+ * suffices to store the largest count.</li>
+ * </ol>
+ *
+ * @author Daniel Janke &lt;danijankATuni-koblenz.de&gt;
+ *
+ */
+class StatisticsSnapshot implements Closeable {
+
+	private static final int HEADER_SIZE = Integer.BYTES + Integer.BYTES + Long.BYTES + Integer.BYTES
+			+ (3 * Long.BYTES);
+
+	/**
+	 * The ids are mapped in segments of 1GB.
+	 */
+	private static final int IDS_PER_SEGMENT_BITS = 27;
+
+	private static final long IDS_PER_SEGMENT_MASK = (1L << IDS_PER_SEGMENT_BITS) - 1;
+
+	private static final int MAX_SEGMENT_SIZE = 1 << 30;
+
+	private final File file;
+
+	private final int numberOfChunks;
+
+	private final int countLength;
+
+	private final long numberOfResources;
+
+	/**
+	 * The number of resources that occur as subject, property and object, respectively
+	 */
+	private final long[] numberOfDistinctValues;
+
+	/**
+	 * <code>null</code>, if the ids 1 to {@link #numberOfResources} are stored
+	 */
+	private final MappedByteBuffer[] idSegments;
+
+	private final int rowLength;
+
+	private final int rowsPerSegment;
+
+	private final MappedByteBuffer[] rowSegments;
+
+	public StatisticsSnapshot(File file) {
+		this.file = file;
+		try (RandomAccessFile snapshot = new RandomAccessFile(file, "r");
+				FileChannel channel = snapshot.getChannel();) {
+			ByteBuffer header = channel.map(MapMode.READ_ONLY, 0, HEADER_SIZE);
+			numberOfChunks = header.getInt();
+			countLength = header.getInt();
+			numberOfResources = header.getLong();
+			boolean areIdsStored = header.getInt() != 0;
+			numberOfDistinctValues = new long[3];
+			for (int i = 0; i < numberOfDistinctValues.length; i++) {
+				numberOfDistinctValues[i] = header.getLong();
+			}
+			long position = HEADER_SIZE;
+			if (areIdsStored) {
+				idSegments = new MappedByteBuffer[(int) ((numberOfResources
+						+ IDS_PER_SEGMENT_MASK) >>> IDS_PER_SEGMENT_BITS)];
+				for (int i = 0; i < idSegments.length; i++) {
+					long length = Math.min(numberOfResources - (((long) i) << IDS_PER_SEGMENT_BITS),
+							1L << IDS_PER_SEGMENT_BITS) * Long.BYTES;
+					idSegments[i] = channel.map(MapMode.READ_ONLY, position, length);
+					position += length;
+				}
+			} else {
+				idSegments = null;
+			}
+			rowLength = 3 * numberOfChunks * countLength;
+			rowsPerSegment = MAX_SEGMENT_SIZE / rowLength;
+			rowSegments = new MappedByteBuffer[(int) (((numberOfResources + rowsPerSegment) - 1) / rowsPerSegment)];
+			for (int i = 0; i < rowSegments.length; i++) {
+				long length = Math.min(numberOfResources - (((long) i) * rowsPerSegment), rowsPerSegment) * rowLength;
+				rowSegments[i] = channel.map(MapMode.READ_ONLY, position, length);
+				position += length;
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	public int getNumberOfChunks() {
+		return numberOfChunks;
+	}
+
+	public long getNumberOfResources() {
+		return numberOfResources;
+	}
+
+	/**
+	 * @param position
+	 *            0 for subjects, 1 for properties and 2 for objects
+	 * @return the number of resources that occur at least once at this position
+	 */
+	public long getNumberOfDistinctValues(int position) {
+		return numberOfDistinctValues[position];
+	}
+
+	/**
+	 * @param id
+	 *            the resource id without ownership
+	 * @param column
+	 *            the index in the layout of {@link GraphStatisticsDatabase#getStatisticsForResource(long)}
+	 * @return the number of occurrences or 0, if the resource does not occur
+	 */
+	public long getCount(long id, int column) {
+		long row = getRow(id);
+		if (row < 0) {
+			return 0;
+		}
+		return getCountInRow(row, column);
+	}
+
+	/**
+	 * @param id
+	 *            the resource id without ownership
+	 * @param firstColumn
+	 *            0 for subjects, numberOfChunks for properties and 2*numberOfChunks for objects
+	 * @return the sum of the occurrences in all chunks
+	 */
+	public long getTotalCount(long id, int firstColumn) {
+		long row = getRow(id);
+		if (row < 0) {
+			return 0;
+		}
+		long total = 0;
+		for (int chunk = 0; chunk < numberOfChunks; chunk++) {
+			total += getCountInRow(row, firstColumn + chunk);
+		}
+		return total;
+	}
+
+	private long getCountInRow(long row, int column) {
+		MappedByteBuffer segment = rowSegments[(int) (row / rowsPerSegment)];
+		int position = ((int) (row % rowsPerSegment) * rowLength) + (column * countLength);
+		long count = 0;
+		for (int i = 0; i < countLength; i++) {
+			count = (count << Byte.SIZE) | (segment.get(position + i) & 0xff);
+		}
+		return count;
+	}
+
+	/**
+	 * @param id
+	 * @return the index of the row of the resource or -1, if it does not occur
+	 */
+	private long getRow(long id) {
+		if (idSegments == null) {
+			return (id >= 1) && (id <= numberOfResources) ? id - 1 : -1;
+		}
+		long low = 0;
+		long high = numberOfResources - 1;
+		while (low <= high) {
+			long middle = (low + high) >>> 1;
+			long middleId = idSegments[(int) (middle >>> IDS_PER_SEGMENT_BITS)]
+					.getLong((int) (middle & IDS_PER_SEGMENT_MASK) * Long.BYTES);
+			if (middleId < id) {
+				low = middle + 1;
+			} else if (middleId > id) {
+				high = middle - 1;
+			} else {
+				return middle;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Writes the statistics of all resources of the database to the snapshot file. The file is replaced atomically so
+	 * that an existing snapshot is either complete or absent.
+	 *
+	 * @param file
+	 * @param database
+	 * @param numberOfChunks
+	 */
+	public static void create(File file, BulkLoadableGraphStatisticsDatabase database, int numberOfChunks) {
+		long maxId = database.getMaxId();
+		// determine the number of resources and the length of the counts
+		long numberOfResources = 0;
+		long[] numberOfDistinctValues = new long[3];
+		long maxCount = 0;
+		for (long id = 1; id <= maxId; id++) {
+			long[] statistics = database.getStatisticsForResource(id);
+			if (occurs(statistics)) {
+				numberOfResources++;
+				for (long count : statistics) {
+					maxCount = Math.max(maxCount, count);
+				}
+				for (int position = 0; position < numberOfDistinctValues.length; position++) {
+					for (int chunk = 0; chunk < numberOfChunks; chunk++) {
+						if (statistics[(position * numberOfChunks) + chunk] != 0) {
+							numberOfDistinctValues[position]++;
+							break;
+						}
+					}
+				}
+			}
+		}
+		int countLength = Math.max(1, ((Long.SIZE - Long.numberOfLeadingZeros(maxCount)) + Byte.SIZE - 1) / Byte.SIZE);
+		boolean areIdsStored = numberOfResources != maxId;
+
+		File tmpFile = new File(file.getAbsolutePath() + ".tmp");
+		if (file.getAbsoluteFile().getParentFile() != null) {
+			file.getAbsoluteFile().getParentFile().mkdirs();
+		}
+		long firstRowPosition = HEADER_SIZE + (areIdsStored ? numberOfResources * Long.BYTES : 0);
+		try (RandomAccessFile idFile = new RandomAccessFile(tmpFile, "rw");
+				RandomAccessFile rowFile = new RandomAccessFile(tmpFile, "rw");) {
+			idFile.setLength(0);
+			try (DataOutputStream ids = new DataOutputStream(
+					new BufferedOutputStream(Channels.newOutputStream(idFile.getChannel())));
+					DataOutputStream rows = new DataOutputStream(new BufferedOutputStream(
+							Channels.newOutputStream(rowFile.getChannel().position(firstRowPosition))));) {
+				ids.writeInt(numberOfChunks);
+				ids.writeInt(countLength);
+				ids.writeLong(numberOfResources);
+				ids.writeInt(areIdsStored ? 1 : 0);
+				for (long distinctValues : numberOfDistinctValues) {
+					ids.writeLong(distinctValues);
+				}
+				for (long id = 1; id <= maxId; id++) {
+					long[] statistics = database.getStatisticsForResource(id);
+					if (!occurs(statistics)) {
+						continue;
+					}
+					if (areIdsStored) {
+						ids.writeLong(id);
+					}
+					for (int column = 0; column < (3 * numberOfChunks); column++) {
+						for (int i = countLength - 1; i >= 0; i--) {
+							rows.write((int) (statistics[column] >>> (i * Byte.SIZE)));
+						}
+					}
+				}
+			}
+		} catch (IOException e) {
+			tmpFile.delete();
+			throw new RuntimeException(e);
+		}
+		try {
+			Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			tmpFile.delete();
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static boolean occurs(long[] statistics) {
+		if (statistics == null) {
+			return false;
+		}
+		for (long count : statistics) {
+			if (count != 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Deletes the snapshot file. Threads that still read from this snapshot are not affected, since the file stays
+	 * mapped until the buffers are garbage collected.
+	 */
+	public void delete() {
+		file.delete();
+	}
+
+	@Override
+	public void close() {
+		// the mapped buffers are released by the garbage collector
+	}
+
+}
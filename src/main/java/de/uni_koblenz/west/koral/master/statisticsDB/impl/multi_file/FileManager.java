@@ -120,6 +120,16 @@ public class FileManager {
 				true, logger);
 	}
 
+	/**
+	 * Forgets all extra files and creates a new index. The files must be closed with {@link #close()} and deleted
+	 * beforehand.
+	 */
+	void clear() {
+		extraFiles.clear();
+		maxResourceId = 0;
+		setup();
+	}
+
 	/**
 	 * Writes a row into the index file.
 	 *
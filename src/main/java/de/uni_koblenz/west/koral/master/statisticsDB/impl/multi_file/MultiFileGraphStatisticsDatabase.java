@@ -14,20 +14,21 @@ import java.util.logging.Logger;
 import org.apache.commons.io.FileUtils;
 
 import de.uni_koblenz.west.koral.common.utils.NumberConversion;
-import de.uni_koblenz.west.koral.master.statisticsDB.GraphStatisticsDatabase;
+import de.uni_koblenz.west.koral.master.statisticsDB.BulkLoadableGraphStatisticsDatabase;
 import de.uni_koblenz.west.koral.master.statisticsDB.impl.multi_file.log.FileFlowWatcher;
 import playground.StatisticsDBTest;
 
 /**
  * The main class of this implementation, manages the {@link StatisticsRowManager} and persistence through
- * {@link FileManager}.
+ * {@link FileManager}. All accesses are serialized by the lock of the instance. In order to access the statistics
+ * concurrently, use {@link ShardedGraphStatisticsDatabase}.
  *
  * @author Philipp Töws
  *
  */
-public class MultiFileGraphStatisticsDatabase implements GraphStatisticsDatabase {
+public class MultiFileGraphStatisticsDatabase implements BulkLoadableGraphStatisticsDatabase {
 
-	private static final int DEFAULT_ROW_DATA_LENGTH = 8;
+	static final int DEFAULT_ROW_DATA_LENGTH = 8;
 
 	private final Logger logger;
 
@@ -141,7 +142,7 @@ public class MultiFileGraphStatisticsDatabase implements GraphStatisticsDatabase
 	}
 
 	@Override
-	public void incrementNumberOfTriplesPerChunk(int chunk) {
+	public synchronized void incrementNumberOfTriplesPerChunk(int chunk) {
 		triplesPerChunk[chunk]++;
 	}
 
@@ -151,17 +152,18 @@ public class MultiFileGraphStatisticsDatabase implements GraphStatisticsDatabase
 	 *
 	 * @param triplesPerChunk
 	 */
-	public void setNumberOfTriplesPerChunk(long[] triplesPerChunk) {
+	@Override
+	public synchronized void setNumberOfTriplesPerChunk(long[] triplesPerChunk) {
 		this.triplesPerChunk = triplesPerChunk.clone();
 	}
 
 	@Override
-	public long[] getChunkSizes() {
+	public synchronized long[] getChunkSizes() {
 		return triplesPerChunk;
 	}
 
 	@Override
-	public long[] getStatisticsForResource(long id) {
+	public synchronized long[] getStatisticsForResource(long id) {
 		boolean rowFound;
 		try {
 			rowFound = loadRow(id);
@@ -176,19 +178,19 @@ public class MultiFileGraphStatisticsDatabase implements GraphStatisticsDatabase
 	}
 
 	@Override
-	public void incrementSubjectCount(long subject, int chunk) {
+	public synchronized void incrementSubjectCount(long subject, int chunk) {
 		incrementOccurences(subject, ResourceType.SUBJECT, chunk);
 
 	}
 
 	@Override
-	public void incrementPropertyCount(long property, int chunk) {
+	public synchronized void incrementPropertyCount(long property, int chunk) {
 		incrementOccurences(property, ResourceType.PROPERTY, chunk);
 
 	}
 
 	@Override
-	public void incrementObjectCount(long object, int chunk) {
+	public synchronized void incrementObjectCount(long object, int chunk) {
 		incrementOccurences(object, ResourceType.OBJECT, chunk);
 
 	}
@@ -294,14 +296,23 @@ public class MultiFileGraphStatisticsDatabase implements GraphStatisticsDatabase
 	 * @param occurences
 	 *            Occurence values for each column, like the returned array of {@link #getStatisticsForResource(long)}.
 	 */
-	public void insertEntry(long resourceId, long[] occurences) {
-		dirty = true;
+	public synchronized void insertEntry(long resourceId, long[] occurences) {
 		for (int c = 0; c < numberOfChunks; c++) {
 			// S,P,O
 			for (int i = 0; i < 3; i++) {
 				triplesPerChunk[c] += occurences[(i * numberOfChunks) + c];
 			}
 		}
+		setStatisticsForResource(resourceId, occurences);
+	}
+
+	/**
+	 * Stores the statistics of a resource that has not been counted, yet. If the resources are inserted in increasing
+	 * order of their ids, the index file is written sequentially.
+	 */
+	@Override
+	public synchronized void setStatisticsForResource(long resourceId, long[] occurences) {
+		dirty = true;
 		try {
 			rowManager.loadFromOccurenceData(occurences);
 			if (rowManager.isTooLongForMain()) {
@@ -369,7 +380,7 @@ public class MultiFileGraphStatisticsDatabase implements GraphStatisticsDatabase
 	 *
 	 * @throws IOException
 	 */
-	public void defrag() throws IOException {
+	public synchronized void defrag() throws IOException {
 		// Stores file ids of all extra files that are defragged and therefore need to be exchanged by the temporary
 		// files.
 		Set<Long> defraggedFiles = new TreeSet<>();
@@ -405,7 +416,7 @@ public class MultiFileGraphStatisticsDatabase implements GraphStatisticsDatabase
 	/**
 	 * Flushes triplesPerChunk data, and if the internal dirty flag is set, the FileManager.
 	 */
-	public void flush() {
+	public synchronized void flush() {
 		// Always flush triplesPerChunk because low cost
 		byte[] bytes = new byte[Integer.BYTES + (Long.BYTES * triplesPerChunk.length)];
 		NumberConversion.int2bytes(rowDataLength, bytes, 0);
@@ -426,14 +437,15 @@ public class MultiFileGraphStatisticsDatabase implements GraphStatisticsDatabase
 	}
 
 	@Override
-	public void clear() {
+	public synchronized void clear() {
+		triplesPerChunk = new long[numberOfChunks];
 		close();
 		try {
 			FileUtils.cleanDirectory(new File(statisticsDirPath));
 		} catch (IOException e) {
 			throw new RuntimeException(e);
 		}
-		fileManager.setup();
+		fileManager.clear();
 	}
 
 	private void checkIfDataBytesLengthIsEnough(long newRowId) {
@@ -443,10 +455,8 @@ public class MultiFileGraphStatisticsDatabase implements GraphStatisticsDatabase
 		}
 	}
 
-	/**
-	 * @return The maximal resource id in the current storage.
-	 */
-	public long getMaxId() {
+	@Override
+	public synchronized long getMaxId() {
 		return fileManager.getMaxResourceId();
 	}
 
@@ -454,16 +464,16 @@ public class MultiFileGraphStatisticsDatabase implements GraphStatisticsDatabase
 		return rowDataLength;
 	}
 
-	public long getIndexFileLength() {
+	public synchronized long getIndexFileLength() {
 		return fileManager.getIndexFileLength();
 	}
 
-	public Map<Long, Long> getFreeSpaceIndexLenghts() {
+	public synchronized Map<Long, Long> getFreeSpaceIndexLenghts() {
 		return fileManager.getFreeSpaceIndexLengths();
 	}
 
 	@Override
-	public void close() {
+	public synchronized void close() {
 		flush();
 		fileManager.close();
 	}
@@ -475,7 +485,7 @@ public class MultiFileGraphStatisticsDatabase implements GraphStatisticsDatabase
 	 * @return
 	 * @throws IOException
 	 */
-	public String getDataStatistics() throws IOException {
+	public synchronized String getDataStatistics() throws IOException {
 		long maxId = getMaxId();
 		for (long id = 1; id <= maxId; id++) {
 			boolean rowFound = loadRow(id);
@@ -488,7 +498,7 @@ public class MultiFileGraphStatisticsDatabase implements GraphStatisticsDatabase
 		return rowManager.getStatistics();
 	}
 
-	public Map<Long, long[]> getStorageStatistics() {
+	public synchronized Map<Long, long[]> getStorageStatistics() {
 		return fileManager.getStorageStatistics();
 	}
 
@@ -0,0 +1,269 @@
+package de.uni_koblenz.west.koral.master.statisticsDB.impl.multi_file;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Logger;
+
+import de.uni_koblenz.west.koral.common.utils.NumberConversion;
+import de.uni_koblenz.west.koral.master.statisticsDB.BulkLoadableGraphStatisticsDatabase;
+
+/**
+ * Partitions the statistics into several independent {@link MultiFileGraphStatisticsDatabase} shards by resource id
+ * range. Each shard has its own row manager, index file, extra files and its share of the cache budget. Since each
+ * shard is guarded by its own lock, resources of different shards can be counted and looked up concurrently.<br>
+ * The resource ids are split into ranges of {@link #shardRange} consecutive ids which are assigned to the shards
+ * round-robin. Thus, the densely assigned ids are distributed evenly and the index file of each shard stays dense.
+ *
+ * @author Daniel Janke &lt;danijankATuni-koblenz.de&gt;
+ *
+ */
+public class ShardedGraphStatisticsDatabase implements BulkLoadableGraphStatisticsDatabase {
+
+	public static final int DEFAULT_SHARD_RANGE = 4096;
+
+	private final Path shardsMetadataFile;
+
+	private final int numberOfShards;
+
+	private final int shardRange;
+
+	private final MultiFileGraphStatisticsDatabase[] shards;
+
+	private final AtomicLongArray triplesPerChunk;
+
+	/**
+	 * @param statisticsDir
+	 * @param numberOfShards
+	 *            if it is &lt;=0, one shard is created per available core. If the database already exists, the number
+	 *            of shards it was created with is used.
+	 * @param shardRange
+	 *            the number of consecutive resource ids stored in the same shard. If the database already exists, the
+	 *            range it was created with is used.
+	 * @param numberOfChunks
+	 * @param rowDataLength
+	 * @param blockSize
+	 * @param rowLengthsAsIds
+	 * @param indexCacheSize
+	 *            the cache size of all index files, it is split evenly among the shards
+	 * @param extraFilesCacheSize
+	 *            the cache size of all extra files, it is split evenly among the shards
+	 * @param recyclerCapacity
+	 * @param maxOpenFiles
+	 *            the maximal number of open extra files of all shards
+	 * @param habseAccessesWeight
+	 * @param habseHistoryLength
+	 * @param logger
+	 */
+	public ShardedGraphStatisticsDatabase(String statisticsDir, int numberOfShards, int shardRange,
+			int numberOfChunks, int rowDataLength, int blockSize, boolean rowLengthsAsIds, long indexCacheSize,
+			long extraFilesCacheSize, int recyclerCapacity, int maxOpenFiles, float habseAccessesWeight,
+			int habseHistoryLength, Logger logger) {
+		File statisticsDirFile = new File(statisticsDir);
+		if (!statisticsDirFile.exists()) {
+			statisticsDirFile.mkdirs();
+		}
+		shardsMetadataFile = Paths.get(statisticsDirFile.getAbsolutePath(), "shardsMetadata");
+		if (Files.exists(shardsMetadataFile)) {
+			byte[] content;
+			try {
+				content = Files.readAllBytes(shardsMetadataFile);
+			} catch (IOException e) {
+				throw new RuntimeException("Error reading existing shardsMetadata file: " + e);
+			}
+			numberOfShards = NumberConversion.bytes2int(content, 0);
+			shardRange = NumberConversion.bytes2int(content, Integer.BYTES);
+		} else if (Files.exists(Paths.get(statisticsDirFile.getAbsolutePath(), "statisticsMetadata"))) {
+			// database was created without shards
+			numberOfShards = 1;
+		} else if (numberOfShards <= 0) {
+			numberOfShards = Runtime.getRuntime().availableProcessors();
+		}
+		this.numberOfShards = numberOfShards;
+		this.shardRange = shardRange;
+		if (logger != null) {
+			logger.finest("Statistics are stored in " + numberOfShards + " shards of range " + shardRange + ".");
+		}
+
+		shards = new MultiFileGraphStatisticsDatabase[numberOfShards];
+		for (int i = 0; i < numberOfShards; i++) {
+			// a single shard is stored like an unsharded database
+			String shardDir = numberOfShards == 1 ? statisticsDirFile.getAbsolutePath()
+					: statisticsDirFile.getAbsolutePath() + File.separator + "shard" + i;
+			shards[i] = new MultiFileGraphStatisticsDatabase(shardDir, numberOfChunks, rowDataLength, blockSize,
+					rowLengthsAsIds, indexCacheSize / numberOfShards, extraFilesCacheSize / numberOfShards,
+					recyclerCapacity, Math.max(1, maxOpenFiles / numberOfShards), habseAccessesWeight,
+					habseHistoryLength, logger);
+		}
+		// the number of triples per chunk is persisted by the first shard
+		triplesPerChunk = new AtomicLongArray(shards[0].getChunkSizes());
+		writeShardsMetadata();
+	}
+
+	public ShardedGraphStatisticsDatabase(String statisticsDir, int numberOfShards, short numberOfChunks,
+			Logger logger) {
+		this(statisticsDir, numberOfShards, DEFAULT_SHARD_RANGE, numberOfChunks,
+				MultiFileGraphStatisticsDatabase.DEFAULT_ROW_DATA_LENGTH, FileManager.DEFAULT_BLOCK_SIZE, true,
+				FileManager.DEFAULT_INDEX_FILE_CACHE_SIZE, FileManager.DEFAULT_EXTRAFILES_CACHE_SIZE,
+				FileManager.DEFAULT_RECYCLER_CAPACITY, FileManager.DEFAULT_MAX_OPEN_FILES,
+				FileManager.DEFAULT_HABSE_ACCESSES_WEIGHT, FileManager.DEFAULT_HABSE_HISTORY_LENGTH, logger);
+	}
+
+	private void writeShardsMetadata() {
+		byte[] content = new byte[2 * Integer.BYTES];
+		NumberConversion.int2bytes(numberOfShards, content, 0);
+		NumberConversion.int2bytes(shardRange, content, Integer.BYTES);
+		try {
+			Files.write(shardsMetadataFile, content);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	public int getNumberOfShards() {
+		return numberOfShards;
+	}
+
+	private MultiFileGraphStatisticsDatabase getShard(long resourceId) {
+		return shards[(int) (((resourceId - 1) / shardRange) % numberOfShards)];
+	}
+
+	/**
+	 * @param resourceId
+	 * @return the id of the resource within its shard, ids start at 1
+	 */
+	private long getIdInShard(long resourceId) {
+		long index = resourceId - 1;
+		long range = index / shardRange;
+		return ((range / numberOfShards) * shardRange) + (index % shardRange) + 1;
+	}
+
+	/**
+	 * Inverse of {@link #getIdInShard(long)}.
+	 */
+	private long getResourceId(int shard, long idInShard) {
+		long index = idInShard - 1;
+		long range = ((index / shardRange) * numberOfShards) + shard;
+		return (range * shardRange) + (index % shardRange) + 1;
+	}
+
+	@Override
+	public void incrementSubjectCount(long subject, int chunk) {
+		getShard(subject).incrementSubjectCount(getIdInShard(subject), chunk);
+	}
+
+	@Override
+	public void incrementPropertyCount(long property, int chunk) {
+		getShard(property).incrementPropertyCount(getIdInShard(property), chunk);
+	}
+
+	@Override
+	public void incrementObjectCount(long object, int chunk) {
+		getShard(object).incrementObjectCount(getIdInShard(object), chunk);
+	}
+
+	@Override
+	public void incrementNumberOfTriplesPerChunk(int chunk) {
+		triplesPerChunk.incrementAndGet(chunk);
+	}
+
+	@Override
+	public void setNumberOfTriplesPerChunk(long[] triplesPerChunk) {
+		for (int i = 0; i < triplesPerChunk.length; i++) {
+			this.triplesPerChunk.set(i, triplesPerChunk[i]);
+		}
+	}
+
+	@Override
+	public long[] getChunkSizes() {
+		long[] chunkSizes = new long[triplesPerChunk.length()];
+		for (int i = 0; i < chunkSizes.length; i++) {
+			chunkSizes[i] = triplesPerChunk.get(i);
+		}
+		return chunkSizes;
+	}
+
+	@Override
+	public long[] getStatisticsForResource(long id) {
+		return getShard(id).getStatisticsForResource(getIdInShard(id));
+	}
+
+	@Override
+	public void setStatisticsForResource(long id, long[] statistics) {
+		getShard(id).setStatisticsForResource(getIdInShard(id), statistics);
+	}
+
+	@Override
+	public long getMaxId() {
+		long maxId = 0;
+		for (int i = 0; i < numberOfShards; i++) {
+			long maxIdInShard = shards[i].getMaxId();
+			if (maxIdInShard > 0) {
+				maxId = Math.max(maxId, getResourceId(i, maxIdInShard));
+			}
+		}
+		return maxId;
+	}
+
+	public void flush() {
+		shards[0].setNumberOfTriplesPerChunk(getChunkSizes());
+		for (MultiFileGraphStatisticsDatabase shard : shards) {
+			shard.flush();
+		}
+	}
+
+	@Override
+	public void clear() {
+		for (MultiFileGraphStatisticsDatabase shard : shards) {
+			shard.clear();
+		}
+		for (int i = 0; i < triplesPerChunk.length(); i++) {
+			triplesPerChunk.set(i, 0);
+		}
+		shards[0].setNumberOfTriplesPerChunk(getChunkSizes());
+		writeShardsMetadata();
+	}
+
+	@Override
+	public void close() {
+		shards[0].setNumberOfTriplesPerChunk(getChunkSizes());
+		for (MultiFileGraphStatisticsDatabase shard : shards) {
+			shard.close();
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("TriplesPerChunk ");
+		long[] chunkSizes = getChunkSizes();
+		for (long l : chunkSizes) {
+			sb.append("\t").append(l);
+		}
+		sb.append("\n");
+		sb.append("ResourceID");
+		for (int i = 0; i < chunkSizes.length; i++) {
+			sb.append(";").append("subjectInChunk").append(i);
+		}
+		for (int i = 0; i < chunkSizes.length; i++) {
+			sb.append(";").append("propertyInChunk").append(i);
+		}
+		for (int i = 0; i < chunkSizes.length; i++) {
+			sb.append(";").append("objectInChunk").append(i);
+		}
+		sb.append(";").append("overallOccurrance");
+		long maxId = getMaxId();
+		for (long id = 1; id <= maxId; id++) {
+			sb.append("\n");
+			sb.append(id);
+			for (long value : getStatisticsForResource(id)) {
+				sb.append(";").append(value);
+			}
+		}
+		return sb.toString();
+	}
+
+}
@@ -24,7 +24,7 @@ public class SimpleConfiguration {
 		config = new HashMap<>();
 	}
 
-	public static SimpleConfiguration getInstance() {
+	public static synchronized SimpleConfiguration getInstance() {
 		if (instance == null) {
 			instance = new SimpleConfiguration();
 		}
@@ -63,6 +63,8 @@ public class SubbenchmarkManager {
 		MERGE_DATA_BYTES,
 		UPDATE_EXTRA_ROW_ID,
 		GET_EXTRA_FILE,
+		BULK_SPILL,
+		BULK_MERGE,
 	}
 
 	/**
@@ -87,7 +89,7 @@ public class SubbenchmarkManager {
 		extraTimes = new long[FileSubbenchmarkTask.values().length];
 	}
 
-	public static SubbenchmarkManager getInstance() {
+	public static synchronized SubbenchmarkManager getInstance() {
 		if (instance == null) {
 			instance = new SubbenchmarkManager();
 		}
@@ -108,7 +110,7 @@ public class SubbenchmarkManager {
 		}
 	}
 
-	public void addInputReadTime(long time) {
+	public synchronized void addInputReadTime(long time) {
 		inputTime += time;
 	}
 
@@ -14,17 +14,18 @@ class BlockEntry implements Map.Entry<Long, byte[]> {
 
 	private byte[] block;
 
-	private static BlockEntry blockEntry;
+	/**
+	 * The shards of a ShardedGraphStatisticsDatabase are accessed concurrently.
+	 */
+	private static final ThreadLocal<BlockEntry> blockEntry = ThreadLocal.withInitial(BlockEntry::new);
 
 	private BlockEntry() {}
 
 	public static BlockEntry getInstance(long blockId, byte[] block) {
-		if (blockEntry == null) {
-			blockEntry = new BlockEntry();
-		}
-		blockEntry.blockId = blockId;
-		blockEntry.block = block;
-		return blockEntry;
+		BlockEntry entry = blockEntry.get();
+		entry.blockId = blockId;
+		entry.block = block;
+		return entry;
 	}
 
 	@Override
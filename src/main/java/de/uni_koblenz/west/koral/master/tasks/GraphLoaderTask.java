@@ -32,6 +32,8 @@ import de.uni_koblenz.west.koral.master.graph_cover_creator.CoverStrategyType;
 import de.uni_koblenz.west.koral.master.graph_cover_creator.GraphCoverCreator;
 import de.uni_koblenz.west.koral.master.graph_cover_creator.GraphCoverCreatorFactory;
 import de.uni_koblenz.west.koral.master.graph_cover_creator.NHopReplicator;
+import de.uni_koblenz.west.koral.master.graph_cover_creator.impl.HashCoverCreator;
+import de.uni_koblenz.west.koral.master.graph_cover_creator.impl.MinimalEdgeCutOverCover;
 import de.uni_koblenz.west.koral.master.graph_cover_creator.impl.MoleculeHashCoverCreator;
 import de.uni_koblenz.west.koral.master.statisticsDB.GraphStatistics;
 import de.uni_koblenz.west.koral.slave.KoralSlave;
@@ -108,14 +110,24 @@ public class GraphLoaderTask extends Thread implements Closeable {
 
   private final boolean contactSlaves;
 
+  private final int numberOfCoverCreationThreads;
+
+  private final boolean useMD5ForHashCover;
+
+  private final boolean useMetisForMinimalEdgeCutCover;
+
   public GraphLoaderTask(int clientID, ClientConnectionManager clientConnections,
           NetworkManager slaveConnections, String externalFtpIpAddress, String internalFtpIpAddress,
           String ftpPort, DictionaryEncoder dictionary, GraphStatistics statistics, File tmpDir,
           MessageNotifier messageNotifier, Logger logger, MeasurementCollector collector,
-          boolean contactSlaves) {
+          boolean contactSlaves, int numberOfCoverCreationThreads, boolean useMD5ForHashCover,
+          boolean useMetisForMinimalEdgeCutCover) {
     setDaemon(true);
     graphIsLoadingOrLoaded = true;
     this.contactSlaves = contactSlaves;
+    this.numberOfCoverCreationThreads = numberOfCoverCreationThreads;
+    this.useMD5ForHashCover = useMD5ForHashCover;
+    this.useMetisForMinimalEdgeCutCover = useMetisForMinimalEdgeCutCover;
     isStarted = false;
     clientId = clientID;
     this.clientConnections = clientConnections;
@@ -224,6 +236,14 @@ public class GraphLoaderTask extends Thread implements Closeable {
     if (coverCreator instanceof MoleculeHashCoverCreator) {
       ((MoleculeHashCoverCreator) coverCreator).setMaxMoleculeDiameter(maxMoleculeDiameter);
     }
+    if (coverCreator instanceof HashCoverCreator) {
+      ((HashCoverCreator) coverCreator).setNumberOfThreads(numberOfCoverCreationThreads);
+      ((HashCoverCreator) coverCreator).setUseMD5(useMD5ForHashCover);
+    }
+    if (coverCreator instanceof MinimalEdgeCutOverCover) {
+      ((MinimalEdgeCutOverCover) coverCreator).setNumberOfThreads(numberOfCoverCreationThreads);
+      ((MinimalEdgeCutOverCover) coverCreator).setUseMetis(useMetisForMinimalEdgeCutCover);
+    }
     this.replicationPathLength = replicationPathLength;
     this.numberOfGraphChunks = numberOfGraphChunks;
     if (state == LoadingState.START) {
@@ -259,10 +279,17 @@ public class GraphLoaderTask extends Thread implements Closeable {
 
       File encodedGraphFile = encodeGraphFilesInitially();
       File[] chunks = createGraphChunks(encodedGraphFile);
-      File[] encodedFiles = encodeGraphChunks(chunks,
-              replicationPathLength != 0 ? EncodingFileFormat.EEE
-                      : coverCreator.getRequiredInputEncoding());
-      collectStatistis(encodedFiles);
+      // the graph cover and the n-hop replication write completely encoded
+      // chunks
+      File[] encodedFiles = encodeGraphChunks(chunks, EncodingFileFormat.EEE);
+      if (replicationPathLength != 0) {
+        // the statistics of the replicated chunks have to be collected
+        // separately
+        collectStatistis(encodedFiles);
+      } else if (state == LoadingState.FINAL_ENCODING) {
+        // the statistics were collected during the graph cover creation
+        setState(LoadingState.STATISTIC_COLLECTION);
+      }
       encodedFiles = adjustOwnership(encodedFiles);
 
       if (state != LoadingState.FINISHED) {
@@ -426,8 +453,15 @@ public class GraphLoaderTask extends Thread implements Closeable {
         measurementCollector.measureValue(MeasurementType.LOAD_GRAPH_COVER_CREATION_START,
                 System.currentTimeMillis());
       }
-      chunks = coverCreator.createGraphCover(dictionary, encodedGraphFile, workingDir,
-              numberOfGraphChunks);
+      if (replicationPathLength == 0) {
+        // the statements are counted while they are written to the chunks
+        statistics.clear();
+        chunks = coverCreator.createGraphCover(dictionary, statistics, encodedGraphFile,
+                workingDir, numberOfGraphChunks);
+      } else {
+        chunks = coverCreator.createGraphCover(dictionary, encodedGraphFile, workingDir,
+                numberOfGraphChunks);
+      }
       encodedGraphFile.delete();
       if (measurementCollector != null) {
         measurementCollector.measureValue(MeasurementType.LOAD_GRAPH_COVER_CREATION_END,
@@ -549,6 +583,9 @@ public class GraphLoaderTask extends Thread implements Closeable {
               MessageType.MASTER_WORK_IN_PROGRESS, "Started adjusting ownership.", logger));
 
       File[] result = statistics.adjustOwnership(encodedChunks, workingDir);
+      // the statistics are complete, so query planning can use the read-only
+      // snapshot
+      statistics.createSnapshot();
 
       if (measurementCollector != null) {
         measurementCollector.measureValue(MeasurementType.LOAD_GRAPH_ADJUSTING_OWNERSHIP_END,
@@ -590,7 +627,8 @@ public class GraphLoaderTask extends Thread implements Closeable {
         cleanWorkingDirs();
       } else if (state == LoadingState.INITIAL_ENCODING) {
         dictionary.clear();
-      } else if (state == LoadingState.STATISTIC_COLLECTION) {
+      } else if ((state == LoadingState.GRAPH_COVER_CREATION)
+              || (state == LoadingState.STATISTIC_COLLECTION)) {
         statistics.clear();
       }
     } finally {
@@ -69,6 +69,19 @@ public abstract class AdjacencyMatrix implements Closeable {
     if (!areDuplicatesRemoved) {
       removeDuplicates();
     }
+    return createAdjacencyListIterator(vertex);
+  }
+
+  /**
+   * @return true, if {@link #getAdjacencyList(long)} may be called by several
+   *         threads concurrently after {@link #getNumberOfEdges()} has been
+   *         called and no edge is added any more
+   */
+  public boolean supportsConcurrentReads() {
+    return false;
+  }
+
+  protected LongIterator createAdjacencyListIterator(long vertex) {
     return getInternalAdjacencyList(vertex).iterator();
   }
 
@@ -0,0 +1,362 @@
+/*
+ * This file is part of Koral.
+ *
+ * Koral is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Koral is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Leser General Public License
+ * along with Koral.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2016 Daniel Janke
+ */
+package de.uni_koblenz.west.koral.master.utils;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ * Partitions the vertices of an {@link AdjacencyMatrix} into a given number of
+ * balanced partitions with few cut edges. It implements the streaming
+ * partitioner
+ * <a href="https://doi.org/10.1145/2556195.2556213">Fennel</a>: The vertices
+ * are processed in the order of their ids. Each vertex v is assigned to the
+ * partition P that maximizes
+ * <code>|N(v) &cap; P| - &alpha; &gamma; |P|<sup>&gamma;-1</sup></code>,
+ * where N(v) are the adjacent vertices of v. No partition may contain more
+ * than {@link #LOAD_LIMIT} times the average number of vertices. Additional
+ * passes reassign the vertices knowing the assignment of all vertices.
+ * </p>
+ * 
+ * <p>
+ * Several threads process blocks of consecutive vertices concurrently. Only
+ * the partition sizes and the assignment of one vertex at a time are locked.
+ * The assignment of the vertices is stored in a memory-mapped file. Thus, the
+ * required heap space only depends on the number of partitions and threads.
+ * </p>
+ * 
+ * @author Daniel Janke &lt;danijankATuni-koblenz.de&gt;
+ *
+ */
+public class FennelPartitioner {
+
+  private static final double GAMMA = 1.5;
+
+  private static final double LOAD_LIMIT = 1.1;
+
+  private static final int VERTICES_PER_TASK = 4096;
+
+  private static final int INTS_PER_SEGMENT_BITS = 28;
+
+  private final File workingDir;
+
+  private final int numberOfPartitions;
+
+  private int numberOfThreads;
+
+  private int numberOfPasses;
+
+  /**
+   * @param workingDir
+   *          directory in which the assignment of the vertices is stored
+   *          during the partitioning
+   * @param numberOfPartitions
+   */
+  public FennelPartitioner(File workingDir, int numberOfPartitions) {
+    if (numberOfPartitions <= 0) {
+      throw new IllegalArgumentException("The number of partitions must be positive.");
+    }
+    this.workingDir = workingDir;
+    this.numberOfPartitions = numberOfPartitions;
+    numberOfThreads = Runtime.getRuntime().availableProcessors();
+    numberOfPasses = 2;
+  }
+
+  /**
+   * @param numberOfThreads
+   *          if &lt;=0, one thread per available processor is used
+   */
+  public void setNumberOfThreads(int numberOfThreads) {
+    this.numberOfThreads = numberOfThreads > 0 ? numberOfThreads
+            : Runtime.getRuntime().availableProcessors();
+  }
+
+  /**
+   * @param numberOfPasses
+   *          the number of times all vertices are assigned. The default is 2.
+   */
+  public void setNumberOfPasses(int numberOfPasses) {
+    this.numberOfPasses = Math.max(1, numberOfPasses);
+  }
+
+  /**
+   * Writes the partition of each vertex in the format of the METIS output
+   * files, i.e., line i contains the partition (starting with 0) of vertex i.
+   * 
+   * @param adjacencyMatrix
+   *          must not be modified concurrently. If it does not
+   *          {@link AdjacencyMatrix#supportsConcurrentReads()}, only one thread
+   *          is used.
+   * @param outputFile
+   */
+  public void partition(AdjacencyMatrix adjacencyMatrix, File outputFile) {
+    long numberOfVertices = adjacencyMatrix.getNumberOfVertices();
+    // removes the duplicates before the matrix is read concurrently
+    long numberOfEdges = adjacencyMatrix.getNumberOfEdges();
+    File assignmentFile = new File(workingDir, "fennelAssignment");
+    try (Assignment assignment = new Assignment(assignmentFile, numberOfVertices);) {
+      PartitionSizes partitionSizes = new PartitionSizes(numberOfPartitions);
+      double alpha = (numberOfEdges * Math.pow(numberOfPartitions, GAMMA - 1))
+              / Math.pow(Math.max(1, numberOfVertices), GAMMA);
+      long maxPartitionSize = (long) Math
+              .ceil((LOAD_LIMIT * numberOfVertices) / numberOfPartitions);
+      for (int pass = 0; pass < numberOfPasses; pass++) {
+        performPass(adjacencyMatrix, numberOfVertices, assignment, partitionSizes, alpha,
+                maxPartitionSize);
+      }
+      try (BufferedWriter writer = new BufferedWriter(
+              new OutputStreamWriter(new FileOutputStream(outputFile), "UTF-8"));) {
+        for (long vertex = 1; vertex <= numberOfVertices; vertex++) {
+          writer.write(Integer.toString(assignment.get(vertex)));
+          writer.write("\n");
+        }
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    } finally {
+      assignmentFile.delete();
+    }
+  }
+
+  private void performPass(AdjacencyMatrix adjacencyMatrix, long numberOfVertices,
+          Assignment assignment, PartitionSizes partitionSizes, double alpha,
+          long maxPartitionSize) {
+    AtomicLong nextVertex = new AtomicLong(1);
+    Runnable task = () -> {
+      int[] neighboursPerPartition = new int[numberOfPartitions];
+      int[] adjacentPartitions = new int[16];
+      for (long firstVertex = nextVertex.getAndAdd(
+              VERTICES_PER_TASK); firstVertex <= numberOfVertices; firstVertex = nextVertex
+                      .getAndAdd(VERTICES_PER_TASK)) {
+        long lastVertex = Math.min(numberOfVertices, (firstVertex + VERTICES_PER_TASK) - 1);
+        for (long vertex = firstVertex; vertex <= lastVertex; vertex++) {
+          // count the adjacent vertices per partition
+          int numberOfAdjacentPartitions = 0;
+          try (LongIterator iterator = adjacencyMatrix.getAdjacencyList(vertex);) {
+            while (iterator.hasNext()) {
+              int partition = assignment.get(iterator.next());
+              if (partition < 0) {
+                continue;
+              }
+              if (neighboursPerPartition[partition]++ == 0) {
+                if (numberOfAdjacentPartitions == adjacentPartitions.length) {
+                  adjacentPartitions = Arrays.copyOf(adjacentPartitions,
+                          2 * adjacentPartitions.length);
+                }
+                adjacentPartitions[numberOfAdjacentPartitions++] = partition;
+              }
+            }
+          }
+          assign(vertex, assignment, partitionSizes, neighboursPerPartition, adjacentPartitions,
+                  numberOfAdjacentPartitions, alpha, maxPartitionSize);
+          for (int i = 0; i < numberOfAdjacentPartitions; i++) {
+            neighboursPerPartition[adjacentPartitions[i]] = 0;
+          }
+        }
+      }
+    };
+    if ((numberOfThreads <= 1) || !adjacencyMatrix.supportsConcurrentReads()) {
+      task.run();
+      return;
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < numberOfThreads; i++) {
+        futures.add(executor.submit(task));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } catch (ExecutionException e) {
+      throw new RuntimeException(e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private void assign(long vertex, Assignment assignment, PartitionSizes partitionSizes,
+          int[] neighboursPerPartition, int[] adjacentPartitions, int numberOfAdjacentPartitions,
+          double alpha, long maxPartitionSize) {
+    synchronized (partitionSizes) {
+      int previousPartition = assignment.get(vertex);
+      if (previousPartition >= 0) {
+        partitionSizes.decrement(previousPartition);
+      }
+      // the smallest partition is the best partition without adjacent vertices
+      int bestPartition = partitionSizes.getSmallestPartition();
+      double bestScore = neighboursPerPartition[bestPartition]
+              - getPenalty(partitionSizes.getSize(bestPartition), alpha);
+      for (int i = 0; i < numberOfAdjacentPartitions; i++) {
+        int partition = adjacentPartitions[i];
+        long size = partitionSizes.getSize(partition);
+        if (size >= maxPartitionSize) {
+          continue;
+        }
+        double score = neighboursPerPartition[partition] - getPenalty(size, alpha);
+        if ((score > bestScore)
+                || ((score == bestScore) && (size < partitionSizes.getSize(bestPartition)))) {
+          bestPartition = partition;
+          bestScore = score;
+        }
+      }
+      partitionSizes.increment(bestPartition);
+      assignment.set(vertex, bestPartition);
+    }
+  }
+
+  private double getPenalty(long partitionSize, double alpha) {
+    return alpha * GAMMA * Math.pow(partitionSize, GAMMA - 1);
+  }
+
+  /**
+   * The number of vertices per partition. A min segment tree provides the
+   * smallest partition.
+   */
+  private static class PartitionSizes {
+
+    private final long[] sizes;
+
+    /**
+     * leaves start at index {@link #firstLeaf} and contain the partitions.
+     * Inner nodes contain the smaller partition of their children.
+     */
+    private final int[] tree;
+
+    private final int firstLeaf;
+
+    public PartitionSizes(int numberOfPartitions) {
+      sizes = new long[numberOfPartitions];
+      int leaves = Integer.highestOneBit(Math.max(1, numberOfPartitions - 1)) << 1;
+      firstLeaf = leaves;
+      tree = new int[2 * leaves];
+      for (int i = 0; i < leaves; i++) {
+        // missing partitions are represented by the last partition
+        tree[firstLeaf + i] = Math.min(i, numberOfPartitions - 1);
+      }
+      for (int node = firstLeaf - 1; node > 0; node--) {
+        tree[node] = smaller(tree[2 * node], tree[(2 * node) + 1]);
+      }
+    }
+
+    public long getSize(int partition) {
+      return sizes[partition];
+    }
+
+    public int getSmallestPartition() {
+      return tree[1];
+    }
+
+    public void increment(int partition) {
+      sizes[partition]++;
+      update(partition);
+    }
+
+    public void decrement(int partition) {
+      sizes[partition]--;
+      update(partition);
+    }
+
+    private void update(int partition) {
+      for (int node = (firstLeaf + partition) / 2; node > 0; node /= 2) {
+        tree[node] = smaller(tree[2 * node], tree[(2 * node) + 1]);
+      }
+    }
+
+    private int smaller(int partition1, int partition2) {
+      if (sizes[partition1] < sizes[partition2]) {
+        return partition1;
+      } else if (sizes[partition2] < sizes[partition1]) {
+        return partition2;
+      }
+      return Math.min(partition1, partition2);
+    }
+
+  }
+
+  /**
+   * Memory-mapped partition of each vertex. Unassigned vertices have the
+   * partition -1. Values read concurrently to an assignment may be outdated,
+   * which only influences the quality of the partitioning.
+   */
+  private static class Assignment implements AutoCloseable {
+
+    private final RandomAccessFile file;
+
+    private final MappedByteBuffer[] segments;
+
+    public Assignment(File assignmentFile, long numberOfVertices) throws IOException {
+      file = new RandomAccessFile(assignmentFile, "rw");
+      file.setLength(0);
+      long numberOfInts = numberOfVertices + 1;
+      file.setLength(numberOfInts * Integer.BYTES);
+      long intsPerSegment = 1L << INTS_PER_SEGMENT_BITS;
+      segments = new MappedByteBuffer[(int) (((numberOfInts + intsPerSegment) - 1)
+              / intsPerSegment)];
+      FileChannel channel = file.getChannel();
+      for (int i = 0; i < segments.length; i++) {
+        long start = i * intsPerSegment;
+        long length = Math.min(intsPerSegment, numberOfInts - start) * Integer.BYTES;
+        segments[i] = channel.map(MapMode.READ_WRITE, start * Integer.BYTES, length);
+      }
+    }
+
+    /**
+     * @param vertex
+     * @return the partition of the vertex or -1, if it is not assigned yet
+     */
+    public int get(long vertex) {
+      // the file is initialized with 0
+      return segments[(int) (vertex >>> INTS_PER_SEGMENT_BITS)].getInt(
+              (int) (vertex & ((1L << INTS_PER_SEGMENT_BITS) - 1)) * Integer.BYTES) - 1;
+    }
+
+    public void set(long vertex, int partition) {
+      segments[(int) (vertex >>> INTS_PER_SEGMENT_BITS)].putInt(
+              (int) (vertex & ((1L << INTS_PER_SEGMENT_BITS) - 1)) * Integer.BYTES,
+              partition + 1);
+    }
+
+    @Override
+    public void close() throws IOException {
+      file.close();
+    }
+
+  }
+
+}
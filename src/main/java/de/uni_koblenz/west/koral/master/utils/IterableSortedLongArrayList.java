@@ -218,7 +218,7 @@ public class IterableSortedLongArrayList implements AutoCloseable {
 
           @Override
           public void sort(Comparator<long[]> comparator) {
-            Arrays.sort(elements, 0, nextFreeIndex, comparator);
+            Arrays.parallelSort(elements, 0, nextFreeIndex, comparator);
           }
 
           @Override
@@ -0,0 +1,509 @@
+/*
+ * This file is part of Koral.
+ *
+ * Koral is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Koral is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Leser General Public License
+ * along with Koral.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2016 Daniel Janke
+ */
+package de.uni_koblenz.west.koral.master.utils;
+
+import de.uni_koblenz.west.koral.common.io.LongOutputWriter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * <p>
+ * External sort of tuples that consist of a fixed number of long values. In
+ * contrast to {@link NWayMergeSort}, the tuples are stored in one flat long
+ * array instead of an array of small long arrays.
+ * </p>
+ * 
+ * <p>
+ * If the array is full, it is split into one segment per thread. The segments
+ * are sorted and written to run files concurrently. The run files store the
+ * values uncompressed with a fixed width. Finally, the runs and the segments
+ * that are still in memory are merged with a binary heap.
+ * </p>
+ * 
+ * <p>
+ * The tuples are ordered like {@link FixedSizeLongArrayComparator} orders
+ * them. This class is not thread safe.
+ * </p>
+ * 
+ * @author Daniel Janke &lt;danijankATuni-koblenz.de&gt;
+ *
+ */
+public class LongTupleSorter implements Closeable {
+
+  private static final int INITIAL_CAPACITY = 1024;
+
+  private static final int INSERTION_SORT_THRESHOLD = 16;
+
+  /**
+   * Smaller arrays are sorted by a single thread.
+   */
+  private static final int MIN_SEGMENT_SIZE = 1 << 16;
+
+  private static final int FILE_BUFFER_SIZE = 1 << 16;
+
+  private final int arity;
+
+  private final boolean ascendingOrder;
+
+  private final int[] comparisonOrder;
+
+  private final File workingDir;
+
+  private final int maxNumberOfOpenFiles;
+
+  private int numberOfThreads;
+
+  /**
+   * the maximal length of {@link #tuples}
+   */
+  private final int capacity;
+
+  /**
+   * grows up to {@link #capacity}
+   */
+  private long[] tuples;
+
+  private int numberOfTuples;
+
+  private final List<File> runs;
+
+  /**
+   * @param arity
+   *          the number of values of each tuple
+   * @param workingDir
+   * @param maxCashSize
+   *          the number of bytes that may be occupied by the tuples in memory
+   * @param maxNumberOfOpenFiles
+   * @param ascendingOrder
+   * @param comparisonOrder
+   *          the indices of the values that are compared in this order
+   */
+  public LongTupleSorter(int arity, File workingDir, long maxCashSize, int maxNumberOfOpenFiles,
+          boolean ascendingOrder, int... comparisonOrder) {
+    if (arity <= 0) {
+      throw new IllegalArgumentException("The arity must be positive.");
+    }
+    for (int index : comparisonOrder) {
+      if ((index < 0) || (index >= arity)) {
+        throw new IllegalArgumentException(
+                "The compared index " + index + " does not exist in tuples of arity " + arity + ".");
+      }
+    }
+    this.arity = arity;
+    this.workingDir = workingDir;
+    this.maxNumberOfOpenFiles = Math.max(2, maxNumberOfOpenFiles);
+    this.ascendingOrder = ascendingOrder;
+    this.comparisonOrder = comparisonOrder;
+    numberOfThreads = Runtime.getRuntime().availableProcessors();
+    long maxNumberOfTuples = Math.min(maxCashSize / Long.BYTES / arity,
+            (Integer.MAX_VALUE - 8) / arity);
+    capacity = (int) Math.max(1, maxNumberOfTuples) * arity;
+    tuples = new long[Math.min(capacity, INITIAL_CAPACITY * arity)];
+    runs = new ArrayList<>();
+  }
+
+  /**
+   * @param numberOfThreads
+   *          the number of threads that generate runs concurrently
+   */
+  public void setNumberOfThreads(int numberOfThreads) {
+    this.numberOfThreads = Math.max(1, numberOfThreads);
+  }
+
+  public void add(long... tuple) {
+    if (tuple.length != arity) {
+      throw new IllegalArgumentException(
+              "The tuple has " + tuple.length + " values but " + arity + " values are required.");
+    }
+    if ((numberOfTuples * arity) == tuples.length) {
+      if (tuples.length < capacity) {
+        tuples = Arrays.copyOf(tuples, (int) Math.min(capacity, 2L * tuples.length));
+      } else {
+        writeRuns();
+      }
+    }
+    System.arraycopy(tuple, 0, tuples, numberOfTuples * arity, arity);
+    numberOfTuples++;
+  }
+
+  /**
+   * Writes all values of the sorted tuples to <code>output</code>. Afterwards
+   * this sorter is empty.
+   * 
+   * @param output
+   */
+  public void sort(LongOutputWriter output) {
+    sort(tuple -> {
+      for (long value : tuple) {
+        output.writeLong(value);
+      }
+    });
+  }
+
+  /**
+   * Passes the sorted tuples to <code>consumer</code>. Afterwards this sorter
+   * is empty.
+   * 
+   * @param consumer
+   */
+  public void sort(TupleConsumer consumer) {
+    List<Run> finalRuns = new ArrayList<>();
+    try {
+      // reduce the number of runs so that all remaining runs can be opened
+      while (runs.size() > maxNumberOfOpenFiles) {
+        List<File> mergedRuns = new ArrayList<>();
+        for (int start = 0; start < runs.size(); start += maxNumberOfOpenFiles) {
+          List<File> group = runs.subList(start,
+                  Math.min(start + maxNumberOfOpenFiles, runs.size()));
+          if (group.size() == 1) {
+            mergedRuns.add(group.get(0));
+            continue;
+          }
+          File mergedRun = File.createTempFile("mergedRun-", "", workingDir);
+          mergedRuns.add(mergedRun);
+          List<Run> groupRuns = new ArrayList<>();
+          try (DataOutputStream out = createRunOutput(mergedRun);) {
+            for (File run : group) {
+              groupRuns.add(new FileRun(run));
+            }
+            merge(groupRuns, tuple -> {
+              for (long value : tuple) {
+                out.writeLong(value);
+              }
+            });
+          } finally {
+            close(groupRuns);
+          }
+          for (File run : group) {
+            run.delete();
+          }
+        }
+        runs.clear();
+        runs.addAll(mergedRuns);
+      }
+      for (File run : runs) {
+        finalRuns.add(new FileRun(run));
+      }
+      // the last tuples are merged directly from memory
+      int[] segments = sortSegments();
+      for (int i = 0; i < (segments.length - 1); i++) {
+        finalRuns.add(new ArrayRun(segments[i], segments[i + 1]));
+      }
+      merge(finalRuns, consumer);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    } finally {
+      close(finalRuns);
+      clear();
+    }
+  }
+
+  private void merge(List<Run> runsToMerge, TupleConsumer consumer) throws IOException {
+    // binary min heap of run indices
+    int[] heap = new int[runsToMerge.size()];
+    int heapSize = 0;
+    for (int i = 0; i < runsToMerge.size(); i++) {
+      if (runsToMerge.get(i).next()) {
+        heap[heapSize++] = i;
+      }
+    }
+    for (int i = (heapSize / 2) - 1; i >= 0; i--) {
+      siftDown(heap, heapSize, i, runsToMerge);
+    }
+    while (heapSize > 0) {
+      Run smallestRun = runsToMerge.get(heap[0]);
+      consumer.accept(smallestRun.current);
+      if (!smallestRun.next()) {
+        heapSize--;
+        heap[0] = heap[heapSize];
+      }
+      siftDown(heap, heapSize, 0, runsToMerge);
+    }
+  }
+
+  private void siftDown(int[] heap, int heapSize, int index, List<Run> runsToMerge) {
+    int element = heap[index];
+    long[] tuple = runsToMerge.get(element).current;
+    while (true) {
+      int child = (2 * index) + 1;
+      if (child >= heapSize) {
+        break;
+      }
+      if (((child + 1) < heapSize) && (compare(runsToMerge.get(heap[child + 1]).current, 0,
+              runsToMerge.get(heap[child]).current, 0) < 0)) {
+        child++;
+      }
+      if (compare(runsToMerge.get(heap[child]).current, 0, tuple, 0) >= 0) {
+        break;
+      }
+      heap[index] = heap[child];
+      index = child;
+    }
+    heap[index] = element;
+  }
+
+  private void writeRuns() {
+    int[] segments = sortSegments();
+    File[] segmentRuns = new File[segments.length - 1];
+    IntStream.range(0, segmentRuns.length).parallel().forEach(i -> {
+      try {
+        segmentRuns[i] = File.createTempFile("initialRun-", "", workingDir);
+        try (DataOutputStream out = createRunOutput(segmentRuns[i]);) {
+          for (int j = segments[i] * arity; j < (segments[i + 1] * arity); j++) {
+            out.writeLong(tuples[j]);
+          }
+        }
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    });
+    for (File run : segmentRuns) {
+      runs.add(run);
+    }
+    numberOfTuples = 0;
+  }
+
+  /**
+   * Sorts the tuples in memory in several segments concurrently.
+   * 
+   * @return the boundaries of the sorted segments
+   */
+  private int[] sortSegments() {
+    int numberOfSegments = numberOfTuples == 0 ? 0
+            : (int) Math.max(1, Math.min(numberOfThreads, numberOfTuples / MIN_SEGMENT_SIZE));
+    int[] segments = new int[numberOfSegments + 1];
+    for (int i = 0; i <= numberOfSegments; i++) {
+      segments[i] = (int) ((((long) numberOfTuples) * i) / Math.max(1, numberOfSegments));
+    }
+    IntStream.range(0, numberOfSegments).parallel().forEach(i -> {
+      quickSort(segments[i], segments[i + 1], new long[arity], new long[arity]);
+    });
+    return segments;
+  }
+
+  private void quickSort(int from, int to, long[] pivot, long[] swapBuffer) {
+    while ((to - from) > INSERTION_SORT_THRESHOLD) {
+      // move the median of three to the first position
+      int middle = (from + to) >>> 1;
+      int last = to - 1;
+      int median;
+      if (compare(tuples, from * arity, tuples, middle * arity) < 0) {
+        if (compare(tuples, middle * arity, tuples, last * arity) < 0) {
+          median = middle;
+        } else {
+          median = compare(tuples, from * arity, tuples, last * arity) < 0 ? last : from;
+        }
+      } else {
+        if (compare(tuples, from * arity, tuples, last * arity) < 0) {
+          median = from;
+        } else {
+          median = compare(tuples, middle * arity, tuples, last * arity) < 0 ? last : middle;
+        }
+      }
+      swap(from, median, swapBuffer);
+      System.arraycopy(tuples, from * arity, pivot, 0, arity);
+      // Hoare partition
+      int i = from - 1;
+      int j = to;
+      while (true) {
+        do {
+          i++;
+        } while (compare(tuples, i * arity, pivot, 0) < 0);
+        do {
+          j--;
+        } while (compare(tuples, j * arity, pivot, 0) > 0);
+        if (i >= j) {
+          break;
+        }
+        swap(i, j, swapBuffer);
+      }
+      // recurse into the smaller partition
+      if (((j + 1) - from) < (to - (j + 1))) {
+        quickSort(from, j + 1, pivot, swapBuffer);
+        from = j + 1;
+      } else {
+        quickSort(j + 1, to, pivot, swapBuffer);
+        to = j + 1;
+      }
+    }
+    insertionSort(from, to, swapBuffer);
+  }
+
+  private void insertionSort(int from, int to, long[] buffer) {
+    for (int i = from + 1; i < to; i++) {
+      System.arraycopy(tuples, i * arity, buffer, 0, arity);
+      int j = i - 1;
+      while ((j >= from) && (compare(tuples, j * arity, buffer, 0) > 0)) {
+        j--;
+      }
+      if ((j + 1) < i) {
+        System.arraycopy(tuples, (j + 1) * arity, tuples, (j + 2) * arity, (i - j - 1) * arity);
+        System.arraycopy(buffer, 0, tuples, (j + 1) * arity, arity);
+      }
+    }
+  }
+
+  private void swap(int i, int j, long[] buffer) {
+    if (i == j) {
+      return;
+    }
+    System.arraycopy(tuples, i * arity, buffer, 0, arity);
+    System.arraycopy(tuples, j * arity, tuples, i * arity, arity);
+    System.arraycopy(buffer, 0, tuples, j * arity, arity);
+  }
+
+  private int compare(long[] tuples1, int offset1, long[] tuples2, int offset2) {
+    for (int index : comparisonOrder) {
+      int comparison = Long.compare(tuples1[offset1 + index], tuples2[offset2 + index]);
+      if (comparison != 0) {
+        return ascendingOrder ? comparison : -comparison;
+      }
+    }
+    return 0;
+  }
+
+  private DataOutputStream createRunOutput(File run) throws IOException {
+    return new DataOutputStream(
+            new BufferedOutputStream(new FileOutputStream(run), FILE_BUFFER_SIZE));
+  }
+
+  private void close(List<Run> runsToClose) {
+    for (Run run : runsToClose) {
+      try {
+        run.close();
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+  }
+
+  private void clear() {
+    for (File run : runs) {
+      run.delete();
+    }
+    runs.clear();
+    numberOfTuples = 0;
+  }
+
+  @Override
+  public void close() {
+    clear();
+    tuples = null;
+  }
+
+  /**
+   * Receives the sorted tuples.
+   */
+  @FunctionalInterface
+  public static interface TupleConsumer {
+
+    /**
+     * @param tuple
+     *          is reused for the next tuple
+     * @throws IOException
+     */
+    public void accept(long[] tuple) throws IOException;
+
+  }
+
+  private abstract class Run implements Closeable {
+
+    protected final long[] current = new long[arity];
+
+    /**
+     * Loads the next tuple into {@link #current}.
+     * 
+     * @return false, if the run has no further tuples
+     * @throws IOException
+     */
+    public abstract boolean next() throws IOException;
+
+    @Override
+    public void close() throws IOException {
+    }
+
+  }
+
+  private class ArrayRun extends Run {
+
+    private int nextTuple;
+
+    private final int end;
+
+    public ArrayRun(int start, int end) {
+      nextTuple = start;
+      this.end = end;
+    }
+
+    @Override
+    public boolean next() {
+      if (nextTuple >= end) {
+        return false;
+      }
+      System.arraycopy(tuples, nextTuple * arity, current, 0, arity);
+      nextTuple++;
+      return true;
+    }
+
+  }
+
+  private class FileRun extends Run {
+
+    private final DataInputStream input;
+
+    private long remainingTuples;
+
+    public FileRun(File run) throws IOException {
+      remainingTuples = run.length() / Long.BYTES / arity;
+      input = new DataInputStream(
+              new BufferedInputStream(new FileInputStream(run), FILE_BUFFER_SIZE));
+    }
+
+    @Override
+    public boolean next() throws IOException {
+      if (remainingTuples <= 0) {
+        return false;
+      }
+      for (int i = 0; i < arity; i++) {
+        current[i] = input.readLong();
+      }
+      remainingTuples--;
+      return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+      input.close();
+    }
+
+  }
+
+}
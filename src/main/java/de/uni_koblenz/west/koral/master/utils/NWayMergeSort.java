@@ -13,7 +13,9 @@ import java.util.List;
 
 /**
  * 
- * Performs an n-way merge sort.
+ * Performs an n-way merge sort. The input with the smallest next element is
+ * selected with a binary heap. Tuples of a fixed size can be sorted more
+ * efficiently by {@link LongTupleSorter}.
  * 
  * @author Daniel Janke &lt;danijankATuni-koblenz.de&gt;
  *
@@ -82,16 +84,37 @@ public class NWayMergeSort {
               out = new EncodedLongFileOutputStream(chunk);
             }
             // perform merge step
-            for (BitSet indicesOfSmallestElement = getIndicesOfSmallestElement(nextElements,
-                    comparator); !indicesOfSmallestElement
-                            .isEmpty(); indicesOfSmallestElement = getIndicesOfSmallestElement(
-                                    nextElements, comparator)) {
+            int[] heap = new int[numberOfProcessedFiles];
+            int heapSize = 0;
+            for (int i = 0; i < numberOfProcessedFiles; i++) {
+              if (nextElements[i] != null) {
+                heap[heapSize++] = i;
+              }
+            }
+            for (int i = (heapSize / 2) - 1; i >= 0; i--) {
+              siftDown(heap, heapSize, i, nextElements, comparator);
+            }
+            BitSet indicesOfSmallestElement = new BitSet(numberOfProcessedFiles);
+            while (heapSize > 0) {
+              // remove all inputs with the smallest element from the heap
+              indicesOfSmallestElement.clear();
+              long[] smallestElement = nextElements[heap[0]];
+              do {
+                indicesOfSmallestElement.set(heap[0]);
+                heapSize--;
+                heap[0] = heap[heapSize];
+                siftDown(heap, heapSize, 0, nextElements, comparator);
+              } while ((heapSize > 0)
+                      && (comparator.compare(nextElements[heap[0]], smallestElement) == 0));
               merger.mergeAndWrite(indicesOfSmallestElement, nextElements, iterators, out);
               // update next elements
               for (int i = indicesOfSmallestElement
                       .nextSetBit(0); i >= 0; i = indicesOfSmallestElement.nextSetBit(i + 1)) {
                 if (iterators[i].hasNext()) {
                   nextElements[i] = merger.readNextElement(iterators[i]);
+                  heap[heapSize] = i;
+                  siftUp(heap, heapSize, nextElements, comparator);
+                  heapSize++;
                 } else {
                   nextElements[i] = null;
                   iterators[i].close();
@@ -131,22 +154,42 @@ public class NWayMergeSort {
     }
   }
 
-  private BitSet getIndicesOfSmallestElement(long[][] elements, Comparator<long[]> comparator) {
-    long[] smallestElement = null;
-    BitSet smallestIndices = new BitSet(elements.length);
-    for (int i = 0; i < elements.length; i++) {
-      if (elements[i] == null) {
-        continue;
+  /**
+   * The heap contains the indices of the inputs. Its root is the input with
+   * the smallest next element.
+   */
+  private void siftDown(int[] heap, int heapSize, int index, long[][] elements,
+          Comparator<long[]> comparator) {
+    int input = heap[index];
+    while (true) {
+      int child = (2 * index) + 1;
+      if (child >= heapSize) {
+        break;
+      }
+      if (((child + 1) < heapSize)
+              && (comparator.compare(elements[heap[child + 1]], elements[heap[child]]) < 0)) {
+        child++;
       }
-      if ((smallestElement == null) || (comparator.compare(elements[i], smallestElement) < 0)) {
-        smallestElement = elements[i];
-        smallestIndices.clear();
-        smallestIndices.set(i);
-      } else if (comparator.compare(elements[i], smallestElement) == 0) {
-        smallestIndices.set(i);
+      if (comparator.compare(elements[heap[child]], elements[input]) >= 0) {
+        break;
+      }
+      heap[index] = heap[child];
+      index = child;
+    }
+    heap[index] = input;
+  }
+
+  private void siftUp(int[] heap, int index, long[][] elements, Comparator<long[]> comparator) {
+    int input = heap[index];
+    while (index > 0) {
+      int parent = (index - 1) / 2;
+      if (comparator.compare(elements[heap[parent]], elements[input]) <= 0) {
+        break;
       }
+      heap[index] = heap[parent];
+      index = parent;
     }
-    return smallestIndices;
+    heap[index] = input;
   }
 
 }
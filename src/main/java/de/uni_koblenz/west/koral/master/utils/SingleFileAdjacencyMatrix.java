@@ -202,12 +202,24 @@ public class SingleFileAdjacencyMatrix extends AdjacencyMatrix implements Adjace
 
   @Override
   public LongIterator iterator() {
+    return createAdjacencyListIterator(currentVertex);
+  }
+
+  @Override
+  public boolean supportsConcurrentReads() {
+    return true;
+  }
+
+  @Override
+  protected LongIterator createAdjacencyListIterator(long vertex) {
     try {
-      if (adjacencyMatrix != null) {
-        adjacencyMatrix.close();
-        adjacencyMatrix = null;
+      synchronized (this) {
+        if (adjacencyMatrix != null) {
+          adjacencyMatrix.close();
+          adjacencyMatrix = null;
+        }
       }
-      byte[] vertexArray = NumberConversion.long2bytes(currentVertex);
+      byte[] vertexArray = NumberConversion.long2bytes(vertex);
       byte[] offsetLengthArray = vertex2lastElementOffset.get(vertexArray);
       if (offsetLengthArray != null) {
         return new SingleFileAdjacencyMatrixLongIterator(adjacencyMatrixFile,
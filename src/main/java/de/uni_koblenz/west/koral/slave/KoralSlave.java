@@ -86,12 +86,8 @@ public class KoralSlave extends KoralSystem {
               e);
         }
       }
-      if (!isInterrupted()) {
-        try {
-          Thread.sleep(100);
-        } catch (InterruptedException e) {
-        }
-      }
+    } else if (!isInterrupted()) {
+      waitForMessage();
     }
   }
 
@@ -132,6 +128,9 @@ public class KoralSlave extends KoralSystem {
           case QUERY_ABORTION:
             getWorkerManager().abortQuery(receivedMessage);
             break;
+          case QUERY_SATISFIED:
+            getWorkerManager().stopQuery(receivedMessage);
+            break;
           case QUERY_MAPPING_BATCH:
           case QUERY_TASK_FINISHED:
             short senderID = NumberConversion.bytes2short(receivedMessage, 1);
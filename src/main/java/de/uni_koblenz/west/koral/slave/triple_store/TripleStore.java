@@ -18,9 +18,11 @@
  */
 package de.uni_koblenz.west.koral.slave.triple_store;
 
+import de.uni_koblenz.west.koral.common.io.Statement;
 import de.uni_koblenz.west.koral.common.query.Mapping;
 import de.uni_koblenz.west.koral.common.query.MappingRecycleCache;
 import de.uni_koblenz.west.koral.common.query.TriplePattern;
+import de.uni_koblenz.west.koral.slave.triple_store.impl.IndexType;
 
 import java.io.Closeable;
 
@@ -35,8 +37,39 @@ public interface TripleStore extends Closeable, AutoCloseable {
 
   public void storeTriple(long subject, long property, long object, byte[] containment);
 
+  /**
+   * Stores all statements and flushes the triple store afterwards.
+   * 
+   * @param statements
+   * @return the number of read statements
+   */
+  public long storeTriples(Iterable<Statement> statements);
+
+  /**
+   * @return <code>true</code>, if {@link #storeTriples(Iterable)} only
+   *         modifies the triple store after all statements have been read.
+   *         Thus, a failure while reading the statements leaves the triple
+   *         store unchanged.
+   */
+  public boolean isLoadingStaged();
+
   public Iterable<Mapping> lookup(MappingRecycleCache cache, TriplePattern triplePattern);
 
+  /**
+   * @param cache
+   * @param triplePattern
+   * @param requestedIndex
+   *          the index whose order the matches should have or
+   *          <code>null</code> if the default index of the triple pattern
+   *          should be used
+   * @return the matches of the triple pattern
+   * @throws IllegalArgumentException
+   *           if the requested index does not exist or cannot answer the
+   *           triple pattern
+   */
+  public Iterable<Mapping> lookup(MappingRecycleCache cache, TriplePattern triplePattern,
+          IndexType requestedIndex);
+
   public void flush();
 
   public void clear();
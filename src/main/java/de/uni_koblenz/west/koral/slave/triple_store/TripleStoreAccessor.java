@@ -19,6 +19,8 @@ package de.uni_koblenz.west.koral.slave.triple_store;
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
 import java.util.logging.Logger;
 
 import de.uni_koblenz.west.koral.common.config.impl.Configuration;
@@ -29,6 +31,7 @@ import de.uni_koblenz.west.koral.common.mapDB.MapDBStorageOptions;
 import de.uni_koblenz.west.koral.common.query.Mapping;
 import de.uni_koblenz.west.koral.common.query.MappingRecycleCache;
 import de.uni_koblenz.west.koral.common.query.TriplePattern;
+import de.uni_koblenz.west.koral.slave.triple_store.impl.IndexType;
 
 /**
  * Provides access to the local triple store. I.e., methods to store all triples of a graph file and
@@ -51,39 +54,79 @@ public class TripleStoreAccessor implements Closeable, AutoCloseable {
       tripleStore = new de.uni_koblenz.west.koral.slave.triple_store.impl.TripleStore(
           conf.getTripleStoreStorageType(), conf.getTripleStoreDir(false),
           conf.useTransactionsForTripleStore(), conf.isTripleStoreAsynchronouslyWritten(),
-          conf.getTripleStoreCacheType());
+          conf.getTripleStoreCacheType(), conf.getAdditionalTripleStoreIndices());
     } else {
       tripleStore = new de.uni_koblenz.west.koral.slave.triple_store.impl.TripleStore(
-          conf.getTripleStoreDir(false));
+          conf.getTripleStoreDir(false), conf.getAdditionalTripleStoreIndices(),
+          conf.getBulkLoadingRunSize());
     }
   }
 
   public void storeTriples(File file) {
     try (EncodedFileInputStream in = new EncodedFileInputStream(EncodingFileFormat.EEE, file);) {
-      long alreadyLoadedTriples = 0;
-      for (Statement statement : in) {
-        tripleStore.storeTriple(statement.getSubjectAsLong(), statement.getPropertyAsLong(),
-            statement.getObjectAsLong(), statement.getContainment());
-        alreadyLoadedTriples++;
-        if ((logger != null) && ((alreadyLoadedTriples % 10000) == 0)) {
-          logger.finer("loaded " + alreadyLoadedTriples + " triples");
-        }
-      }
-      tripleStore.flush();
-      size = alreadyLoadedTriples;
-      if (logger != null) {
-        logger.finer("finished loading of " + alreadyLoadedTriples + " triples from file "
-            + file.getAbsolutePath());
-      }
+      storeTriples(in, "file " + file.getAbsolutePath());
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
   }
 
+  /**
+   * Stores the triples while they are read from the gzipped input stream.
+   * 
+   * @param input
+   */
+  public void storeTriples(InputStream input) {
+    try (EncodedFileInputStream in = new EncodedFileInputStream(EncodingFileFormat.EEE, input);) {
+      storeTriples(in, "stream");
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private void storeTriples(EncodedFileInputStream in, String source) {
+    Iterator<Statement> statements = in.iterator();
+    long alreadyLoadedTriples = tripleStore.storeTriples(() -> new Iterator<Statement>() {
+
+      private long readTriples;
+
+      @Override
+      public boolean hasNext() {
+        return statements.hasNext();
+      }
+
+      @Override
+      public Statement next() {
+        readTriples++;
+        if ((logger != null) && ((readTriples % 10000) == 0)) {
+          logger.finer("read " + readTriples + " triples");
+        }
+        return statements.next();
+      }
+
+    });
+    size = alreadyLoadedTriples;
+    if (logger != null) {
+      logger.finer("finished loading of " + alreadyLoadedTriples + " triples from " + source);
+    }
+  }
+
+  /**
+   * @return <code>true</code>, if no triple is stored, if reading the input of
+   *         {@link #storeTriples(InputStream)} fails
+   */
+  public boolean isLoadingStaged() {
+    return tripleStore.isLoadingStaged();
+  }
+
   public Iterable<Mapping> lookup(MappingRecycleCache cache, TriplePattern triplePattern) {
     return tripleStore.lookup(cache, triplePattern);
   }
 
+  public Iterable<Mapping> lookup(MappingRecycleCache cache, TriplePattern triplePattern,
+      IndexType requestedIndex) {
+    return tripleStore.lookup(cache, triplePattern, requestedIndex);
+  }
+
   public long size() {
 	  return size;
   }
@@ -18,11 +18,17 @@
  */
 package de.uni_koblenz.west.koral.slave.triple_store.impl;
 
+import de.uni_koblenz.west.koral.common.query.TriplePattern;
+import de.uni_koblenz.west.koral.common.query.TriplePatternType;
 import de.uni_koblenz.west.koral.common.utils.NumberConversion;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
 /**
  * Provides methods to extract the subject, property or object of the byte array
- * stored in the the different triple indices.
+ * stored in the the different triple indices. SPO, OSP, POS and PSO always
+ * exist. SOP and OPS are optional.
  * 
  * @author Daniel Janke &lt;danijankATuni-koblenz.de&gt;
  *
@@ -109,6 +115,96 @@ public enum IndexType {
       }
       return result;
     }
+  },
+
+  PSO {
+    @Override
+    public long getSubject(byte[] triple) {
+      return NumberConversion.bytes2long(triple, 8);
+    }
+
+    @Override
+    public long getProperty(byte[] triple) {
+      return NumberConversion.bytes2long(triple, 0);
+    }
+
+    @Override
+    public long getObject(byte[] triple) {
+      return NumberConversion.bytes2long(triple, 16);
+    }
+
+    @Override
+    public byte[] getSPOCArray(byte[] triple) {
+      byte[] result = new byte[triple.length];
+      System.arraycopy(triple, 1 * Long.BYTES, result, 0 * Long.BYTES, Long.BYTES);
+      System.arraycopy(triple, 0 * Long.BYTES, result, 1 * Long.BYTES, Long.BYTES);
+      System.arraycopy(triple, 2 * Long.BYTES, result, 2 * Long.BYTES, Long.BYTES);
+      if (triple.length > (3 * Long.BYTES)) {
+        System.arraycopy(triple, 3 * Long.BYTES, result, 3 * Long.BYTES,
+                triple.length - (3 * Long.BYTES));
+      }
+      return result;
+    }
+  },
+
+  SOP {
+    @Override
+    public long getSubject(byte[] triple) {
+      return NumberConversion.bytes2long(triple, 0);
+    }
+
+    @Override
+    public long getProperty(byte[] triple) {
+      return NumberConversion.bytes2long(triple, 16);
+    }
+
+    @Override
+    public long getObject(byte[] triple) {
+      return NumberConversion.bytes2long(triple, 8);
+    }
+
+    @Override
+    public byte[] getSPOCArray(byte[] triple) {
+      byte[] result = new byte[triple.length];
+      System.arraycopy(triple, 0 * Long.BYTES, result, 0 * Long.BYTES, Long.BYTES);
+      System.arraycopy(triple, 2 * Long.BYTES, result, 1 * Long.BYTES, Long.BYTES);
+      System.arraycopy(triple, 1 * Long.BYTES, result, 2 * Long.BYTES, Long.BYTES);
+      if (triple.length > (3 * Long.BYTES)) {
+        System.arraycopy(triple, 3 * Long.BYTES, result, 3 * Long.BYTES,
+                triple.length - (3 * Long.BYTES));
+      }
+      return result;
+    }
+  },
+
+  OPS {
+    @Override
+    public long getSubject(byte[] triple) {
+      return NumberConversion.bytes2long(triple, 16);
+    }
+
+    @Override
+    public long getProperty(byte[] triple) {
+      return NumberConversion.bytes2long(triple, 8);
+    }
+
+    @Override
+    public long getObject(byte[] triple) {
+      return NumberConversion.bytes2long(triple, 0);
+    }
+
+    @Override
+    public byte[] getSPOCArray(byte[] triple) {
+      byte[] result = new byte[triple.length];
+      System.arraycopy(triple, 2 * Long.BYTES, result, 0 * Long.BYTES, Long.BYTES);
+      System.arraycopy(triple, 1 * Long.BYTES, result, 1 * Long.BYTES, Long.BYTES);
+      System.arraycopy(triple, 0 * Long.BYTES, result, 2 * Long.BYTES, Long.BYTES);
+      if (triple.length > (3 * Long.BYTES)) {
+        System.arraycopy(triple, 3 * Long.BYTES, result, 3 * Long.BYTES,
+                triple.length - (3 * Long.BYTES));
+      }
+      return result;
+    }
   };
 
   public abstract long getSubject(byte[] triple);
@@ -125,4 +221,95 @@ public enum IndexType {
 
   public abstract byte[] getSPOCArray(byte[] triple);
 
+  /**
+   * @param subject
+   * @param property
+   * @param object
+   * @param containment
+   * @return the byte array that is stored in this index for the triple
+   */
+  public byte[] createKey(long subject, long property, long object, byte[] containment) {
+    byte[] result = new byte[(3 * Long.BYTES) + containment.length];
+    for (int i = 0; i < 3; i++) {
+      long value = 0;
+      switch (name().charAt(i)) {
+        case 'S':
+          value = subject;
+          break;
+        case 'P':
+          value = property;
+          break;
+        case 'O':
+          value = object;
+          break;
+      }
+      NumberConversion.long2bytes(value, result, i * Long.BYTES);
+    }
+    System.arraycopy(containment, 0, result, 3 * Long.BYTES, containment.length);
+    return result;
+  }
+
+  /**
+   * @param type
+   * @return true, if the constant values of a triple pattern of this type
+   *         form a prefix of this index
+   */
+  public boolean canAnswer(TriplePatternType type) {
+    boolean isVariableFound = false;
+    for (int i = 0; i < 3; i++) {
+      boolean isBound = type.name().indexOf(name().charAt(i)) != -1;
+      if (isBound && isVariableFound) {
+        return false;
+      }
+      isVariableFound |= !isBound;
+    }
+    return true;
+  }
+
+  /**
+   * @param pattern
+   *          a triple pattern that can be answered by this index
+   * @return the constant values of the triple pattern in the order of this
+   *         index
+   */
+  public byte[] createQueryPrefix(TriplePattern pattern) {
+    ByteBuffer prefix = ByteBuffer.allocate(3 * Long.BYTES);
+    for (int i = 0; i < 3; i++) {
+      char position = name().charAt(i);
+      if (pattern.getType().name().indexOf(position) == -1) {
+        break;
+      }
+      prefix.putLong(getValue(pattern, position));
+    }
+    return Arrays.copyOf(prefix.array(), prefix.position());
+  }
+
+  /**
+   * @param pattern
+   *          a triple pattern that can be answered by this index
+   * @return the variable by which the matches of the triple pattern are sorted
+   *         in this index or -1 if the triple pattern does not contain a
+   *         variable
+   */
+  public long getSortVariable(TriplePattern pattern) {
+    for (int i = 0; i < 3; i++) {
+      char position = name().charAt(i);
+      if (pattern.getType().name().indexOf(position) == -1) {
+        return getValue(pattern, position);
+      }
+    }
+    return -1;
+  }
+
+  private static long getValue(TriplePattern pattern, char position) {
+    switch (position) {
+      case 'S':
+        return pattern.getSubject();
+      case 'P':
+        return pattern.getProperty();
+      default:
+        return pattern.getObject();
+    }
+  }
+
 }
@@ -20,7 +20,6 @@ package de.uni_koblenz.west.koral.slave.triple_store.impl;
 
 import org.mapdb.DB;
 import org.mapdb.DBMaker;
-import org.mapdb.Fun;
 
 import de.uni_koblenz.west.koral.common.mapDB.MapDBCacheOptions;
 import de.uni_koblenz.west.koral.common.mapDB.MapDBStorageOptions;
@@ -32,11 +31,16 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.Serializable;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.NavigableSet;
 
 /**
- * A MapDB implementation of a multi map.
+ * A MapDB implementation of a multi map. The elements are ordered by an
+ * unsigned lexicographic comparison of their bytes, i.e., in the same order as
+ * in {@link RocksDBMultiMap}. Stores created with the former signed order are
+ * migrated when they are opened.
  * 
  * @author Daniel Janke &lt;danijankATuni-koblenz.de&gt;
  *
@@ -65,7 +69,13 @@ public class MapDBMultiMap implements MultiMap {
     dbmaker = cacheType.setCaching(dbmaker);
     database = dbmaker.make();
 
-    multiMap = database.createTreeSet(mapName).comparator(Fun.BYTE_ARRAY_COMPARATOR).makeOrGet();
+    NavigableSet<byte[]> set = database.createTreeSet(mapName)
+            .comparator(new UnsignedByteArrayComparator()).makeOrGet();
+    if (!(set.comparator() instanceof UnsignedByteArrayComparator)) {
+      // an existing set keeps the comparator it was created with
+      set = migrate(set, mapName);
+    }
+    multiMap = set;
 
     maxLengthFile = new File(databaseFile + ".maxLength");
     if (maxLengthFile.exists()) {
@@ -73,6 +83,30 @@ public class MapDBMultiMap implements MultiMap {
     }
   }
 
+  /**
+   * Copies all elements of a set created by an older version, which ordered
+   * its elements by signed bytes, into a set with the unsigned order.
+   * Otherwise, prefix lookups would miss matches.
+   * 
+   * @param signedSet
+   * @param mapName
+   * @return the set with the unsigned order
+   */
+  private NavigableSet<byte[]> migrate(NavigableSet<byte[]> signedSet, String mapName) {
+    String migrationName = mapName + "_unsigned";
+    if (database.exists(migrationName)) {
+      // a previous migration was interrupted
+      database.delete(migrationName);
+    }
+    NavigableSet<byte[]> unsignedSet = database.createTreeSet(migrationName)
+            .comparator(new UnsignedByteArrayComparator()).make();
+    unsignedSet.addAll(signedSet);
+    database.delete(mapName);
+    database.rename(migrationName, mapName);
+    database.commit();
+    return database.getTreeSet(mapName);
+  }
+
   private void loadMaxLength() {
     try (DataInputStream in = new DataInputStream(new FileInputStream(maxLengthFile))) {
       maxElementLength = in.readInt();
@@ -125,7 +159,7 @@ public class MapDBMultiMap implements MultiMap {
   private byte[] getMaxValue(byte[] prefix) {
     byte[] max = new byte[maxElementLength];
     for (int i = 0; i < max.length; i++) {
-      max[i] = i < prefix.length ? prefix[i] : Byte.MAX_VALUE;
+      max[i] = i < prefix.length ? prefix[i] : (byte) 0xff;
     }
     return max;
   }
@@ -238,4 +272,28 @@ public class MapDBMultiMap implements MultiMap {
       database.close();
     }
   }
+
+  /**
+   * Compares byte arrays lexicographically whereby each byte is interpreted as
+   * an unsigned value.
+   */
+  static class UnsignedByteArrayComparator
+          implements Comparator<byte[]>, Serializable {
+
+    private static final long serialVersionUID = -2553404745185469837L;
+
+    @Override
+    public int compare(byte[] o1, byte[] o2) {
+      int length = Math.min(o1.length, o2.length);
+      for (int i = 0; i < length; i++) {
+        int comparison = Integer.compare(o1[i] & 0xff, o2[i] & 0xff);
+        if (comparison != 0) {
+          return comparison;
+        }
+      }
+      return Integer.compare(o1.length, o2.length);
+    }
+
+  }
+
 }
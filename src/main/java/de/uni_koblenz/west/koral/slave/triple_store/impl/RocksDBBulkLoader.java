@@ -0,0 +1,425 @@
+/*
+ * This file is part of Koral.
+ *
+ * Koral is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Koral is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Leser General Public License
+ * along with Koral.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2016 Daniel Janke
+ */
+package de.uni_koblenz.west.koral.slave.triple_store.impl;
+
+import org.rocksdb.EnvOptions;
+import org.rocksdb.Options;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.Slice;
+import org.rocksdb.SstFileWriter;
+
+import de.uni_koblenz.west.koral.common.io.Statement;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ * Loads triples into the {@link RocksDBMultiMap}s of all indices without
+ * passing the write path of RocksDB. The triples are read in runs of a fixed
+ * size. While the next run is read, the previous run is sorted for each index
+ * in parallel and written to a run file. Afterwards, the run files of each
+ * index are merged in parallel into one SST file, whereby duplicates are
+ * removed. Finally, the SST files are moved into the databases. Thus, no
+ * compaction is required.
+ * </p>
+ * 
+ * <p>
+ * If all triples fit into one run, the SST files are written directly. Since
+ * RocksDB can only move SST files into a database whose keys do not overlap
+ * with them, the sorted triples are inserted by the regular write path into
+ * indices that are not empty.
+ * </p>
+ * 
+ * @author Daniel Janke &lt;danijankATuni-koblenz.de&gt;
+ *
+ */
+class RocksDBBulkLoader {
+
+  /**
+   * the run that is read and the run that is sorted
+   */
+  private static final int MAX_RUNS_IN_MEMORY = 2;
+
+  private static final Comparator<byte[]> COMPARATOR =
+          new MapDBMultiMap.UnsignedByteArrayComparator();
+
+  private final Map<IndexType, RocksDBMultiMap> indices;
+
+  private final File workingDir;
+
+  private final int runSize;
+
+  public RocksDBBulkLoader(Map<IndexType, RocksDBMultiMap> indices, File workingDir,
+          int runSize) {
+    this.indices = indices;
+    this.workingDir = workingDir;
+    this.runSize = runSize;
+  }
+
+  /**
+   * @param statements
+   * @return the number of read statements
+   */
+  public long load(Iterable<Statement> statements) {
+    if (!workingDir.exists()) {
+      workingDir.mkdirs();
+    }
+    Set<IndexType> emptyIndices = EnumSet.noneOf(IndexType.class);
+    for (Entry<IndexType, RocksDBMultiMap> index : indices.entrySet()) {
+      if (!index.getValue().containsKey(new byte[0])) {
+        emptyIndices.add(index.getKey());
+      }
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(indices.size());
+    try {
+      Map<IndexType, List<File>> runFiles = new EnumMap<>(IndexType.class);
+      for (IndexType index : indices.keySet()) {
+        runFiles.put(index, Collections.synchronizedList(new ArrayList<>()));
+      }
+      Map<IndexType, AtomicLong> numberOfEntries = new EnumMap<>(IndexType.class);
+      for (IndexType index : indices.keySet()) {
+        numberOfEntries.put(index, new AtomicLong());
+      }
+      Map<IndexType, File> sstFiles = Collections
+              .synchronizedMap(new EnumMap<>(IndexType.class));
+      List<Future<?>> tasks = new ArrayList<>();
+      Semaphore freeRuns = new Semaphore(MAX_RUNS_IN_MEMORY);
+
+      long numberOfStatements = 0;
+      int numberOfRuns = 0;
+      Iterator<Statement> iterator = statements.iterator();
+      while (iterator.hasNext()) {
+        acquire(freeRuns, tasks);
+        Run run = new Run(runSize);
+        while ((run.size < runSize) && iterator.hasNext()) {
+          run.add(iterator.next());
+        }
+        numberOfStatements += run.size;
+        boolean isOnlyRun = (numberOfRuns == 0) && !iterator.hasNext();
+        AtomicInteger unsortedIndices = new AtomicInteger(indices.size());
+        for (IndexType index : indices.keySet()) {
+          File runFile = new File(workingDir,
+                  index.name().toLowerCase() + "_" + numberOfRuns + (isOnlyRun ? ".sst" : ".run"));
+          tasks.add(executor.submit(() -> {
+            byte[][] keys;
+            try {
+              keys = run.getSortedKeys(index);
+            } finally {
+              if (unsortedIndices.decrementAndGet() == 0) {
+                freeRuns.release();
+              }
+            }
+            if (isOnlyRun) {
+              numberOfEntries.get(index).addAndGet(write(index, Arrays.asList(keys).iterator(),
+                      emptyIndices.contains(index) ? runFile : null));
+              sstFiles.put(index, runFile);
+            } else {
+              writeRunFile(keys, runFile);
+              runFiles.get(index).add(runFile);
+            }
+          }));
+        }
+        numberOfRuns++;
+      }
+      waitFor(tasks);
+
+      if (numberOfRuns > 1) {
+        for (Entry<IndexType, List<File>> runFilesOfIndex : runFiles.entrySet()) {
+          IndexType index = runFilesOfIndex.getKey();
+          File sstFile = new File(workingDir, index.name().toLowerCase() + ".sst");
+          tasks.add(executor.submit(() -> {
+            numberOfEntries.get(index).addAndGet(mergeRunFiles(index,
+                    runFilesOfIndex.getValue(), emptyIndices.contains(index) ? sstFile : null));
+            sstFiles.put(index, sstFile);
+          }));
+        }
+        waitFor(tasks);
+      }
+
+      for (Entry<IndexType, File> sstFile : sstFiles.entrySet()) {
+        long entries = numberOfEntries.get(sstFile.getKey()).get();
+        if (emptyIndices.contains(sstFile.getKey()) && (entries > 0)) {
+          indices.get(sstFile.getKey()).ingest(Collections.singletonList(sstFile.getValue()),
+                  entries);
+        }
+      }
+      return numberOfStatements;
+    } finally {
+      executor.shutdownNow();
+      for (File file : workingDir.listFiles()) {
+        file.delete();
+      }
+      workingDir.delete();
+    }
+  }
+
+  /**
+   * Waits for a free run. If one of the tasks has failed in the meantime, its
+   * failure is thrown.
+   * 
+   * @param semaphore
+   * @param tasks
+   */
+  private void acquire(Semaphore semaphore, List<Future<?>> tasks) {
+    try {
+      semaphore.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    }
+    for (Future<?> task : tasks) {
+      if (task.isDone()) {
+        getResult(task);
+      }
+    }
+  }
+
+  private void waitFor(List<Future<?>> tasks) {
+    for (Future<?> task : tasks) {
+      getResult(task);
+    }
+    tasks.clear();
+  }
+
+  private void getResult(Future<?> task) {
+    try {
+      task.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new RuntimeException(e.getCause());
+    }
+  }
+
+  private void writeRunFile(byte[][] sortedKeys, File runFile) {
+    try (DataOutputStream output = new DataOutputStream(
+            new BufferedOutputStream(new FileOutputStream(runFile)));) {
+      for (byte[] key : sortedKeys) {
+        output.writeShort(key.length);
+        output.write(key);
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private long mergeRunFiles(IndexType index, List<File> runFiles, File sstFile) {
+    PriorityQueue<RunFileReader> readers = new PriorityQueue<>(runFiles.size(),
+            (r1, r2) -> COMPARATOR.compare(r1.head, r2.head));
+    try {
+      for (File runFile : runFiles) {
+        RunFileReader reader = new RunFileReader(runFile);
+        if (reader.head != null) {
+          readers.add(reader);
+        } else {
+          reader.close();
+        }
+      }
+      return write(index, new Iterator<byte[]>() {
+
+        @Override
+        public boolean hasNext() {
+          return !readers.isEmpty();
+        }
+
+        @Override
+        public byte[] next() {
+          RunFileReader reader = readers.poll();
+          byte[] key = reader.head;
+          reader.advance();
+          if (reader.head != null) {
+            readers.add(reader);
+          } else {
+            reader.close();
+          }
+          return key;
+        }
+
+      }, sstFile);
+    } finally {
+      for (RunFileReader reader : readers) {
+        reader.close();
+      }
+    }
+  }
+
+  /**
+   * @param index
+   * @param sortedKeys
+   * @param sstFile
+   *          if <code>null</code>, the keys are inserted into the index
+   *          directly
+   * @return the number of written keys
+   */
+  private long write(IndexType index, Iterator<byte[]> sortedKeys, File sstFile) {
+    if (sstFile != null) {
+      return writeSstFile(sortedKeys, sstFile);
+    }
+    RocksDBMultiMap multiMap = indices.get(index);
+    long numberOfKeys = 0;
+    while (sortedKeys.hasNext()) {
+      multiMap.put(sortedKeys.next());
+      numberOfKeys++;
+    }
+    multiMap.flush();
+    return numberOfKeys;
+  }
+
+  /**
+   * @param sortedKeys
+   * @param sstFile
+   * @return the number of written keys, duplicates are skipped
+   */
+  private long writeSstFile(Iterator<byte[]> sortedKeys, File sstFile) {
+    long numberOfKeys = 0;
+    try (EnvOptions envOptions = new EnvOptions();
+            Options options = new Options();
+            SstFileWriter writer = new SstFileWriter(envOptions, options);
+            Slice value = new Slice(new byte[0]);) {
+      writer.open(sstFile.getAbsolutePath());
+      byte[] previousKey = null;
+      while (sortedKeys.hasNext()) {
+        byte[] key = sortedKeys.next();
+        if ((previousKey != null) && Arrays.equals(previousKey, key)) {
+          continue;
+        }
+        try (Slice keySlice = new Slice(key);) {
+          writer.add(keySlice, value);
+        }
+        previousKey = key;
+        numberOfKeys++;
+      }
+      if (numberOfKeys > 0) {
+        writer.finish();
+      }
+    } catch (RocksDBException e) {
+      throw new RuntimeException(e);
+    }
+    return numberOfKeys;
+  }
+
+  /**
+   * The triples of one run.
+   */
+  private static class Run {
+
+    private final long[] subjects;
+
+    private final long[] properties;
+
+    private final long[] objects;
+
+    private final byte[][] containments;
+
+    private int size;
+
+    public Run(int capacity) {
+      subjects = new long[capacity];
+      properties = new long[capacity];
+      objects = new long[capacity];
+      containments = new byte[capacity][];
+    }
+
+    public void add(Statement statement) {
+      subjects[size] = statement.getSubjectAsLong();
+      properties[size] = statement.getPropertyAsLong();
+      objects[size] = statement.getObjectAsLong();
+      containments[size] = statement.getContainment();
+      size++;
+    }
+
+    public byte[][] getSortedKeys(IndexType index) {
+      byte[][] keys = new byte[size][];
+      for (int i = 0; i < size; i++) {
+        keys[i] = index.createKey(subjects[i], properties[i], objects[i], containments[i]);
+      }
+      Arrays.sort(keys, COMPARATOR);
+      return keys;
+    }
+
+  }
+
+  private static class RunFileReader {
+
+    private final DataInputStream input;
+
+    private byte[] head;
+
+    public RunFileReader(File runFile) {
+      try {
+        input = new DataInputStream(new BufferedInputStream(new FileInputStream(runFile)));
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+      advance();
+    }
+
+    public void advance() {
+      try {
+        head = new byte[input.readShort() & 0xff_ff];
+        input.readFully(head);
+      } catch (EOFException e) {
+        head = null;
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+    public void close() {
+      try {
+        input.close();
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+  }
+
+}
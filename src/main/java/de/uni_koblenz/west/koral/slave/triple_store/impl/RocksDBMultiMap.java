@@ -22,8 +22,10 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 
 import org.rocksdb.Options;
@@ -148,6 +150,29 @@ public class RocksDBMultiMap implements MultiMap {
     }
   }
 
+  /**
+   * Moves SST files into the database without passing the write path of
+   * RocksDB. The keys in each file must be sorted and the key ranges of the
+   * files must not overlap.
+   * 
+   * @param sstFiles
+   * @param numberOfEntries
+   *          the number of keys in all files
+   */
+  void ingest(List<File> sstFiles, long numberOfEntries) {
+    internalFlush();
+    List<String> paths = new ArrayList<>(sstFiles.size());
+    for (File sstFile : sstFiles) {
+      paths.add(sstFile.getAbsolutePath());
+    }
+    try {
+      multiMap.addFileWithFilePath(paths, true);
+    } catch (RocksDBException e) {
+      throw new RuntimeException(e);
+    }
+    numberOfTriples += numberOfEntries;
+  }
+
   @Override
   public void removeAll(byte[] prefix) {
     for (byte[] key : get(prefix)) {
@@ -18,149 +18,238 @@
  */
 package de.uni_koblenz.west.koral.slave.triple_store.impl;
 
+import de.uni_koblenz.west.koral.common.io.Statement;
 import de.uni_koblenz.west.koral.common.mapDB.MapDBCacheOptions;
 import de.uni_koblenz.west.koral.common.mapDB.MapDBStorageOptions;
 import de.uni_koblenz.west.koral.common.query.Mapping;
 import de.uni_koblenz.west.koral.common.query.MappingRecycleCache;
 import de.uni_koblenz.west.koral.common.query.TriplePattern;
-import de.uni_koblenz.west.koral.common.utils.NumberConversion;
+import de.uni_koblenz.west.koral.common.query.TriplePatternType;
 
 import java.io.File;
-import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
 
 /**
  * A MapDB implementation of the local triple store. Each triple is stored in
- * the SPO, OSP, and POS index. Each index is realized by a {@link MultiMap}.
+ * the SPO, OSP, POS and PSO index and in each configured additional index (SOP
+ * or OPS). Each index is realized by a {@link MultiMap}. The matches of a
+ * lookup are returned in the unsigned order of the index that is used for the
+ * triple pattern.
  * 
  * @author Daniel Janke &lt;danijankATuni-koblenz.de&gt;
  *
  */
 public class TripleStore implements de.uni_koblenz.west.koral.slave.triple_store.TripleStore {
 
-  private final MultiMap spo;
+  public static final Set<IndexType> DEFAULT_INDICES = Collections
+          .unmodifiableSet(EnumSet.of(IndexType.SPO, IndexType.OSP, IndexType.POS, IndexType.PSO));
 
-  private final MultiMap osp;
+  private final Map<IndexType, MultiMap> indices;
 
-  private final MultiMap pos;
+  private final File bulkLoadingDir;
+
+  /**
+   * if &lt;=0, triples are inserted one by one
+   */
+  private final int bulkLoadingRunSize;
 
   public TripleStore(MapDBStorageOptions storageType, String tripleStoreDir,
           boolean useTransactions, boolean writeAsynchronously, MapDBCacheOptions cacheType) {
+    this(storageType, tripleStoreDir, useTransactions, writeAsynchronously, cacheType,
+            EnumSet.noneOf(IndexType.class));
+  }
+
+  public TripleStore(MapDBStorageOptions storageType, String tripleStoreDir,
+          boolean useTransactions, boolean writeAsynchronously, MapDBCacheOptions cacheType,
+          Set<IndexType> additionalIndices) {
     File dir = new File(tripleStoreDir);
     if (!dir.exists()) {
       dir.mkdirs();
     }
-    spo = new MapDBMultiMap(storageType, tripleStoreDir + File.separatorChar + "spo",
-            useTransactions, writeAsynchronously, cacheType, "spo");
-    osp = new MapDBMultiMap(storageType, tripleStoreDir + File.separatorChar + "osp",
-            useTransactions, writeAsynchronously, cacheType, "osp");
-    pos = new MapDBMultiMap(storageType, tripleStoreDir + File.separatorChar + "pos",
-            useTransactions, writeAsynchronously, cacheType, "pos");
+    bulkLoadingDir = null;
+    bulkLoadingRunSize = 0;
+    indices = new EnumMap<>(IndexType.class);
+    for (IndexType index : getIndices(additionalIndices)) {
+      String name = index.name().toLowerCase();
+      indices.put(index, new MapDBMultiMap(storageType, tripleStoreDir + File.separatorChar + name,
+              useTransactions, writeAsynchronously, cacheType, name));
+    }
+    checkIndices();
   }
 
   public TripleStore(String tripleStoreDir) {
+    this(tripleStoreDir, EnumSet.noneOf(IndexType.class));
+  }
+
+  public TripleStore(String tripleStoreDir, Set<IndexType> additionalIndices) {
+    this(tripleStoreDir, additionalIndices, 0);
+  }
+
+  /**
+   * @param tripleStoreDir
+   * @param additionalIndices
+   * @param bulkLoadingRunSize
+   *          if &gt;0, {@link #storeTriples(Iterable)} sorts runs of this many
+   *          triples and writes the indices as SST files, see
+   *          {@link RocksDBBulkLoader}
+   */
+  public TripleStore(String tripleStoreDir, Set<IndexType> additionalIndices,
+          int bulkLoadingRunSize) {
     File dir = new File(tripleStoreDir);
     if (!dir.exists()) {
       dir.mkdirs();
     }
-    spo = new RocksDBMultiMap(tripleStoreDir + File.separatorChar + "spo");
-    osp = new RocksDBMultiMap(tripleStoreDir + File.separatorChar + "osp");
-    pos = new RocksDBMultiMap(tripleStoreDir + File.separatorChar + "pos");
+    bulkLoadingDir = new File(dir, "bulkLoading");
+    this.bulkLoadingRunSize = bulkLoadingRunSize;
+    indices = new EnumMap<>(IndexType.class);
+    for (IndexType index : getIndices(additionalIndices)) {
+      indices.put(index, new RocksDBMultiMap(
+              tripleStoreDir + File.separatorChar + index.name().toLowerCase()));
+    }
+    checkIndices();
+  }
+
+  /**
+   * Refuses to open a triple store in which an index is empty although the
+   * other indices contain triples. This happens if an additional index is
+   * configured or a default index is introduced by an update after the graph
+   * has been loaded. Such an index has to be populated by dropping and
+   * reloading the graph.
+   */
+  private void checkIndices() {
+    if (indices.get(IndexType.SPO).isEmpty()) {
+      return;
+    }
+    for (Entry<IndexType, MultiMap> index : indices.entrySet()) {
+      if (index.getValue().isEmpty()) {
+        close();
+        throw new IllegalStateException("The triple store index " + index.getKey().name()
+                + " is empty although the triple store contains triples. Probably, the index has"
+                + " been added to the configuration or by an update after the graph was loaded."
+                + " Drop and reload the graph in order to populate it.");
+      }
+    }
+  }
+
+  /**
+   * @param additionalIndices
+   * @return the default indices and the additional indices
+   */
+  public static Set<IndexType> getIndices(Set<IndexType> additionalIndices) {
+    Set<IndexType> indices = EnumSet.copyOf(DEFAULT_INDICES);
+    if (additionalIndices != null) {
+      indices.addAll(additionalIndices);
+    }
+    return indices;
+  }
+
+  /**
+   * @param type
+   * @return the index that is used for triple patterns of this type, if no
+   *         other index is requested
+   */
+  public static IndexType getDefaultIndex(TriplePatternType type) {
+    switch (type) {
+      case _P_:
+      case _PO:
+        return IndexType.POS;
+      case __O:
+      case S_O:
+        return IndexType.OSP;
+      default:
+        return IndexType.SPO;
+    }
   }
 
   @Override
   public void storeTriple(long subject, long property, long object, byte[] containment) {
-    spo.put(createByteArray(subject, property, object, containment));
-    osp.put(createByteArray(object, subject, property, containment));
-    pos.put(createByteArray(property, object, subject, containment));
+    for (Entry<IndexType, MultiMap> index : indices.entrySet()) {
+      index.getValue().put(index.getKey().createKey(subject, property, object, containment));
+    }
   }
 
-  private byte[] createByteArray(long value1, long value2, long value3, byte[] containment) {
-    byte[] result = new byte[(3 * Long.BYTES) + containment.length];
-    NumberConversion.long2bytes(value1, result, 0);
-    NumberConversion.long2bytes(value2, result, Long.BYTES);
-    NumberConversion.long2bytes(value3, result, 2 * Long.BYTES);
-    System.arraycopy(containment, 0, result, 3 * Long.BYTES, containment.length);
-    return result;
+  @Override
+  public long storeTriples(Iterable<Statement> statements) {
+    long numberOfTriples = 0;
+    if (bulkLoadingRunSize > 0) {
+      Map<IndexType, RocksDBMultiMap> rocksDBIndices = new EnumMap<>(IndexType.class);
+      for (Entry<IndexType, MultiMap> index : indices.entrySet()) {
+        rocksDBIndices.put(index.getKey(), (RocksDBMultiMap) index.getValue());
+      }
+      numberOfTriples = new RocksDBBulkLoader(rocksDBIndices, bulkLoadingDir, bulkLoadingRunSize)
+              .load(statements);
+    } else {
+      for (Statement statement : statements) {
+        storeTriple(statement.getSubjectAsLong(), statement.getPropertyAsLong(),
+                statement.getObjectAsLong(), statement.getContainment());
+        numberOfTriples++;
+      }
+      flush();
+    }
+    return numberOfTriples;
+  }
+
+  @Override
+  public boolean isLoadingStaged() {
+    // the bulk loader moves the SST files into the indices after reading
+    return bulkLoadingRunSize > 0;
   }
 
   @Override
   public Iterable<Mapping> lookup(MappingRecycleCache cache, TriplePattern triplePattern) {
-    byte[] queryPrefix = null;
-    Iterable<byte[]> matches = null;
-    IndexType indexType = null;
-    switch (triplePattern.getType()) {
-      case ___:
-        queryPrefix = new byte[0];
-        matches = spo.get(queryPrefix);
-        indexType = IndexType.SPO;
-        break;
-      case S__:
-        queryPrefix = NumberConversion.long2bytes(triplePattern.getSubject());
-        matches = spo.get(queryPrefix);
-        indexType = IndexType.SPO;
-        break;
-      case _P_:
-        queryPrefix = NumberConversion.long2bytes(triplePattern.getProperty());
-        matches = pos.get(queryPrefix);
-        indexType = IndexType.POS;
-        break;
-      case __O:
-        queryPrefix = NumberConversion.long2bytes(triplePattern.getObject());
-        matches = osp.get(queryPrefix);
-        indexType = IndexType.OSP;
-        break;
-      case SP_:
-        queryPrefix = ByteBuffer.allocate(2 * Long.BYTES).putLong(triplePattern.getSubject())
-                .putLong(triplePattern.getProperty()).array();
-        matches = spo.get(queryPrefix);
-        indexType = IndexType.SPO;
-        break;
-      case S_O:
-        queryPrefix = ByteBuffer.allocate(2 * Long.BYTES).putLong(triplePattern.getObject())
-                .putLong(triplePattern.getSubject()).array();
-        matches = osp.get(queryPrefix);
-        indexType = IndexType.OSP;
-        break;
-      case _PO:
-        queryPrefix = ByteBuffer.allocate(2 * Long.BYTES).putLong(triplePattern.getProperty())
-                .putLong(triplePattern.getObject()).array();
-        matches = pos.get(queryPrefix);
-        indexType = IndexType.POS;
-        break;
-      case SPO:
-        queryPrefix = ByteBuffer.allocate(3 * Long.BYTES).putLong(triplePattern.getSubject())
-                .putLong(triplePattern.getProperty()).putLong(triplePattern.getObject()).array();
-        matches = spo.get(queryPrefix);
-        indexType = IndexType.SPO;
-        break;
+    return lookup(cache, triplePattern, null);
+  }
+
+  @Override
+  public Iterable<Mapping> lookup(MappingRecycleCache cache, TriplePattern triplePattern,
+          IndexType requestedIndex) {
+    IndexType indexType = requestedIndex;
+    if (indexType == null) {
+      indexType = getDefaultIndex(triplePattern.getType());
+    } else if (!indices.containsKey(indexType)) {
+      // the master has planned a merge join that relies on the order of this
+      // index
+      throw new IllegalArgumentException("The requested triple store index " + indexType.name()
+              + " does not exist on this slave. The additional triple store indices of the"
+              + " master and the slaves have to be configured identically.");
+    } else if (!indexType.canAnswer(triplePattern.getType())) {
+      throw new IllegalArgumentException("The triple store index " + indexType.name()
+              + " cannot answer triple patterns of type " + triplePattern.getType().name() + ".");
     }
+    Iterable<byte[]> matches = indices.get(indexType)
+            .get(indexType.createQueryPrefix(triplePattern));
     return new MappingIteratorWrapper(cache, triplePattern, indexType, matches.iterator());
   }
 
   @Override
   public String toString() {
-    return spo.toString();
+    return indices.get(IndexType.SPO).toString();
   }
 
   @Override
   public void flush() {
-    spo.flush();
-    osp.flush();
-    pos.flush();
+    for (MultiMap index : indices.values()) {
+      index.flush();
+    }
   }
 
   @Override
   public void clear() {
-    spo.clear();
-    osp.clear();
-    pos.clear();
+    for (MultiMap index : indices.values()) {
+      index.clear();
+    }
   }
 
   @Override
   public void close() {
-    spo.close();
-    osp.close();
-    pos.close();
+    for (MultiMap index : indices.values()) {
+      index.close();
+    }
   }
 
 }
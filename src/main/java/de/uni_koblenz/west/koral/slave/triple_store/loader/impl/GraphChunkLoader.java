@@ -29,20 +29,30 @@ import de.uni_koblenz.west.koral.slave.triple_store.TripleStoreAccessor;
 import de.uni_koblenz.west.koral.slave.triple_store.loader.GraphChunkListener;
 
 import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
 import java.io.UnsupportedEncodingException;
 import java.nio.BufferUnderflowException;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
 
 /**
- * Requests the corresponding graph chunk from {@link KoralMaster}. If the chunk
- * is received completely, it is loaded into the local triple store.
+ * Requests the corresponding graph chunk from {@link KoralMaster}. If the local
+ * triple store stages the loaded triples, they are loaded while the chunk is
+ * downloaded. Otherwise, the chunk is downloaded completely before it is
+ * loaded. In both cases, a failed download does not store any triple.
  * 
  * @author Daniel Janke &lt;danijankATuni-koblenz.de&gt;
  *
  */
 public class GraphChunkLoader extends Thread implements GraphChunkListener {
 
+  private static final int PIPE_SIZE = 1024 * 1024;
+
   private final Logger logger;
 
   private final MeasurementCollector measurementCollector;
@@ -136,38 +146,131 @@ public class GraphChunkLoader extends Thread implements GraphChunkListener {
         measurementCollector.measureValue(MeasurementType.LOAD_GRAPH_FILE_TRANSFER_TO_SLAVES_START,
                 System.currentTimeMillis());
       }
-      File graphChunk = new File(
-              workingDir.getAbsolutePath() + File.separator + remoteGraphChunkFileName);
-      FTPClient ftpClient = new FTPClient(logger);
-      ftpClient.downloadFile(remoteGraphChunkFileName, graphChunk, ftpServer[0], ftpServer[1]);
+      if (tripleStore.isLoadingStaged()) {
+        storeTriplesWhileDownloading();
+      } else {
+        downloadAndStoreTriples();
+      }
       if (measurementCollector != null) {
-        measurementCollector.measureValue(MeasurementType.LOAD_GRAPH_FILE_TRANSFER_TO_SLAVES_END,
+        measurementCollector.measureValue(MeasurementType.LOAD_GRAPH_STORING_TRIPLES_END,
                 System.currentTimeMillis());
       }
 
-      if (graphChunk.exists()) {
+      if (!isInterrupted()) {
+        connection.sendFinish(slaveID);
+      }
+      close();
+    } catch (RuntimeException | IOException | InterruptedException e) {
+      if (logger != null) {
+        logger.throwing(e.getStackTrace()[0].getClassName(), e.getStackTrace()[0].getMethodName(),
+                e);
+      }
+      connection.sendFailNotification(slaveID, e.getMessage());
+      close();
+    }
+  }
+
+  /**
+   * Since the triple store does not stage the loaded triples, the graph chunk
+   * is downloaded completely before its triples are stored. Thus, a failed
+   * download does not leave a partially loaded graph chunk.
+   */
+  private void downloadAndStoreTriples() {
+    File graphChunk = new File(
+            workingDir.getAbsolutePath() + File.separator + remoteGraphChunkFileName);
+    FTPClient ftpClient = new FTPClient(logger);
+    ftpClient.downloadFile(remoteGraphChunkFileName, graphChunk, ftpServer[0], ftpServer[1]);
+    if (measurementCollector != null) {
+      measurementCollector.measureValue(MeasurementType.LOAD_GRAPH_FILE_TRANSFER_TO_SLAVES_END,
+              System.currentTimeMillis());
+      measurementCollector.measureValue(MeasurementType.LOAD_GRAPH_STORING_TRIPLES_START,
+              System.currentTimeMillis());
+    }
+    if (graphChunk.exists()) {
+      tripleStore.storeTriples(graphChunk);
+    }
+  }
+
+  /**
+   * The triples are stored while the graph chunk is downloaded. If the
+   * download fails, reading the graph chunk fails, too. Since the triple store
+   * stages the loaded triples, none of them is stored in this case.
+   * 
+   * @throws IOException
+   * @throws InterruptedException
+   */
+  private void storeTriplesWhileDownloading() throws IOException, InterruptedException {
+    if (measurementCollector != null) {
+      measurementCollector.measureValue(MeasurementType.LOAD_GRAPH_STORING_TRIPLES_START,
+              System.currentTimeMillis());
+    }
+    PipedInputStream graphChunk = new PipedInputStream(PIPE_SIZE);
+    PipedOutputStream download = new PipedOutputStream(graphChunk);
+    AtomicReference<RuntimeException> downloadException = new AtomicReference<>();
+    Thread downloader = new Thread(() -> {
+      try {
+        FTPClient ftpClient = new FTPClient(logger);
+        ftpClient.downloadFile(remoteGraphChunkFileName, download, ftpServer[0], ftpServer[1]);
         if (measurementCollector != null) {
-          measurementCollector.measureValue(MeasurementType.LOAD_GRAPH_STORING_TRIPLES_START,
+          measurementCollector.measureValue(
+                  MeasurementType.LOAD_GRAPH_FILE_TRANSFER_TO_SLAVES_END,
                   System.currentTimeMillis());
         }
-        tripleStore.storeTriples(graphChunk);
-        if (measurementCollector != null) {
-          measurementCollector.measureValue(MeasurementType.LOAD_GRAPH_STORING_TRIPLES_END,
-                  System.currentTimeMillis());
+      } catch (RuntimeException e) {
+        downloadException.set(e);
+      } finally {
+        try {
+          download.close();
+        } catch (IOException e) {
+          downloadException.compareAndSet(null, new RuntimeException(e));
         }
       }
+    }, getName() + "-download");
+    downloader.start();
+    // the end of a failed download must not look like the end of the chunk
+    InputStream input = new FilterInputStream(graphChunk) {
 
-      if (!isInterrupted()) {
-        connection.sendFinish(slaveID);
+      @Override
+      public int read() throws IOException {
+        return checkDownload(super.read());
       }
-      close();
+
+      @Override
+      public int read(byte[] b, int off, int len) throws IOException {
+        return checkDownload(super.read(b, off, len));
+      }
+
+      private int checkDownload(int result) throws IOException {
+        if ((result < 0) && (downloadException.get() != null)) {
+          throw new IOException("The download of the graph chunk failed.",
+                  downloadException.get());
+        }
+        return result;
+      }
+
+    };
+    try {
+      tripleStore.storeTriples(input);
     } catch (RuntimeException e) {
+      // let the downloader fail, if it is still writing
+      closeQuietly(graphChunk);
+      throw downloadException.get() != null ? downloadException.get() : e;
+    }
+    closeQuietly(graphChunk);
+    downloader.join();
+    if (downloadException.get() != null) {
+      throw downloadException.get();
+    }
+  }
+
+  private void closeQuietly(InputStream input) {
+    try {
+      input.close();
+    } catch (IOException e) {
       if (logger != null) {
         logger.throwing(e.getStackTrace()[0].getClassName(), e.getStackTrace()[0].getMethodName(),
                 e);
       }
-      connection.sendFailNotification(slaveID, e.getMessage());
-      close();
     }
   }
 
@@ -0,0 +1,158 @@
+package playground;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Random;
+
+import org.apache.commons.io.FileUtils;
+
+import de.uni_koblenz.west.koral.common.io.EncodedLongFileOutputStream;
+import de.uni_koblenz.west.koral.common.io.LongOutputWriter;
+import de.uni_koblenz.west.koral.master.utils.FixedSizeLongArrayComparator;
+import de.uni_koblenz.west.koral.master.utils.InitialChunkProducer;
+import de.uni_koblenz.west.koral.master.utils.LongIterator;
+import de.uni_koblenz.west.koral.master.utils.LongTupleSorter;
+import de.uni_koblenz.west.koral.master.utils.Merger;
+import de.uni_koblenz.west.koral.master.utils.NWayMergeSort;
+
+/**
+ * Compares sorting random (key, value) pairs externally with {@link NWayMergeSort} and with {@link LongTupleSorter}.
+ * Both sorters get the same amount of memory and write their result to an {@link EncodedLongFileOutputStream}.
+ *
+ * @author Daniel Janke &lt;danijankATuni-koblenz.de&gt;
+ *
+ */
+public class ExternalSortBenchmark {
+
+	private static final int MAX_NUMBER_OF_OPEN_FILES = 100;
+
+	private static void printUsage() {
+		System.out.println("Usage: java " + ExternalSortBenchmark.class.getName()
+				+ " <workingDir> <numberOfTuples> <mode: nway|tuple> [maxCashSizeInMB] [numberOfThreads]");
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 3) {
+			printUsage();
+			return;
+		}
+		File workingDir = new File(args[0]);
+		long numberOfTuples = Long.parseLong(args[1]);
+		String mode = args[2].trim().toLowerCase();
+		long maxCashSize = (args.length > 3 ? Long.parseLong(args[3]) : 256) * 1024 * 1024;
+		int numberOfThreads = args.length > 4 ? Integer.parseInt(args[4])
+				: Runtime.getRuntime().availableProcessors();
+		if (workingDir.exists()) {
+			FileUtils.cleanDirectory(workingDir);
+		} else {
+			workingDir.mkdirs();
+		}
+		File output = new File(workingDir, "sorted");
+
+		System.out.println("Sorting " + numberOfTuples + " tuples with " + mode + " at " + new Date());
+		long start = System.currentTimeMillis();
+		if (mode.equals("nway")) {
+			sortWithNWayMergeSort(workingDir, numberOfTuples, maxCashSize, output);
+		} else if (mode.equals("tuple")) {
+			sortWithLongTupleSorter(workingDir, numberOfTuples, maxCashSize, numberOfThreads, output);
+		} else {
+			System.err.println("Unknown mode: " + mode);
+			printUsage();
+			return;
+		}
+		long time = System.currentTimeMillis() - start;
+		System.out.println("Sorting took " + StatisticsDBTest.formatTime(time) + " ("
+				+ ((numberOfTuples * 1000) / Math.max(1, time)) + " tuples/sec)");
+		FileUtils.cleanDirectory(workingDir);
+	}
+
+	private static void sortWithLongTupleSorter(File workingDir, long numberOfTuples, long maxCashSize,
+			int numberOfThreads, File outputFile) throws IOException {
+		Random random = new Random(42);
+		try (LongTupleSorter sorter = new LongTupleSorter(2, workingDir, maxCashSize, MAX_NUMBER_OF_OPEN_FILES, true,
+				0);
+				EncodedLongFileOutputStream output = new EncodedLongFileOutputStream(outputFile);) {
+			sorter.setNumberOfThreads(numberOfThreads);
+			for (long i = 0; i < numberOfTuples; i++) {
+				sorter.add(random.nextLong() >>> 1, i);
+			}
+			sorter.sort(output);
+		}
+	}
+
+	private static void sortWithNWayMergeSort(File workingDir, long numberOfTuples, long maxCashSize,
+			File outputFile) {
+		Random random = new Random(42);
+		InitialChunkProducer producer = new InitialChunkProducer() {
+
+			private final long[][] elements = new long[(int) (maxCashSize / Long.BYTES / 2)][2];
+
+			private int nextIndex;
+
+			private long numberOfCreatedTuples;
+
+			@Override
+			public void loadNextChunk() {
+				for (nextIndex = 0; (nextIndex < elements.length)
+						&& (numberOfCreatedTuples < numberOfTuples); nextIndex++) {
+					elements[nextIndex][0] = random.nextLong() >>> 1;
+					elements[nextIndex][1] = numberOfCreatedTuples++;
+				}
+			}
+
+			@Override
+			public boolean hasNextChunk() {
+				return nextIndex > 0;
+			}
+
+			@Override
+			public void sort(Comparator<long[]> comparator) {
+				Arrays.parallelSort(elements, 0, nextIndex, comparator);
+			}
+
+			@Override
+			public void writeChunk(LongOutputWriter output) throws IOException {
+				for (int i = 0; i < nextIndex; i++) {
+					output.writeLong(elements[i][0]);
+					output.writeLong(elements[i][1]);
+				}
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+		Merger merger = new Merger() {
+
+			@Override
+			public void startNextMergeLevel() {
+			}
+
+			@Override
+			public long[] readNextElement(LongIterator iterator) {
+				return new long[] { iterator.next(), iterator.next() };
+			}
+
+			@Override
+			public void mergeAndWrite(BitSet indicesOfSmallestElement, long[][] elements, LongIterator[] iterators,
+					LongOutputWriter out) throws IOException {
+				for (int i = indicesOfSmallestElement.nextSetBit(0); i >= 0; i = indicesOfSmallestElement
+						.nextSetBit(i + 1)) {
+					out.writeLong(elements[i][0]);
+					out.writeLong(elements[i][1]);
+				}
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+		new NWayMergeSort().sort(producer, merger, new FixedSizeLongArrayComparator(true, 0), workingDir,
+				MAX_NUMBER_OF_OPEN_FILES, outputFile);
+	}
+
+}
@@ -0,0 +1,127 @@
+/*
+ * This file is part of Koral.
+ *
+ * Koral is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Koral is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Leser General Public License
+ * along with Koral.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2016 Daniel Janke
+ */
+package playground;
+
+import de.uni_koblenz.west.koral.common.query.Mapping;
+import de.uni_koblenz.west.koral.common.query.MappingRecycleCache;
+import de.uni_koblenz.west.koral.common.query.TriplePattern;
+import de.uni_koblenz.west.koral.common.query.TriplePatternType;
+import de.uni_koblenz.west.koral.common.utils.InMemoryJoinMappingCache;
+import de.uni_koblenz.west.koral.common.utils.JoinMappingCache;
+import de.uni_koblenz.west.koral.common.utils.NumberConversion;
+import de.uni_koblenz.west.koral.common.utils.OpenAddressingJoinMappingCache;
+import de.uni_koblenz.west.koral.slave.triple_store.impl.IndexType;
+
+import java.util.Iterator;
+import java.util.Random;
+
+/**
+ * Compares {@link InMemoryJoinMappingCache} with
+ * {@link OpenAddressingJoinMappingCache} for a subject star join, i.e., the
+ * cached mappings (?s,?o1) are probed with mappings (?s,?o2). Each subject
+ * occurs about 10 times. The sizes of the caches can be passed as arguments.
+ * The default sizes are 1M, 10M and 50M mappings. Run with a large heap, e.g.,
+ * <code>-Xmx16g</code>.
+ *
+ * @author Daniel Janke &lt;danijankATuni-koblenz.de&gt;
+ *
+ */
+public class JoinCacheBenchmark {
+
+  private static final int NUMBER_OF_SLAVES = 4;
+
+  private static final int MAPPINGS_PER_SUBJECT = 10;
+
+  private static final int NUMBER_OF_PROBES = 1_000_000;
+
+  private static final long[] CACHED_VARS = new long[] { 0, 1 };
+
+  private static final long[] PROBE_VARS = new long[] { 0, 2 };
+
+  public static void main(String[] args) {
+    long[] sizes = new long[] { 1_000_000, 10_000_000, 50_000_000 };
+    if (args.length > 0) {
+      sizes = new long[args.length];
+      for (int i = 0; i < args.length; i++) {
+        sizes[i] = Long.parseLong(args[i]);
+      }
+    }
+    System.out.println("implementation\tmappings\tinsert ms\tprobe ms\tmatches\theap MB");
+    for (long size : sizes) {
+      JoinCacheBenchmark.benchmark(true, size);
+      JoinCacheBenchmark.benchmark(false, size);
+    }
+  }
+
+  private static void benchmark(boolean useOpenAddressing, long numberOfMappings) {
+    MappingRecycleCache recycleCache = new MappingRecycleCache(100_000, NUMBER_OF_SLAVES);
+    TriplePattern pattern = new TriplePattern(TriplePatternType._P_, 0, 1, 2);
+    byte[] triple = new byte[(3 * Long.BYTES) + 1];
+    long numberOfSubjects = Math.max(1, numberOfMappings / MAPPINGS_PER_SUBJECT);
+    Random random = new Random(42);
+
+    JoinMappingCache cache = useOpenAddressing
+            ? new OpenAddressingJoinMappingCache(recycleCache, CACHED_VARS, new int[] { 0, 1 }, 1)
+            : new InMemoryJoinMappingCache(CACHED_VARS, new int[] { 0, 1 }, 1);
+
+    System.gc();
+    long heapBefore = JoinCacheBenchmark.getUsedHeap();
+    long start = System.currentTimeMillis();
+    for (long i = 0; i < numberOfMappings; i++) {
+      NumberConversion.long2bytes(i % numberOfSubjects, triple, 0);
+      NumberConversion.long2bytes(random.nextLong(), triple, 2 * Long.BYTES);
+      Mapping mapping = recycleCache.createMapping(pattern, IndexType.SPO, triple);
+      mapping.updateContainment(0, 1);
+      cache.add(mapping);
+      if (useOpenAddressing) {
+        // the mapping was copied
+        recycleCache.releaseMapping(mapping);
+      }
+    }
+    long insertTime = System.currentTimeMillis() - start;
+    System.gc();
+    long heap = JoinCacheBenchmark.getUsedHeap() - heapBefore;
+
+    long matches = 0;
+    start = System.currentTimeMillis();
+    for (int i = 0; i < NUMBER_OF_PROBES; i++) {
+      NumberConversion.long2bytes((random.nextLong() & Long.MAX_VALUE) % numberOfSubjects, triple,
+              0);
+      Mapping probe = recycleCache.createMapping(pattern, IndexType.SPO, triple);
+      Iterator<Mapping> candidates = cache.getMatchCandidates(probe, PROBE_VARS);
+      while (candidates.hasNext()) {
+        Mapping candidate = candidates.next();
+        matches += candidate.getValue(1, CACHED_VARS) & 1;
+      }
+      recycleCache.releaseMapping(probe);
+    }
+    long probeTime = System.currentTimeMillis() - start;
+
+    System.out.println(cache.getClass().getSimpleName() + "\t" + numberOfMappings + "\t"
+            + insertTime + "\t" + probeTime + "\t" + matches + "\t"
+            + (heap / (1024 * 1024)));
+    cache.close();
+  }
+
+  private static long getUsedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+}
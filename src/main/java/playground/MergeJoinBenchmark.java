@@ -0,0 +1,189 @@
+/*
+ * This file is part of Koral.
+ *
+ * Koral is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Koral is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Leser General Public License
+ * along with Koral.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2016 Daniel Janke
+ */
+package playground;
+
+import de.uni_koblenz.west.koral.common.executor.messagePassing.MessageReceiverListener;
+import de.uni_koblenz.west.koral.common.executor.messagePassing.MessageSender;
+import de.uni_koblenz.west.koral.common.executor.messagePassing.MessageSenderBuffer;
+import de.uni_koblenz.west.koral.common.mapDB.MapDBCacheOptions;
+import de.uni_koblenz.west.koral.common.mapDB.MapDBStorageOptions;
+import de.uni_koblenz.west.koral.common.messages.MessageType;
+import de.uni_koblenz.west.koral.common.query.Mapping;
+import de.uni_koblenz.west.koral.common.query.MappingRecycleCache;
+import de.uni_koblenz.west.koral.common.query.TriplePattern;
+import de.uni_koblenz.west.koral.common.query.TriplePatternType;
+import de.uni_koblenz.west.koral.common.query.execution.QueryOperatorBase;
+import de.uni_koblenz.west.koral.common.query.execution.operators.TriplePatternJoinOperator;
+import de.uni_koblenz.west.koral.common.query.execution.operators.TriplePatternMatchOperator;
+import de.uni_koblenz.west.koral.common.query.execution.operators.TriplePatternMergeJoinOperator;
+import de.uni_koblenz.west.koral.common.utils.NumberConversion;
+import de.uni_koblenz.west.koral.slave.triple_store.impl.IndexType;
+
+import java.io.File;
+
+/**
+ * Compares {@link TriplePatternJoinOperator} with
+ * {@link TriplePatternMergeJoinOperator} for a subject star join of the
+ * patterns (?s &lt;1&gt; &lt;1&gt;) and (?s &lt;2&gt; &lt;2&gt;) on one slave. The
+ * mappings are delivered in subject order as they are returned by the triple
+ * store. Each subject occurs 10 times in each pattern. The numbers of mappings
+ * per pattern can be passed as arguments. The default numbers are 1M and 10M
+ * mappings.
+ *
+ * @author Daniel Janke &lt;danijankATuni-koblenz.de&gt;
+ *
+ */
+public class MergeJoinBenchmark {
+
+  private static final int NUMBER_OF_SLAVES = 1;
+
+  private static final int MAPPINGS_PER_SUBJECT = 10;
+
+  private static final int MAPPINGS_PER_EXECUTION = 100;
+
+  private static final TriplePattern LEFT_PATTERN = new TriplePattern(TriplePatternType._PO, 0,
+          1, 1);
+
+  private static final TriplePattern RIGHT_PATTERN = new TriplePattern(TriplePatternType._PO, 0,
+          2, 2);
+
+  public static void main(String[] args) {
+    long[] sizes = new long[] { 1_000_000, 10_000_000 };
+    if (args.length > 0) {
+      sizes = new long[args.length];
+      for (int i = 0; i < args.length; i++) {
+        sizes[i] = Long.parseLong(args[i]);
+      }
+    }
+    System.out.println("implementation\tmappings\tjoin ms\tresults\theap MB");
+    for (long size : sizes) {
+      MergeJoinBenchmark.benchmark(false, size);
+      MergeJoinBenchmark.benchmark(true, size);
+    }
+  }
+
+  private static void benchmark(boolean useMergeJoin, long numberOfMappings) {
+    File cacheDirectory = new File(System.getProperty("java.io.tmpdir") + File.separator
+            + "koralMergeJoinBenchmark" + System.nanoTime());
+    MappingRecycleCache recycleCache = new MappingRecycleCache(100_000, NUMBER_OF_SLAVES);
+    long[] numberOfResults = new long[1];
+    MessageSenderBuffer messageSender = new MessageSenderBuffer(NUMBER_OF_SLAVES, 1000,
+            new MessageSender() {
+
+              @Override
+              public int getCurrentID() {
+                return 1;
+              }
+
+              @Override
+              public boolean send(int receiver, byte[] array) {
+                if (array[0] == MessageType.QUERY_MAPPING_BATCH.getValue()) {
+                  int offset = Byte.BYTES + Short.BYTES;
+                  while (offset < array.length) {
+                    numberOfResults[0]++;
+                    offset += NumberConversion.bytes2int(array,
+                            offset + Byte.BYTES + Long.BYTES + Long.BYTES);
+                  }
+                }
+                return true;
+              }
+
+              @Override
+              public boolean sendToAllOtherSlaves(byte[] message) {
+                return true;
+              }
+
+              @Override
+              public boolean sendToAllSlaves(byte[] message) {
+                return true;
+              }
+
+            }, new MessageReceiverListener(null), null, null);
+
+    // the children are only used as senders
+    TriplePatternMatchOperator left = new TriplePatternMatchOperator((short) 1, 0, (short) 0, 0,
+            NUMBER_OF_SLAVES, 1000, cacheDirectory, LEFT_PATTERN, 1000, null);
+    TriplePatternMatchOperator right = new TriplePatternMatchOperator((short) 1, 0, (short) 1, 0,
+            NUMBER_OF_SLAVES, 1000, cacheDirectory, RIGHT_PATTERN, 1000, null);
+    QueryOperatorBase join = useMergeJoin
+            ? new TriplePatternMergeJoinOperator((short) 1, 0, (short) 2, 0, NUMBER_OF_SLAVES,
+                    1000, cacheDirectory, 1000, left, right, 0)
+            : new TriplePatternJoinOperator((short) 1, 0, (short) 2, 0, NUMBER_OF_SLAVES, 1000,
+                    cacheDirectory, 1000, left, right, MapDBStorageOptions.MEMORY, false, false,
+                    MapDBCacheOptions.NONE);
+    for (TriplePatternMatchOperator child : new TriplePatternMatchOperator[] { left, right }) {
+      child.setParentTask(join);
+      child.setUp(messageSender, recycleCache, null, null);
+      child.start();
+    }
+    join.setUp(messageSender, recycleCache, null, null);
+    join.start();
+
+    byte[] triple = new byte[(3 * Long.BYTES) + 1];
+    System.gc();
+    long heapBefore = MergeJoinBenchmark.getUsedHeap();
+    long heap = 0;
+    long start = System.currentTimeMillis();
+    for (long i = 0; i < numberOfMappings; i++) {
+      NumberConversion.long2bytes(i / MAPPINGS_PER_SUBJECT, triple, 0);
+      MergeJoinBenchmark.send(join, left, LEFT_PATTERN, triple, recycleCache);
+      MergeJoinBenchmark.send(join, right, RIGHT_PATTERN, triple, recycleCache);
+      if ((i % MAPPINGS_PER_EXECUTION) == 0) {
+        do {
+          join.execute();
+        } while (join.hasInput());
+      }
+      if (i == (numberOfMappings / 2)) {
+        // measure the memory consumption of the join in the middle of the
+        // execution
+        long pause = System.currentTimeMillis();
+        System.gc();
+        heap = MergeJoinBenchmark.getUsedHeap() - heapBefore;
+        start += System.currentTimeMillis() - pause;
+      }
+    }
+    left.execute();
+    right.execute();
+    while (!join.hasFinishedOnComputer(1)) {
+      join.execute();
+    }
+    long joinTime = System.currentTimeMillis() - start;
+
+    System.out.println(join.getClass().getSimpleName() + "\t" + numberOfMappings + "\t"
+            + joinTime + "\t" + numberOfResults[0] + "\t" + (heap / (1024 * 1024)));
+    join.close();
+    left.close();
+    right.close();
+    cacheDirectory.delete();
+  }
+
+  private static void send(QueryOperatorBase join, TriplePatternMatchOperator child,
+          TriplePattern pattern, byte[] triple, MappingRecycleCache recycleCache) {
+    Mapping mapping = recycleCache.createMapping(pattern, IndexType.SPO, triple);
+    join.enqueueMessage(child.getID(), mapping.getByteArray(),
+            mapping.getFirstIndexOfMappingInByteArray(), mapping.getLengthOfMappingInByteArray());
+    recycleCache.releaseMapping(mapping);
+  }
+
+  private static long getUsedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+}
@@ -0,0 +1,154 @@
+/*
+ * This file is part of Koral.
+ *
+ * Koral is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Koral is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Leser General Public License
+ * along with Koral.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2016 Daniel Janke
+ */
+package playground;
+
+import de.uni_koblenz.west.koral.common.executor.messagePassing.MessageReceiverListener;
+import de.uni_koblenz.west.koral.common.executor.messagePassing.MessageSender;
+import de.uni_koblenz.west.koral.common.executor.messagePassing.MessageSenderBuffer;
+import de.uni_koblenz.west.koral.common.query.Mapping;
+import de.uni_koblenz.west.koral.common.query.MappingRecycleCache;
+import de.uni_koblenz.west.koral.common.query.TriplePattern;
+import de.uni_koblenz.west.koral.common.query.TriplePatternType;
+import de.uni_koblenz.west.koral.common.utils.NumberConversion;
+import de.uni_koblenz.west.koral.slave.triple_store.impl.IndexType;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures the throughput of mappings that are emitted by several threads to
+ * remote computers via one shared {@link MessageSenderBuffer}. The emission
+ * with the per receiver locks of {@link MessageSenderBuffer} is compared to an
+ * emission where all threads synchronize on the {@link MessageSenderBuffer}.
+ * Sending a bundle over the network is simulated by a busy wait. The numbers
+ * of threads can be passed as arguments. The default numbers are 1, 2, 4, 8,
+ * 16 and 32.
+ *
+ * @author Daniel Janke &lt;danijankATuni-koblenz.de&gt;
+ *
+ */
+public class MessageEmissionBenchmark {
+
+  private static final int NUMBER_OF_SLAVES = 8;
+
+  private static final int BUNDLE_SIZE = 100;
+
+  private static final int MAPPINGS_PER_THREAD = 1_000_000;
+
+  private static final long SEND_TIME_IN_NANOS = 20_000;
+
+  private static final TriplePattern PATTERN = new TriplePattern(TriplePatternType._P_, 0, 1, 2);
+
+  public static void main(String[] args) throws InterruptedException {
+    int[] numbersOfThreads = new int[] { 1, 2, 4, 8, 16, 32 };
+    if (args.length > 0) {
+      numbersOfThreads = new int[args.length];
+      for (int i = 0; i < args.length; i++) {
+        numbersOfThreads[i] = Integer.parseInt(args[i]);
+      }
+    }
+    // warm up
+    MessageEmissionBenchmark.benchmark(1, true);
+    MessageEmissionBenchmark.benchmark(1, false);
+    System.out.println("threads\tlocking\tmappings\tms\tmappings/s\tsent bundles");
+    for (int numberOfThreads : numbersOfThreads) {
+      MessageEmissionBenchmark.benchmark(numberOfThreads, true);
+      MessageEmissionBenchmark.benchmark(numberOfThreads, false);
+    }
+  }
+
+  private static void benchmark(int numberOfThreads, boolean useGlobalLock)
+          throws InterruptedException {
+    AtomicLong sentBundles = new AtomicLong();
+    MessageSenderBuffer messageSender = new MessageSenderBuffer(NUMBER_OF_SLAVES, BUNDLE_SIZE,
+            new MessageSender() {
+
+              @Override
+              public int getCurrentID() {
+                return 1;
+              }
+
+              @Override
+              public boolean send(int receiver, byte[] array) {
+                long end = System.nanoTime() + SEND_TIME_IN_NANOS;
+                while (System.nanoTime() < end) {
+                  // simulate sending over the network
+                }
+                sentBundles.incrementAndGet();
+                return true;
+              }
+
+              @Override
+              public boolean sendToAllOtherSlaves(byte[] message) {
+                return true;
+              }
+
+              @Override
+              public boolean sendToAllSlaves(byte[] message) {
+                return true;
+              }
+
+            }, new MessageReceiverListener(null), null, null);
+
+    CountDownLatch startSignal = new CountDownLatch(1);
+    Thread[] threads = new Thread[numberOfThreads];
+    for (int t = 0; t < threads.length; t++) {
+      int threadId = t;
+      threads[t] = new Thread(() -> {
+        MappingRecycleCache recycleCache = new MappingRecycleCache(BUNDLE_SIZE * 10,
+                NUMBER_OF_SLAVES);
+        byte[] triple = new byte[(3 * Long.BYTES) + 2];
+        long senderTaskID = (1L << 48) | threadId;
+        try {
+          startSignal.await();
+        } catch (InterruptedException e) {
+          return;
+        }
+        for (int i = 0; i < MAPPINGS_PER_THREAD; i++) {
+          NumberConversion.long2bytes(i, triple, 0);
+          NumberConversion.long2bytes(threadId, triple, 2 * Long.BYTES);
+          Mapping mapping = recycleCache.createMapping(PATTERN, IndexType.SPO, triple);
+          // send to all computers except for the current one
+          long receivingComputer = 2 + (i % (NUMBER_OF_SLAVES - 1));
+          long receiverTaskID = (receivingComputer << 48) | 1;
+          if (useGlobalLock) {
+            synchronized (messageSender) {
+              messageSender.sendQueryMapping(mapping, senderTaskID, receiverTaskID, recycleCache);
+            }
+          } else {
+            messageSender.sendQueryMapping(mapping, senderTaskID, receiverTaskID, recycleCache);
+          }
+        }
+        messageSender.sendAllBufferedMessages(recycleCache);
+      });
+      threads[t].start();
+    }
+    long start = System.currentTimeMillis();
+    startSignal.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    long time = Math.max(1, System.currentTimeMillis() - start);
+    long numberOfMappings = ((long) numberOfThreads) * MAPPINGS_PER_THREAD;
+    System.out.println(numberOfThreads + "\t" + (useGlobalLock ? "global" : "per receiver")
+            + "\t" + numberOfMappings + "\t" + time + "\t" + ((numberOfMappings * 1000) / time)
+            + "\t" + sentBundles.get());
+  }
+
+}
@@ -0,0 +1,97 @@
+package playground;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+
+import org.apache.commons.io.FileUtils;
+
+import de.uni_koblenz.west.koral.common.config.impl.Configuration;
+import de.uni_koblenz.west.koral.master.statisticsDB.GraphStatistics;
+import de.uni_koblenz.west.koral.master.statisticsDB.impl.multi_file.MultiFileGraphStatisticsDatabase;
+import de.uni_koblenz.west.koral.master.statisticsDB.impl.multi_file.SubbenchmarkManager;
+
+/**
+ * Compares collecting the statistics by incrementing each occurrence directly in the
+ * {@link MultiFileGraphStatisticsDatabase} with aggregating the occurrences in sorted runs that are bulk loaded in
+ * resource id order. Since the {@link SubbenchmarkManager} accumulates the times of one JVM, each mode has to be
+ * benchmarked in its own run.
+ *
+ * @author Daniel Janke &lt;danijankATuni-koblenz.de&gt;
+ *
+ */
+public class StatisticsCollectionBenchmark {
+
+	private static void printUsage() {
+		System.out.println("Usage: java " + StatisticsCollectionBenchmark.class.getName()
+				+ " <encodedChunksDir> <storageDir> <resultCSVFile> <mode: increment|aggregate> [aggregationSize]");
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 4) {
+			printUsage();
+			return;
+		}
+		File encodedChunksDir = new File(args[0]);
+		if (!encodedChunksDir.exists() || !encodedChunksDir.isDirectory()) {
+			System.err.println("Directory does not exist: " + encodedChunksDir);
+			printUsage();
+			return;
+		}
+		File storageDir = new File(args[1]);
+		File resultCSV = new File(args[2]);
+		String mode = args[3].trim().toLowerCase();
+		Configuration conf = new Configuration();
+		int aggregationSize;
+		if (mode.equals("increment")) {
+			aggregationSize = 0;
+		} else if (mode.equals("aggregate")) {
+			aggregationSize = args.length > 4 ? Integer.parseInt(args[4]) : conf.getStatisticsAggregationSize();
+		} else {
+			System.err.println("Unknown mode: " + mode);
+			printUsage();
+			return;
+		}
+
+		File[] encodedFiles = encodedChunksDir.listFiles(new FilenameFilter() {
+			@Override
+			public boolean accept(File dir, String name) {
+				return name.contains("chunk") && name.endsWith(".gz");
+			}
+		});
+		Arrays.sort(encodedFiles, new Comparator<File>() {
+			@Override
+			public int compare(File file1, File file2) {
+				int chunkIndex1 = Integer.parseInt(file1.getName().split("\\.")[0].replace("chunk", ""));
+				int chunkIndex2 = Integer.parseInt(file2.getName().split("\\.")[0].replace("chunk", ""));
+				return Integer.compare(chunkIndex1, chunkIndex2);
+			}
+		});
+		short numberOfChunks = (short) encodedFiles.length;
+		if (storageDir.exists()) {
+			FileUtils.cleanDirectory(storageDir);
+		} else {
+			storageDir.mkdirs();
+		}
+
+		String configName = mode + "_" + encodedChunksDir.getName() + "_" + numberOfChunks + "C_" + aggregationSize
+				+ "AS";
+		System.out.println("Starting " + configName + " at " + new Date());
+		MultiFileGraphStatisticsDatabase statisticsDB = new MultiFileGraphStatisticsDatabase(
+				storageDir.getCanonicalPath(), numberOfChunks, null);
+		try (GraphStatistics statistics = new GraphStatistics(statisticsDB, numberOfChunks, aggregationSize, null);) {
+			long start = System.currentTimeMillis();
+			statistics.collectStatistics(encodedFiles);
+			statisticsDB.flush();
+			long time = System.currentTimeMillis() - start;
+			System.out.println("Collecting statistics took " + StatisticsDBTest.formatTime(time));
+			System.out.println("Chunk sizes: " + Arrays.toString(statisticsDB.getChunkSizes()));
+			SubbenchmarkManager.getInstance().finish(resultCSV, configName, time / 1_000);
+		}
+		System.out.println("Finished at " + new Date() + ".");
+	}
+
+}
@@ -0,0 +1,195 @@
+package koral;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.uni_koblenz.west.koral.common.config.impl.Configuration;
+import de.uni_koblenz.west.koral.common.io.EncodedFileInputStream;
+import de.uni_koblenz.west.koral.common.io.EncodingFileFormat;
+import de.uni_koblenz.west.koral.common.io.Statement;
+import de.uni_koblenz.west.koral.master.dictionary.DictionaryEncoder;
+import de.uni_koblenz.west.koral.master.utils.DeSerializer;
+
+class DictionaryEncoderTests {
+
+	private static final int NUMBER_OF_FILES = 3;
+
+	private File workingDir;
+
+	private DictionaryEncoder encoder;
+
+	private File[] graphFiles;
+
+	private Map<String, Integer> expectedTriples;
+
+	private Set<String> resources;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		workingDir = new File(System.getProperty("java.io.tmpdir") + File.separator + "koralDictionaryEncoderTest"
+				+ System.nanoTime());
+		workingDir.mkdirs();
+		Configuration conf = new Configuration();
+		conf.setDataDir(workingDir.getAbsolutePath());
+		conf.setNumberOfDictionaryEncodingThreads(3);
+		// smaller than the number of resources in order to evict entries
+		conf.setDictionaryCacheSize(100);
+		encoder = new DictionaryEncoder(conf, null, null);
+
+		expectedTriples = new HashMap<>();
+		resources = new HashSet<>();
+		graphFiles = new File[NUMBER_OF_FILES + 1];
+		Random random = new Random(11);
+		for (int i = 0; i < NUMBER_OF_FILES; i++) {
+			graphFiles[i] = new File(workingDir, "graph" + i + ".nt");
+			try (PrintWriter out = new PrintWriter(graphFiles[i], "UTF-8")) {
+				// more than one block of triples per file
+				for (int j = 0; j < 12_000; j++) {
+					String subject = "<http://example.org/s" + random.nextInt(2000) + ">";
+					String property = "<http://example.org/p" + random.nextInt(10) + ">";
+					String object = random.nextBoolean() ? "<http://example.org/s" + random.nextInt(2000) + ">"
+							: "\"literal " + random.nextInt(500) + "\"";
+					out.println(subject + " " + property + " " + object + " .");
+				}
+			}
+		}
+		// null entries are ignored
+		graphFiles[NUMBER_OF_FILES] = null;
+	}
+
+	@AfterEach
+	void tearDown() {
+		encoder.close();
+		delete(workingDir);
+	}
+
+	private static void delete(File file) {
+		if (file.isDirectory()) {
+			for (File child : file.listFiles()) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+	private String getResource(Statement statement, int position) {
+		boolean isEncoded = position == 0 ? statement.isSubjectEncoded()
+				: position == 1 ? statement.isPropertyEncoded() : statement.isObjectEncoded();
+		if (!isEncoded) {
+			return position == 0 ? statement.getSubjectAsString()
+					: position == 1 ? statement.getPropertyAsString() : statement.getObjectAsString();
+		}
+		long id = position == 0 ? statement.getSubjectAsLong()
+				: position == 1 ? statement.getPropertyAsLong() : statement.getObjectAsLong();
+		resources.add(Long.toString(id));
+		Node node = encoder.decode(id);
+		return DeSerializer.serializeNode(node);
+	}
+
+	private Map<String, Integer> readGraphFile(File graphFile, EncodingFileFormat format) throws IOException {
+		Map<String, Integer> triples = new HashMap<>();
+		try (EncodedFileInputStream in = new EncodedFileInputStream(format, graphFile)) {
+			for (Statement statement : in) {
+				assertEquals(1, statement.getContainment().length);
+				triples.merge(getResource(statement, 0) + " " + getResource(statement, 1) + " "
+						+ getResource(statement, 2), 1, Integer::sum);
+			}
+		}
+		return triples;
+	}
+
+	@Test
+	void encodeOriginalGraphFilesTest() throws IOException {
+		// the expected triples are the result of the sequential encoding
+		Configuration conf = new Configuration();
+		conf.setDataDir(workingDir.getAbsolutePath() + File.separator + "sequential");
+		conf.setNumberOfDictionaryEncodingThreads(1);
+		conf.setDictionaryCacheSize(0);
+		File sequentialDir = new File(conf.getDataDir());
+		sequentialDir.mkdirs();
+		try (DictionaryEncoder sequentialEncoder = new DictionaryEncoder(conf, null, null)) {
+			File plainFile = sequentialEncoder.encodeOriginalGraphFiles(graphFiles, sequentialDir,
+					EncodingFileFormat.UUU, 4);
+			expectedTriples = readGraphFile(plainFile, EncodingFileFormat.UUU);
+		}
+		assertEquals(NUMBER_OF_FILES * 12_000, expectedTriples.values().stream().mapToInt(i -> i).sum());
+
+		File encodedFile = encoder.encodeOriginalGraphFiles(graphFiles, workingDir, EncodingFileFormat.EUE, 4);
+		assertEquals(encoder.getSemiEncodedGraphFile(workingDir), encodedFile);
+		assertEquals(expectedTriples, readGraphFile(encodedFile, EncodingFileFormat.EUE));
+		// each resource has received exactly one id
+		assertEquals(resources.size(), encoder.size());
+	}
+
+	@Test
+	void decodeResultsTest() throws IOException {
+		File graphFile = new File(workingDir, "resultGraph.nt");
+		Random random = new Random(5);
+		try (PrintWriter out = new PrintWriter(graphFile, "UTF-8")) {
+			for (int i = 0; i < 2000; i++) {
+				String subject = random.nextBoolean() ? "_:b" + random.nextInt(300)
+						: "<http://example.org/s" + random.nextInt(300) + ">";
+				String object;
+				switch (random.nextInt(4)) {
+				case 0:
+					object = "\"literal " + random.nextInt(100) + "\"@en";
+					break;
+				case 1:
+					object = "\"" + random.nextInt(100) + "\"^^<http://www.w3.org/2001/XMLSchema#integer>";
+					break;
+				case 2:
+					object = "_:b" + random.nextInt(300);
+					break;
+				default:
+					object = "\"plain \\\"literal\\\" " + random.nextInt(100) + "\"";
+				}
+				out.println(subject + " <http://example.org/p" + random.nextInt(10) + "> " + object + " .");
+			}
+		}
+		File encodedFile = encoder.encodeOriginalGraphFiles(new File[] { graphFile }, workingDir,
+				EncodingFileFormat.EEE, 4);
+		List<Long> ids = new ArrayList<>();
+		try (EncodedFileInputStream in = new EncodedFileInputStream(EncodingFileFormat.EEE, encodedFile)) {
+			for (Statement statement : in) {
+				ids.add(statement.getSubjectAsLong());
+				ids.add(statement.getPropertyAsLong());
+				// ids with owner
+				ids.add(statement.getObjectAsLong() | (3L << 48));
+			}
+		}
+		long[] idArray = new long[ids.size()];
+		String[] expected = new String[ids.size()];
+		for (int i = 0; i < idArray.length; i++) {
+			idArray[i] = ids.get(i);
+			// the decoding of previous versions
+			Node node = encoder.decode(idArray[i]);
+			if (node.isURI() && node.getURI().startsWith(Configuration.BLANK_NODE_URI_PREFIX)) {
+				node = NodeFactory.createBlankNode(node.getURI().substring(Configuration.BLANK_NODE_URI_PREFIX.length()));
+			}
+			expected[i] = DeSerializer.serializeNode(node);
+		}
+		assertArrayEquals(expected, encoder.decodeResults(idArray));
+		// the second decoding is answered from the cache
+		assertArrayEquals(expected, encoder.decodeResults(idArray));
+		assertNull(encoder.decodeResults(new long[] { encoder.size() + 1 })[0]);
+	}
+
+}
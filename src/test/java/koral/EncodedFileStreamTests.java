@@ -0,0 +1,197 @@
+package koral;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.uni_koblenz.west.koral.common.io.BlockCompressedOutputStream;
+import de.uni_koblenz.west.koral.common.io.EncodedFileInputStream;
+import de.uni_koblenz.west.koral.common.io.EncodedFileOutputStream;
+import de.uni_koblenz.west.koral.common.io.EncodedLongFileInputStream;
+import de.uni_koblenz.west.koral.common.io.EncodedLongFileOutputStream;
+import de.uni_koblenz.west.koral.common.io.EncodingFileFormat;
+import de.uni_koblenz.west.koral.common.io.Statement;
+import de.uni_koblenz.west.koral.common.utils.NumberConversion;
+
+class EncodedFileStreamTests {
+
+	private static final EncodingFileFormat FORMAT = EncodingFileFormat.EUE;
+
+	private File file;
+
+	@BeforeEach
+	void setUp() {
+		file = new File(System.getProperty("java.io.tmpdir") + File.separator + "koralEncodedFileTest"
+				+ System.nanoTime() + ".enc.gz");
+	}
+
+	@AfterEach
+	void tearDown() {
+		file.delete();
+	}
+
+	private static List<String> createStatements(Random random, int numberOfStatements) {
+		List<String> statements = new ArrayList<>();
+		for (int i = 0; i < numberOfStatements; i++) {
+			// the first two bytes contain the owner
+			long subject = random.nextLong();
+			String property = "<http://example.org/p" + random.nextInt(100) + ">";
+			long object = random.nextInt(1000);
+			byte[] containment = new byte[] { (byte) random.nextInt(), (byte) random.nextInt() };
+			statements.add(subject + " " + property + " " + object + " " + Arrays.toString(containment));
+		}
+		return statements;
+	}
+
+	private static void write(File file, List<String> statements, boolean append) throws IOException {
+		try (EncodedFileOutputStream out = new EncodedFileOutputStream(file, append)) {
+			for (String statement : statements) {
+				String[] parts = statement.split(" ", 4);
+				String[] containment = parts[3].substring(1, parts[3].length() - 1).split(", ");
+				out.writeStatement(Statement.getStatement(FORMAT, NumberConversion.long2bytes(Long.parseLong(parts[0])),
+						parts[1].getBytes("UTF-8"), NumberConversion.long2bytes(Long.parseLong(parts[2])),
+						new byte[] { Byte.parseByte(containment[0]), Byte.parseByte(containment[1]) }));
+			}
+		}
+	}
+
+	private static List<String> read(EncodedFileInputStream in) {
+		List<String> statements = new ArrayList<>();
+		for (Statement statement : in) {
+			statements.add(statement.getSubjectAsLong() + " " + statement.getPropertyAsString() + " "
+					+ statement.getObjectAsLong() + " " + Arrays.toString(statement.getContainment()));
+		}
+		return statements;
+	}
+
+	@Test
+	void readAndSplitTest() throws IOException {
+		List<String> expected = createStatements(new Random(3), 100_000);
+		write(file, expected, false);
+
+		try (EncodedFileInputStream in = new EncodedFileInputStream(FORMAT, file)) {
+			assertEquals(expected, read(in));
+		}
+		try (EncodedFileInputStream in = new EncodedFileInputStream(FORMAT, new FileInputStream(file))) {
+			assertEquals(expected, read(in));
+		}
+
+		int numberOfBlocks = EncodedFileInputStream.getNumberOfBlocks(file);
+		assertTrue(numberOfBlocks > 2);
+		List<String> actual = new ArrayList<>();
+		for (int firstBlock = 0; firstBlock < numberOfBlocks; firstBlock += 2) {
+			try (EncodedFileInputStream in = new EncodedFileInputStream(FORMAT, file, firstBlock, firstBlock + 2)) {
+				actual.addAll(read(in));
+			}
+		}
+		assertEquals(expected, actual);
+	}
+
+	@Test
+	void appendTest() throws IOException {
+		Random random = new Random(5);
+		List<String> expected = createStatements(random, 50_000);
+		write(file, expected, false);
+		int blocksOfFirstMember = EncodedFileInputStream.getNumberOfBlocks(file);
+		List<String> appended = createStatements(random, 50_000);
+		write(file, appended, true);
+		expected.addAll(appended);
+
+		try (EncodedFileInputStream in = new EncodedFileInputStream(FORMAT, file)) {
+			assertEquals(expected, read(in));
+		}
+		int numberOfBlocks = EncodedFileInputStream.getNumberOfBlocks(file);
+		assertTrue(numberOfBlocks > blocksOfFirstMember);
+		// the ranges span the border of the members
+		List<String> actual = new ArrayList<>();
+		try (EncodedFileInputStream in = new EncodedFileInputStream(FORMAT, file, 0, blocksOfFirstMember - 1)) {
+			actual.addAll(read(in));
+		}
+		try (EncodedFileInputStream in = new EncodedFileInputStream(FORMAT, file, blocksOfFirstMember - 1,
+				numberOfBlocks)) {
+			actual.addAll(read(in));
+		}
+		assertEquals(expected, actual);
+	}
+
+	@Test
+	void appendFileAndSplitTest() throws IOException {
+		Random random = new Random(7);
+		List<String> expected = createStatements(random, 50_000);
+		write(file, expected, false);
+		File source = new File(file.getAbsolutePath() + ".source");
+		try {
+			// the source consists of two members
+			for (int i = 0; i < 2; i++) {
+				List<String> appended = createStatements(random, 30_000);
+				write(source, appended, i > 0);
+				expected.addAll(appended);
+			}
+			BlockCompressedOutputStream.append(file, source);
+		} finally {
+			source.delete();
+		}
+
+		try (EncodedFileInputStream in = new EncodedFileInputStream(FORMAT, file)) {
+			assertEquals(expected, read(in));
+			EncodedFileInputStream[] parts = in.split(3);
+			assertEquals(3, parts.length);
+			List<String> actual = new ArrayList<>();
+			for (EncodedFileInputStream part : parts) {
+				try (EncodedFileInputStream p = part) {
+					actual.addAll(read(p));
+				}
+			}
+			assertEquals(expected, actual);
+		}
+	}
+
+	@Test
+	void longFileTest() throws IOException {
+		long[] expected = new Random(7).longs(200_000).toArray();
+		try (EncodedLongFileOutputStream out = new EncodedLongFileOutputStream(file)) {
+			for (long value : expected) {
+				out.writeLong(value);
+			}
+		}
+		long[] actual = new long[expected.length];
+		try (EncodedLongFileInputStream in = new EncodedLongFileInputStream(file)) {
+			for (int i = 0; i < actual.length; i++) {
+				actual[i] = in.readLong();
+			}
+			assertTrue(!in.iterator().hasNext());
+		}
+		assertArrayEquals(expected, actual);
+	}
+
+	@Test
+	void gzipFileTest() throws IOException {
+		// the former format of long values
+		try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(new FileOutputStream(file)))) {
+			out.writeByte(0b1000_0101);
+			out.writeByte(0b0000_0001);
+			out.writeByte(0b1000_0000);
+		}
+		try (EncodedLongFileInputStream in = new EncodedLongFileInputStream(file)) {
+			assertEquals(5, in.readLong());
+			assertEquals(128, in.readLong());
+			assertTrue(!in.iterator().hasNext());
+		}
+	}
+
+}
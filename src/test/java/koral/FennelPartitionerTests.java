@@ -0,0 +1,142 @@
+package koral;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.uni_koblenz.west.koral.master.utils.AdjacencyMatrix;
+import de.uni_koblenz.west.koral.master.utils.FennelPartitioner;
+import de.uni_koblenz.west.koral.master.utils.SingleFileAdjacencyMatrix;
+
+class FennelPartitionerTests {
+
+	private static final int NUMBER_OF_PARTITIONS = 8;
+
+	private static final int VERTICES_PER_CLUSTER = 250;
+
+	private File workingDir;
+
+	private List<long[]> edges;
+
+	@BeforeEach
+	void setUp() {
+		workingDir = new File(
+				System.getProperty("java.io.tmpdir") + File.separator + "koralFennelPartitionerTest" + System.nanoTime());
+		workingDir.mkdirs();
+		// clusters of densely connected vertices with shuffled ids
+		int numberOfVertices = NUMBER_OF_PARTITIONS * VERTICES_PER_CLUSTER;
+		List<Long> ids = new ArrayList<>();
+		for (long id = 1; id <= numberOfVertices; id++) {
+			ids.add(id);
+		}
+		Random random = new Random(23);
+		Collections.shuffle(ids, random);
+		edges = new ArrayList<>();
+		for (int i = 0; i < (numberOfVertices * 8); i++) {
+			int cluster = random.nextInt(NUMBER_OF_PARTITIONS);
+			int vertex1 = (cluster * VERTICES_PER_CLUSTER) + random.nextInt(VERTICES_PER_CLUSTER);
+			int vertex2 = (cluster * VERTICES_PER_CLUSTER) + random.nextInt(VERTICES_PER_CLUSTER);
+			if (random.nextInt(20) == 0) {
+				vertex2 = random.nextInt(numberOfVertices);
+			}
+			if (vertex1 != vertex2) {
+				edges.add(new long[] { ids.get(vertex1), ids.get(vertex2) });
+			}
+		}
+	}
+
+	@AfterEach
+	void tearDown() {
+		delete(workingDir);
+	}
+
+	private static void delete(File file) {
+		if (file.isDirectory()) {
+			for (File child : file.listFiles()) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+	private int[] partition(int numberOfThreads) throws IOException {
+		File matrixDir = new File(workingDir, "matrix" + numberOfThreads);
+		matrixDir.mkdirs();
+		File output = new File(workingDir, "partitioning" + numberOfThreads);
+		AdjacencyMatrix matrix = new SingleFileAdjacencyMatrix(matrixDir);
+		try {
+			for (long[] edge : edges) {
+				matrix.addEdge(edge[0], edge[1]);
+			}
+			FennelPartitioner partitioner = new FennelPartitioner(matrixDir, NUMBER_OF_PARTITIONS);
+			partitioner.setNumberOfThreads(numberOfThreads);
+			partitioner.partition(matrix, output);
+		} finally {
+			matrix.close();
+		}
+		List<Integer> partitions = new ArrayList<>();
+		try (BufferedReader reader = Files.newBufferedReader(output.toPath(), StandardCharsets.UTF_8)) {
+			for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+				partitions.add(Integer.parseInt(line));
+			}
+		}
+		int[] result = new int[partitions.size() + 1];
+		for (int i = 0; i < partitions.size(); i++) {
+			result[i + 1] = partitions.get(i);
+		}
+		return result;
+	}
+
+	private int getEdgeCut(int[] partitioning) {
+		int cut = 0;
+		for (long[] edge : edges) {
+			if (partitioning[(int) edge[0]] != partitioning[(int) edge[1]]) {
+				cut++;
+			}
+		}
+		return cut;
+	}
+
+	private void checkPartitioning(int[] partitioning) {
+		int numberOfVertices = NUMBER_OF_PARTITIONS * VERTICES_PER_CLUSTER;
+		assertEquals(numberOfVertices + 1, partitioning.length);
+		int[] sizes = new int[NUMBER_OF_PARTITIONS];
+		for (int vertex = 1; vertex <= numberOfVertices; vertex++) {
+			assertTrue((partitioning[vertex] >= 0) && (partitioning[vertex] < NUMBER_OF_PARTITIONS));
+			sizes[partitioning[vertex]]++;
+		}
+		int maxSize = (int) Math.ceil((1.1 * numberOfVertices) / NUMBER_OF_PARTITIONS);
+		for (int size : sizes) {
+			assertTrue(size <= maxSize, "partition of size " + size);
+		}
+		int[] hashPartitioning = new int[partitioning.length];
+		for (int vertex = 1; vertex <= numberOfVertices; vertex++) {
+			hashPartitioning[vertex] = vertex % NUMBER_OF_PARTITIONS;
+		}
+		assertTrue(getEdgeCut(partitioning) < (getEdgeCut(hashPartitioning) / 2));
+	}
+
+	@Test
+	void sequentialPartitioningTest() throws IOException {
+		checkPartitioning(partition(1));
+	}
+
+	@Test
+	void parallelPartitioningTest() throws IOException {
+		checkPartitioning(partition(4));
+	}
+
+}
@@ -0,0 +1,275 @@
+package koral;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.uni_koblenz.west.koral.common.config.impl.Configuration;
+import de.uni_koblenz.west.koral.common.io.EncodedFileInputStream;
+import de.uni_koblenz.west.koral.common.io.EncodingFileFormat;
+import de.uni_koblenz.west.koral.common.io.Statement;
+import de.uni_koblenz.west.koral.common.utils.NumberConversion;
+import de.uni_koblenz.west.koral.master.dictionary.DictionaryEncoder;
+import de.uni_koblenz.west.koral.master.graph_cover_creator.CoverStrategyType;
+import de.uni_koblenz.west.koral.master.graph_cover_creator.GraphCoverCreator;
+import de.uni_koblenz.west.koral.master.graph_cover_creator.GraphCoverCreatorFactory;
+import de.uni_koblenz.west.koral.master.graph_cover_creator.impl.HashCoverCreator;
+import de.uni_koblenz.west.koral.master.graph_cover_creator.impl.MinimalEdgeCutOverCover;
+import de.uni_koblenz.west.koral.master.statisticsDB.GraphStatistics;
+import de.uni_koblenz.west.koral.master.statisticsDB.GraphStatisticsDatabase;
+
+class GraphCoverCreatorTests {
+
+	private static final short NUMBER_OF_CHUNKS = 3;
+
+	private File workingDir;
+
+	private DictionaryEncoder encoder;
+
+	private File graphFile;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		workingDir = new File(System.getProperty("java.io.tmpdir") + File.separator + "koralGraphCoverCreatorTest"
+				+ System.nanoTime());
+		workingDir.mkdirs();
+		Configuration conf = new Configuration();
+		conf.setDataDir(workingDir.getAbsolutePath());
+		encoder = new DictionaryEncoder(conf, null, null);
+		graphFile = new File(workingDir, "graph.nt");
+		Random random = new Random(17);
+		try (PrintWriter out = new PrintWriter(graphFile, "UTF-8")) {
+			for (int i = 0; i < 5000; i++) {
+				out.println("<http://example.org/s" + random.nextInt(500) + "> <http://example.org/p"
+						+ random.nextInt(10) + "> <http://example.org/s" + random.nextInt(500) + "> .");
+			}
+		}
+	}
+
+	@AfterEach
+	void tearDown() {
+		encoder.close();
+		delete(workingDir);
+	}
+
+	private static void delete(File file) {
+		if (file.isDirectory()) {
+			for (File child : file.listFiles()) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+	/**
+	 * Creates the graph cover and encodes the chunks completely. Since the
+	 * dictionary is cleared by each run, the statistics and chunks are returned
+	 * decoded.
+	 */
+	private Map<String, Object> createGraphCover(CoverStrategyType strategy, boolean collectStatisticsDuringCover)
+			throws IOException {
+		return createGraphCover(strategy, collectStatisticsDuringCover, graphFile, 1, false);
+	}
+
+	private Map<String, Object> createGraphCover(CoverStrategyType strategy, boolean collectStatisticsDuringCover,
+			File graphFile, int numberOfThreads, boolean useMD5) throws IOException {
+		File dir = new File(workingDir, strategy + (collectStatisticsDuringCover ? "Fused" : "Separate")
+				+ numberOfThreads + (useMD5 ? "MD5" : ""));
+		dir.mkdirs();
+		GraphCoverCreator coverCreator = GraphCoverCreatorFactory.getGraphCoverCreator(strategy, null, null);
+		if (coverCreator instanceof HashCoverCreator) {
+			((HashCoverCreator) coverCreator).setNumberOfThreads(numberOfThreads);
+			((HashCoverCreator) coverCreator).setUseMD5(useMD5);
+		} else if (coverCreator instanceof MinimalEdgeCutOverCover) {
+			((MinimalEdgeCutOverCover) coverCreator).setNumberOfThreads(numberOfThreads);
+		}
+		File semiEncodedFile = encoder.encodeOriginalGraphFiles(new File[] { graphFile }, dir,
+				coverCreator.getRequiredInputEncoding(), NUMBER_OF_CHUNKS);
+		InMemoryStatisticsDatabase database = new InMemoryStatisticsDatabase();
+		GraphStatistics statistics = new GraphStatistics(database, NUMBER_OF_CHUNKS, null);
+		File[] encodedChunks;
+		if (collectStatisticsDuringCover) {
+			File[] chunks = coverCreator.createGraphCover(encoder, statistics, semiEncodedFile, dir, NUMBER_OF_CHUNKS);
+			encodedChunks = encoder.encodeGraphChunksCompletely(chunks, dir, EncodingFileFormat.EEE);
+		} else {
+			File[] chunks = coverCreator.createGraphCover(encoder, semiEncodedFile, dir, NUMBER_OF_CHUNKS);
+			encodedChunks = encoder.encodeGraphChunksCompletely(chunks, dir, coverCreator.getRequiredInputEncoding());
+			statistics.collectStatistics(encodedChunks);
+		}
+
+		Map<String, Object> result = new TreeMap<>();
+		result.put("chunkSizes", Arrays.toString(database.getChunkSizes()));
+		for (Entry<Long, long[]> entry : database.frequencies.entrySet()) {
+			result.put(encoder.decode(entry.getKey()).toString(), Arrays.toString(entry.getValue()));
+		}
+		for (int i = 0; i < NUMBER_OF_CHUNKS; i++) {
+			Map<String, Integer> statements = new TreeMap<>();
+			if (encodedChunks[i] != null) {
+				try (EncodedFileInputStream in = new EncodedFileInputStream(EncodingFileFormat.EEE, encodedChunks[i])) {
+					for (Statement statement : in) {
+						String triple = encoder.decode(statement.getSubjectAsLong()) + " "
+								+ encoder.decode(statement.getPropertyAsLong()) + " "
+								+ encoder.decode(statement.getObjectAsLong());
+						statements.merge(triple, 1, Integer::sum);
+					}
+				}
+			}
+			result.put("chunk" + i, statements);
+		}
+		return result;
+	}
+
+	@Test
+	void statisticsDuringCoverCreationTest() throws IOException {
+		for (CoverStrategyType strategy : new CoverStrategyType[] { CoverStrategyType.HASH,
+				CoverStrategyType.HIERARCHICAL, CoverStrategyType.VERTICAL }) {
+			Map<String, Object> expected = createGraphCover(strategy, false);
+			Map<String, Object> actual = createGraphCover(strategy, true);
+			assertTrue(expected.size() > NUMBER_OF_CHUNKS + 1);
+			assertEquals(expected, actual, strategy.toString());
+		}
+	}
+
+	/**
+	 * @return a graph whose encoded file consists of several blocks
+	 */
+	private File createLargeGraph() throws IOException {
+		File largeGraphFile = new File(workingDir, "largeGraph.nt");
+		Random random = new Random(23);
+		try (PrintWriter out = new PrintWriter(largeGraphFile, "UTF-8")) {
+			for (int i = 0; i < 40_000; i++) {
+				out.println("<http://example.org/dataset" + random.nextInt(5) + "/resources/type" + random.nextInt(20)
+						+ "/s" + random.nextInt(5000) + "> <http://example.org/p" + random.nextInt(10)
+						+ "> <http://example.org/o" + random.nextInt(5000) + "> .");
+			}
+		}
+		return largeGraphFile;
+	}
+
+	@Test
+	void parallelCoverCreationTest() throws IOException {
+		File largeGraphFile = createLargeGraph();
+		for (CoverStrategyType strategy : new CoverStrategyType[] { CoverStrategyType.HASH,
+				CoverStrategyType.HIERARCHICAL, CoverStrategyType.VERTICAL }) {
+			for (boolean collectStatisticsDuringCover : new boolean[] { false, true }) {
+				Map<String, Object> expected = createGraphCover(strategy, collectStatisticsDuringCover, largeGraphFile,
+						1, false);
+				Map<String, Object> actual = createGraphCover(strategy, collectStatisticsDuringCover, largeGraphFile, 4,
+						false);
+				assertEquals(expected, actual, strategy + " " + collectStatisticsDuringCover);
+			}
+		}
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void md5ChunkAssignmentTest() throws IOException, NoSuchAlgorithmException {
+		Map<String, Object> cover = createGraphCover(CoverStrategyType.HASH, false, createLargeGraph(), 4, true);
+		MessageDigest digest = MessageDigest.getInstance("MD5");
+		for (int i = 0; i < NUMBER_OF_CHUNKS; i++) {
+			Map<String, Integer> statements = (Map<String, Integer>) cover.get("chunk" + i);
+			assertFalse(statements.isEmpty());
+			for (String statement : statements.keySet()) {
+				// the chunk assignment of previous versions
+				byte[] hash = digest.digest(("<" + statement.split(" ")[0] + ">").getBytes("UTF-8"));
+				int result = 0;
+				for (int j = 0; j < hash.length; j += 4) {
+					result ^= NumberConversion.bytes2int(hash, j);
+				}
+				assertEquals(i, Math.abs(result % NUMBER_OF_CHUNKS), statement);
+			}
+		}
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void minimalEdgeCutCoverWithoutMetisTest() throws IOException {
+		Set<String> expected = new HashSet<>();
+		for (String line : Files.readAllLines(graphFile.toPath(), StandardCharsets.UTF_8)) {
+			expected.add(line.substring(0, line.length() - 2).replaceAll("[<>]", ""));
+		}
+		for (int numberOfThreads : new int[] { 1, 4 }) {
+			Map<String, Object> cover = createGraphCover(CoverStrategyType.MIN_EDGE_CUT, true, graphFile,
+					numberOfThreads, false);
+			Set<String> actual = new HashSet<>();
+			for (int i = 0; i < NUMBER_OF_CHUNKS; i++) {
+				Map<String, Integer> statements = (Map<String, Integer>) cover.get("chunk" + i);
+				assertFalse(statements.isEmpty());
+				actual.addAll(statements.keySet());
+			}
+			assertEquals(expected, actual);
+		}
+	}
+
+	private static class InMemoryStatisticsDatabase implements GraphStatisticsDatabase {
+
+		private final Map<Long, long[]> frequencies = new HashMap<>();
+
+		private final long[] chunkSizes = new long[NUMBER_OF_CHUNKS];
+
+		private void increment(long resource, int offset) {
+			frequencies.computeIfAbsent(resource, r -> new long[3 * NUMBER_OF_CHUNKS])[offset]++;
+		}
+
+		@Override
+		public void incrementSubjectCount(long subject, int chunk) {
+			increment(subject, chunk);
+		}
+
+		@Override
+		public void incrementPropertyCount(long property, int chunk) {
+			increment(property, NUMBER_OF_CHUNKS + chunk);
+		}
+
+		@Override
+		public void incrementObjectCount(long object, int chunk) {
+			increment(object, (2 * NUMBER_OF_CHUNKS) + chunk);
+		}
+
+		@Override
+		public void incrementNumberOfTriplesPerChunk(int chunk) {
+			chunkSizes[chunk]++;
+		}
+
+		@Override
+		public long[] getChunkSizes() {
+			return chunkSizes;
+		}
+
+		@Override
+		public long[] getStatisticsForResource(long id) {
+			return frequencies.get(id);
+		}
+
+		@Override
+		public void clear() {
+			frequencies.clear();
+		}
+
+		@Override
+		public void close() {
+		}
+
+	}
+
+}
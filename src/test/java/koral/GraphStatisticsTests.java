@@ -0,0 +1,191 @@
+package koral;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.uni_koblenz.west.koral.common.io.EncodedFileOutputStream;
+import de.uni_koblenz.west.koral.common.io.EncodingFileFormat;
+import de.uni_koblenz.west.koral.common.io.Statement;
+import de.uni_koblenz.west.koral.common.utils.NumberConversion;
+import de.uni_koblenz.west.koral.master.statisticsDB.GraphStatistics;
+import de.uni_koblenz.west.koral.master.statisticsDB.GraphStatisticsDatabase;
+import de.uni_koblenz.west.koral.master.statisticsDB.impl.multi_file.MultiFileGraphStatisticsDatabase;
+import de.uni_koblenz.west.koral.master.statisticsDB.impl.multi_file.ShardedGraphStatisticsDatabase;
+
+class GraphStatisticsTests {
+
+	private static final short NUMBER_OF_CHUNKS = 3;
+
+	private static final int NUMBER_OF_RESOURCES = 2000;
+
+	private File workingDir;
+
+	private File[] chunks;
+
+	private long[][] triples;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		workingDir = new File(System.getProperty("java.io.tmpdir") + File.separator + "koralGraphStatisticsTest"
+				+ System.nanoTime());
+		File chunkDir = new File(workingDir, "chunks");
+		chunkDir.mkdirs();
+		Random random = new Random(7);
+		chunks = new File[NUMBER_OF_CHUNKS];
+		triples = new long[NUMBER_OF_CHUNKS * 10_000][];
+		for (int chunk = 0; chunk < NUMBER_OF_CHUNKS; chunk++) {
+			chunks[chunk] = new File(chunkDir, "chunk" + chunk + ".enc.gz");
+			try (EncodedFileOutputStream out = new EncodedFileOutputStream(chunks[chunk])) {
+				for (int i = 0; i < 10_000; i++) {
+					// skewed properties and a few resources with the ownership bits set
+					long[] triple = new long[] { 1 + random.nextInt(NUMBER_OF_RESOURCES), 1 + random.nextInt(20),
+							(random.nextInt(10) == 0 ? 0x00_03_00_00_00_00_00_00L : 0)
+									| (1 + random.nextInt(NUMBER_OF_RESOURCES)),
+							chunk };
+					triples[(chunk * 10_000) + i] = triple;
+					out.writeStatement(Statement.getStatement(EncodingFileFormat.EEE,
+							NumberConversion.long2bytes(triple[0]), NumberConversion.long2bytes(triple[1]),
+							NumberConversion.long2bytes(triple[2]), new byte[1]));
+				}
+			}
+		}
+	}
+
+	@AfterEach
+	void tearDown() {
+		delete(workingDir);
+	}
+
+	private static void delete(File file) {
+		if (file.isDirectory()) {
+			for (File child : file.listFiles()) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+	private void assertSameStatistics(GraphStatisticsDatabase expected, GraphStatisticsDatabase actual) {
+		assertArrayEquals(expected.getChunkSizes(), actual.getChunkSizes());
+		for (long id = 1; id <= NUMBER_OF_RESOURCES; id++) {
+			assertArrayEquals(expected.getStatisticsForResource(id), actual.getStatisticsForResource(id),
+					"resource " + id);
+		}
+	}
+
+	@Test
+	void aggregatedCollectionTest() {
+		MultiFileGraphStatisticsDatabase expected = new MultiFileGraphStatisticsDatabase(
+				new File(workingDir, "increments").getAbsolutePath(), NUMBER_OF_CHUNKS, null);
+		MultiFileGraphStatisticsDatabase aggregated = new MultiFileGraphStatisticsDatabase(
+				new File(workingDir, "aggregated").getAbsolutePath(), NUMBER_OF_CHUNKS, null);
+		ShardedGraphStatisticsDatabase sharded = new ShardedGraphStatisticsDatabase(
+				new File(workingDir, "sharded").getAbsolutePath(), 2, NUMBER_OF_CHUNKS, null);
+		try (GraphStatistics expectedStatistics = new GraphStatistics(expected, NUMBER_OF_CHUNKS, null);
+				// small aggregation sizes so that several sorted runs are merged
+				GraphStatistics aggregatedStatistics = new GraphStatistics(aggregated, NUMBER_OF_CHUNKS, 500, null);
+				GraphStatistics shardedStatistics = new GraphStatistics(sharded, NUMBER_OF_CHUNKS, 700, null);) {
+			expectedStatistics.collectStatistics(chunks);
+			aggregatedStatistics.collectStatistics(chunks);
+			shardedStatistics.collectStatistics(chunks);
+			assertEquals(10_000, expected.getChunkSizes()[0]);
+			assertSameStatistics(expected, aggregated);
+			assertSameStatistics(expected, sharded);
+
+			// collecting again does not change the statistics
+			aggregatedStatistics.collectStatistics(chunks);
+			assertSameStatistics(expected, aggregated);
+		}
+		// the sorted runs are deleted
+		assertEquals(NUMBER_OF_CHUNKS, chunks[0].getParentFile().list().length);
+	}
+
+	@Test
+	void aggregatedCountingTest() {
+		MultiFileGraphStatisticsDatabase expected = new MultiFileGraphStatisticsDatabase(
+				new File(workingDir, "increments").getAbsolutePath(), NUMBER_OF_CHUNKS, null);
+		MultiFileGraphStatisticsDatabase aggregated = new MultiFileGraphStatisticsDatabase(
+				new File(workingDir, "aggregated").getAbsolutePath(), NUMBER_OF_CHUNKS, null);
+		try (GraphStatistics expectedStatistics = new GraphStatistics(expected, NUMBER_OF_CHUNKS, null);
+				GraphStatistics aggregatedStatistics = new GraphStatistics(aggregated, NUMBER_OF_CHUNKS, 1000, null);) {
+			expectedStatistics.collectStatistics(chunks);
+			aggregatedStatistics.clear();
+			aggregatedStatistics.beginCounting(workingDir, 1);
+			for (long[] triple : triples) {
+				aggregatedStatistics.count(triple[0], triple[1], triple[2], (int) triple[3]);
+			}
+			// nothing is written before the counting is finished
+			assertTrue(aggregated.getMaxId() == 0);
+			aggregatedStatistics.finishCounting();
+			assertSameStatistics(expected, aggregated);
+		}
+	}
+
+	private long[][] getFrequencies(GraphStatistics statistics, long maxId) {
+		long[][] frequencies = new long[(int) maxId + 1][];
+		for (long id = 1; id <= maxId; id++) {
+			// the ownership is ignored
+			long idWithOwner = id | 0x00_02_00_00_00_00_00_00L;
+			long[] frequency = new long[(4 * NUMBER_OF_CHUNKS) + 3];
+			for (int chunk = 0; chunk < NUMBER_OF_CHUNKS; chunk++) {
+				frequency[(0 * NUMBER_OF_CHUNKS) + chunk] = statistics.getSubjectFrequency(idWithOwner, chunk);
+				frequency[(1 * NUMBER_OF_CHUNKS) + chunk] = statistics.getPropertyFrequency(id, chunk);
+				frequency[(2 * NUMBER_OF_CHUNKS) + chunk] = statistics.getObjectFrequency(idWithOwner, chunk);
+			}
+			frequency[3 * NUMBER_OF_CHUNKS] = statistics.getTotalSubjectFrequency(id);
+			frequency[(3 * NUMBER_OF_CHUNKS) + 1] = statistics.getTotalPropertyFrequency(idWithOwner);
+			frequency[(3 * NUMBER_OF_CHUNKS) + 2] = statistics.getTotalObjectFrequency(id);
+			frequencies[(int) id] = frequency;
+		}
+		return frequencies;
+	}
+
+	@Test
+	void snapshotTest() {
+		File snapshotFile = new File(workingDir, "statistics.snapshot");
+		MultiFileGraphStatisticsDatabase database = new MultiFileGraphStatisticsDatabase(
+				new File(workingDir, "statistics").getAbsolutePath(), NUMBER_OF_CHUNKS, null);
+		try (GraphStatistics statistics = new GraphStatistics(database, NUMBER_OF_CHUNKS, null);) {
+			statistics.collectStatistics(chunks);
+			long[][] expected = getFrequencies(statistics, NUMBER_OF_RESOURCES + 10);
+			statistics.createSnapshot(snapshotFile);
+			assertTrue(snapshotFile.exists());
+			for (int i = 1; i < expected.length; i++) {
+				assertArrayEquals(expected[i], getFrequencies(statistics, NUMBER_OF_RESOURCES + 10)[i], "resource " + i);
+			}
+
+			// sparse resource ids and large counts
+			statistics.clear();
+			assertFalse(snapshotFile.exists());
+			assertEquals(-1, statistics.getNumberOfDistinctSubjects());
+			statistics.beginCounting(workingDir, 1);
+			for (int i = 0; i < 70_000; i++) {
+				statistics.count(5, 17, 900 + (i % 3), i % NUMBER_OF_CHUNKS);
+			}
+			statistics.count(1500, 17, 5, 1);
+			statistics.finishCounting();
+			expected = getFrequencies(statistics, 1600);
+			statistics.createSnapshot(snapshotFile);
+			long[][] actual = getFrequencies(statistics, 1600);
+			for (int i = 1; i < expected.length; i++) {
+				assertArrayEquals(expected[i], actual[i], "resource " + i);
+			}
+			assertEquals(70_001, statistics.getTotalPropertyFrequency(17));
+			assertEquals(0, statistics.getTotalSubjectFrequency(6));
+			assertEquals(2, statistics.getNumberOfDistinctSubjects());
+			assertEquals(1, statistics.getNumberOfDistinctProperties());
+			assertEquals(4, statistics.getNumberOfDistinctObjects());
+		}
+	}
+
+}
@@ -0,0 +1,227 @@
+package koral;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.uni_koblenz.west.koral.common.query.Mapping;
+import de.uni_koblenz.west.koral.common.query.MappingRecycleCache;
+import de.uni_koblenz.west.koral.common.query.TriplePattern;
+import de.uni_koblenz.west.koral.common.query.TriplePatternType;
+import de.uni_koblenz.west.koral.common.utils.HybridHashJoinMappingCache;
+import de.uni_koblenz.west.koral.common.utils.JoinMemoryBudget;
+import de.uni_koblenz.west.koral.common.utils.NumberConversion;
+import de.uni_koblenz.west.koral.slave.triple_store.impl.IndexType;
+
+class HybridHashJoinMappingCacheTests {
+
+	private static final long[] LEFT_VARS = { 0, 1 };
+
+	private static final long[] RIGHT_VARS = { 0, 2 };
+
+	private File cacheDirectory;
+
+	private MappingRecycleCache recycleCache;
+
+	private JoinMemoryBudget budget;
+
+	private HybridHashJoinMappingCache leftCache;
+
+	private HybridHashJoinMappingCache rightCache;
+
+	@BeforeEach
+	void setUp() {
+		cacheDirectory = new File(System.getProperty("java.io.tmpdir") + File.separator
+				+ "koralHybridHashJoinTest" + System.nanoTime());
+		recycleCache = new MappingRecycleCache(10, 2);
+	}
+
+	private void createCaches(long budgetInBytes) {
+		budget = new JoinMemoryBudget(budgetInBytes);
+		leftCache = new HybridHashJoinMappingCache(budget, cacheDirectory, recycleCache, "left_",
+				LEFT_VARS, new int[] { 0, 1 }, 1, null);
+		rightCache = new HybridHashJoinMappingCache(budget, cacheDirectory, recycleCache, "right_",
+				RIGHT_VARS, new int[] { 0, 1 }, 1, null);
+		leftCache.setJoinPartner(rightCache);
+	}
+
+	@AfterEach
+	void tearDown() {
+		leftCache.close();
+		rightCache.close();
+		assertEquals(0, budget.getUsedBytes());
+		File[] files = cacheDirectory.listFiles();
+		assertTrue((files == null) || (files.length == 0));
+		cacheDirectory.delete();
+	}
+
+	private Mapping createMapping(long subject, long object) {
+		byte[] triple = new byte[(3 * Long.BYTES) + 1];
+		NumberConversion.long2bytes(subject, triple, 0);
+		NumberConversion.long2bytes(object, triple, 2 * Long.BYTES);
+		return recycleCache.createMapping(new TriplePattern(TriplePatternType._P_, 0, 1, 2),
+				IndexType.SPO, triple);
+	}
+
+	/**
+	 * Simulates the symmetric hash join of TriplePatternJoinOperator.
+	 */
+	private Map<String, Integer> join(int numberOfMappings, int numberOfSubjects) {
+		Map<String, Integer> results = new HashMap<>();
+		Random random = new Random(7);
+		for (int i = 0; i < numberOfMappings; i++) {
+			long subject = random.nextInt(numberOfSubjects);
+			if (random.nextBoolean()) {
+				Mapping mapping = createMapping(subject, i);
+				leftCache.add(mapping);
+				collect(results, mapping, rightCache.getMatchCandidates(mapping, LEFT_VARS), true);
+			} else {
+				Mapping mapping = createMapping(subject, i);
+				rightCache.add(mapping);
+				collect(results, mapping, leftCache.getMatchCandidates(mapping, RIGHT_VARS), false);
+			}
+		}
+		for (Mapping mapping = leftCache.getNextSpilledMapping(); mapping != null; mapping = leftCache
+				.getNextSpilledMapping()) {
+			collect(results, mapping, leftCache.getSpilledMatchCandidates(mapping, LEFT_VARS), true);
+		}
+		assertFalse(leftCache.hasUnjoinedSpilledMappings());
+		return results;
+	}
+
+	private void collect(Map<String, Integer> results, Mapping mapping, Iterator<Mapping> candidates,
+			boolean isLeft) {
+		while (candidates.hasNext()) {
+			Mapping candidate = candidates.next();
+			long leftObject = isLeft ? mapping.getValue(1, LEFT_VARS) : candidate.getValue(1, LEFT_VARS);
+			long rightObject = isLeft ? candidate.getValue(2, RIGHT_VARS)
+					: mapping.getValue(2, RIGHT_VARS);
+			assertEquals(mapping.getValue(0, isLeft ? LEFT_VARS : RIGHT_VARS),
+					candidate.getValue(0, isLeft ? RIGHT_VARS : LEFT_VARS));
+			results.merge(leftObject + "," + rightObject, 1, Integer::sum);
+		}
+	}
+
+	@Test
+	void spillingJoinTest() {
+		createCaches(Long.MAX_VALUE);
+		Map<String, Integer> expected = join(20_000, 5_000);
+		assertFalse(leftCache.hasSpilledPartitions());
+		leftCache.close();
+		rightCache.close();
+
+		createCaches(64 * 1024);
+		Map<String, Integer> results = join(20_000, 5_000);
+		assertTrue(leftCache.hasSpilledPartitions());
+		assertTrue(budget.getUsedBytes() <= budget.getMaxBytes());
+		assertEquals(expected, results);
+	}
+
+	@Test
+	void repartitioningJoinTest() {
+		createCaches(Long.MAX_VALUE);
+		Map<String, Integer> expected = join(20_000, 5_000);
+		leftCache.close();
+		rightCache.close();
+
+		// the spilled partitions of the partner do not fit into the budget
+		createCaches(8 * 1024);
+		Map<String, Integer> results = join(20_000, 5_000);
+		assertTrue(leftCache.hasSpilledPartitions());
+		assertEquals(expected, results);
+	}
+
+	@Test
+	void skewedJoinTest() {
+		createCaches(Long.MAX_VALUE);
+		Map<String, Integer> expected = join(600, 1);
+		leftCache.close();
+		rightCache.close();
+
+		// all mappings share one join key, i.e., splitting does not help
+		createCaches(8 * 1024);
+		Map<String, Integer> results = join(600, 1);
+		assertTrue(leftCache.hasSpilledPartitions());
+		assertEquals(expected, results);
+	}
+
+	@Test
+	void cartesianProductTest() {
+		AtomicInteger numberOfWarnings = new AtomicInteger();
+		Logger logger = Logger.getAnonymousLogger();
+		logger.setUseParentHandlers(false);
+		logger.addHandler(new Handler() {
+			@Override
+			public void publish(LogRecord record) {
+				if (record.getLevel() == Level.WARNING) {
+					numberOfWarnings.incrementAndGet();
+				}
+			}
+
+			@Override
+			public void flush() {
+			}
+
+			@Override
+			public void close() {
+			}
+		});
+		budget = new JoinMemoryBudget(8 * 1024);
+		leftCache = new HybridHashJoinMappingCache(budget, cacheDirectory, recycleCache, "left_",
+				LEFT_VARS, new int[] { 0, 1 }, 0, logger);
+		rightCache = new HybridHashJoinMappingCache(budget, cacheDirectory, recycleCache, "right_",
+				RIGHT_VARS, new int[] { 0, 1 }, 0, logger);
+		leftCache.setJoinPartner(rightCache);
+		Map<String, Integer> results = new HashMap<>();
+		for (int i = 0; i < 600; i++) {
+			Mapping mapping = createMapping(i, i);
+			if ((i % 2) == 0) {
+				leftCache.add(mapping);
+				collectProduct(results, mapping, rightCache.iterator(), true);
+			} else {
+				rightCache.add(mapping);
+				collectProduct(results, mapping, leftCache.iterator(), false);
+			}
+		}
+		assertTrue(leftCache.hasSpilledPartitions());
+		for (Mapping mapping = leftCache.getNextSpilledMapping(); mapping != null; mapping = leftCache
+				.getNextSpilledMapping()) {
+			assertTrue(budget.getUsedBytes() <= budget.getMaxBytes());
+			collectProduct(results, mapping, leftCache.getSpilledMatchCandidates(mapping, LEFT_VARS),
+					true);
+		}
+		// the partner partition is joined in blocks that fit into the budget
+		assertEquals(0, numberOfWarnings.get());
+		assertEquals(300 * 300, results.size());
+		for (int count : results.values()) {
+			assertEquals(1, count);
+		}
+	}
+
+	private void collectProduct(Map<String, Integer> results, Mapping mapping,
+			Iterator<Mapping> candidates, boolean isLeft) {
+		while (candidates.hasNext()) {
+			Mapping candidate = candidates.next();
+			long leftObject = isLeft ? mapping.getValue(1, LEFT_VARS) : candidate.getValue(1, LEFT_VARS);
+			long rightObject = isLeft ? candidate.getValue(2, RIGHT_VARS)
+					: mapping.getValue(2, RIGHT_VARS);
+			results.merge(leftObject + "," + rightObject, 1, Integer::sum);
+		}
+	}
+
+}
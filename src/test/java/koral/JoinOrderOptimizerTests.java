@@ -0,0 +1,230 @@
+package koral;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.uni_koblenz.west.koral.common.query.TriplePattern;
+import de.uni_koblenz.west.koral.common.query.TriplePatternType;
+import de.uni_koblenz.west.koral.common.query.execution.QueryOperatorTask;
+import de.uni_koblenz.west.koral.common.query.execution.operators.TriplePatternMatchOperator;
+import de.uni_koblenz.west.koral.common.query.parser.JoinOrderOptimizer;
+import de.uni_koblenz.west.koral.common.query.parser.JoinOrderOptimizer.JoinPlan;
+import de.uni_koblenz.west.koral.master.statisticsDB.GraphStatistics;
+import de.uni_koblenz.west.koral.master.statisticsDB.GraphStatisticsDatabase;
+import de.uni_koblenz.west.koral.master.statisticsDB.impl.multi_file.MultiFileGraphStatisticsDatabase;
+
+class JoinOrderOptimizerTests {
+
+	private Map<Long, long[]> frequencies;
+
+	private GraphStatistics statistics;
+
+	private List<QueryOperatorTask> triplePatternMatches;
+
+	@BeforeEach
+	void setUp() {
+		frequencies = new HashMap<>();
+		statistics = new GraphStatistics(new GraphStatisticsDatabase() {
+
+			@Override
+			public void incrementSubjectCount(long subject, int chunk) {
+			}
+
+			@Override
+			public void incrementPropertyCount(long property, int chunk) {
+			}
+
+			@Override
+			public void incrementObjectCount(long object, int chunk) {
+			}
+
+			@Override
+			public void incrementNumberOfTriplesPerChunk(int chunk) {
+			}
+
+			@Override
+			public long[] getChunkSizes() {
+				return new long[] { 1_000_000 };
+			}
+
+			@Override
+			public long[] getStatisticsForResource(long id) {
+				return frequencies.get(id);
+			}
+
+			@Override
+			public void clear() {
+			}
+
+			@Override
+			public void close() {
+			}
+
+		}, (short) 1, null);
+		triplePatternMatches = new ArrayList<>();
+	}
+
+	/**
+	 * Sets the subject, property and object frequency of a resource.
+	 */
+	private void setFrequencies(long resource, long subjectFrequency, long propertyFrequency, long objectFrequency) {
+		frequencies.put(resource, new long[] { subjectFrequency, propertyFrequency, objectFrequency });
+	}
+
+	/**
+	 * ?subject &lt;property&gt; ?object
+	 */
+	private void addTriplePattern(long subject, long property, long object) {
+		addTriplePattern(new TriplePattern(TriplePatternType._P_, subject, property, object));
+	}
+
+	private void addTriplePattern(TriplePattern pattern) {
+		triplePatternMatches.add(new TriplePatternMatchOperator((short) 1, 0, (short) triplePatternMatches.size(), 0,
+				1, 10, new File(System.getProperty("java.io.tmpdir")), pattern, 10, null));
+	}
+
+	private static void collectLeaves(JoinPlan plan, List<Integer> leaves) {
+		if (plan.isLeaf()) {
+			leaves.add(plan.getLeafIndex());
+		} else {
+			collectLeaves(plan.getLeftChild(), leaves);
+			collectLeaves(plan.getRightChild(), leaves);
+		}
+	}
+
+	private List<Integer> getLeaves(JoinPlan plan) {
+		List<Integer> leaves = new ArrayList<>();
+		collectLeaves(plan, leaves);
+		return leaves;
+	}
+
+	private Set<Long> getVariables(JoinPlan plan) {
+		Set<Long> variables = new HashSet<>();
+		for (int leaf : getLeaves(plan)) {
+			for (long var : triplePatternMatches.get(leaf).getResultVariables()) {
+				variables.add(var);
+			}
+		}
+		return variables;
+	}
+
+	private boolean containsCartesianProduct(JoinPlan plan) {
+		if (plan.isLeaf()) {
+			return false;
+		}
+		Set<Long> joinVariables = getVariables(plan.getLeftChild());
+		joinVariables.retainAll(getVariables(plan.getRightChild()));
+		return joinVariables.isEmpty() || containsCartesianProduct(plan.getLeftChild())
+				|| containsCartesianProduct(plan.getRightChild());
+	}
+
+	private void assertContainsAllTriplePatterns(JoinPlan plan) {
+		List<Integer> leaves = getLeaves(plan);
+		assertEquals(triplePatternMatches.size(), leaves.size());
+		assertEquals(triplePatternMatches.size(), new HashSet<>(leaves).size());
+	}
+
+	@Test
+	void selectivePatternFirstTest() {
+		setFrequencies(100, 0, 10_000, 0);
+		setFrequencies(101, 0, 10_000, 0);
+		setFrequencies(102, 0, 10, 0);
+		// ?0 <100> ?1 . ?1 <101> ?2 . ?2 <102> ?3
+		addTriplePattern(0, 100, 1);
+		addTriplePattern(1, 101, 2);
+		addTriplePattern(2, 102, 3);
+		JoinPlan plan = new JoinOrderOptimizer(statistics).optimize(triplePatternMatches);
+		assertContainsAllTriplePatterns(plan);
+		assertFalse(plan.isLeaf());
+		JoinPlan firstJoin = plan.getLeftChild().isLeaf() ? plan.getRightChild() : plan.getLeftChild();
+		assertEquals(Set.of(1, 2), new HashSet<>(getLeaves(firstJoin)));
+	}
+
+	@Test
+	void avoidCartesianProductTest() {
+		setFrequencies(100, 0, 1, 0);
+		setFrequencies(101, 0, 1, 0);
+		setFrequencies(102, 0, 100_000, 0);
+		// ?0 <100> ?1 . ?2 <101> ?3 . ?1 <102> ?2
+		addTriplePattern(0, 100, 1);
+		addTriplePattern(2, 101, 3);
+		addTriplePattern(1, 102, 2);
+		JoinPlan plan = new JoinOrderOptimizer(statistics).optimize(triplePatternMatches);
+		assertContainsAllTriplePatterns(plan);
+		assertFalse(containsCartesianProduct(plan));
+	}
+
+	@Test
+	void greedyOptimizationTest() {
+		int numberOfTriplePatterns = JoinOrderOptimizer.MAX_NUMBER_OF_PATTERNS_FOR_DYNAMIC_PROGRAMMING + 8;
+		for (int i = 0; i < numberOfTriplePatterns; i++) {
+			setFrequencies(100 + i, 0, (i % 2) == 0 ? 10 : 1_000, 0);
+			// chain ?i <100+i> ?(i+1)
+			addTriplePattern(i, 100 + i, i + 1);
+		}
+		JoinPlan plan = new JoinOrderOptimizer(statistics).optimize(triplePatternMatches);
+		assertContainsAllTriplePatterns(plan);
+		assertFalse(containsCartesianProduct(plan));
+		assertTrue(plan.getEstimatedCost() >= plan.getEstimatedCardinality());
+	}
+
+	@Test
+	void distinctValuesTest() {
+		File workingDir = new File(System.getProperty("java.io.tmpdir") + File.separator + "koralJoinOrderTest"
+				+ System.nanoTime());
+		MultiFileGraphStatisticsDatabase database = new MultiFileGraphStatisticsDatabase(
+				new File(workingDir, "statistics").getAbsolutePath(), (short) 1, null);
+		try (GraphStatistics snapshotStatistics = new GraphStatistics(database, (short) 1, null);) {
+			// 1000 subjects with one of the two properties 1 and 2 occur with each of the objects 3 and 4
+			for (int i = 0; i < 1000; i++) {
+				snapshotStatistics.count(100 + i, 1 + (i % 2), 3, 0);
+				snapshotStatistics.count(100 + i, 1 + (i % 2), 4, 0);
+			}
+			// ?0 ?1 <3> . ?2 ?1 <4>
+			addTriplePattern(new TriplePattern(TriplePatternType.__O, 0, 1, 3));
+			addTriplePattern(new TriplePattern(TriplePatternType.__O, 2, 1, 4));
+			JoinOrderOptimizer optimizer = new JoinOrderOptimizer(snapshotStatistics);
+			// without a snapshot, the number of distinct properties is unknown
+			assertEquals(1000, optimizer.optimize(triplePatternMatches).getEstimatedCardinality(), 1);
+			snapshotStatistics.createSnapshot(new File(workingDir, "statistics.snapshot"));
+			// each match of ?1 joins with half of the matches of the other triple pattern
+			assertEquals(500_000, optimizer.optimize(triplePatternMatches).getEstimatedCardinality(), 1);
+			snapshotStatistics.clear();
+		} finally {
+			delete(workingDir);
+		}
+	}
+
+	private static void delete(File file) {
+		if (file.isDirectory()) {
+			for (File child : file.listFiles()) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+	@Test
+	void withoutStatisticsTest() {
+		addTriplePattern(0, 100, 1);
+		addTriplePattern(2, 101, 3);
+		addTriplePattern(1, 102, 2);
+		addTriplePattern(3, 103, 0);
+		JoinPlan plan = new JoinOrderOptimizer(null).optimize(triplePatternMatches);
+		assertContainsAllTriplePatterns(plan);
+		assertFalse(containsCartesianProduct(plan));
+	}
+
+}
@@ -0,0 +1,201 @@
+package koral;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.uni_koblenz.west.koral.common.io.LongOutputWriter;
+import de.uni_koblenz.west.koral.master.utils.FixedSizeLongArrayComparator;
+import de.uni_koblenz.west.koral.master.utils.InitialChunkProducer;
+import de.uni_koblenz.west.koral.master.utils.LongIterator;
+import de.uni_koblenz.west.koral.master.utils.LongTupleSorter;
+import de.uni_koblenz.west.koral.master.utils.Merger;
+import de.uni_koblenz.west.koral.master.utils.NWayMergeSort;
+
+class LongTupleSorterTests {
+
+	private File workingDir;
+
+	@BeforeEach
+	void setUp() {
+		workingDir = new File(System.getProperty("java.io.tmpdir") + File.separator + "koralLongTupleSorterTest"
+				+ System.nanoTime());
+		workingDir.mkdirs();
+	}
+
+	@AfterEach
+	void tearDown() {
+		for (File file : workingDir.listFiles()) {
+			file.delete();
+		}
+		workingDir.delete();
+	}
+
+	private static long[][] createTuples(Random random, int numberOfTuples, int arity) {
+		long[][] tuples = new long[numberOfTuples][arity];
+		for (long[] tuple : tuples) {
+			for (int i = 0; i < arity; i++) {
+				// few distinct values result in many equal keys
+				tuple[i] = random.nextInt(100) - 50;
+			}
+		}
+		return tuples;
+	}
+
+	private List<String> sort(long[][] tuples, long maxCashSize, int maxNumberOfOpenFiles, int numberOfThreads,
+			boolean ascendingOrder, int... comparisonOrder) {
+		List<String> result = new ArrayList<>();
+		try (LongTupleSorter sorter = new LongTupleSorter(tuples[0].length, workingDir, maxCashSize,
+				maxNumberOfOpenFiles, ascendingOrder, comparisonOrder)) {
+			sorter.setNumberOfThreads(numberOfThreads);
+			for (long[] tuple : tuples) {
+				sorter.add(tuple);
+			}
+			sorter.sort(tuple -> result.add(Arrays.toString(tuple)));
+		}
+		assertEquals(0, workingDir.listFiles().length);
+		return result;
+	}
+
+	private static List<String> keys(List<String> tuples, int... comparisonOrder) {
+		List<String> keys = new ArrayList<>();
+		for (String tuple : tuples) {
+			String[] values = tuple.substring(1, tuple.length() - 1).split(", ");
+			StringBuilder key = new StringBuilder();
+			for (int index : comparisonOrder) {
+				key.append(values[index]).append(' ');
+			}
+			keys.add(key.toString());
+		}
+		return keys;
+	}
+
+	@Test
+	void sortTest() {
+		long[][] tuples = createTuples(new Random(11), 200_000, 3);
+		for (boolean ascendingOrder : new boolean[] { true, false }) {
+			int[] comparisonOrder = new int[] { 2, 0 };
+			long[][] expectedTuples = tuples.clone();
+			Arrays.sort(expectedTuples, new FixedSizeLongArrayComparator(ascendingOrder, comparisonOrder));
+			List<String> expected = new ArrayList<>();
+			for (long[] tuple : expectedTuples) {
+				expected.add(Arrays.toString(tuple));
+			}
+			// everything in memory
+			List<String> actual = sort(tuples, 1L << 24, 10, 4, ascendingOrder, comparisonOrder);
+			assertEquals(keys(expected, comparisonOrder), keys(actual, comparisonOrder));
+			List<String> sortedExpected = new ArrayList<>(expected);
+			List<String> sortedActual = new ArrayList<>(actual);
+			sortedExpected.sort(null);
+			sortedActual.sort(null);
+			assertEquals(sortedExpected, sortedActual);
+			// several runs with several merge levels
+			actual = sort(tuples, 3 * Long.BYTES * 5_000, 3, 4, ascendingOrder, comparisonOrder);
+			assertEquals(keys(expected, comparisonOrder), keys(actual, comparisonOrder));
+			sortedActual = new ArrayList<>(actual);
+			sortedActual.sort(null);
+			assertEquals(sortedExpected, sortedActual);
+		}
+	}
+
+	@Test
+	void nWayMergeSortTest() throws IOException {
+		long[][] tuples = createTuples(new Random(13), 50_000, 2);
+		List<String> expected = sort(tuples, 1L << 24, 10, 1, true, 0, 1);
+
+		List<String> actual = new ArrayList<>();
+		InitialChunkProducer producer = new InitialChunkProducer() {
+
+			private int nextTuple;
+
+			private long[][] chunk = new long[0][];
+
+			@Override
+			public void loadNextChunk() {
+				chunk = Arrays.copyOfRange(tuples, nextTuple, Math.min(nextTuple + 3_000, tuples.length));
+				nextTuple += chunk.length;
+			}
+
+			@Override
+			public boolean hasNextChunk() {
+				return chunk.length > 0;
+			}
+
+			@Override
+			public void sort(Comparator<long[]> comparator) {
+				Arrays.parallelSort(chunk, comparator);
+			}
+
+			@Override
+			public void writeChunk(LongOutputWriter output) throws IOException {
+				for (long[] tuple : chunk) {
+					output.writeLong(tuple[0]);
+					output.writeLong(tuple[1]);
+				}
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+		Merger merger = new Merger() {
+
+			@Override
+			public void startNextMergeLevel() {
+			}
+
+			@Override
+			public long[] readNextElement(LongIterator iterator) {
+				return new long[] { iterator.next(), iterator.next() };
+			}
+
+			@Override
+			public void mergeAndWrite(BitSet indicesOfSmallestElement, long[][] elements, LongIterator[] iterators,
+					LongOutputWriter out) throws IOException {
+				for (int i = indicesOfSmallestElement.nextSetBit(0); i >= 0; i = indicesOfSmallestElement
+						.nextSetBit(i + 1)) {
+					out.writeLong(elements[i][0]);
+					out.writeLong(elements[i][1]);
+				}
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+		new NWayMergeSort().sort(producer, merger, new FixedSizeLongArrayComparator(true, 0, 1), workingDir, 4,
+				new LongOutputWriter() {
+
+					private long first;
+
+					private boolean isFirst = true;
+
+					@Override
+					public void writeLong(long value) {
+						if (isFirst) {
+							first = value;
+						} else {
+							actual.add(Arrays.toString(new long[] { first, value }));
+						}
+						isFirst = !isFirst;
+					}
+
+					@Override
+					public void close() {
+					}
+				});
+		assertEquals(expected, actual);
+	}
+
+}
@@ -0,0 +1,71 @@
+package koral;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import de.uni_koblenz.west.koral.common.query.Mapping;
+import de.uni_koblenz.west.koral.common.query.MappingRecycleCache;
+import de.uni_koblenz.west.koral.common.query.TriplePattern;
+import de.uni_koblenz.west.koral.common.query.TriplePatternType;
+import de.uni_koblenz.west.koral.common.utils.NumberConversion;
+import de.uni_koblenz.west.koral.slave.triple_store.impl.IndexType;
+
+/**
+ * Checks mappings that do not start at the first index of their byte array,
+ * as it is the case for mappings in a received message.
+ */
+class MappingTests {
+
+	private static final int NUMBER_OF_SLAVES = 10;
+
+	private static final TriplePattern PATTERN = new TriplePattern(TriplePatternType._P_, 0, 100, 1);
+
+	private static final TriplePattern BOUND_PATTERN = new TriplePattern(TriplePatternType.SPO, 1, 100, 2);
+
+	private final MappingRecycleCache recycleCache = new MappingRecycleCache(10, NUMBER_OF_SLAVES);
+
+	/**
+	 * @param pattern
+	 * @param containment
+	 * @return a mapping that is surrounded by other bytes
+	 */
+	private Mapping createMappingInMessage(TriplePattern pattern, int containment) {
+		byte[] triple = new byte[(3 * Long.BYTES) + 2];
+		NumberConversion.long2bytes(5, triple, 0);
+		NumberConversion.long2bytes(7, triple, 2 * Long.BYTES);
+		triple[3 * Long.BYTES] = (byte) containment;
+		Mapping mapping = recycleCache.createMapping(pattern, IndexType.SPO, triple);
+		int length = mapping.getLengthOfMappingInByteArray();
+		byte[] message = new byte[length + 20];
+		Arrays.fill(message, (byte) 0xff);
+		System.arraycopy(mapping.getByteArray(), mapping.getFirstIndexOfMappingInByteArray(), message, 13, length);
+		recycleCache.releaseMapping(mapping);
+		return recycleCache.createMapping(message, 13, length);
+	}
+
+	@Test
+	void firstKnowingComputerTest() {
+		assertEquals(3, createMappingInMessage(PATTERN, 0b0011_0000).getIdOfFirstComputerKnowingThisMapping());
+		assertEquals(-1, createMappingInMessage(PATTERN, 0).getIdOfFirstComputerKnowingThisMapping());
+	}
+
+	@Test
+	void joinWithEmptyMappingTest() {
+		Mapping mapping = createMappingInMessage(PATTERN, 0b1100_0000);
+		Mapping emptyMapping = createMappingInMessage(BOUND_PATTERN, 0b0110_0000);
+		assertTrue(emptyMapping.isEmptyMapping());
+		Mapping result = recycleCache.mergeMappings(PATTERN.getVariables(), mapping, PATTERN.getVariables(),
+				emptyMapping, BOUND_PATTERN.getVariables());
+		assertEquals(5, result.getValue(0, PATTERN.getVariables()));
+		assertEquals(7, result.getValue(1, PATTERN.getVariables()));
+		for (int computer = 1; computer <= NUMBER_OF_SLAVES; computer++) {
+			assertEquals(computer == 2, result.isKnownByComputer(computer));
+		}
+		assertEquals(2, result.getIdOfFirstComputerKnowingThisMapping());
+	}
+
+}
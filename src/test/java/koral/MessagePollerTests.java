@@ -0,0 +1,79 @@
+package koral;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.zeromq.ZContext;
+import org.zeromq.ZMQ;
+import org.zeromq.ZMQ.Socket;
+
+import de.uni_koblenz.west.koral.common.networManager.MessagePoller;
+import de.uni_koblenz.west.koral.common.networManager.NetworkContextFactory;
+
+class MessagePollerTests {
+
+	private ZContext context;
+
+	private Socket[] receivers;
+
+	private Socket[] senders;
+
+	private MessagePoller poller;
+
+	private int[] indices;
+
+	@BeforeEach
+	void setUp() {
+		context = NetworkContextFactory.getNetworkContext();
+		poller = new MessagePoller();
+		receivers = new Socket[2];
+		senders = new Socket[2];
+		indices = new int[2];
+		for (int i = 0; i < receivers.length; i++) {
+			String address = "inproc://koralMessagePollerTest" + i;
+			receivers[i] = context.createSocket(ZMQ.PULL);
+			receivers[i].bind(address);
+			senders[i] = context.createSocket(ZMQ.PUSH);
+			senders[i].connect(address);
+			indices[i] = poller.register(receivers[i]);
+		}
+	}
+
+	@AfterEach
+	void tearDown() {
+		poller.close();
+		NetworkContextFactory.destroyNetworkContext(context);
+	}
+
+	@Test
+	void timeoutTest() {
+		long start = System.currentTimeMillis();
+		assertFalse(poller.poll(50));
+		assertTrue((System.currentTimeMillis() - start) >= 40);
+	}
+
+	@Test
+	void wakeUpTest() throws InterruptedException {
+		byte[] message = new byte[] { 1, 2, 3 };
+		Thread sender = new Thread(() -> {
+			try {
+				Thread.sleep(20);
+			} catch (InterruptedException e) {
+			}
+			senders[1].send(message);
+		});
+		sender.start();
+		long start = System.currentTimeMillis();
+		assertTrue(poller.poll(10_000));
+		assertTrue((System.currentTimeMillis() - start) < 5_000);
+		assertFalse(poller.hasMessage(indices[0]));
+		assertTrue(poller.hasMessage(indices[1]));
+		assertArrayEquals(message, receivers[1].recv(ZMQ.DONTWAIT));
+		sender.join();
+	}
+
+}
@@ -0,0 +1,116 @@
+package koral;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.uni_koblenz.west.koral.common.executor.messagePassing.MessageReceiverListener;
+import de.uni_koblenz.west.koral.common.executor.messagePassing.MessageSender;
+import de.uni_koblenz.west.koral.common.executor.messagePassing.MessageSenderBuffer;
+import de.uni_koblenz.west.koral.common.query.Mapping;
+import de.uni_koblenz.west.koral.common.query.MappingRecycleCache;
+import de.uni_koblenz.west.koral.common.query.TriplePattern;
+import de.uni_koblenz.west.koral.common.query.TriplePatternType;
+import de.uni_koblenz.west.koral.common.utils.NumberConversion;
+import de.uni_koblenz.west.koral.slave.triple_store.impl.IndexType;
+
+class MessageSenderBufferTests {
+
+	private static final int NUMBER_OF_SLAVES = 2;
+
+	private static final long RECEIVER = (2L << 48) | 1;
+
+	private final MappingRecycleCache recycleCache = new MappingRecycleCache(100, NUMBER_OF_SLAVES);
+
+	private List<byte[]> sentMessages;
+
+	private MessageSender messageSender;
+
+	@BeforeEach
+	void setUp() {
+		sentMessages = new ArrayList<>();
+		messageSender = new MessageSender() {
+
+			@Override
+			public int getCurrentID() {
+				return 1;
+			}
+
+			@Override
+			public boolean send(int receiver, byte[] array) {
+				sentMessages.add(array);
+				return true;
+			}
+
+			@Override
+			public boolean sendToAllOtherSlaves(byte[] message) {
+				return true;
+			}
+
+			@Override
+			public boolean sendToAllSlaves(byte[] message) {
+				return true;
+			}
+
+		};
+	}
+
+	private void send(MessageSenderBuffer buffer, long value) {
+		byte[] triple = new byte[(3 * Long.BYTES) + 1];
+		NumberConversion.long2bytes(value, triple, 0);
+		Mapping mapping = recycleCache.createMapping(new TriplePattern(TriplePatternType._P_, 0, 1, 2),
+				IndexType.SPO, triple);
+		buffer.sendQueryMapping(mapping, (1L << 48) | 2, RECEIVER, recycleCache);
+	}
+
+	private static int getNumberOfMappings(byte[] message) {
+		int numberOfMappings = 0;
+		for (int offset = Byte.BYTES + Short.BYTES; offset < message.length; offset += NumberConversion
+				.bytes2int(message, offset + Byte.BYTES + Long.BYTES + Long.BYTES)) {
+			numberOfMappings++;
+		}
+		return numberOfMappings;
+	}
+
+	@Test
+	void lingerTimeTest() throws InterruptedException {
+		MessageSenderBuffer buffer = new MessageSenderBuffer(NUMBER_OF_SLAVES, 1000, 65536, 20, messageSender,
+				new MessageReceiverListener(null), null, null);
+		send(buffer, 1);
+		send(buffer, 2);
+		buffer.sendLingeringMessages(recycleCache);
+		assertTrue(sentMessages.isEmpty());
+		Thread.sleep(40);
+		buffer.sendLingeringMessages(recycleCache);
+		assertEquals(1, sentMessages.size());
+		assertEquals(2, getNumberOfMappings(sentMessages.get(0)));
+	}
+
+	@Test
+	void adaptiveBundleSizeTest() {
+		MessageSenderBuffer buffer = new MessageSenderBuffer(NUMBER_OF_SLAVES, 100_000, 32768, 1000,
+				messageSender, new MessageReceiverListener(null), null, null);
+		for (int i = 0; i < 20_000; i++) {
+			send(buffer, i);
+		}
+		buffer.sendAllBufferedMessages(recycleCache);
+		assertTrue(sentMessages.size() > 4);
+		int totalNumberOfMappings = 0;
+		for (int i = 0; i < sentMessages.size(); i++) {
+			byte[] message = sentMessages.get(i);
+			totalNumberOfMappings += getNumberOfMappings(message);
+			if (i < 3) {
+				// the bundles grow from 4096 bytes up to the maximum
+				assertTrue(message.length < sentMessages.get(i + 1).length);
+			}
+			assertTrue(message.length <= (32768 + 100));
+		}
+		assertEquals(20_000, totalNumberOfMappings);
+	}
+
+}
@@ -0,0 +1,113 @@
+package koral;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.uni_koblenz.west.koral.common.query.Mapping;
+import de.uni_koblenz.west.koral.common.query.MappingRecycleCache;
+import de.uni_koblenz.west.koral.common.query.TriplePattern;
+import de.uni_koblenz.west.koral.common.query.TriplePatternType;
+import de.uni_koblenz.west.koral.common.utils.NumberConversion;
+import de.uni_koblenz.west.koral.common.utils.OpenAddressingJoinMappingCache;
+import de.uni_koblenz.west.koral.slave.triple_store.impl.IndexType;
+
+class OpenAddressingJoinMappingCacheTests {
+
+	private static final long[] CACHED_VARS = { 0, 1 };
+
+	private static final long[] PROBE_VARS = { 2, 0 };
+
+	private MappingRecycleCache recycleCache;
+
+	private OpenAddressingJoinMappingCache cache;
+
+	@BeforeEach
+	void setUp() {
+		recycleCache = new MappingRecycleCache(10, 2);
+		cache = new OpenAddressingJoinMappingCache(recycleCache, CACHED_VARS, new int[] { 0, 1 }, 1);
+	}
+
+	private Mapping createMapping(long subject, long object) {
+		byte[] triple = new byte[(3 * Long.BYTES) + 1];
+		NumberConversion.long2bytes(subject, triple, 0);
+		NumberConversion.long2bytes(object, triple, 2 * Long.BYTES);
+		Mapping mapping = recycleCache.createMapping(new TriplePattern(TriplePatternType._P_, 0, 1, 2),
+				IndexType.SPO, triple);
+		mapping.updateContainment(0, 1);
+		return mapping;
+	}
+
+	private Set<Long> getCandidateObjects(long subject) {
+		Set<Long> objects = new HashSet<>();
+		Iterator<Mapping> iterator = cache.getMatchCandidates(createMapping(-17, subject), PROBE_VARS);
+		while (iterator.hasNext()) {
+			Mapping candidate = iterator.next();
+			assertEquals(subject, candidate.getValue(0, CACHED_VARS));
+			objects.add(candidate.getValue(1, CACHED_VARS));
+		}
+		return objects;
+	}
+
+	@Test
+	void emptyCacheTest() {
+		assertTrue(cache.isEmpty());
+		assertFalse(cache.getMatchCandidates(createMapping(0, 1), PROBE_VARS).hasNext());
+		assertFalse(cache.iterator().hasNext());
+	}
+
+	@Test
+	void matchCandidatesTest() {
+		for (long subject = 0; subject < 5_000; subject++) {
+			for (long object = 0; object < (subject % 4); object++) {
+				cache.add(createMapping(subject, (subject * 10) + object));
+			}
+		}
+		for (long subject = 0; subject < 5_000; subject++) {
+			Set<Long> objects = getCandidateObjects(subject);
+			assertEquals(subject % 4, objects.size());
+			for (long object = 0; object < (subject % 4); object++) {
+				assertTrue(objects.contains((subject * 10) + object));
+			}
+		}
+		assertTrue(getCandidateObjects(5_001).isEmpty());
+	}
+
+	@Test
+	void iteratorTest() {
+		int numberOfMappings = 100_000;
+		for (long i = 0; i < numberOfMappings; i++) {
+			cache.add(createMapping(i % 7, i));
+		}
+		assertEquals(numberOfMappings, cache.size());
+		long expectedObject = 0;
+		for (Mapping mapping : cache) {
+			assertEquals(expectedObject, mapping.getValue(1, CACHED_VARS));
+			assertTrue(mapping.isKnownByComputer(1));
+			expectedObject++;
+		}
+		assertEquals(numberOfMappings, expectedObject);
+	}
+
+	@Test
+	void flyweightTest() {
+		for (long object = 0; object < 3; object++) {
+			cache.add(createMapping(5, object));
+		}
+		Iterator<Mapping> iterator = cache.getMatchCandidates(createMapping(-17, 5), PROBE_VARS);
+		Mapping first = iterator.next();
+		long firstObject = first.getValue(1, CACHED_VARS);
+		Mapping second = iterator.next();
+		assertSame(first, second);
+		assertFalse(firstObject == second.getValue(1, CACHED_VARS));
+	}
+
+}
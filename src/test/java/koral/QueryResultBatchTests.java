@@ -0,0 +1,85 @@
+package koral;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.junit.jupiter.api.Test;
+
+import de.uni_koblenz.west.koral.client.QueryResultFormat;
+import de.uni_koblenz.west.koral.client.QueryResultWriter;
+import de.uni_koblenz.west.koral.common.messages.MessageType;
+import de.uni_koblenz.west.koral.common.messages.QueryResultBatch;
+
+class QueryResultBatchTests {
+
+	private static final String[] VARS = new String[] { "?s", "?o" };
+
+	private static final String[] RESOURCES = new String[] { "<http://example.org/s1>", "\"a, \\\"b\\\"\"@en",
+			"<http://example.org/s1>", "_:b1", "<http://example.org/s2>",
+			"\"42\"^^<http://www.w3.org/2001/XMLSchema#integer>" };
+
+	@Test
+	void serializationTest() {
+		byte[] batch = QueryResultBatch.serialize(RESOURCES, VARS.length, RESOURCES.length / VARS.length);
+		assertEquals(MessageType.QUERY_RESULT_BATCH, MessageType.valueOf(batch[0]));
+		assertEquals(2, QueryResultBatch.getNumberOfColumns(batch));
+		assertEquals(3, QueryResultBatch.getNumberOfRows(batch));
+		String[] resources = QueryResultBatch.deserialize(batch);
+		assertArrayEquals(RESOURCES, resources);
+		// repeated resources are transferred only once
+		assertSame(resources[0], resources[2]);
+	}
+
+	@Test
+	void emptyRowsTest() {
+		byte[] batch = QueryResultBatch.serialize(new String[0], 0, 5);
+		assertEquals(5, QueryResultBatch.getNumberOfRows(batch));
+		assertEquals(0, QueryResultBatch.deserialize(batch).length);
+	}
+
+	private String write(QueryResultFormat format) throws IOException {
+		StringWriter output = new StringWriter();
+		QueryResultWriter writer = new QueryResultWriter(output, format, VARS);
+		writer.writeHeader();
+		writer.writeRows(QueryResultBatch
+				.deserialize(QueryResultBatch.serialize(RESOURCES, VARS.length, RESOURCES.length / VARS.length)));
+		writer.writeRows(new String[] { "<http://example.org/s3>", "\"c\"" });
+		writer.writeFooter();
+		assertEquals(4, writer.getNumberOfRows());
+		return output.toString();
+	}
+
+	@Test
+	void tsvTest() throws IOException {
+		assertEquals("?s\t?o\n<http://example.org/s1>\t\"a, \\\"b\\\"\"@en\n<http://example.org/s1>\t_:b1\n"
+				+ "<http://example.org/s2>\t\"42\"^^<http://www.w3.org/2001/XMLSchema#integer>\n"
+				+ "<http://example.org/s3>\t\"c\"\n", write(QueryResultFormat.TSV));
+	}
+
+	@Test
+	void csvTest() throws IOException {
+		String csv = write(QueryResultFormat.CSV);
+		assertTrue(csv.startsWith("s,o\r\nhttp://example.org/s1,\"a, \"\"b\"\"\"\r\nhttp://example.org/s1,_:"), csv);
+		assertTrue(csv.endsWith("http://example.org/s2,42\r\nhttp://example.org/s3,c\r\n"), csv);
+	}
+
+	@Test
+	void jsonTest() throws IOException {
+		String json = write(QueryResultFormat.JSON);
+		assertTrue(json.startsWith("{\"head\":{\"vars\":[\"s\",\"o\"]},\"results\":{\"bindings\":["
+				+ "{\"s\":{\"type\":\"uri\",\"value\":\"http://example.org/s1\"},"
+				+ "\"o\":{\"type\":\"literal\",\"value\":\"a, \\\"b\\\"\",\"xml:lang\":\"en\"}},"
+				+ "{\"s\":{\"type\":\"uri\",\"value\":\"http://example.org/s1\"},\"o\":{\"type\":\"bnode\",\"value\":"),
+				json);
+		assertTrue(json.endsWith("\"o\":{\"type\":\"literal\",\"value\":\"42\","
+				+ "\"datatype\":\"http://www.w3.org/2001/XMLSchema#integer\"}},"
+				+ "{\"s\":{\"type\":\"uri\",\"value\":\"http://example.org/s3\"},"
+				+ "\"o\":{\"type\":\"literal\",\"value\":\"c\"}}]}}\n"), json);
+	}
+
+}
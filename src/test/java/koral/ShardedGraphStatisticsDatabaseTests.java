@@ -0,0 +1,171 @@
+package koral;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.uni_koblenz.west.koral.common.io.EncodedFileOutputStream;
+import de.uni_koblenz.west.koral.common.io.EncodingFileFormat;
+import de.uni_koblenz.west.koral.common.io.Statement;
+import de.uni_koblenz.west.koral.common.utils.NumberConversion;
+import de.uni_koblenz.west.koral.master.statisticsDB.GraphStatistics;
+import de.uni_koblenz.west.koral.master.statisticsDB.impl.multi_file.FileManager;
+import de.uni_koblenz.west.koral.master.statisticsDB.impl.multi_file.ShardedGraphStatisticsDatabase;
+
+class ShardedGraphStatisticsDatabaseTests {
+
+	private static final short NUMBER_OF_CHUNKS = 4;
+
+	private static final int NUMBER_OF_RESOURCES = 1000;
+
+	private File statisticsDir;
+
+	/**
+	 * resource id - 1, column
+	 */
+	private AtomicLongArray[] expected;
+
+	@BeforeEach
+	void setUp() {
+		statisticsDir = new File(System.getProperty("java.io.tmpdir") + File.separator + "koralShardedStatisticsTest"
+				+ System.nanoTime());
+		expected = new AtomicLongArray[NUMBER_OF_RESOURCES];
+		for (int i = 0; i < NUMBER_OF_RESOURCES; i++) {
+			expected[i] = new AtomicLongArray(3 * NUMBER_OF_CHUNKS);
+		}
+	}
+
+	@AfterEach
+	void tearDown() {
+		delete(statisticsDir);
+	}
+
+	private static void delete(File file) {
+		if (file.isDirectory()) {
+			for (File child : file.listFiles()) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+	private ShardedGraphStatisticsDatabase openDatabase(int numberOfShards) {
+		// a small shard range and small caches so that several ranges per shard and extra files are used
+		return new ShardedGraphStatisticsDatabase(statisticsDir.getAbsolutePath(), numberOfShards, 16,
+				NUMBER_OF_CHUNKS, 8, FileManager.DEFAULT_BLOCK_SIZE, true, 64 * 1024, 64 * 1024,
+				FileManager.DEFAULT_RECYCLER_CAPACITY, FileManager.DEFAULT_MAX_OPEN_FILES,
+				FileManager.DEFAULT_HABSE_ACCESSES_WEIGHT, FileManager.DEFAULT_HABSE_HISTORY_LENGTH, null);
+	}
+
+	private void assertStatistics(ShardedGraphStatisticsDatabase database) {
+		assertEquals(NUMBER_OF_RESOURCES, database.getMaxId());
+		for (int i = 0; i < NUMBER_OF_RESOURCES; i++) {
+			long[] expectedRow = new long[3 * NUMBER_OF_CHUNKS];
+			for (int j = 0; j < expectedRow.length; j++) {
+				expectedRow[j] = expected[i].get(j);
+			}
+			long[] row = database.getStatisticsForResource(i + 1);
+			assertArrayEquals(expectedRow, row, "resource " + (i + 1));
+		}
+	}
+
+	@Test
+	void concurrentIncrementsTest() throws InterruptedException {
+		ShardedGraphStatisticsDatabase shardedDatabase = openDatabase(3);
+		assertEquals(3, shardedDatabase.getNumberOfShards());
+		List<Thread> threads = new ArrayList<>();
+		long[] chunkSizes = new long[NUMBER_OF_CHUNKS];
+		for (int t = 0; t < 4; t++) {
+			Random random = new Random(t);
+			threads.add(new Thread(() -> {
+				for (int i = 0; i < 20_000; i++) {
+					// skewed, so that some resources need extra files
+					long resource = i < NUMBER_OF_RESOURCES ? i + 1 : 1 + (long) Math.abs(random.nextGaussian() * 30);
+					if (resource > NUMBER_OF_RESOURCES) {
+						resource = NUMBER_OF_RESOURCES;
+					}
+					int chunk = random.nextInt(NUMBER_OF_CHUNKS);
+					int position = random.nextInt(3);
+					switch (position) {
+						case 0:
+							shardedDatabase.incrementSubjectCount(resource, chunk);
+							break;
+						case 1:
+							shardedDatabase.incrementPropertyCount(resource, chunk);
+							break;
+						default:
+							shardedDatabase.incrementObjectCount(resource, chunk);
+					}
+					shardedDatabase.incrementNumberOfTriplesPerChunk(chunk);
+					expected[(int) resource - 1].incrementAndGet((position * NUMBER_OF_CHUNKS) + chunk);
+				}
+			}));
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		for (AtomicLongArray row : expected) {
+			for (int j = 0; j < row.length(); j++) {
+				chunkSizes[j % NUMBER_OF_CHUNKS] += row.get(j);
+			}
+		}
+		assertStatistics(shardedDatabase);
+		assertArrayEquals(chunkSizes, shardedDatabase.getChunkSizes());
+		shardedDatabase.close();
+
+		// the number of shards of an existing database is kept
+		ShardedGraphStatisticsDatabase database = openDatabase(5);
+		assertEquals(3, database.getNumberOfShards());
+		assertStatistics(database);
+		assertArrayEquals(chunkSizes, database.getChunkSizes());
+		database.close();
+	}
+
+	@Test
+	void parallelCollectionTest() throws IOException {
+		File workingDir = new File(statisticsDir, "chunks");
+		workingDir.mkdirs();
+		File[] chunks = new File[NUMBER_OF_CHUNKS];
+		long[] chunkSizes = new long[NUMBER_OF_CHUNKS];
+		Random random = new Random(42);
+		for (int chunk = 0; chunk < NUMBER_OF_CHUNKS; chunk++) {
+			chunks[chunk] = new File(workingDir, "chunk" + chunk + ".enc.gz");
+			try (EncodedFileOutputStream out = new EncodedFileOutputStream(chunks[chunk])) {
+				for (int i = 0; i < 5000; i++) {
+					long[] triple = new long[] { 1 + random.nextInt(NUMBER_OF_RESOURCES),
+							1 + random.nextInt(NUMBER_OF_RESOURCES), 1 + random.nextInt(NUMBER_OF_RESOURCES) };
+					if (i < NUMBER_OF_RESOURCES) {
+						triple[0] = i + 1;
+					}
+					for (int position = 0; position < 3; position++) {
+						expected[(int) triple[position] - 1].incrementAndGet((position * NUMBER_OF_CHUNKS) + chunk);
+					}
+					chunkSizes[chunk]++;
+					out.writeStatement(Statement.getStatement(EncodingFileFormat.EEE,
+							NumberConversion.long2bytes(triple[0]), NumberConversion.long2bytes(triple[1]),
+							NumberConversion.long2bytes(triple[2]), new byte[1]));
+				}
+			}
+		}
+		ShardedGraphStatisticsDatabase database = openDatabase(2);
+		try (GraphStatistics statistics = new GraphStatistics(database, NUMBER_OF_CHUNKS, null)) {
+			statistics.collectStatistics(chunks);
+			assertArrayEquals(chunkSizes, statistics.getChunkSizes());
+			assertStatistics(database);
+		}
+	}
+
+}
@@ -0,0 +1,156 @@
+package koral;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.uni_koblenz.west.koral.common.executor.messagePassing.MessageReceiverListener;
+import de.uni_koblenz.west.koral.common.executor.messagePassing.MessageSender;
+import de.uni_koblenz.west.koral.common.executor.messagePassing.MessageSenderBuffer;
+import de.uni_koblenz.west.koral.common.messages.MessageType;
+import de.uni_koblenz.west.koral.common.query.Mapping;
+import de.uni_koblenz.west.koral.common.query.MappingRecycleCache;
+import de.uni_koblenz.west.koral.common.query.TriplePattern;
+import de.uni_koblenz.west.koral.common.query.TriplePatternType;
+import de.uni_koblenz.west.koral.common.query.execution.operators.SliceOperator;
+import de.uni_koblenz.west.koral.common.query.execution.operators.TriplePatternMatchOperator;
+import de.uni_koblenz.west.koral.common.utils.NumberConversion;
+import de.uni_koblenz.west.koral.slave.triple_store.impl.IndexType;
+
+class SliceOperatorTests {
+
+	private static final int NUMBER_OF_SLAVES = 2;
+
+	private static final TriplePattern PATTERN = new TriplePattern(TriplePatternType._P_, 0, 100, 1);
+
+	private File cacheDirectory;
+
+	private MappingRecycleCache recycleCache;
+
+	private List<byte[]> messagesToCoordinator;
+
+	private MessageSenderBuffer messageSender;
+
+	private TriplePatternMatchOperator child;
+
+	@BeforeEach
+	void setUp() {
+		cacheDirectory = new File(
+				System.getProperty("java.io.tmpdir") + File.separator + "koralSliceTest" + System.nanoTime());
+		recycleCache = new MappingRecycleCache(100, NUMBER_OF_SLAVES);
+		messagesToCoordinator = new ArrayList<>();
+		messageSender = new MessageSenderBuffer(NUMBER_OF_SLAVES, 10, new MessageSender() {
+
+			@Override
+			public int getCurrentID() {
+				return 1;
+			}
+
+			@Override
+			public boolean send(int receiver, byte[] array) {
+				if (receiver == 0) {
+					messagesToCoordinator.add(array);
+				}
+				return true;
+			}
+
+			@Override
+			public boolean sendToAllOtherSlaves(byte[] message) {
+				return true;
+			}
+
+			@Override
+			public boolean sendToAllSlaves(byte[] message) {
+				return true;
+			}
+
+		}, new MessageReceiverListener(null), null, null);
+		child = new TriplePatternMatchOperator((short) 1, 0, (short) 0, 0, NUMBER_OF_SLAVES, 10, cacheDirectory,
+				PATTERN, 10, null);
+	}
+
+	@AfterEach
+	void tearDown() {
+		child.close();
+		cacheDirectory.delete();
+	}
+
+	private SliceOperator createSlice(long offset, long length) {
+		SliceOperator slice = new SliceOperator((short) 1, 0, (short) 1, 0, NUMBER_OF_SLAVES, 10, cacheDirectory,
+				10, child, offset, length);
+		child.setParentTask(slice);
+		child.setUp(messageSender, recycleCache, null, null);
+		slice.setUp(messageSender, recycleCache, null, null);
+		slice.start();
+		return slice;
+	}
+
+	private void sendMappings(SliceOperator slice, int numberOfMappings) {
+		for (int i = 0; i < numberOfMappings; i++) {
+			byte[] triple = new byte[(3 * Long.BYTES) + 1];
+			NumberConversion.long2bytes(i, triple, 0);
+			Mapping mapping = recycleCache.createMapping(PATTERN, IndexType.SPO, triple);
+			slice.enqueueMessage(child.getID(), mapping.getByteArray(), mapping.getFirstIndexOfMappingInByteArray(),
+					mapping.getLengthOfMappingInByteArray());
+			recycleCache.releaseMapping(mapping);
+		}
+	}
+
+	private int countForwardedMappings() {
+		messageSender.sendAllBufferedMessages(recycleCache);
+		int numberOfMappings = 0;
+		for (byte[] message : messagesToCoordinator) {
+			if (message[0] != MessageType.QUERY_MAPPING_BATCH.getValue()) {
+				continue;
+			}
+			for (int offset = Byte.BYTES + Short.BYTES; offset < message.length; offset += NumberConversion
+					.bytes2int(message, offset + Byte.BYTES + Long.BYTES + Long.BYTES)) {
+				numberOfMappings++;
+			}
+		}
+		return numberOfMappings;
+	}
+
+	@Test
+	void localLimitTest() {
+		SliceOperator slice = createSlice(2, 3);
+		assertEquals(5, slice.getLocalLimit());
+		sendMappings(slice, 20);
+		for (int i = 0; (i < 100) && slice.hasInput(); i++) {
+			slice.execute();
+		}
+		assertEquals(5, countForwardedMappings());
+		slice.close();
+	}
+
+	@Test
+	void unlimitedTest() {
+		SliceOperator slice = createSlice(2, -1);
+		assertEquals(-1, slice.getLocalLimit());
+		sendMappings(slice, 20);
+		for (int i = 0; (i < 100) && slice.hasInput(); i++) {
+			slice.execute();
+		}
+		assertEquals(20, countForwardedMappings());
+		slice.close();
+	}
+
+	@Test
+	void stoppedTest() {
+		SliceOperator slice = createSlice(0, -1);
+		sendMappings(slice, 20);
+		slice.stop();
+		slice.execute();
+		assertFalse(slice.hasInput());
+		assertEquals(0, countForwardedMappings());
+		slice.close();
+	}
+
+}
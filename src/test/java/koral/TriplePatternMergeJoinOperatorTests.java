@@ -0,0 +1,246 @@
+package koral;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.uni_koblenz.west.koral.common.executor.messagePassing.MessageReceiverListener;
+import de.uni_koblenz.west.koral.common.executor.messagePassing.MessageSender;
+import de.uni_koblenz.west.koral.common.executor.messagePassing.MessageSenderBuffer;
+import de.uni_koblenz.west.koral.common.messages.MessageType;
+import de.uni_koblenz.west.koral.common.query.Mapping;
+import de.uni_koblenz.west.koral.common.query.MappingRecycleCache;
+import de.uni_koblenz.west.koral.common.query.TriplePattern;
+import de.uni_koblenz.west.koral.common.query.TriplePatternType;
+import de.uni_koblenz.west.koral.common.query.execution.operators.TriplePatternMatchOperator;
+import de.uni_koblenz.west.koral.common.query.execution.operators.TriplePatternMergeJoinOperator;
+import de.uni_koblenz.west.koral.common.utils.NumberConversion;
+import de.uni_koblenz.west.koral.slave.triple_store.impl.IndexType;
+
+class TriplePatternMergeJoinOperatorTests {
+
+	private static final int NUMBER_OF_SLAVES = 2;
+
+	/**
+	 * ?1 &lt;100&gt; ?0
+	 */
+	private static final TriplePattern LEFT_PATTERN = new TriplePattern(TriplePatternType._P_, 1, 100, 0);
+
+	/**
+	 * ?2 &lt;101&gt; ?0
+	 */
+	private static final TriplePattern RIGHT_PATTERN = new TriplePattern(TriplePatternType._P_, 2, 101, 0);
+
+	private File cacheDirectory;
+
+	private MappingRecycleCache recycleCache;
+
+	private List<byte[]> messagesToCoordinator;
+
+	private MessageSenderBuffer messageSender;
+
+	private TriplePatternMatchOperator[] children;
+
+	private TriplePatternMergeJoinOperator join;
+
+	@BeforeEach
+	void setUp() {
+		cacheDirectory = new File(System.getProperty("java.io.tmpdir") + File.separator
+				+ "koralMergeJoinTest" + System.nanoTime());
+		recycleCache = new MappingRecycleCache(100, NUMBER_OF_SLAVES);
+		messagesToCoordinator = new ArrayList<>();
+		messageSender = new MessageSenderBuffer(NUMBER_OF_SLAVES, 10, new MessageSender() {
+
+			@Override
+			public int getCurrentID() {
+				return 1;
+			}
+
+			@Override
+			public boolean send(int receiver, byte[] array) {
+				if (receiver == 0) {
+					messagesToCoordinator.add(array);
+				}
+				return true;
+			}
+
+			@Override
+			public boolean sendToAllOtherSlaves(byte[] message) {
+				return true;
+			}
+
+			@Override
+			public boolean sendToAllSlaves(byte[] message) {
+				return true;
+			}
+
+		}, new MessageReceiverListener(null), null, null);
+		children = new TriplePatternMatchOperator[] {
+				new TriplePatternMatchOperator((short) 1, 0, (short) 0, 0, NUMBER_OF_SLAVES, 10, cacheDirectory,
+						LEFT_PATTERN, 10, null),
+				new TriplePatternMatchOperator((short) 1, 0, (short) 1, 0, NUMBER_OF_SLAVES, 10, cacheDirectory,
+						RIGHT_PATTERN, 10, null) };
+		assertEquals(0, children[0].getSortVariable());
+		assertEquals(0, children[1].getSortVariable());
+		join = new TriplePatternMergeJoinOperator((short) 1, 0, (short) 2, 0, NUMBER_OF_SLAVES, 10, cacheDirectory,
+				10, children[0], children[1], 0);
+		for (TriplePatternMatchOperator child : children) {
+			child.setParentTask(join);
+			child.setUp(messageSender, recycleCache, null, null);
+			child.start();
+		}
+		join.setUp(messageSender, recycleCache, null, null);
+		join.start();
+	}
+
+	@AfterEach
+	void tearDown() {
+		join.close();
+		for (TriplePatternMatchOperator child : children) {
+			child.close();
+		}
+		cacheDirectory.delete();
+	}
+
+	/**
+	 * @return the sorted mappings (object, subject) the instance of a child on
+	 *         one computer emits
+	 */
+	private static List<long[]> createStream(Random random) {
+		List<long[]> stream = new ArrayList<>();
+		int size = random.nextInt(200);
+		for (int i = 0; i < size; i++) {
+			long object = random.nextInt(50);
+			if (random.nextBoolean()) {
+				// values with the highest bit set are sorted after all others
+				object |= 0x80_00_00_00_00_00_00_00L;
+			}
+			stream.add(new long[] { object, random.nextInt(1000) });
+		}
+		Collections.sort(stream, (m1, m2) -> Long.compareUnsigned(m1[0], m2[0]));
+		return stream;
+	}
+
+	private void sendMapping(int child, int computer, long[] values) {
+		byte[] triple = new byte[(3 * Long.BYTES) + 1];
+		NumberConversion.long2bytes(values[1], triple, 0);
+		NumberConversion.long2bytes(values[0], triple, 2 * Long.BYTES);
+		Mapping mapping = recycleCache.createMapping(child == 0 ? LEFT_PATTERN : RIGHT_PATTERN, IndexType.SPO,
+				triple);
+		long sender = (((long) computer) << 48) | (children[child].getID() & 0x00_00_ff_ff_ff_ff_ff_ffL);
+		join.enqueueMessage(sender, mapping.getByteArray(), mapping.getFirstIndexOfMappingInByteArray(),
+				mapping.getLengthOfMappingInByteArray());
+		recycleCache.releaseMapping(mapping);
+	}
+
+	private void finish(int child, int computer) {
+		if (computer == 1) {
+			children[child].execute();
+		} else {
+			byte[] message = ByteBuffer.allocate(Byte.BYTES + Short.BYTES + Long.BYTES)
+					.put(MessageType.QUERY_TASK_FINISHED.getValue()).putShort((short) computer)
+					.putLong(children[child].getID()).array();
+			children[child].enqueueMessage(((long) computer) << 48, message, 0, message.length);
+		}
+	}
+
+	private Map<String, Integer> collectResults() {
+		Map<String, Integer> results = new HashMap<>();
+		for (byte[] message : messagesToCoordinator) {
+			if (message[0] != MessageType.QUERY_MAPPING_BATCH.getValue()) {
+				continue;
+			}
+			for (int offset = Byte.BYTES + Short.BYTES; offset < message.length; offset += NumberConversion
+					.bytes2int(message, offset + Byte.BYTES + Long.BYTES + Long.BYTES)) {
+				// result variables are 0, 1, 2
+				int first = offset + Mapping.getHeaderSize();
+				String result = NumberConversion.bytes2long(message, first) + ","
+						+ NumberConversion.bytes2long(message, first + Long.BYTES) + ","
+						+ NumberConversion.bytes2long(message, first + (2 * Long.BYTES));
+				results.merge(result, 1, Integer::sum);
+			}
+		}
+		return results;
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void interleavedStreamsTest() {
+		Random random = new Random(13);
+		// child,computer
+		List<long[]>[][] streams = new List[2][NUMBER_OF_SLAVES + 1];
+		int[][] nextIndex = new int[2][NUMBER_OF_SLAVES + 1];
+		List<int[]> openStreams = new ArrayList<>();
+		for (int child = 0; child < 2; child++) {
+			for (int computer = 1; computer <= NUMBER_OF_SLAVES; computer++) {
+				streams[child][computer] = createStream(random);
+				openStreams.add(new int[] { child, computer });
+			}
+		}
+
+		Map<String, Integer> expected = new HashMap<>();
+		for (int leftComputer = 1; leftComputer <= NUMBER_OF_SLAVES; leftComputer++) {
+			for (long[] left : streams[0][leftComputer]) {
+				for (int rightComputer = 1; rightComputer <= NUMBER_OF_SLAVES; rightComputer++) {
+					for (long[] right : streams[1][rightComputer]) {
+						if (left[0] == right[0]) {
+							expected.merge(left[0] + "," + left[1] + "," + right[1], 1, Integer::sum);
+						}
+					}
+				}
+			}
+		}
+		assertFalse(expected.isEmpty());
+
+		// deliver the mappings interleaved
+		while (!openStreams.isEmpty()) {
+			int[] stream = openStreams.get(random.nextInt(openStreams.size()));
+			int child = stream[0];
+			int computer = stream[1];
+			if (nextIndex[child][computer] < streams[child][computer].size()) {
+				sendMapping(child, computer, streams[child][computer].get(nextIndex[child][computer]++));
+			} else {
+				finish(child, computer);
+				openStreams.remove(stream);
+			}
+			if (random.nextInt(10) == 0) {
+				join.execute();
+			}
+		}
+		for (TriplePatternMatchOperator child : children) {
+			child.execute();
+			assertTrue(child.isInFinalState());
+		}
+		for (int i = 0; (i < 100_000) && !join.hasFinishedOnComputer(1); i++) {
+			join.execute();
+		}
+		assertTrue(join.hasFinishedOnComputer(1));
+		assertFalse(join.hasInput());
+		assertEquals(expected, collectResults());
+	}
+
+	@Test
+	void finishNotificationUnblocksTest() {
+		sendMapping(0, 1, new long[] { 1, 10 });
+		sendMapping(1, 1, new long[] { 1, 20 });
+		join.execute();
+		// the mappings of the right child on computer 2 are missing
+		assertFalse(join.hasInput());
+		finish(1, 2);
+		assertTrue(join.hasInput());
+	}
+
+}
@@ -0,0 +1,230 @@
+package koral;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.uni_koblenz.west.koral.common.io.EncodingFileFormat;
+import de.uni_koblenz.west.koral.common.io.Statement;
+import de.uni_koblenz.west.koral.common.mapDB.MapDBCacheOptions;
+import de.uni_koblenz.west.koral.common.mapDB.MapDBStorageOptions;
+import de.uni_koblenz.west.koral.common.query.Mapping;
+import de.uni_koblenz.west.koral.common.query.MappingRecycleCache;
+import de.uni_koblenz.west.koral.common.query.TriplePattern;
+import de.uni_koblenz.west.koral.common.query.TriplePatternType;
+import de.uni_koblenz.west.koral.common.utils.NumberConversion;
+import de.uni_koblenz.west.koral.slave.triple_store.impl.IndexType;
+import de.uni_koblenz.west.koral.slave.triple_store.impl.TripleStore;
+
+class TripleStoreTests {
+
+	private File storeDirectory;
+
+	private TripleStore tripleStore;
+
+	private MappingRecycleCache recycleCache;
+
+	@BeforeEach
+	void setUp() {
+		storeDirectory = new File(System.getProperty("java.io.tmpdir") + File.separator + "koralTripleStoreTest"
+				+ System.nanoTime());
+		tripleStore = new TripleStore(MapDBStorageOptions.MEMORY, storeDirectory.getAbsolutePath(), false, false,
+				MapDBCacheOptions.NONE, EnumSet.of(IndexType.PSO, IndexType.SOP, IndexType.OPS));
+		recycleCache = new MappingRecycleCache(100, 1);
+		Random random = new Random(7);
+		for (int i = 0; i < 500; i++) {
+			tripleStore.storeTriple(random.nextInt(20), 100 + random.nextInt(3), random.nextInt(20),
+					new byte[] { 1 });
+		}
+		tripleStore.flush();
+	}
+
+	@AfterEach
+	void tearDown() {
+		tripleStore.close();
+		delete(storeDirectory);
+	}
+
+	private static void delete(File file) {
+		if (file.isDirectory()) {
+			for (File child : file.listFiles()) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+	private List<String> lookup(TriplePattern pattern, IndexType index) {
+		List<String> matches = new ArrayList<>();
+		for (Mapping mapping : tripleStore.lookup(recycleCache, pattern, index)) {
+			StringBuilder sb = new StringBuilder();
+			for (long var : pattern.getVariables()) {
+				sb.append(mapping.getValue(var, pattern.getVariables())).append(",");
+			}
+			matches.add(sb.toString());
+			recycleCache.releaseMapping(mapping);
+		}
+		return matches;
+	}
+
+	private List<Long> lookupSortValues(TriplePattern pattern, IndexType index) {
+		long sortVar = index.getSortVariable(pattern);
+		List<Long> values = new ArrayList<>();
+		for (Mapping mapping : tripleStore.lookup(recycleCache, pattern, index)) {
+			values.add(mapping.getValue(sortVar, pattern.getVariables()));
+			recycleCache.releaseMapping(mapping);
+		}
+		return values;
+	}
+
+	private static void assertSorted(List<Long> values) {
+		for (int i = 1; i < values.size(); i++) {
+			assertTrue(Long.compareUnsigned(values.get(i - 1), values.get(i)) <= 0);
+		}
+	}
+
+	@Test
+	void canAnswerTest() {
+		assertTrue(IndexType.PSO.canAnswer(TriplePatternType._P_));
+		assertTrue(IndexType.PSO.canAnswer(TriplePatternType.SP_));
+		assertTrue(IndexType.PSO.canAnswer(TriplePatternType.___));
+		assertFalse(IndexType.PSO.canAnswer(TriplePatternType.S__));
+		assertFalse(IndexType.PSO.canAnswer(TriplePatternType._PO));
+		assertTrue(IndexType.SOP.canAnswer(TriplePatternType.S_O));
+		assertFalse(IndexType.OPS.canAnswer(TriplePatternType.S_O));
+		TriplePattern pattern = new TriplePattern(TriplePatternType._P_, 0, 100, 2);
+		assertEquals(0, IndexType.PSO.getSortVariable(pattern));
+		assertEquals(2, IndexType.POS.getSortVariable(pattern));
+		assertEquals(-1, IndexType.SPO.getSortVariable(new TriplePattern(TriplePatternType.SPO, 1, 100, 2)));
+	}
+
+	@Test
+	void additionalIndicesTest() {
+		TriplePattern[] patterns = new TriplePattern[] { new TriplePattern(TriplePatternType._P_, 0, 101, 2),
+				new TriplePattern(TriplePatternType.S__, 3, 1, 2), new TriplePattern(TriplePatternType.__O, 0, 1, 5),
+				new TriplePattern(TriplePatternType.S_O, 3, 1, 5), new TriplePattern(TriplePatternType.___, 0, 1, 2) };
+		for (TriplePattern pattern : patterns) {
+			List<String> expected = lookup(pattern, null);
+			assertFalse(expected.isEmpty());
+			for (IndexType index : IndexType.values()) {
+				if (index.canAnswer(pattern.getType())) {
+					assertEquals(new HashSet<>(expected), new HashSet<>(lookup(pattern, index)));
+					assertEquals(expected.size(), lookup(pattern, index).size());
+					assertSorted(lookupSortValues(pattern, index));
+				}
+			}
+		}
+	}
+
+	private static Iterable<Statement> toStatements(List<long[]> triples) {
+		return () -> new Iterator<Statement>() {
+
+			private int next;
+
+			@Override
+			public boolean hasNext() {
+				return next < triples.size();
+			}
+
+			@Override
+			public Statement next() {
+				long[] triple = triples.get(next++);
+				return Statement.getStatement(EncodingFileFormat.EEE, NumberConversion.long2bytes(triple[0]),
+						NumberConversion.long2bytes(triple[1]), NumberConversion.long2bytes(triple[2]),
+						new byte[] { (byte) triple[3] });
+			}
+
+		};
+	}
+
+	private static List<String> lookupAll(TripleStore store, TriplePattern pattern, MappingRecycleCache cache) {
+		List<String> matches = new ArrayList<>();
+		for (Mapping mapping : store.lookup(cache, pattern, null)) {
+			StringBuilder sb = new StringBuilder();
+			for (long var : pattern.getVariables()) {
+				sb.append(mapping.getValue(var, pattern.getVariables())).append(",");
+			}
+			sb.append(mapping.getIdOfFirstComputerKnowingThisMapping());
+			matches.add(sb.toString());
+			cache.releaseMapping(mapping);
+		}
+		return matches;
+	}
+
+	@Test
+	void bulkLoadingTest() {
+		Random random = new Random(11);
+		List<long[]> triples = new ArrayList<>();
+		for (int i = 0; i < 2000; i++) {
+			// contains duplicates and values with the highest bit set
+			long subject = random.nextInt(30) | (random.nextBoolean() ? 0x80_00_00_00_00_00_00_00L : 0);
+			triples.add(new long[] { subject, 100 + random.nextInt(3), random.nextInt(30), 1 + random.nextInt(2) });
+		}
+		for (int runSize : new int[] { 5000, 128 }) {
+			File dir = new File(storeDirectory, "run" + runSize);
+			TripleStore expectedStore = new TripleStore(new File(dir, "expected").getAbsolutePath(),
+					EnumSet.of(IndexType.PSO));
+			TripleStore bulkStore = new TripleStore(new File(dir, "bulk").getAbsolutePath(),
+					EnumSet.of(IndexType.PSO), runSize);
+			try {
+				List<long[]> firstHalf = triples.subList(0, triples.size() / 2);
+				List<long[]> secondHalf = triples.subList(triples.size() / 2, triples.size());
+				assertEquals(triples.size(), expectedStore.storeTriples(toStatements(triples)));
+				// the second bulk load is ingested into a non-empty store
+				assertEquals(firstHalf.size(), bulkStore.storeTriples(toStatements(firstHalf)));
+				assertEquals(secondHalf.size(), bulkStore.storeTriples(toStatements(secondHalf)));
+				for (TriplePattern pattern : new TriplePattern[] { new TriplePattern(TriplePatternType.___, 0, 1, 2),
+						new TriplePattern(TriplePatternType._P_, 0, 101, 2),
+						new TriplePattern(TriplePatternType.__O, 0, 1, 7) }) {
+					List<String> expected = lookupAll(expectedStore, pattern, recycleCache);
+					assertFalse(expected.isEmpty());
+					assertEquals(expected, lookupAll(bulkStore, pattern, recycleCache));
+				}
+			} finally {
+				expectedStore.close();
+				bulkStore.close();
+			}
+		}
+	}
+
+	@Test
+	void unavailableIndexTest() {
+		TripleStore defaultStore = new TripleStore(MapDBStorageOptions.MEMORY,
+				storeDirectory.getAbsolutePath() + File.separator + "default", false, false, MapDBCacheOptions.NONE);
+		try {
+			defaultStore.storeTriple(1, 100, 3, new byte[] { 1 });
+			TriplePattern pattern = new TriplePattern(TriplePatternType.S_O, 1, 0, 3);
+			// SOP is not stored, so the requested order cannot be provided
+			assertThrows(IllegalArgumentException.class, () -> defaultStore.lookup(recycleCache, pattern, IndexType.SOP));
+			assertThrows(IllegalArgumentException.class,
+					() -> tripleStore.lookup(recycleCache, new TriplePattern(TriplePatternType._PO, 0, 100, 3), IndexType.SOP));
+		} finally {
+			defaultStore.close();
+		}
+	}
+
+	@Test
+	void unpopulatedIndexTest() {
+		String dir = new File(storeDirectory, "unpopulated").getAbsolutePath();
+		TripleStore defaultStore = new TripleStore(dir);
+		defaultStore.storeTriple(1, 100, 3, new byte[] { 1 });
+		defaultStore.close();
+		// an index that is configured after loading is empty
+		assertThrows(IllegalStateException.class, () -> new TripleStore(dir, EnumSet.of(IndexType.SOP)));
+		new TripleStore(dir).close();
+	}
+
+}
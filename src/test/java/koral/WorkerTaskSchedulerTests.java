@@ -0,0 +1,277 @@
+package koral;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.uni_koblenz.west.koral.common.executor.WorkerTask;
+import de.uni_koblenz.west.koral.common.executor.WorkerTaskScheduler;
+import de.uni_koblenz.west.koral.common.executor.WorkerThread;
+import de.uni_koblenz.west.koral.common.executor.messagePassing.MessageReceiverListener;
+import de.uni_koblenz.west.koral.common.executor.messagePassing.MessageSenderBuffer;
+import de.uni_koblenz.west.koral.common.measurement.MeasurementCollector;
+import de.uni_koblenz.west.koral.common.query.MappingRecycleCache;
+
+class WorkerTaskSchedulerTests {
+
+	private static final int NUMBER_OF_WORKERS = 4;
+
+	private WorkerTaskScheduler scheduler;
+
+	private WorkerThread[] workers;
+
+	@BeforeEach
+	void setUp() {
+		createWorkers(NUMBER_OF_WORKERS);
+	}
+
+	private void createWorkers(int workersPerGroup) {
+		if (workers != null) {
+			tearDown();
+		}
+		scheduler = new WorkerTaskScheduler(NUMBER_OF_WORKERS, workersPerGroup);
+		MessageReceiverListener receiver = new MessageReceiverListener(null);
+		receiver.setScheduler(scheduler);
+		MessageSenderBuffer messageSender = new MessageSenderBuffer(1, 10, null, receiver, null, null);
+		workers = new WorkerThread[NUMBER_OF_WORKERS];
+		for (int i = 0; i < NUMBER_OF_WORKERS; i++) {
+			workers[i] = new WorkerThread(i, 10, scheduler, receiver, messageSender, 1, null, null);
+		}
+		for (WorkerThread worker : workers) {
+			worker.start();
+		}
+	}
+
+	@AfterEach
+	void tearDown() {
+		for (WorkerThread worker : workers) {
+			worker.close();
+		}
+	}
+
+	private static void waitUntilFinished(CountingTask... tasks) throws InterruptedException {
+		long timeout = System.currentTimeMillis() + 10_000;
+		for (CountingTask task : tasks) {
+			while (!task.isInFinalState() && (System.currentTimeMillis() < timeout)) {
+				Thread.sleep(1);
+			}
+		}
+	}
+
+	@Test
+	void stealingTest() throws InterruptedException {
+		CountingTask[] tasks = new CountingTask[20];
+		for (int i = 0; i < tasks.length; i++) {
+			tasks[i] = new CountingTask(i, 50);
+			// all tasks are assigned to the first worker
+			workers[0].addWorkerTask(tasks[i]);
+		}
+		waitUntilFinished(tasks);
+		Set<String> executingThreads = ConcurrentHashMap.newKeySet();
+		for (CountingTask task : tasks) {
+			assertTrue(task.isInFinalState());
+			assertEquals(50, task.executions.get());
+			assertFalse(task.wasExecutedConcurrently.get());
+			executingThreads.addAll(task.executingThreads);
+		}
+		assertTrue(executingThreads.size() > 1);
+	}
+
+	@Test
+	void stealingWithinGroupTest() throws InterruptedException {
+		createWorkers(2);
+		assertEquals(2, scheduler.getNumberOfGroups());
+		CountingTask[] tasks = new CountingTask[20];
+		for (int i = 0; i < tasks.length; i++) {
+			tasks[i] = new CountingTask(i, 20);
+			workers[2].addWorkerTask(tasks[i]);
+		}
+		waitUntilFinished(tasks);
+		Set<String> executingThreads = ConcurrentHashMap.newKeySet();
+		for (CountingTask task : tasks) {
+			assertTrue(task.isInFinalState());
+			assertFalse(task.wasExecutedConcurrently.get());
+			executingThreads.addAll(task.executingThreads);
+		}
+		assertTrue(executingThreads.contains(workers[2].getName()));
+		assertTrue(executingThreads.contains(workers[3].getName()));
+		assertEquals(2, executingThreads.size());
+	}
+
+	@Test
+	void messageTriggersExecutionTest() throws InterruptedException {
+		CountingTask task = new CountingTask(0, 3);
+		task.pendingInput.set(0);
+		workers[1].addWorkerTask(task);
+		Thread.sleep(50);
+		assertEquals(0, task.executions.get());
+		for (int i = 0; i < 3; i++) {
+			task.enqueueMessage(0, new byte[0], 0, 0);
+			scheduler.schedule(task);
+		}
+		waitUntilFinished(task);
+		assertTrue(task.isInFinalState());
+		assertEquals(3, task.executions.get());
+	}
+
+	@Test
+	void abortionTest() throws InterruptedException {
+		CountingTask[] tasks = new CountingTask[8];
+		for (int i = 0; i < tasks.length; i++) {
+			tasks[i] = new CountingTask(i, Integer.MAX_VALUE);
+			workers[0].addWorkerTask(tasks[i]);
+		}
+		Thread.sleep(20);
+		// the tasks of query 0 are executed by all workers
+		workers[0].abortQuery(new byte[] { 0, 0, 0, 0, 0 });
+		long timeout = System.currentTimeMillis() + 10_000;
+		for (CountingTask task : tasks) {
+			while (!task.isClosed.get() && (System.currentTimeMillis() < timeout)) {
+				Thread.sleep(1);
+			}
+		}
+		for (CountingTask task : tasks) {
+			assertTrue(task.isClosed.get());
+			assertFalse(task.wasClosedWhileRunning.get());
+			assertFalse(task.wasExecutedConcurrently.get());
+		}
+		int executions = 0;
+		for (CountingTask task : tasks) {
+			executions += task.executions.get();
+		}
+		Thread.sleep(20);
+		for (CountingTask task : tasks) {
+			executions -= task.executions.get();
+		}
+		assertEquals(0, executions);
+	}
+
+	private static class CountingTask implements WorkerTask {
+
+		private final long id;
+
+		private final int numberOfExecutions;
+
+		private final AtomicInteger pendingInput;
+
+		private final AtomicInteger executions;
+
+		private final AtomicBoolean isRunning;
+
+		private final AtomicBoolean wasExecutedConcurrently;
+
+		private final Set<String> executingThreads;
+
+		private final AtomicBoolean isClosed;
+
+		private final AtomicBoolean wasClosedWhileRunning;
+
+		public CountingTask(int taskId, int numberOfExecutions) {
+			id = (1L << 48) | taskId;
+			this.numberOfExecutions = numberOfExecutions;
+			pendingInput = new AtomicInteger(numberOfExecutions);
+			executions = new AtomicInteger();
+			isRunning = new AtomicBoolean();
+			wasExecutedConcurrently = new AtomicBoolean();
+			executingThreads = ConcurrentHashMap.newKeySet();
+			isClosed = new AtomicBoolean();
+			wasClosedWhileRunning = new AtomicBoolean();
+		}
+
+		@Override
+		public void setUp(MessageSenderBuffer messageSender, MappingRecycleCache recycleCache, Logger logger,
+				MeasurementCollector measurementCollector) {
+		}
+
+		@Override
+		public long getID() {
+			return id;
+		}
+
+		@Override
+		public long getCoordinatorID() {
+			return 0;
+		}
+
+		@Override
+		public long getEstimatedTaskLoad() {
+			return 1;
+		}
+
+		@Override
+		public long getCurrentTaskLoad() {
+			return 1;
+		}
+
+		@Override
+		public WorkerTask getParentTask() {
+			return null;
+		}
+
+		@Override
+		public Set<WorkerTask> getPrecedingTasks() {
+			return Collections.emptySet();
+		}
+
+		@Override
+		public void start() {
+		}
+
+		@Override
+		public boolean hasInput() {
+			return pendingInput.get() > 0;
+		}
+
+		@Override
+		public boolean hasToPerformFinalSteps() {
+			return false;
+		}
+
+		@Override
+		public void enqueueMessage(long sender, byte[] message, int firstIndex, int lengthOfMessage) {
+			pendingInput.incrementAndGet();
+		}
+
+		@Override
+		public void execute() {
+			if (!isRunning.compareAndSet(false, true)) {
+				wasExecutedConcurrently.set(true);
+			}
+			executingThreads.add(Thread.currentThread().getName());
+			try {
+				Thread.sleep(1);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			pendingInput.decrementAndGet();
+			executions.incrementAndGet();
+			isRunning.set(false);
+		}
+
+		@Override
+		public boolean isInFinalState() {
+			return executions.get() >= numberOfExecutions;
+		}
+
+		@Override
+		public void close() {
+			if (isRunning.get()) {
+				wasClosedWhileRunning.set(true);
+			}
+			isClosed.set(true);
+		}
+
+	}
+
+}
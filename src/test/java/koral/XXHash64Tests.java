@@ -0,0 +1,53 @@
+package koral;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import de.uni_koblenz.west.koral.common.utils.XXHash64;
+
+/**
+ * Compares {@link XXHash64} with the reference values of xxHash64 with seed 0.
+ */
+class XXHash64Tests {
+
+	private static long hash(String input) {
+		return XXHash64.hash(input.getBytes(StandardCharsets.US_ASCII));
+	}
+
+	@Test
+	void emptyInputTest() {
+		assertEquals(0xEF46DB3751D8E999L, XXHash64.hash(new byte[0]));
+	}
+
+	@Test
+	void oneToThreeBytesTest() {
+		assertEquals(0xD24EC4F1A98C6E5BL, hash("a"));
+		assertEquals(0x44BC2CF5AD770999L, hash("abc"));
+	}
+
+	@Test
+	void fourToSevenBytesTest() {
+		assertEquals(0x32DD38952C4BC720L, hash("xxhash"));
+	}
+
+	@Test
+	void eightToThirtyOneBytesTest() {
+		assertEquals(0xCFE1F278FA89835CL, hash("abcdefghijklmnopqrstuvwxyz"));
+	}
+
+	@Test
+	void atLeastThirtyTwoBytesTest() {
+		assertEquals(0xFBCEA83C8A378BF1L, hash("Nobody inspects the spammish repetition"));
+		assertEquals(0x0B242D361FDA71BCL, hash("The quick brown fox jumps over the lazy dog"));
+	}
+
+	@Test
+	void offsetTest() {
+		byte[] bytes = "--The quick brown fox jumps over the lazy dog--".getBytes(StandardCharsets.US_ASCII);
+		assertEquals(0x0B242D361FDA71BCL, XXHash64.hash(bytes, 2, bytes.length - 4));
+	}
+
+}